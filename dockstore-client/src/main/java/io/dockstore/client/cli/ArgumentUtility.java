@@ -20,8 +20,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import io.swagger.client.model.DockstoreTool;
-import io.swagger.client.model.Workflow;
+import io.swagger.client.model.ToolSummary;
+import io.swagger.client.model.WorkflowSummary;
 
 /**
  * Organizes all methods that have to do with parsing of input and creation of output.
@@ -136,10 +136,10 @@ public final class ArgumentUtility {
         return val;
     }
 
-    public static int[] columnWidthsTool(List<DockstoreTool> containers) {
+    public static int[] columnWidthsTool(List<ToolSummary> containers) {
         int[] maxWidths = { NAME_HEADER.length(), DESCRIPTION_HEADER.length(), GIT_HEADER.length() };
 
-        for (DockstoreTool container : containers) {
+        for (ToolSummary container : containers) {
             final String toolPath = container.getToolPath();
             if (toolPath != null && toolPath.length() > maxWidths[0]) {
                 maxWidths[0] = toolPath.length();
@@ -159,10 +159,10 @@ public final class ArgumentUtility {
         return maxWidths;
     }
 
-    public static int[] columnWidthsWorkflow(List<Workflow> workflows) {
+    public static int[] columnWidthsWorkflow(List<WorkflowSummary> workflows) {
         int[] maxWidths = { NAME_HEADER.length(), DESCRIPTION_HEADER.length(), GIT_HEADER.length() };
 
-        for (Workflow workflow : workflows) {
+        for (WorkflowSummary workflow : workflows) {
             final String workflowGitPath = workflow.getPath();
             if (workflowGitPath != null && workflowGitPath.length() > maxWidths[0]) {
                 maxWidths[0] = workflowGitPath.length();
@@ -0,0 +1,113 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.client.cli;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.swagger.client.ApiClient;
+import io.swagger.client.ApiException;
+
+/**
+ * Reads every page of a paged collection endpoint by following the rel="next" links in the Link header.
+ */
+public final class Pagination {
+    private static final Pattern NEXT_LINK = Pattern.compile("<([^>]*)>\\s*;\\s*rel=\"?next\"?");
+
+    private Pagination() {
+        // hide the default constructor for a utility class
+    }
+
+    /**
+     * Gets one page.
+     */
+    public interface Page<T> {
+        /**
+         * @param next the query parameters of the previous page's next link, empty for the first page
+         * @return the page
+         */
+        List<T> get(Map<String, String> next) throws ApiException;
+    }
+
+    /**
+     * @param apiClient the client the page requests go through, the Link header is read from its last response
+     * @param page      gets one page
+     * @return the items of all pages in order
+     */
+    public static <T> List<T> all(ApiClient apiClient, Page<T> page) throws ApiException {
+        List<T> items = new ArrayList<>();
+        Map<String, String> next = Collections.emptyMap();
+        do {
+            items.addAll(page.get(next));
+            next = nextParameters(apiClient.getResponseHeaders());
+        } while (next != null);
+        return items;
+    }
+
+    public static Long getLong(Map<String, String> next, String name) {
+        return next.containsKey(name) ? Long.valueOf(next.get(name)) : null;
+    }
+
+    public static Integer getInteger(Map<String, String> next, String name) {
+        return next.containsKey(name) ? Integer.valueOf(next.get(name)) : null;
+    }
+
+    private static Map<String, String> nextParameters(Map<String, List<String>> headers) {
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (!"Link".equalsIgnoreCase(header.getKey())) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                Matcher next = NEXT_LINK.matcher(value);
+                if (next.find()) {
+                    return queryParameters(next.group(1));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, String> queryParameters(String uri) {
+        Map<String, String> parameters = new HashMap<>();
+        int start = uri.indexOf('?');
+        if (start < 0) {
+            return parameters;
+        }
+        try {
+            for (String parameter : uri.substring(start + 1).split("&")) {
+                String[] pair = parameter.split("=", 2);
+                parameters.put(URLDecoder.decode(pair[0], StandardCharsets.UTF_8.name()),
+                        pair.length > 1 ? URLDecoder.decode(pair[1], StandardCharsets.UTF_8.name()) : "");
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+        return parameters;
+    }
+}
@@ -19,6 +19,7 @@ package io.dockstore.client.cli.nested;
 import com.google.common.base.Joiner;
 import com.google.common.io.Files;
 import io.dockstore.client.cli.Client;
+import io.dockstore.client.cli.Pagination;
 import io.swagger.client.ApiException;
 import io.swagger.client.api.ContainersApi;
 import io.swagger.client.api.ContainertagsApi;
@@ -29,6 +30,7 @@ import io.swagger.client.model.Label;
 import io.swagger.client.model.PublishRequest;
 import io.swagger.client.model.SourceFile;
 import io.swagger.client.model.Tag;
+import io.swagger.client.model.ToolSummary;
 import io.swagger.client.model.User;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.http.HttpStatus;
@@ -106,7 +108,7 @@ public class ToolClient extends AbstractEntryClient {
         return false;
     }
 
-    private static void printToolList(List<DockstoreTool> containers) {
+    private static void printToolList(List<ToolSummary> containers) {
         Collections.sort(containers, new ToolComparator());
 
         int[] maxWidths = columnWidthsTool(containers);
@@ -117,7 +119,7 @@ public class ToolClient extends AbstractEntryClient {
         String format = "%-" + nameWidth + "s%-" + descWidth + "s%-" + gitWidth + "s%-16s%-16s%-10s";
         out(format, NAME_HEADER, DESCRIPTION_HEADER, GIT_HEADER, "On Dockstore?", "Descriptor", "Automated");
 
-        for (DockstoreTool container : containers) {
+        for (ToolSummary container : containers) {
             String descriptor = "No";
             String automated = "No";
             String description = "";
@@ -144,7 +146,25 @@ public class ToolClient extends AbstractEntryClient {
         }
     }
 
-    private static void printPublishedList(List<DockstoreTool> containers) {
+    /**
+     * The list endpoints return summaries, full tools are converted so that all lists print the same way.
+     */
+    private static List<ToolSummary> toSummaries(List<DockstoreTool> containers) {
+        List<ToolSummary> summaries = new ArrayList<>();
+        for (DockstoreTool container : containers) {
+            ToolSummary summary = new ToolSummary();
+            summary.setPath(container.getPath());
+            summary.setToolPath(container.getToolPath());
+            summary.setDescription(container.getDescription());
+            summary.setGitUrl(container.getGitUrl());
+            summary.setIsPublished(container.getIsPublished());
+            summary.setValidTrigger(container.getValidTrigger());
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    private static void printPublishedList(List<ToolSummary> containers) {
         Collections.sort(containers, new ToolComparator());
 
         int[] maxWidths = columnWidthsTool(containers);
@@ -155,7 +175,7 @@ public class ToolClient extends AbstractEntryClient {
         String format = "%-" + nameWidth + "s%-" + descWidth + "s%-" + gitWidth + "s";
         out(format, NAME_HEADER, DESCRIPTION_HEADER, GIT_HEADER);
 
-        for (DockstoreTool container : containers) {
+        for (ToolSummary container : containers) {
             String description = "";
             String gitUrl = "";
 
@@ -181,7 +201,7 @@ public class ToolClient extends AbstractEntryClient {
             if (user == null) {
                 errorMessage("User not found", Client.CLIENT_ERROR);
             }
-            List<DockstoreTool> containers = usersApi.userPublishedContainers(user.getId());
+            List<ToolSummary> containers = usersApi.userPublishedContainers(user.getId());
             printPublishedList(containers);
         } catch (ApiException ex) {
             exceptionMessage(ex, "", Client.API_ERROR);
@@ -190,7 +210,9 @@ public class ToolClient extends AbstractEntryClient {
 
     protected void handleSearch(String pattern) {
         try {
-            List<DockstoreTool> containers = containersApi.search(pattern);
+            List<ToolSummary> containers = Pagination.all(containersApi.getApiClient(),
+                    next -> containersApi.search(pattern, Pagination.getLong(next, "after"), Pagination.getInteger(next, "limit"),
+                            Pagination.getInteger(next, "offset")));
 
             out("MATCHING CONTAINERS");
             out("-------------------");
@@ -251,7 +273,7 @@ public class ToolClient extends AbstractEntryClient {
 
             out("YOUR AVAILABLE CONTAINERS");
             out("-------------------");
-            printToolList(containers);
+            printToolList(toSummaries(containers));
         } catch (ApiException ex) {
             exceptionMessage(ex, "", Client.API_ERROR);
         }
@@ -364,7 +386,7 @@ public class ToolClient extends AbstractEntryClient {
 
             out("YOUR UPDATED TOOLS");
             out("-------------------");
-            printToolList(containers);
+            printToolList(toSummaries(containers));
         } catch (ApiException ex) {
             exceptionMessage(ex, "", Client.API_ERROR);
         }
@@ -379,7 +401,7 @@ public class ToolClient extends AbstractEntryClient {
             containerList.add(updatedContainer);
             out("YOUR UPDATED TOOLS");
             out("-------------------");
-            printToolList(containerList);
+            printToolList(toSummaries(containerList));
         } catch (ApiException ex) {
             exceptionMessage(ex, "", Client.API_ERROR);
         }
@@ -859,9 +881,9 @@ public class ToolClient extends AbstractEntryClient {
         }
     }
 
-    private static class ToolComparator implements Comparator<DockstoreTool> {
+    private static class ToolComparator implements Comparator<ToolSummary> {
         @Override
-        public int compare(DockstoreTool c1, DockstoreTool c2) {
+        public int compare(ToolSummary c1, ToolSummary c2) {
             String path1 = c1.getPath();
             String path2 = c2.getPath();
 
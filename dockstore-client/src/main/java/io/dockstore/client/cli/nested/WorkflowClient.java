@@ -19,6 +19,7 @@ package io.dockstore.client.cli.nested;
 import com.google.common.base.Joiner;
 import com.google.common.io.Files;
 import io.dockstore.client.cli.Client;
+import io.dockstore.client.cli.Pagination;
 import io.swagger.client.ApiException;
 import io.swagger.client.api.UsersApi;
 import io.swagger.client.api.WorkflowsApi;
@@ -28,6 +29,7 @@ import io.swagger.client.model.PublishRequest;
 import io.swagger.client.model.SourceFile;
 import io.swagger.client.model.User;
 import io.swagger.client.model.Workflow;
+import io.swagger.client.model.WorkflowSummary;
 import io.swagger.client.model.WorkflowVersion;
 import org.apache.http.HttpStatus;
 
@@ -191,7 +193,7 @@ public class WorkflowClient extends AbstractEntryClient {
 
             out("YOUR UPDATED WORKFLOWS");
             out("-------------------");
-            printWorkflowList(workflows);
+            printWorkflowList(toSummaries(workflows));
         } catch (ApiException ex) {
             exceptionMessage(ex, "", Client.API_ERROR);
         }
@@ -207,7 +209,7 @@ public class WorkflowClient extends AbstractEntryClient {
             workflowList.add(updatedWorkflow);
             out("YOUR UPDATED WORKFLOW");
             out("-------------------");
-            printWorkflowList(workflowList);
+            printWorkflowList(toSummaries(workflowList));
         } catch (ApiException ex) {
             exceptionMessage(ex, "", Client.API_ERROR);
         }
@@ -271,7 +273,7 @@ public class WorkflowClient extends AbstractEntryClient {
 
             out("YOUR AVAILABLE WORKFLOWS");
             out("-------------------");
-            printWorkflowList(workflows);
+            printWorkflowList(toSummaries(workflows));
         } catch (ApiException ex) {
             exceptionMessage(ex, "", Client.API_ERROR);
         }
@@ -302,7 +304,9 @@ public class WorkflowClient extends AbstractEntryClient {
     @Override
     protected void handleSearch(String pattern) {
         try {
-            List<Workflow> workflows = workflowsApi.search(pattern);
+            List<WorkflowSummary> workflows = Pagination.all(workflowsApi.getApiClient(),
+                    next -> workflowsApi.search(pattern, Pagination.getLong(next, "after"), Pagination.getInteger(next, "limit"),
+                            Pagination.getInteger(next, "offset")));
 
             out("MATCHING WORKFLOWS");
             out("-------------------");
@@ -320,7 +324,7 @@ public class WorkflowClient extends AbstractEntryClient {
             if (user == null) {
                 errorMessage("User not found", Client.CLIENT_ERROR);
             }
-            List<Workflow> workflows = usersApi.userPublishedWorkflows(user.getId());
+            List<WorkflowSummary> workflows = usersApi.userPublishedWorkflows(user.getId());
             printWorkflowList(workflows);
         } catch (ApiException ex) {
             exceptionMessage(ex, "", Client.API_ERROR);
@@ -423,7 +427,23 @@ public class WorkflowClient extends AbstractEntryClient {
         }
     }
 
-    private static void printWorkflowList(List<Workflow> workflows) {
+    /**
+     * The list endpoints return summaries, full workflows are converted so that all lists print the same way.
+     */
+    private static List<WorkflowSummary> toSummaries(List<Workflow> workflows) {
+        List<WorkflowSummary> summaries = new ArrayList<>();
+        for (Workflow workflow : workflows) {
+            WorkflowSummary summary = new WorkflowSummary();
+            summary.setPath(workflow.getPath());
+            summary.setDescription(workflow.getDescription());
+            summary.setGitUrl(workflow.getGitUrl());
+            summary.setIsPublished(workflow.getIsPublished());
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    private static void printWorkflowList(List<WorkflowSummary> workflows) {
         int[] maxWidths = columnWidthsWorkflow(workflows);
 
         int nameWidth = maxWidths[0] + Client.PADDING;
@@ -432,7 +452,7 @@ public class WorkflowClient extends AbstractEntryClient {
         String format = "%-" + nameWidth + "s%-" + descWidth + "s%-" + gitWidth + "s%-16s";
         out(format, NAME_HEADER, DESCRIPTION_HEADER, GIT_HEADER, "On Dockstore?");
 
-        for (Workflow workflow : workflows) {
+        for (WorkflowSummary workflow : workflows) {
             String description = "";
             String gitUrl = "";
 
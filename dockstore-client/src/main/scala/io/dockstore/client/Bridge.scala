@@ -74,7 +74,10 @@ class Bridge {
   }
 
   def getImportFiles(file: JFile): util.ArrayList[String] = {
-    val lines = scala.io.Source.fromFile(file).mkString
+    getImportFiles(scala.io.Source.fromFile(file).mkString)
+  }
+
+  def getImportFiles(lines: String): util.ArrayList[String] = {
     val importList = new util.ArrayList[String]()
 
     val ns = NamespaceWithWorkflow.load(lines, (s: String) => "")
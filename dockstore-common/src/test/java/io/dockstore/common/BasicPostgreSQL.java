@@ -165,15 +165,26 @@ public class BasicPostgreSQL {
     }
 
     protected boolean loadDatabaseDump(String sqlDumpFile){
+        try {
+            return runScript(FileUtils.readFileToString(new File(sqlDumpFile)));
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Run several statements in order, later statements may use what earlier ones create
+     */
+    protected boolean runScript(String sql) {
         Statement statement = null;
         try {
-            final String s = FileUtils.readFileToString(new File(sqlDumpFile));
             try(Connection connection = dataSource.getConnection()) {
                 statement = connection.createStatement();
-                statement.execute(s);
+                statement.execute(sql);
             }
             return true;
-        } catch (SQLException | IOException e) {
+        } catch (SQLException e) {
             e.printStackTrace();
             throw new RuntimeException(e);
         } finally{
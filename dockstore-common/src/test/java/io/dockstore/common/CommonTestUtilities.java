@@ -154,6 +154,11 @@ public class CommonTestUtilities {
         public boolean runUpdateStatement(String query, Object... params){
             return super.runUpdateStatement(query, params);
         }
+
+        @Override
+        public boolean runScript(String sql) {
+            return super.runScript(sql);
+        }
     }
 
     /**
@@ -0,0 +1,195 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.client.cli;
+
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.common.Constants;
+import io.dockstore.common.Utilities;
+import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dropwizard.testing.ConfigOverride;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import io.swagger.client.ApiClient;
+import io.swagger.client.ApiException;
+import io.swagger.client.api.ContainersApi;
+import io.swagger.client.api.WorkflowsApi;
+import io.swagger.client.model.ToolSummary;
+import io.swagger.client.model.WorkflowSummary;
+import org.apache.commons.configuration.HierarchicalINIConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.apache.http.HttpStatus;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static io.dockstore.common.CommonTestUtilities.clearState;
+import static io.dockstore.common.CommonTestUtilities.getTestingPostgres;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs /containers/search and /workflows/search with ranked full-text search on, against a test database with the
+ * full-text-search changeset from migrations.xml applied on top of the schema made by hbm2ddl.
+ */
+public class SearchIT {
+
+    @ClassRule
+    public static final DropwizardAppRule<DockstoreWebserviceConfiguration> RULE = new DropwizardAppRule<>(
+            DockstoreWebserviceApplication.class, ResourceHelpers.resourceFilePath("dockstore.yml"),
+            ConfigOverride.config("search.fullText", "true"));
+
+    /**
+     * hbm2ddl made the tables when the service started, add the column, functions and triggers the way a migration would
+     */
+    @BeforeClass
+    public static void applyFullTextSearchChangeset() throws Exception {
+        final CommonTestUtilities.TestingPostgres testingPostgres = getTestingPostgres();
+        // the tables were dropped with their triggers, but functions from an earlier run are still there
+        testingPostgres.runUpdateStatement("DROP FUNCTION IF EXISTS entry_label_search_vector_update() CASCADE;");
+        testingPostgres.runUpdateStatement("DROP FUNCTION IF EXISTS workflow_search_vector_update() CASCADE;");
+        testingPostgres.runUpdateStatement("DROP FUNCTION IF EXISTS tool_search_vector_update() CASCADE;");
+        testingPostgres.runUpdateStatement("DROP FUNCTION IF EXISTS entry_search_vector(text, text, text, text, bigint) CASCADE;");
+        testingPostgres.runScript(readChangesetSql("full-text-search"));
+    }
+
+    @Before
+    public void clearDB() {
+        clearState();
+        insertTool(100, "quay.io/test_org/samtools", "Sort and index alignments", true);
+        insertTool(101, "quay.io/test_org/bwa", "An aligner whose output is read by samtools", true);
+        insertTool(102, "quay.io/test_org/samtools-private", "Not published", false);
+    }
+
+    @Test
+    public void testMatchesInThePathRankFirst() throws ApiException {
+        final ContainersApi api = new ContainersApi(getWebClient());
+
+        assertEquals(Arrays.asList(100L, 101L), ids(api.search("samtools", null, null, null)));
+    }
+
+    @Test
+    public void testWordsArePrefixesAndCaseIsIgnored() throws ApiException {
+        final ContainersApi api = new ContainersApi(getWebClient());
+
+        assertEquals(new HashSet<>(Arrays.asList(100L, 101L)), new HashSet<>(ids(api.search("SAM", null, null, null))));
+        // every word has to match
+        assertEquals(Arrays.asList(100L), ids(api.search("sam sort", null, null, null)));
+        assertTrue(api.search("sam nothing", null, null, null).isEmpty());
+        assertTrue(api.search(" - ", null, null, null).isEmpty());
+    }
+
+    @Test
+    public void testLabelsAreSearched() throws ApiException {
+        final ContainersApi api = new ContainersApi(getWebClient());
+        final CommonTestUtilities.TestingPostgres testingPostgres = getTestingPostgres();
+        testingPostgres.runUpdateStatement("insert into label(id, value) VALUES (100, 'variantcalling');");
+
+        testingPostgres.runUpdateStatement("insert into entry_label(entryid, labelid) VALUES (101, 100);");
+        assertEquals(Arrays.asList(101L), ids(api.search("variant", null, null, null)));
+
+        testingPostgres.runUpdateStatement("delete from entry_label where entryid = 101;");
+        assertTrue(api.search("variant", null, null, null).isEmpty());
+    }
+
+    @Test
+    public void testPagesByOffset() throws ApiException {
+        final ContainersApi api = new ContainersApi(getWebClient());
+        for (int i = 0; i < 5; i++) {
+            insertTool(200 + i, "quay.io/test_org/paged" + i, "", true);
+        }
+
+        final List<Long> seen = new ArrayList<>();
+        for (int offset = 0; offset < 6; offset += 2) {
+            final List<Long> page = ids(api.search("paged", null, 2, offset));
+            assertEquals(offset < 4 ? 2 : 1, page.size());
+            seen.addAll(page);
+        }
+        assertEquals(Arrays.asList(200L, 201L, 202L, 203L, 204L), seen);
+        assertTrue(api.search("paged", null, 2, 6).isEmpty());
+
+        try {
+            api.search("paged", 200L, 2, null);
+            fail("after cannot be used with ranked search");
+        } catch (ApiException e) {
+            assertEquals(HttpStatus.SC_BAD_REQUEST, e.getCode());
+        }
+    }
+
+    @Test
+    public void testWorkflowsAreSearched() throws ApiException {
+        final WorkflowsApi api = new WorkflowsApi(getWebClient());
+        getTestingPostgres().runUpdateStatement(
+                "insert into workflow(id, organization, repository, descriptortype, workflowname, path, ispublished, description, author) "
+                        + "VALUES (300, 'test_org', 'rnaseq', 'cwl', 'quantify', 'github.com/test_org/rnaseq', true, 'Count reads', 'Jane Doe');");
+
+        assertEquals(Arrays.asList(300L), api.search("rna quant", null, null, null).stream().map(WorkflowSummary::getId)
+                .collect(Collectors.toList()));
+        assertEquals(Arrays.asList(300L), api.search("doe", null, null, null).stream().map(WorkflowSummary::getId)
+                .collect(Collectors.toList()));
+    }
+
+    private static void insertTool(long id, String path, String description, boolean published) {
+        getTestingPostgres().runUpdateStatement(
+                "insert into tool(id, name, namespace, registry, path, validTrigger, ispublished, toolname, description) "
+                        + "VALUES (?, ?, 'test_org', 'QUAY_IO', ?, false, ?, '', ?);", id, path.substring(path.lastIndexOf('/') + 1), path,
+                published, description);
+    }
+
+    private static List<Long> ids(List<ToolSummary> tools) {
+        return tools.stream().map(ToolSummary::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * @param id a changeset of migrations.xml
+     * @return the SQL of the changeset
+     */
+    private static String readChangesetSql(String id) throws Exception {
+        try (InputStream migrations = DockstoreWebserviceApplication.class.getResourceAsStream("/migrations.xml")) {
+            final NodeList changeSets = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(migrations)
+                    .getElementsByTagName("changeSet");
+            for (int i = 0; i < changeSets.getLength(); i++) {
+                final Element changeSet = (Element)changeSets.item(i);
+                if (id.equals(changeSet.getAttribute("id"))) {
+                    return changeSet.getElementsByTagName("sql").item(0).getTextContent();
+                }
+            }
+        }
+        throw new IllegalArgumentException("No changeset " + id + " in migrations.xml");
+    }
+
+    private static ApiClient getWebClient() {
+        File configFile = FileUtils.getFile("src", "test", "resources", "config");
+        HierarchicalINIConfiguration parseConfig = Utilities.parseConfig(configFile.getAbsolutePath());
+        ApiClient client = new ApiClient();
+        client.setBasePath(parseConfig.getString(Constants.WEBSERVICE_BASE_PATH));
+        return client;
+    }
+}
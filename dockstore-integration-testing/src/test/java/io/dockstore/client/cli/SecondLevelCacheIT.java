@@ -0,0 +1,189 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.client.cli;
+
+import io.dockstore.common.Constants;
+import io.dockstore.common.Utilities;
+import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import io.swagger.client.ApiClient;
+import io.swagger.client.ApiException;
+import io.swagger.client.api.ContainersApi;
+import io.swagger.client.api.ContainertagsApi;
+import io.swagger.client.model.Body;
+import io.swagger.client.model.DockstoreTool;
+import io.swagger.client.model.Label;
+import io.swagger.client.model.PublishRequest;
+import io.swagger.client.model.SourceFile;
+import io.swagger.client.model.Tag;
+import io.swagger.client.model.ToolSummary;
+import net.sf.ehcache.CacheManager;
+import org.apache.commons.configuration.HierarchicalINIConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static io.dockstore.common.CommonTestUtilities.clearState;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the webservice with the second-level and query caches turned on, as in production, and checks that writes are
+ * visible on the next public read instead of being hidden behind a cached entry or query result.
+ */
+public class SecondLevelCacheIT {
+
+    @ClassRule
+    public static final DropwizardAppRule<DockstoreWebserviceConfiguration> RULE = new DropwizardAppRule<>(
+            DockstoreWebserviceApplication.class, ResourceHelpers.resourceFilePath("dockstore-cache.yml"));
+
+    @Before
+    public void clearDBandCache() {
+        clearState();
+        // the database was changed behind Hibernate's back, drop what it cached from before
+        CacheManager.getInstance().clearAll();
+    }
+
+    private static ApiClient getWebClient(boolean admin) {
+        File configFile = FileUtils.getFile("src", "test", "resources", "config");
+        HierarchicalINIConfiguration parseConfig = Utilities.parseConfig(configFile.getAbsolutePath());
+        ApiClient client = new ApiClient();
+        client.setBasePath(parseConfig.getString(Constants.WEBSERVICE_BASE_PATH));
+        client.addDefaultHeader("Authorization",
+                "Bearer " + parseConfig.getString(admin ? Constants.WEBSERVICE_TOKEN_USER_1 : Constants.WEBSERVICE_TOKEN_USER_2));
+        return client;
+    }
+
+    @Test
+    public void testPublishIsVisible() throws ApiException {
+        final ContainersApi adminApi = new ContainersApi(getWebClient(true));
+        final ContainersApi publicApi = new ContainersApi(getWebClient(false));
+        final long id = adminApi.registerManual(getContainer()).getId();
+
+        // read twice so that the second read is served from the cache
+        assertTrue(publishedIds(publicApi).contains(id));
+        assertTrue(publishedIds(publicApi).contains(id));
+        publicApi.getPublishedContainer(id);
+        assertTrue("published tools should be cached", CacheManager.getInstance().getCache("io.dockstore.webservice.core.Entry").getSize() > 0);
+
+        PublishRequest unpublish = new PublishRequest();
+        unpublish.setPublish(false);
+        adminApi.publish(id, unpublish);
+
+        assertFalse("unpublished tool is still listed", publishedIds(publicApi).contains(id));
+        try {
+            publicApi.getPublishedContainer(id);
+            fail("unpublished tool is still served");
+        } catch (ApiException e) {
+            // expected
+        }
+
+        PublishRequest publish = new PublishRequest();
+        publish.setPublish(true);
+        adminApi.publish(id, publish);
+
+        assertTrue("published tool is not listed", publishedIds(publicApi).contains(id));
+        assertTrue(publicApi.getPublishedContainer(id).getIsPublished());
+    }
+
+    @Test
+    public void testLabelEditIsVisible() throws ApiException {
+        final ContainersApi adminApi = new ContainersApi(getWebClient(true));
+        final ContainersApi publicApi = new ContainersApi(getWebClient(false));
+        final long id = adminApi.registerManual(getContainer()).getId();
+
+        assertTrue(labels(publicApi.getPublishedContainer(id)).isEmpty());
+
+        adminApi.updateLabels(id, "alpha,beta", new Body());
+        assertEquals(new HashSet<>(Arrays.asList("alpha", "beta")), labels(publicApi.getPublishedContainer(id)));
+
+        adminApi.updateLabels(id, "gamma", new Body());
+        assertEquals(new HashSet<>(Arrays.asList("gamma")), labels(publicApi.getPublishedContainer(id)));
+    }
+
+    @Test
+    public void testTagHideIsVisible() throws ApiException {
+        final ContainersApi adminApi = new ContainersApi(getWebClient(true));
+        final ContainertagsApi adminTagsApi = new ContainertagsApi(getWebClient(true));
+        final ContainersApi publicApi = new ContainersApi(getWebClient(false));
+        final long id = adminApi.registerManual(getContainer()).getId();
+
+        assertEquals(1, publicApi.getPublishedContainer(id).getTags().size());
+
+        List<Tag> tags = adminTagsApi.getTagsByPath(id);
+        tags.forEach(tag -> tag.setHidden(true));
+        adminTagsApi.updateTags(id, tags);
+        assertEquals("hidden tag is still served", 0, publicApi.getPublishedContainer(id).getTags().size());
+
+        tags = adminTagsApi.getTagsByPath(id);
+        tags.forEach(tag -> tag.setHidden(false));
+        adminTagsApi.updateTags(id, tags);
+        assertEquals("shown tag is not served", 1, publicApi.getPublishedContainer(id).getTags().size());
+    }
+
+    private static Set<Long> publishedIds(ContainersApi api) throws ApiException {
+        return api.allPublishedContainers(null, null).stream().map(ToolSummary::getId).collect(Collectors.toSet());
+    }
+
+    private static Set<String> labels(DockstoreTool tool) {
+        return tool.getLabels().stream().map(Label::getValue).collect(Collectors.toSet());
+    }
+
+    private static DockstoreTool getContainer() {
+        DockstoreTool c = new DockstoreTool();
+        c.setMode(DockstoreTool.ModeEnum.MANUAL_IMAGE_PATH);
+        c.setName("seqware");
+        c.setGitUrl("https://github.com/denis-yuen/test1");
+        c.setDefaultDockerfilePath("/Dockerfile");
+        c.setDefaultCwlPath("/Dockstore.cwl");
+        c.setRegistry(DockstoreTool.RegistryEnum.DOCKER_HUB);
+        c.setIsPublished(true);
+        c.setValidTrigger(true);
+        c.setNamespace("seqware");
+        c.setToolname("cached");
+        c.setPath("registry.hub.docker.com/seqware/seqware");
+        Tag tag = new Tag();
+        tag.setName("master");
+        tag.setReference("refs/heads/master");
+        tag.setValid(true);
+        tag.setImageId("123456");
+        SourceFile fileCWL = new SourceFile();
+        fileCWL.setContent("cwlstuff");
+        fileCWL.setType(SourceFile.TypeEnum.DOCKSTORE_CWL);
+        fileCWL.setPath("/Dockstore.cwl");
+        tag.getSourceFiles().add(fileCWL);
+        SourceFile fileDockerFile = new SourceFile();
+        fileDockerFile.setContent("dockerstuff");
+        fileDockerFile.setType(SourceFile.TypeEnum.DOCKERFILE);
+        fileDockerFile.setPath("/Dockerfile");
+        tag.getSourceFiles().add(fileDockerFile);
+        c.getTags().add(tag);
+        return c;
+    }
+}
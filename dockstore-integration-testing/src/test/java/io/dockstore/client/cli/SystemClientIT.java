@@ -39,6 +39,7 @@ import io.swagger.client.model.Token;
 import io.swagger.client.model.Tool;
 import io.swagger.client.model.ToolDescriptor;
 import io.swagger.client.model.ToolDockerfile;
+import io.swagger.client.model.ToolSummary;
 import io.swagger.client.model.ToolVersion;
 import io.swagger.client.model.User;
 import org.apache.commons.configuration.HierarchicalINIConfiguration;
@@ -113,7 +114,7 @@ public class SystemClientIT {
         ApiClient client = getAdminWebClient(false);
         UsersApi usersApi = new UsersApi(client);
         User user = usersApi.getUser();
-        final List<User> dockstoreUsers = usersApi.listUsers();
+        final List<User> dockstoreUsers = usersApi.listUsers(null, null);
 
         // should just be the one admin user after we clear it out
         assertTrue(dockstoreUsers.size() > 1);
@@ -123,7 +124,7 @@ public class SystemClientIT {
     public void testListUsers() throws ApiException, IOException, TimeoutException {
         ApiClient client = getAdminWebClient();
         UsersApi usersApi = new UsersApi(client);
-        final List<User> users = usersApi.listUsers();
+        final List<User> users = usersApi.listUsers(null, null);
         // should just be the one admin user after we clear it out
         assertTrue(users.size() == 2);
     }
@@ -139,7 +140,7 @@ public class SystemClientIT {
         assertTrue(tools.size() == 2);
 
         ContainersApi containersApi = new ContainersApi(client);
-        List<DockstoreTool> containerList = containersApi.allContainers();
+        List<DockstoreTool> containerList = containersApi.allContainers(null, null);
         assertTrue(containerList.size() > 1);
     }
 
@@ -147,13 +148,13 @@ public class SystemClientIT {
     public void testFailedContainerRegistration() throws ApiException, IOException, TimeoutException {
         ApiClient client = getWebClient();
         ContainersApi containersApi = new ContainersApi(client);
-        List<DockstoreTool> containers = containersApi.allPublishedContainers();
+        List<ToolSummary> published = containersApi.allPublishedContainers(null, null);
 
-        assertTrue(containers.size() == 1);
+        assertTrue(published.size() == 1);
 
         UsersApi usersApi = new UsersApi(client);
         User user = usersApi.getUser();
-        containers = usersApi.userContainers(user.getId());
+        List<DockstoreTool> containers = usersApi.userContainers(user.getId());
 
         assertTrue(containers.size() == 5);
 
@@ -256,15 +257,15 @@ public class SystemClientIT {
         DockstoreTool c = getContainer();
         containersApi.registerManual(c);
 
-        List<Tool> tools = toolApi.toolsGet(null, null, null, null, null, null, null);
+        List<Tool> tools = toolApi.toolsGet(null, null, null, null, null, null, null, null, null);
         assertTrue(tools.size() == 2);
 
         // test a few constraints
-        tools = toolApi.toolsGet(QUAY_IO_TEST_ORG_TEST6, null, null, null, null, null, null);
+        tools = toolApi.toolsGet(QUAY_IO_TEST_ORG_TEST6, null, null, null, null, null, null, null, null);
         assertTrue(tools.size() == 1);
-        tools = toolApi.toolsGet(QUAY_IO_TEST_ORG_TEST6, Registry.QUAY_IO.toString(), null, null, null, null, null);
+        tools = toolApi.toolsGet(QUAY_IO_TEST_ORG_TEST6, Registry.QUAY_IO.toString(), null, null, null, null, null, null, null);
         assertTrue(tools.size() == 1);
-        tools = toolApi.toolsGet(QUAY_IO_TEST_ORG_TEST6, Registry.DOCKER_HUB.toString(), null, null, null, null, null);
+        tools = toolApi.toolsGet(QUAY_IO_TEST_ORG_TEST6, Registry.DOCKER_HUB.toString(), null, null, null, null, null, null, null);
         assertTrue(tools.size() == 0);
     }
 
@@ -314,13 +315,13 @@ public class SystemClientIT {
     public void testContainerRegistration() throws ApiException, IOException, TimeoutException {
         ApiClient client = getWebClient();
         ContainersApi containersApi = new ContainersApi(client);
-        List<DockstoreTool> containers = containersApi.allPublishedContainers();
+        List<ToolSummary> published = containersApi.allPublishedContainers(null, null);
 
-        assertTrue(containers.size() == 1);
+        assertTrue(published.size() == 1);
 
         UsersApi usersApi = new UsersApi(client);
         User user = usersApi.getUser();
-        containers = usersApi.userContainers(user.getId());
+        List<DockstoreTool> containers = usersApi.userContainers(user.getId());
 
         assertTrue(containers.size() == 5);
 
@@ -335,8 +336,8 @@ public class SystemClientIT {
         container = containersApi.publish(containerId, pub);
         assertTrue(container.getIsPublished());
 
-        containers = containersApi.allPublishedContainers();
-        assertTrue(containers.size() == 2);
+        published = containersApi.allPublishedContainers(null, null);
+        assertTrue(published.size() == 2);
 
         pub.setPublish(false);
 
@@ -349,11 +350,11 @@ public class SystemClientIT {
         ApiClient client = getWebClient();
         ContainersApi containersApi = new ContainersApi(client);
 
-        List<DockstoreTool> containers = containersApi.search("test6");
+        List<ToolSummary> containers = containersApi.search("test6", null, null, null);
         assertTrue(containers.size() == 1);
         assertTrue(containers.get(0).getPath().equals(QUAY_IO_TEST_ORG_TEST6));
 
-        containers = containersApi.search("test5");
+        containers = containersApi.search("test5", null, null, null);
         assertTrue(containers.isEmpty());
     }
 
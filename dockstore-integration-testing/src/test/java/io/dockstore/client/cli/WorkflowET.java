@@ -25,9 +25,11 @@ import io.dropwizard.testing.ResourceHelpers;
 import io.dropwizard.testing.junit.DropwizardAppRule;
 import io.swagger.client.ApiClient;
 import io.swagger.client.ApiException;
+import io.swagger.client.api.RefreshJobsApi;
 import io.swagger.client.api.UsersApi;
 import io.swagger.client.api.WorkflowsApi;
 import io.swagger.client.model.PublishRequest;
+import io.swagger.client.model.RefreshJob;
 import io.swagger.client.model.SourceFile;
 import io.swagger.client.model.Workflow;
 import io.swagger.client.model.WorkflowVersion;
@@ -43,10 +45,12 @@ import org.junit.contrib.java.lang.system.ExpectedSystemExit;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import static io.dockstore.common.CommonTestUtilities.clearStateMakePrivate2;
 import static io.dockstore.common.CommonTestUtilities.getTestingPostgres;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -62,6 +66,9 @@ public class WorkflowET {
     private static final String DOCKSTORE_TEST_USER2_HELLO_DOCKSTORE_WORKFLOW = "DockstoreTestUser2/hello-dockstore-workflow";
     private static final String DOCKSTORE_TEST_USER2_DOCKSTORE_WORKFLOW = "dockstore_testuser2/dockstore-workflow";
     private static final String DOCKSTORE_TEST_USER2_IMPORTS_DOCKSTORE_WORKFLOW = "DockstoreTestUser2/dockstore-whalesay-imports";
+    private static final long REFRESH_POLL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final long REFRESH_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final int ALL_WORKFLOWS = 1000;
 
     @Rule
     public final ExpectedSystemExit systemExit = ExpectedSystemExit.none();
@@ -85,15 +92,39 @@ public class WorkflowET {
         return client;
     }
 
+    /**
+     * Refreshing all workflows runs in the background, poll the job until it is done
+     *
+     * @param webClient client for an admin
+     * @param job       the job returned when the refresh was requested
+     * @return the finished job
+     */
+    private static RefreshJob waitForRefresh(ApiClient webClient, RefreshJob job) throws ApiException, TimeoutException,
+            InterruptedException {
+        final RefreshJobsApi refreshJobsApi = new RefreshJobsApi(webClient);
+        final long deadline = System.currentTimeMillis() + REFRESH_TIMEOUT_MILLIS;
+        RefreshJob current = job;
+        while (current.getStatus() == RefreshJob.StatusEnum.QUEUED || current.getStatus() == RefreshJob.StatusEnum.RUNNING) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new TimeoutException("refresh job " + job.getId() + " did not finish, last status " + current.getStatus());
+            }
+            Thread.sleep(REFRESH_POLL_MILLIS);
+            current = refreshJobsApi.getRefreshJob(job.getId());
+        }
+        assertEquals("refresh job failed", RefreshJob.StatusEnum.SUCCEEDED, current.getStatus());
+        return current;
+    }
+
     @Test
-    public void testStubRefresh() throws IOException, TimeoutException, ApiException {
+    public void testStubRefresh() throws IOException, TimeoutException, ApiException, InterruptedException {
         // need to promote user to admin to refresh all stubs
         final CommonTestUtilities.TestingPostgres testingPostgres = getTestingPostgres();
         testingPostgres.runUpdateStatement("update enduser set isadmin = 't' where username = 'DockstoreTestUser2';");
 
         final ApiClient webClient = getWebClient();
         WorkflowsApi workflowApi = new WorkflowsApi(webClient);
-        final List<Workflow> workflows = workflowApi.refreshAll();
+        waitForRefresh(webClient, workflowApi.refreshAll());
+        final List<Workflow> workflows = workflowApi.allWorkflows(null, ALL_WORKFLOWS);
         assertTrue("workflow size was " + workflows.size(), workflows.size() > 1);
         assertTrue("found non stub workflows "
                 + workflows.stream().filter(workflow -> workflow.getMode() != Workflow.ModeEnum.STUB).count(),
@@ -101,14 +132,14 @@ public class WorkflowET {
     }
 
     @Test
-    public void testTargettedRefresh() throws IOException, TimeoutException, ApiException {
+    public void testTargettedRefresh() throws IOException, TimeoutException, ApiException, InterruptedException {
         // need to promote user to admin to refresh all stubs
         final CommonTestUtilities.TestingPostgres testingPostgres = getTestingPostgres();
         testingPostgres.runUpdateStatement("update enduser set isadmin = 't' where username = 'DockstoreTestUser2';");
 
         final ApiClient webClient = getWebClient();
         WorkflowsApi workflowApi = new WorkflowsApi(webClient);
-        workflowApi.refreshAll();
+        waitForRefresh(webClient, workflowApi.refreshAll());
 
         // do targetted refresh, should promote workflow to fully-fleshed out workflow
         final Workflow workflowByPathGithub = workflowApi.getWorkflowByPath(DOCKSTORE_TEST_USER2_HELLO_DOCKSTORE_WORKFLOW);
@@ -180,12 +211,12 @@ public class WorkflowET {
         WorkflowsApi workflowApi = new WorkflowsApi(webClient);
 
         // should start with nothing published
-        assertTrue("should start with nothing published " , workflowApi.allPublishedWorkflows().isEmpty());
+        assertTrue("should start with nothing published " , workflowApi.allPublishedWorkflows(null, null).isEmpty());
         // refresh just for the current user
         UsersApi usersApi = new UsersApi(webClient);
         final Long userId = usersApi.getUser().getId();
         usersApi.refreshWorkflows(userId);
-        assertTrue("should remain with nothing published " , workflowApi.allPublishedWorkflows().isEmpty());
+        assertTrue("should remain with nothing published " , workflowApi.allPublishedWorkflows(null, null).isEmpty());
        // assertTrue("should have a bunch of stub workflows: " +  usersApi..allWorkflows().size(), workflowApi.allWorkflows().size() == 4);
 
         final Workflow workflowByPath = workflowApi.getWorkflowByPath(DOCKSTORE_TEST_USER2_HELLO_DOCKSTORE_WORKFLOW);
@@ -196,7 +227,7 @@ public class WorkflowET {
         final PublishRequest publishRequest = new PublishRequest();
         publishRequest.setPublish(true);
         workflowApi.publish(workflowByPath.getId(), publishRequest);
-        assertTrue("should have one published, found  " + workflowApi.allPublishedWorkflows().size(), workflowApi.allPublishedWorkflows().size() == 1);
+        assertTrue("should have one published, found  " + workflowApi.allPublishedWorkflows(null, null).size(), workflowApi.allPublishedWorkflows(null, null).size() == 1);
         final Workflow publishedWorkflow = workflowApi.getPublishedWorkflow(workflowByPath.getId());
         assertTrue("did not get published workflow", publishedWorkflow != null);
         final Workflow publishedWorkflowByPath = workflowApi.getPublishedWorkflowByPath(DOCKSTORE_TEST_USER2_HELLO_DOCKSTORE_WORKFLOW);
@@ -248,7 +279,7 @@ public class WorkflowET {
         workflowApi.publish(bitbucketWorkflow.getId(), publishRequest);
 
         // Assert some things
-        assertTrue("should have two published, found  " + workflowApi.allPublishedWorkflows().size(), workflowApi.allPublishedWorkflows().size() == 2);
+        assertTrue("should have two published, found  " + workflowApi.allPublishedWorkflows(null, null).size(), workflowApi.allPublishedWorkflows(null, null).size() == 2);
         final long count3 = testingPostgres.runSelectStatement("select count(*) from workflow where mode = '" + Workflow.ModeEnum.FULL + "'", new ScalarHandler<>());
         assertTrue("Two workflows are in full mode", count3 == 2);
         final long count4 = testingPostgres.runSelectStatement("select count(*) from workflowversion where valid = 't'", new ScalarHandler<>());
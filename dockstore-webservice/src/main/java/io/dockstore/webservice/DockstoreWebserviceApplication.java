@@ -18,8 +18,14 @@ package io.dockstore.webservice;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.RefreshConfiguration;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.RefreshSchedulerConfiguration;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.WebhookConfiguration;
+import io.dockstore.webservice.core.CachedFile;
+import io.dockstore.webservice.core.CachedResponse;
 import io.dockstore.webservice.core.Group;
 import io.dockstore.webservice.core.Label;
+import io.dockstore.webservice.core.RefreshJob;
 import io.dockstore.webservice.core.SourceFile;
 import io.dockstore.webservice.core.Tag;
 import io.dockstore.webservice.core.Token;
@@ -27,9 +33,30 @@ import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.helpers.BitBucketSourceCodeRepo;
+import io.dockstore.webservice.helpers.BitbucketResponseCache;
+import io.dockstore.webservice.helpers.CachedResponseStore;
+import io.dockstore.webservice.helpers.GitHubMetadataCache;
+import io.dockstore.webservice.helpers.GitHubSourceCodeRepo;
+import io.dockstore.webservice.helpers.HttpResponseCache;
+import io.dockstore.webservice.helpers.OutboundClient;
+import io.dockstore.webservice.helpers.RateLimiter;
+import io.dockstore.webservice.helpers.RefreshEngine;
+import io.dockstore.webservice.helpers.RefreshJobQueue;
+import io.dockstore.webservice.helpers.RefreshJobWorker;
+import io.dockstore.webservice.helpers.RefreshScheduler;
+import io.dockstore.webservice.helpers.RequestCoalescer;
+import io.dockstore.webservice.helpers.RetryPolicy;
+import io.dockstore.webservice.helpers.SecondLevelCacheMetrics;
+import io.dockstore.webservice.helpers.SourceCodeRepoInterface;
+import io.dockstore.webservice.helpers.SourceFileCache;
+import io.dockstore.webservice.helpers.StaleEntryWorker;
+import io.dockstore.webservice.helpers.WebhookQueue;
+import io.dockstore.webservice.helpers.WebhookWorker;
 import io.dockstore.webservice.jdbi.FileDAO;
 import io.dockstore.webservice.jdbi.GroupDAO;
 import io.dockstore.webservice.jdbi.LabelDAO;
+import io.dockstore.webservice.jdbi.RefreshJobDAO;
 import io.dockstore.webservice.jdbi.TagDAO;
 import io.dockstore.webservice.jdbi.TokenDAO;
 import io.dockstore.webservice.jdbi.ToolDAO;
@@ -41,10 +68,14 @@ import io.dockstore.webservice.resources.DockerRepoResource;
 import io.dockstore.webservice.resources.DockerRepoTagResource;
 import io.dockstore.webservice.resources.GitHubComAuthenticationResource;
 import io.dockstore.webservice.resources.GitHubRepoResource;
+import io.dockstore.webservice.resources.HttpCacheResource;
 import io.dockstore.webservice.resources.QuayIOAuthenticationResource;
+import io.dockstore.webservice.resources.RefreshJobResource;
+import io.dockstore.webservice.resources.ResourceUtilities;
 import io.dockstore.webservice.resources.TemplateHealthCheck;
 import io.dockstore.webservice.resources.TokenResource;
 import io.dockstore.webservice.resources.UserResource;
+import io.dockstore.webservice.resources.WebhookResource;
 import io.dockstore.webservice.resources.WorkflowResource;
 import io.dropwizard.Application;
 import io.dropwizard.assets.AssetsBundle;
@@ -66,8 +97,6 @@ import io.swagger.api.impl.ToolsApiServiceImpl;
 import io.swagger.jaxrs.config.BeanConfig;
 import io.swagger.jaxrs.listing.ApiListingResource;
 import io.swagger.jaxrs.listing.SwaggerSerializers;
-import okhttp3.Cache;
-import okhttp3.OkHttpClient;
 import okhttp3.OkUrlFactory;
 import org.apache.http.client.HttpClient;
 import org.eclipse.jetty.servlet.FilterHolder;
@@ -76,12 +105,10 @@ import org.glassfish.jersey.server.filter.RolesAllowedDynamicFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
 import java.net.URL;
-import java.nio.file.Files;
 import java.util.EnumSet;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static javax.servlet.DispatcherType.REQUEST;
 import static org.eclipse.jetty.servlets.CrossOriginFilter.ACCESS_CONTROL_ALLOW_METHODS_HEADER;
@@ -97,21 +124,43 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
 
     private static final Logger LOG = LoggerFactory.getLogger(DockstoreWebserviceApplication.class);
     public static final String GA4GH_API_PATH = "/api/v1";
-    private static final int BYTES_IN_KILOBYTE = 1024;
-    private static final int KILOBYTES_IN_MEGABYTE = 1024;
-    private static final int CACHE_IN_MB = 100;
-    private static Cache cache = null;
+    private static final int JDBC_BATCH_SIZE = 50;
+    private static OkUrlFactory urlFactory = null;
 
     public static void main(String[] args) throws Exception {
         new DockstoreWebserviceApplication().run(args);
     }
 
     private final HibernateBundle<DockstoreWebserviceConfiguration> hibernate = new HibernateBundle<DockstoreWebserviceConfiguration>(
-            Token.class, Tool.class, User.class, Group.class, Tag.class, Label.class, SourceFile.class, Workflow.class, WorkflowVersion.class) {
+            Token.class, Tool.class, User.class, Group.class, Tag.class, Label.class, SourceFile.class, Workflow.class, WorkflowVersion.class,
+            RefreshJob.class, CachedFile.class, CachedResponse.class) {
         @Override
         public DataSourceFactory getDataSourceFactory(DockstoreWebserviceConfiguration configuration) {
             return configuration.getDataSourceFactory();
         }
+
+        @Override
+        protected void configure(org.hibernate.cfg.Configuration configuration) {
+            // a refresh creates many tags, versions and files at once, send their inserts in batches
+            // properties set under database.properties in the yml take precedence
+            setDefaultProperty(configuration, "hibernate.jdbc.batch_size", String.valueOf(JDBC_BATCH_SIZE));
+            setDefaultProperty(configuration, "hibernate.order_inserts", "true");
+            setDefaultProperty(configuration, "hibernate.order_updates", "true");
+            setDefaultProperty(configuration, "hibernate.jdbc.batch_versioned_data", "true");
+            // published entries are read far more often than written, keep them in a second-level cache bounded by ehcache.xml
+            setDefaultProperty(configuration, "hibernate.cache.use_second_level_cache", "true");
+            setDefaultProperty(configuration, "hibernate.cache.use_query_cache", "true");
+            setDefaultProperty(configuration, "hibernate.cache.region.factory_class",
+                    "org.hibernate.cache.ehcache.SingletonEhCacheRegionFactory");
+            setDefaultProperty(configuration, "net.sf.ehcache.configurationResourceName", "/ehcache.xml");
+            // statistics cost a little on every session, they are off unless hibernate.generate_statistics is set
+        }
+
+        private void setDefaultProperty(org.hibernate.cfg.Configuration configuration, String key, String value) {
+            if (configuration.getProperty(key) == null) {
+                configuration.setProperty(key, value);
+            }
+        }
     };
 
     @Override
@@ -137,31 +186,6 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
                 return configuration.getDataSourceFactory();
             }
         });
-
-        if (cache == null) {
-            int cacheSize = CACHE_IN_MB * BYTES_IN_KILOBYTE * KILOBYTES_IN_MEGABYTE; // 100 MiB
-            final File tempDir;
-            try {
-                tempDir = Files.createTempDirectory("dockstore-web-cache-").toFile();
-            } catch (IOException e) {
-                LOG.error("Could no create web cache");
-                throw new RuntimeException(e);
-            }
-            cache = new Cache(tempDir, cacheSize);
-        }
-        // match HttpURLConnection which does not have a timeout by default
-        OkHttpClient okHttpClient = new OkHttpClient().newBuilder().cache(cache).connectTimeout(0, TimeUnit.SECONDS).readTimeout(0, TimeUnit.SECONDS).writeTimeout(0, TimeUnit.SECONDS).build();
-        try {
-            // this can only be called once per JVM, a factory exception is thrown in our tests
-            URL.setURLStreamHandlerFactory(new OkUrlFactory(okHttpClient));
-        } catch(Error factoryException){
-            if (factoryException.getMessage().contains("factory already defined")){
-                LOG.info("OkHttpClient already registered, skipping");
-            } else{
-                LOG.error("Could no create web cache, factory exception");
-                throw new RuntimeException(factoryException);
-            }
-        }
     }
 
     @Override
@@ -190,8 +214,10 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
         final TagDAO tagDAO = new TagDAO(hibernate.getSessionFactory());
         final LabelDAO labelDAO = new LabelDAO(hibernate.getSessionFactory());
         final FileDAO fileDAO = new FileDAO(hibernate.getSessionFactory());
+        final RefreshJobDAO refreshJobDAO = new RefreshJobDAO(hibernate.getSessionFactory());
+
+        SecondLevelCacheMetrics.register(hibernate.getSessionFactory(), environment.metrics());
 
-        LOG.info("Cache directory for OkHttp is: " + cache.directory().getAbsolutePath());
         LOG.info("This is our custom logger saying that we're about to load authenticators");
         // setup authentication to allow session access in authenticators, see https://github.com/dropwizard/dropwizard/pull/1361
         SimpleAuthenticator authenticator = new UnitOfWorkAwareProxyFactory(getHibernate()).create(SimpleAuthenticator.class,
@@ -207,9 +233,19 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
         final HttpClient httpClient = new HttpClientBuilder(environment).using(configuration.getHttpClientConfiguration()).build(getName());
+
+        final RefreshConfiguration refreshConfiguration = configuration.getRefreshConfiguration();
+        final ExecutorService refreshExecutor = environment.lifecycle().executorService("refresh-%d")
+                .minThreads(refreshConfiguration.getThreads()).maxThreads(refreshConfiguration.getThreads()).build();
+        final RefreshEngine refreshEngine = new RefreshEngine(refreshExecutor, refreshConfiguration);
+        // its own pool, a version read must never wait for a refresh worker that is waiting for it
+        SourceCodeRepoInterface.setReferenceExecutor(environment.lifecycle().executorService("workflow-versions-%d")
+                .minThreads(refreshConfiguration.getVersionThreads()).maxThreads(refreshConfiguration.getVersionThreads()).build());
+
         final DockerRepoResource dockerRepoResource = new DockerRepoResource(mapper, httpClient, userDAO, tokenDAO, toolDAO, tagDAO, labelDAO,
-                                                                       fileDAO, configuration.getBitbucketClientID(),
-                                                                       configuration.getBitbucketClientSecret());
+                                                                       fileDAO, refreshJobDAO, refreshEngine, configuration.getBitbucketClientID(),
+                                                                       configuration.getBitbucketClientSecret(),
+                                                                       configuration.getSearchConfiguration().isFullText());
         environment.jersey().register(dockerRepoResource);
         environment.jersey().register(new GitHubRepoResource(tokenDAO));
         environment.jersey().register(new DockerRepoTagResource(toolDAO, tagDAO));
@@ -226,11 +262,42 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
                         configuration.getBitbucketClientID(), configuration.getBitbucketClientSecret(), httpClient, cachingAuthenticator));
 
         final WorkflowResource workflowResource = new WorkflowResource(httpClient, userDAO, tokenDAO, workflowDAO, workflowVersionDAO,
-                labelDAO, fileDAO, configuration.getBitbucketClientID(), configuration.getBitbucketClientSecret());
+                labelDAO, fileDAO, refreshJobDAO, configuration.getBitbucketClientID(), configuration.getBitbucketClientSecret(),
+                configuration.getSearchConfiguration().isFullText());
         environment.jersey().register(workflowResource);
-
-        environment.jersey().register(new UserResource(httpClient, tokenDAO, userDAO, groupDAO, workflowResource, dockerRepoResource));
-
+        environment.jersey().register(new RefreshJobResource(refreshJobDAO));
+
+        // refreshes of all users are queued and run in the background, one user per transaction
+        final RefreshJobWorker refreshJobWorker = new UnitOfWorkAwareProxyFactory(getHibernate()).create(RefreshJobWorker.class,
+                new Class[] { RefreshJobDAO.class, UserDAO.class, DockerRepoResource.class, WorkflowResource.class },
+                new Object[] { refreshJobDAO, userDAO, dockerRepoResource, workflowResource });
+        final ScheduledExecutorService refreshJobExecutor = environment.lifecycle().scheduledExecutorService("refresh-job-%d").build();
+        environment.lifecycle().manage(new RefreshJobQueue(refreshJobWorker, refreshJobExecutor, refreshConfiguration.getJobPollInterval(),
+                refreshConfiguration.getJobStaleAfter()));
+
+        // push notifications refresh only the branch, tag or image that changed, once a burst of them has settled
+        final WebhookConfiguration webhookConfiguration = configuration.getWebhookConfiguration();
+        final WebhookWorker webhookWorker = new UnitOfWorkAwareProxyFactory(getHibernate()).create(WebhookWorker.class,
+                new Class[] { ToolDAO.class, WorkflowDAO.class, DockerRepoResource.class, WorkflowResource.class },
+                new Object[] { toolDAO, workflowDAO, dockerRepoResource, workflowResource });
+        final ScheduledExecutorService webhookExecutor = environment.lifecycle().scheduledExecutorService("webhook-%d").build();
+        final WebhookQueue webhookQueue = new WebhookQueue(webhookWorker, webhookExecutor, webhookConfiguration.getDebounce());
+        environment.lifecycle().manage(webhookQueue);
+        environment.jersey().register(new WebhookResource(mapper, webhookQueue, webhookConfiguration));
+
+        // keeps entries fresh a few at a time, stalest and published first
+        final RefreshSchedulerConfiguration schedulerConfiguration = configuration.getRefreshSchedulerConfiguration();
+        final StaleEntryWorker staleEntryWorker = new UnitOfWorkAwareProxyFactory(getHibernate()).create(StaleEntryWorker.class,
+                new Class[] { ToolDAO.class, WorkflowDAO.class, DockerRepoResource.class, WorkflowResource.class },
+                new Object[] { toolDAO, workflowDAO, dockerRepoResource, workflowResource });
+        final ScheduledExecutorService schedulerExecutor = environment.lifecycle().scheduledExecutorService("refresh-scheduler-%d")
+                .threads(schedulerConfiguration.getMaxConcurrent() + 1).build();
+        environment.lifecycle().manage(new RefreshScheduler(staleEntryWorker, schedulerExecutor, schedulerConfiguration, environment.metrics()));
+
+        environment.jersey().register(new UserResource(httpClient, tokenDAO, userDAO, groupDAO, toolDAO, workflowDAO, workflowResource,
+                dockerRepoResource));
+
+        configureSourceControl(configuration, environment);
 
         // attach the container dao statically to avoid too much modification of generated code
         ToolsApiServiceImpl.setToolDAO(toolDAO);
@@ -267,6 +334,73 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
         // "*");
     }
 
+    /**
+     * Set up the caches and limits shared by everything that talks to source control and image registries
+     */
+    private void configureSourceControl(DockstoreWebserviceConfiguration configuration, Environment environment) {
+        // the response cache directory is kept across restarts, the cache is closed and the directory released on stop
+        final HttpResponseCache cache = new HttpResponseCache(configuration.getHttpCacheConfiguration());
+        LOG.info("Cache directory for OkHttp is: " + cache.getCache().directory().getAbsolutePath());
+        cache.registerMetrics(environment.metrics());
+        environment.lifecycle().manage(cache);
+        environment.jersey().register(new HttpCacheResource(cache));
+        // failed GETs are retried and hosts that keep failing are left alone for a while
+        final RetryPolicy retryPolicy = new RetryPolicy(configuration.getRetryConfiguration(), environment.metrics());
+        ResourceUtilities.setRetryPolicy(retryPolicy);
+        GitHubSourceCodeRepo.setRetryPolicy(retryPolicy);
+        // one client for everything outbound, egit reaches it through HttpURLConnection
+        final ScheduledExecutorService retryExecutor = environment.lifecycle().scheduledExecutorService("outbound-retry-%d").build();
+        final OutboundClient outboundClient = new OutboundClient(configuration.getOutboundHttpConfiguration(), cache.getCache(), retryPolicy,
+                retryExecutor);
+        if (urlFactory == null) {
+            urlFactory = new OkUrlFactory(outboundClient.getOkHttpClient());
+            try {
+                // this can only be called once per JVM, a factory exception is thrown in our tests
+                URL.setURLStreamHandlerFactory(urlFactory);
+            } catch(Error factoryException){
+                if (factoryException.getMessage().contains("factory already defined")){
+                    LOG.info("OkHttpClient already registered, skipping");
+                } else{
+                    LOG.error("Could no create web cache, factory exception");
+                    throw new RuntimeException(factoryException);
+                }
+            }
+        } else {
+            // the handlers made by the factory outlive a stopped application, point them at this run's client and cache
+            urlFactory.setClient(outboundClient.getOkHttpClient());
+        }
+        ResourceUtilities.setOutboundClient(outboundClient);
+        // users of the same organization refreshing at once share the requests they have in common
+        if (configuration.getOutboundHttpConfiguration().isCoalesce()) {
+            final RequestCoalescer coalescer = new RequestCoalescer(environment.metrics());
+            ResourceUtilities.setCoalescer(coalescer);
+            GitHubSourceCodeRepo.setCoalescer(coalescer);
+        } else {
+            ResourceUtilities.setCoalescer(null);
+            GitHubSourceCodeRepo.setCoalescer(null);
+        }
+        // file contents are cached by commit so that refreshes only download what changed
+        final ScheduledExecutorService pruneExecutor = environment.lifecycle().scheduledExecutorService("cache-prune-%d").build();
+        final SourceFileCache fileCache = new SourceFileCache(hibernate.getSessionFactory(),
+                configuration.getRefreshConfiguration().getFileCacheExpiry(), pruneExecutor);
+        environment.lifecycle().manage(fileCache);
+        SourceCodeRepoInterface.setFileCache(fileCache);
+        SourceCodeRepoInterface.setSnapshots(configuration.getRefreshConfiguration().isSnapshots());
+        // outbound GETs are revalidated against the last response, also across restarts
+        final CachedResponseStore responseStore = new CachedResponseStore(hibernate.getSessionFactory(),
+                configuration.getResponseStoreConfiguration(), pruneExecutor, environment.metrics());
+        environment.lifecycle().manage(responseStore);
+        ResourceUtilities.setResponseStore(responseStore);
+        GitHubSourceCodeRepo.setResponseStore(responseStore);
+        // outbound requests wait for the rate limit budget of their token instead of using it up
+        final RateLimiter rateLimiter = new RateLimiter(configuration.getRateLimitConfiguration(), environment.metrics());
+        ResourceUtilities.setRateLimiter(rateLimiter);
+        GitHubSourceCodeRepo.setRateLimiter(rateLimiter);
+        // clients and repository lookups are kept between refreshes instead of being redone for every file
+        GitHubSourceCodeRepo.setMetadataCache(new GitHubMetadataCache(configuration.getGitHubCacheConfiguration(), environment.metrics()));
+        BitBucketSourceCodeRepo.setResponseCache(new BitbucketResponseCache(configuration.getBitbucketCacheConfiguration(), environment.metrics()));
+    }
+
     public HibernateBundle<DockstoreWebserviceConfiguration> getHibernate() {
         return hibernate;
     }
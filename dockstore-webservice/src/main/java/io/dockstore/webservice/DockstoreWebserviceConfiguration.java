@@ -21,10 +21,15 @@ import com.google.common.cache.CacheBuilderSpec;
 import io.dropwizard.Configuration;
 import io.dropwizard.client.HttpClientConfiguration;
 import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.util.Duration;
+import io.dropwizard.util.Size;
 import org.hibernate.validator.constraints.NotEmpty;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import java.io.File;
 
 public class DockstoreWebserviceConfiguration extends Configuration {
 
@@ -72,6 +77,50 @@ public class DockstoreWebserviceConfiguration extends Configuration {
     @NotEmpty
     private String port;
 
+    @Valid
+    @NotNull
+    private RefreshConfiguration refresh = new RefreshConfiguration();
+
+    @Valid
+    @NotNull
+    private WebhookConfiguration webhooks = new WebhookConfiguration();
+
+    @Valid
+    @NotNull
+    private RefreshSchedulerConfiguration refreshScheduler = new RefreshSchedulerConfiguration();
+
+    @Valid
+    @NotNull
+    private RateLimitConfiguration rateLimit = new RateLimitConfiguration();
+
+    @Valid
+    @NotNull
+    private GitHubCacheConfiguration githubCache = new GitHubCacheConfiguration();
+
+    @Valid
+    @NotNull
+    private BitbucketCacheConfiguration bitbucketCache = new BitbucketCacheConfiguration();
+
+    @Valid
+    @NotNull
+    private OutboundHttpConfiguration outboundHttp = new OutboundHttpConfiguration();
+
+    @Valid
+    @NotNull
+    private HttpCacheConfiguration httpCache = new HttpCacheConfiguration();
+
+    @Valid
+    @NotNull
+    private ResponseStoreConfiguration responseStore = new ResponseStoreConfiguration();
+
+    @Valid
+    @NotNull
+    private RetryConfiguration retry = new RetryConfiguration();
+
+    @Valid
+    @NotNull
+    private SearchConfiguration search = new SearchConfiguration();
+
     @JsonProperty("database")
     public DataSourceFactory getDataSourceFactory() {
         return database;
@@ -260,4 +309,998 @@ public class DockstoreWebserviceConfiguration extends Configuration {
     public void setPort(String port) {
         this.port = port;
     }
+
+    @JsonProperty("refresh")
+    public RefreshConfiguration getRefreshConfiguration() {
+        return refresh;
+    }
+
+    /**
+     * @param refresh
+     *            the refresh settings to set
+     */
+    @JsonProperty("refresh")
+    public void setRefreshConfiguration(RefreshConfiguration refresh) {
+        this.refresh = refresh;
+    }
+
+    @JsonProperty("webhooks")
+    public WebhookConfiguration getWebhookConfiguration() {
+        return webhooks;
+    }
+
+    /**
+     * @param webhooks
+     *            the webhook settings to set
+     */
+    @JsonProperty("webhooks")
+    public void setWebhookConfiguration(WebhookConfiguration webhooks) {
+        this.webhooks = webhooks;
+    }
+
+    @JsonProperty("refreshScheduler")
+    public RefreshSchedulerConfiguration getRefreshSchedulerConfiguration() {
+        return refreshScheduler;
+    }
+
+    /**
+     * @param refreshScheduler
+     *            the background refresh settings to set
+     */
+    @JsonProperty("refreshScheduler")
+    public void setRefreshSchedulerConfiguration(RefreshSchedulerConfiguration refreshScheduler) {
+        this.refreshScheduler = refreshScheduler;
+    }
+
+    @JsonProperty("rateLimit")
+    public RateLimitConfiguration getRateLimitConfiguration() {
+        return rateLimit;
+    }
+
+    /**
+     * @param rateLimit
+     *            the rate limit settings to set
+     */
+    @JsonProperty("rateLimit")
+    public void setRateLimitConfiguration(RateLimitConfiguration rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    @JsonProperty("githubCache")
+    public GitHubCacheConfiguration getGitHubCacheConfiguration() {
+        return githubCache;
+    }
+
+    /**
+     * @param githubCache
+     *            the GitHub client and repository cache settings to set
+     */
+    @JsonProperty("githubCache")
+    public void setGitHubCacheConfiguration(GitHubCacheConfiguration githubCache) {
+        this.githubCache = githubCache;
+    }
+
+    @JsonProperty("bitbucketCache")
+    public BitbucketCacheConfiguration getBitbucketCacheConfiguration() {
+        return bitbucketCache;
+    }
+
+    /**
+     * @param bitbucketCache
+     *            the Bitbucket default branch and branch listing cache settings to set
+     */
+    @JsonProperty("bitbucketCache")
+    public void setBitbucketCacheConfiguration(BitbucketCacheConfiguration bitbucketCache) {
+        this.bitbucketCache = bitbucketCache;
+    }
+
+    @JsonProperty("outboundHttp")
+    public OutboundHttpConfiguration getOutboundHttpConfiguration() {
+        return outboundHttp;
+    }
+
+    /**
+     * @param outboundHttp
+     *            the settings of the client that talks to source control and image registries
+     */
+    @JsonProperty("outboundHttp")
+    public void setOutboundHttpConfiguration(OutboundHttpConfiguration outboundHttp) {
+        this.outboundHttp = outboundHttp;
+    }
+
+    @JsonProperty("httpCache")
+    public HttpCacheConfiguration getHttpCacheConfiguration() {
+        return httpCache;
+    }
+
+    /**
+     * @param httpCache
+     *            the location and size of the cache of outbound responses to set
+     */
+    @JsonProperty("httpCache")
+    public void setHttpCacheConfiguration(HttpCacheConfiguration httpCache) {
+        this.httpCache = httpCache;
+    }
+
+    @JsonProperty("responseStore")
+    public ResponseStoreConfiguration getResponseStoreConfiguration() {
+        return responseStore;
+    }
+
+    /**
+     * @param responseStore
+     *            how many stored outbound responses are kept in memory and when they are pruned
+     */
+    @JsonProperty("responseStore")
+    public void setResponseStoreConfiguration(ResponseStoreConfiguration responseStore) {
+        this.responseStore = responseStore;
+    }
+
+    @JsonProperty("retry")
+    public RetryConfiguration getRetryConfiguration() {
+        return retry;
+    }
+
+    /**
+     * @param retry
+     *            how failed outbound GETs are retried and when a host is given a rest
+     */
+    @JsonProperty("retry")
+    public void setRetryConfiguration(RetryConfiguration retry) {
+        this.retry = retry;
+    }
+
+    @JsonProperty("search")
+    public SearchConfiguration getSearchConfiguration() {
+        return search;
+    }
+
+    /**
+     * @param search
+     *            how /containers/search and /workflows/search match entries
+     */
+    @JsonProperty("search")
+    public void setSearchConfiguration(SearchConfiguration search) {
+        this.search = search;
+    }
+
+    /**
+     * Bounds the worker pool used when refreshing tools, and how many of its workers may talk to each provider at once.
+     */
+    public static class RefreshConfiguration {
+
+        private static final int DEFAULT_THREADS = 16;
+        private static final int DEFAULT_GITHUB_CONCURRENCY = 8;
+        private static final int DEFAULT_BITBUCKET_CONCURRENCY = 4;
+        private static final int DEFAULT_QUAY_CONCURRENCY = 8;
+        private static final int DEFAULT_DOCKER_HUB_CONCURRENCY = 2;
+        private static final int DEFAULT_JOB_POLL_SECONDS = 5;
+        private static final int DEFAULT_JOB_STALE_MINUTES = 10;
+        private static final int DEFAULT_VERSION_THREADS = 4;
+        private static final int DEFAULT_FILE_CACHE_EXPIRY_DAYS = 30;
+
+        @Min(1)
+        private int threads = DEFAULT_THREADS;
+
+        @Min(1)
+        private int githubConcurrency = DEFAULT_GITHUB_CONCURRENCY;
+
+        @Min(1)
+        private int bitbucketConcurrency = DEFAULT_BITBUCKET_CONCURRENCY;
+
+        @Min(1)
+        private int quayConcurrency = DEFAULT_QUAY_CONCURRENCY;
+
+        @Min(1)
+        private int dockerHubConcurrency = DEFAULT_DOCKER_HUB_CONCURRENCY;
+
+        @NotNull
+        private Duration jobPollInterval = Duration.seconds(DEFAULT_JOB_POLL_SECONDS);
+
+        @NotNull
+        private Duration jobStaleAfter = Duration.minutes(DEFAULT_JOB_STALE_MINUTES);
+
+        private boolean snapshots = true;
+
+        @Min(1)
+        private int versionThreads = DEFAULT_VERSION_THREADS;
+
+        @NotNull
+        private Duration fileCacheExpiry = Duration.days(DEFAULT_FILE_CACHE_EXPIRY_DAYS);
+
+        @JsonProperty
+        public int getThreads() {
+            return threads;
+        }
+
+        @JsonProperty
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        @JsonProperty
+        public int getGithubConcurrency() {
+            return githubConcurrency;
+        }
+
+        @JsonProperty
+        public void setGithubConcurrency(int githubConcurrency) {
+            this.githubConcurrency = githubConcurrency;
+        }
+
+        @JsonProperty
+        public int getBitbucketConcurrency() {
+            return bitbucketConcurrency;
+        }
+
+        @JsonProperty
+        public void setBitbucketConcurrency(int bitbucketConcurrency) {
+            this.bitbucketConcurrency = bitbucketConcurrency;
+        }
+
+        @JsonProperty
+        public int getQuayConcurrency() {
+            return quayConcurrency;
+        }
+
+        @JsonProperty
+        public void setQuayConcurrency(int quayConcurrency) {
+            this.quayConcurrency = quayConcurrency;
+        }
+
+        @JsonProperty
+        public int getDockerHubConcurrency() {
+            return dockerHubConcurrency;
+        }
+
+        @JsonProperty
+        public void setDockerHubConcurrency(int dockerHubConcurrency) {
+            this.dockerHubConcurrency = dockerHubConcurrency;
+        }
+
+        /**
+         * @return how often the queue of refresh jobs is checked
+         */
+        @JsonProperty
+        public Duration getJobPollInterval() {
+            return jobPollInterval;
+        }
+
+        @JsonProperty
+        public void setJobPollInterval(Duration jobPollInterval) {
+            this.jobPollInterval = jobPollInterval;
+        }
+
+        /**
+         * @return how long a running refresh job may go without progress before another node takes it over
+         */
+        @JsonProperty
+        public Duration getJobStaleAfter() {
+            return jobStaleAfter;
+        }
+
+        @JsonProperty
+        public void setJobStaleAfter(Duration jobStaleAfter) {
+            this.jobStaleAfter = jobStaleAfter;
+        }
+
+        /**
+         * @return whether files missing from the file cache are read from an archive of their commit instead of one by one
+         */
+        @JsonProperty
+        public boolean isSnapshots() {
+            return snapshots;
+        }
+
+        @JsonProperty
+        public void setSnapshots(boolean snapshots) {
+            this.snapshots = snapshots;
+        }
+
+        /**
+         * @return how many branches and tags of workflows are read at once, across all refreshes
+         */
+        @JsonProperty
+        public int getVersionThreads() {
+            return versionThreads;
+        }
+
+        @JsonProperty
+        public void setVersionThreads(int versionThreads) {
+            this.versionThreads = versionThreads;
+        }
+
+        /**
+         * @return how long a file in the file cache may go unread before it is deleted
+         */
+        @JsonProperty
+        public Duration getFileCacheExpiry() {
+            return fileCacheExpiry;
+        }
+
+        @JsonProperty
+        public void setFileCacheExpiry(Duration fileCacheExpiry) {
+            this.fileCacheExpiry = fileCacheExpiry;
+        }
+    }
+
+    /**
+     * Secrets used to check that push notifications really come from source control or the image registry, and how long to
+     * wait for a burst of notifications to settle before refreshing.
+     */
+    public static class WebhookConfiguration {
+
+        private static final int DEFAULT_DEBOUNCE_SECONDS = 10;
+
+        private String githubSecret;
+
+        private String secret;
+
+        @NotNull
+        private Duration debounce = Duration.seconds(DEFAULT_DEBOUNCE_SECONDS);
+
+        /**
+         * @return the secret GitHub signs payloads with, GitHub notifications are rejected when this is not set
+         */
+        @JsonProperty
+        public String getGithubSecret() {
+            return githubSecret;
+        }
+
+        @JsonProperty
+        public void setGithubSecret(String githubSecret) {
+            this.githubSecret = githubSecret;
+        }
+
+        /**
+         * @return the secret expected in the query string of Bitbucket and Quay.io notifications, which are not signed,
+         * these notifications are rejected when this is not set
+         */
+        @JsonProperty
+        public String getSecret() {
+            return secret;
+        }
+
+        @JsonProperty
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+
+        /**
+         * @return how long a repository must be quiet before its notifications are acted on
+         */
+        @JsonProperty
+        public Duration getDebounce() {
+            return debounce;
+        }
+
+        @JsonProperty
+        public void setDebounce(Duration debounce) {
+            this.debounce = debounce;
+        }
+    }
+
+    /**
+     * Keeps entries fresh by refreshing the stalest ones a few at a time, published entries first. This spreads the load that a
+     * full refresh of every user puts on the webservice and on source control over the whole day.
+     */
+    public static class RefreshSchedulerConfiguration {
+
+        private static final int DEFAULT_ENTRIES_PER_MINUTE = 10;
+        private static final int DEFAULT_MAX_CONCURRENT = 2;
+        private static final int DEFAULT_STALE_AFTER_HOURS = 24;
+        private static final int LAST_HOUR = 23;
+
+        private boolean enabled;
+
+        @Min(1)
+        private int entriesPerMinute = DEFAULT_ENTRIES_PER_MINUTE;
+
+        @Min(1)
+        private int maxConcurrent = DEFAULT_MAX_CONCURRENT;
+
+        @NotNull
+        private Duration staleAfter = Duration.hours(DEFAULT_STALE_AFTER_HOURS);
+
+        @Min(0)
+        @Max(LAST_HOUR)
+        private Integer quietHoursStart;
+
+        @Min(0)
+        @Max(LAST_HOUR)
+        private Integer quietHoursEnd;
+
+        @JsonProperty
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        @JsonProperty
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return how many refreshes are started per minute, at most
+         */
+        @JsonProperty
+        public int getEntriesPerMinute() {
+            return entriesPerMinute;
+        }
+
+        @JsonProperty
+        public void setEntriesPerMinute(int entriesPerMinute) {
+            this.entriesPerMinute = entriesPerMinute;
+        }
+
+        /**
+         * @return how many refreshes may run at the same time
+         */
+        @JsonProperty
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        @JsonProperty
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        /**
+         * @return how long after its last update an entry is refreshed again
+         */
+        @JsonProperty
+        public Duration getStaleAfter() {
+            return staleAfter;
+        }
+
+        @JsonProperty
+        public void setStaleAfter(Duration staleAfter) {
+            this.staleAfter = staleAfter;
+        }
+
+        /**
+         * @return hour of the day (server time) from which no refreshes are started, none when not set
+         */
+        @JsonProperty
+        public Integer getQuietHoursStart() {
+            return quietHoursStart;
+        }
+
+        @JsonProperty
+        public void setQuietHoursStart(Integer quietHoursStart) {
+            this.quietHoursStart = quietHoursStart;
+        }
+
+        /**
+         * @return hour of the day (server time) at which refreshes start again, may be earlier than the start to span midnight
+         */
+        @JsonProperty
+        public Integer getQuietHoursEnd() {
+            return quietHoursEnd;
+        }
+
+        @JsonProperty
+        public void setQuietHoursEnd(Integer quietHoursEnd) {
+            this.quietHoursEnd = quietHoursEnd;
+        }
+    }
+
+    /**
+     * How outbound requests are paced against the rate limits that GitHub and Quay.io report for each token.
+     */
+    public static class RateLimitConfiguration {
+
+        private static final int DEFAULT_RESERVE = 10;
+        private static final int DEFAULT_PACE_BELOW_PERCENT = 20;
+        private static final int DEFAULT_MAX_WAIT_SECONDS = 30;
+        private static final int PERCENT = 100;
+
+        @Min(0)
+        private int reserve = DEFAULT_RESERVE;
+
+        @Min(0)
+        @Max(PERCENT)
+        private int paceBelowPercent = DEFAULT_PACE_BELOW_PERCENT;
+
+        @NotNull
+        private Duration maxWait = Duration.seconds(DEFAULT_MAX_WAIT_SECONDS);
+
+        /**
+         * @return requests left untouched at the end of each window, so a user can still use the webservice interactively
+         */
+        @JsonProperty
+        public int getReserve() {
+            return reserve;
+        }
+
+        @JsonProperty
+        public void setReserve(int reserve) {
+            this.reserve = reserve;
+        }
+
+        /**
+         * @return once less than this percentage of the limit is left, requests are spread over the rest of the window
+         */
+        @JsonProperty
+        public int getPaceBelowPercent() {
+            return paceBelowPercent;
+        }
+
+        @JsonProperty
+        public void setPaceBelowPercent(int paceBelowPercent) {
+            this.paceBelowPercent = paceBelowPercent;
+        }
+
+        /**
+         * @return the longest background work waits for budget, work that would wait longer fails so it can be retried later
+         */
+        @JsonProperty
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        @JsonProperty
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+
+    /**
+     * Bounds how many GitHub clients (one per token) and repository lookups are kept, and for how long a repository lookup
+     * is trusted.
+     */
+    public static class GitHubCacheConfiguration {
+
+        private static final int DEFAULT_MAX_CLIENTS = 200;
+        private static final int DEFAULT_MAX_REPOSITORIES = 2000;
+        private static final int DEFAULT_REPOSITORY_TTL_MINUTES = 10;
+
+        @Min(0)
+        private int maxClients = DEFAULT_MAX_CLIENTS;
+
+        @Min(0)
+        private int maxRepositories = DEFAULT_MAX_REPOSITORIES;
+
+        @NotNull
+        private Duration repositoryTtl = Duration.minutes(DEFAULT_REPOSITORY_TTL_MINUTES);
+
+        /**
+         * @return how many tokens keep their client between requests, 0 to create a client every time
+         */
+        @JsonProperty
+        public int getMaxClients() {
+            return maxClients;
+        }
+
+        @JsonProperty
+        public void setMaxClients(int maxClients) {
+            this.maxClients = maxClients;
+        }
+
+        /**
+         * @return how many repository lookups are kept, 0 to look repositories up every time
+         */
+        @JsonProperty
+        public int getMaxRepositories() {
+            return maxRepositories;
+        }
+
+        @JsonProperty
+        public void setMaxRepositories(int maxRepositories) {
+            this.maxRepositories = maxRepositories;
+        }
+
+        /**
+         * @return how long a repository lookup is reused, renames and visibility changes show up after this
+         */
+        @JsonProperty
+        public Duration getRepositoryTtl() {
+            return repositoryTtl;
+        }
+
+        @JsonProperty
+        public void setRepositoryTtl(Duration repositoryTtl) {
+            this.repositoryTtl = repositoryTtl;
+        }
+    }
+
+    /**
+     * Bounds how many Bitbucket default branch and branch listing responses are kept, and for how long.
+     */
+    public static class BitbucketCacheConfiguration {
+
+        private static final int DEFAULT_MAX_ENTRIES = 2000;
+        private static final int DEFAULT_TTL_MINUTES = 5;
+
+        @Min(0)
+        private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+        @NotNull
+        private Duration ttl = Duration.minutes(DEFAULT_TTL_MINUTES);
+
+        /**
+         * @return how many responses are kept, 0 to ask Bitbucket every time
+         */
+        @JsonProperty
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        @JsonProperty
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        /**
+         * @return how long a response is reused, a push notification for the repository drops it straight away
+         */
+        @JsonProperty
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        @JsonProperty
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    /**
+     * Timeouts and connection limits of the client that talks to GitHub, Bitbucket and Quay.io.
+     */
+    public static class OutboundHttpConfiguration {
+
+        private static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 10;
+        private static final int DEFAULT_READ_TIMEOUT_SECONDS = 60;
+        private static final int DEFAULT_WRITE_TIMEOUT_SECONDS = 60;
+        private static final int DEFAULT_MAX_REQUESTS = 64;
+        private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 16;
+        private static final int DEFAULT_MAX_IDLE_CONNECTIONS = 16;
+        private static final int DEFAULT_KEEP_ALIVE_MINUTES = 5;
+
+        @NotNull
+        private Duration connectTimeout = Duration.seconds(DEFAULT_CONNECT_TIMEOUT_SECONDS);
+
+        @NotNull
+        private Duration readTimeout = Duration.seconds(DEFAULT_READ_TIMEOUT_SECONDS);
+
+        @NotNull
+        private Duration writeTimeout = Duration.seconds(DEFAULT_WRITE_TIMEOUT_SECONDS);
+
+        @Min(1)
+        private int maxRequests = DEFAULT_MAX_REQUESTS;
+
+        @Min(1)
+        private int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+
+        @Min(0)
+        private int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+
+        @NotNull
+        private Duration keepAlive = Duration.minutes(DEFAULT_KEEP_ALIVE_MINUTES);
+
+        private boolean http2 = true;
+
+        private boolean coalesce = true;
+
+        @JsonProperty
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        @JsonProperty
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        @JsonProperty
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+
+        @JsonProperty
+        public void setReadTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+
+        @JsonProperty
+        public Duration getWriteTimeout() {
+            return writeTimeout;
+        }
+
+        @JsonProperty
+        public void setWriteTimeout(Duration writeTimeout) {
+            this.writeTimeout = writeTimeout;
+        }
+
+        /**
+         * @return requests in flight at once, over all hosts
+         */
+        @JsonProperty
+        public int getMaxRequests() {
+            return maxRequests;
+        }
+
+        @JsonProperty
+        public void setMaxRequests(int maxRequests) {
+            this.maxRequests = maxRequests;
+        }
+
+        /**
+         * @return requests in flight at once to a single host, further requests wait for one to finish
+         */
+        @JsonProperty
+        public int getMaxRequestsPerHost() {
+            return maxRequestsPerHost;
+        }
+
+        @JsonProperty
+        public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+        }
+
+        @JsonProperty
+        public int getMaxIdleConnections() {
+            return maxIdleConnections;
+        }
+
+        @JsonProperty
+        public void setMaxIdleConnections(int maxIdleConnections) {
+            this.maxIdleConnections = maxIdleConnections;
+        }
+
+        /**
+         * @return how long an idle connection is kept open for the next request
+         */
+        @JsonProperty
+        public Duration getKeepAlive() {
+            return keepAlive;
+        }
+
+        @JsonProperty
+        public void setKeepAlive(Duration keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+
+        /**
+         * @return whether HTTP/2 is offered, requests to a host that accepts it share one connection
+         */
+        @JsonProperty
+        public boolean isHttp2() {
+            return http2;
+        }
+
+        @JsonProperty
+        public void setHttp2(boolean http2) {
+            this.http2 = http2;
+        }
+
+        /**
+         * @return whether identical GETs in flight at the same time with the same credentials share one request
+         */
+        @JsonProperty
+        public boolean isCoalesce() {
+            return coalesce;
+        }
+
+        @JsonProperty
+        public void setCoalesce(boolean coalesce) {
+            this.coalesce = coalesce;
+        }
+    }
+
+    /**
+     * How many of the responses stored for revalidating outbound GETs are also kept in memory, and how long a stored
+     * response may go unused before it is deleted.
+     */
+    public static class ResponseStoreConfiguration {
+
+        private static final int DEFAULT_MAX_ENTRIES = 1000;
+        private static final int DEFAULT_EXPIRY_DAYS = 30;
+
+        @Min(0)
+        private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+        @NotNull
+        private Duration expiry = Duration.days(DEFAULT_EXPIRY_DAYS);
+
+        /**
+         * @return how many responses are kept in memory, 0 to always read them from the database
+         */
+        @JsonProperty
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        @JsonProperty
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        /**
+         * @return how long a stored response may go unused before it is deleted
+         */
+        @JsonProperty
+        public Duration getExpiry() {
+            return expiry;
+        }
+
+        @JsonProperty
+        public void setExpiry(Duration expiry) {
+            this.expiry = expiry;
+        }
+    }
+
+    /**
+     * Where the responses of the outbound client are cached on disk and how much space they may take. Entries are
+     * evicted least recently used first once the cache is full.
+     */
+    public static class HttpCacheConfiguration {
+
+        private static final int DEFAULT_MAX_SIZE_MEGABYTES = 100;
+
+        @NotEmpty
+        private String directory = new File(System.getProperty("java.io.tmpdir"), "dockstore-web-cache").getPath();
+
+        @NotNull
+        private Size maxSize = Size.megabytes(DEFAULT_MAX_SIZE_MEGABYTES);
+
+        private boolean clearOnStart = false;
+
+        /**
+         * @return the cache directory, it is kept across restarts and locked by the process using it, a second
+         *         instance pointed at the same directory fails on start
+         */
+        @JsonProperty
+        public String getDirectory() {
+            return directory;
+        }
+
+        @JsonProperty
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * @return how much disk space the cache may take before the least recently used responses are evicted
+         */
+        @JsonProperty
+        public Size getMaxSize() {
+            return maxSize;
+        }
+
+        @JsonProperty
+        public void setMaxSize(Size maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * @return whether responses left by the previous run are evicted on start instead of being reused
+         */
+        @JsonProperty
+        public boolean isClearOnStart() {
+            return clearOnStart;
+        }
+
+        @JsonProperty
+        public void setClearOnStart(boolean clearOnStart) {
+            this.clearOnStart = clearOnStart;
+        }
+    }
+
+    /**
+     * How often a failed outbound GET is tried again and how long to back off in between, and after how many failures in a
+     * row a host is left alone for a while.
+     */
+    public static class RetryConfiguration {
+
+        private static final int DEFAULT_MAX_ATTEMPTS = 3;
+        private static final int DEFAULT_INITIAL_BACKOFF_MILLISECONDS = 500;
+        private static final int DEFAULT_MAX_BACKOFF_SECONDS = 10;
+        private static final int DEFAULT_FAILURE_THRESHOLD = 10;
+        private static final int DEFAULT_OPEN_SECONDS = 30;
+
+        @Min(1)
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+        @NotNull
+        private Duration initialBackoff = Duration.milliseconds(DEFAULT_INITIAL_BACKOFF_MILLISECONDS);
+
+        @NotNull
+        private Duration maxBackoff = Duration.seconds(DEFAULT_MAX_BACKOFF_SECONDS);
+
+        @Min(0)
+        private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+
+        @NotNull
+        private Duration openDuration = Duration.seconds(DEFAULT_OPEN_SECONDS);
+
+        /**
+         * @return how often a GET is sent before giving up, 1 to never retry
+         */
+        @JsonProperty
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        @JsonProperty
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        /**
+         * @return the longest wait before the first retry, doubled for every further retry, the actual wait is picked at random
+         */
+        @JsonProperty
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        @JsonProperty
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        /**
+         * @return the longest wait before any retry
+         */
+        @JsonProperty
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        @JsonProperty
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        /**
+         * @return failed requests in a row after which requests to a host fail straight away, 0 to always contact the host
+         */
+        @JsonProperty
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        @JsonProperty
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+
+        /**
+         * @return how long requests to a failing host fail straight away before one is let through to try it again
+         */
+        @JsonProperty
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        @JsonProperty
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+    }
+
+    /**
+     * Whether search uses the full-text index that the full-text-search changeset in migrations.xml sets up, or the older
+     * case sensitive LIKE match.
+     */
+    public static class SearchConfiguration {
+
+        private boolean fullText = true;
+
+        /**
+         * @return true (the default) for ranked full-text search, false for the LIKE match, which works without the changeset
+         */
+        @JsonProperty
+        public boolean isFullText() {
+            return fullText;
+        }
+
+        @JsonProperty
+        public void setFullText(boolean fullText) {
+            this.fullText = fullText;
+        }
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.api;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * The columns of an entry that list pages need. Summaries are read with constructor queries so that listing entries does not
+ * load their versions, labels and source files.
+ */
+public abstract class EntrySummary {
+    private long id;
+    private String description;
+    private String author;
+    private String gitUrl;
+    private boolean isPublished;
+    private Integer lastModified;
+    private Date lastUpdated;
+    private List<String> versionNames = new ArrayList<>();
+
+    public EntrySummary() {
+    }
+
+    public EntrySummary(long id, String description, String author, String gitUrl, boolean isPublished, Integer lastModified,
+            Date lastUpdated) {
+        this.id = id;
+        this.description = description;
+        this.author = author;
+        this.gitUrl = gitUrl;
+        this.isPublished = isPublished;
+        this.lastModified = lastModified;
+        this.lastUpdated = lastUpdated;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Implementation specific ID for the entry in this web service")
+    public long getId() {
+        return id;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("This is a human-readable description of this entry and what it is trying to accomplish")
+    public String getDescription() {
+        return description;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("This is the name of the author stated in the descriptor")
+    public String getAuthor() {
+        return author;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("This is a link to the associated repo with a descriptor")
+    public String getGitUrl() {
+        return gitUrl;
+    }
+
+    @JsonProperty("is_published")
+    @ApiModelProperty("Implementation specific visibility in this web service")
+    public boolean getIsPublished() {
+        return isPublished;
+    }
+
+    @JsonProperty("last_modified")
+    @ApiModelProperty("Implementation specific timestamp for last modified")
+    public Integer getLastModified() {
+        return lastModified;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Implementation specific timestamp for last updated on webservice")
+    public Date getLastUpdated() {
+        return lastUpdated;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Names of the versions that are not hidden, in the order they were added")
+    public List<String> getVersionNames() {
+        return versionNames;
+    }
+
+    public void setVersionNames(List<String> versionNames) {
+        this.versionNames = versionNames;
+    }
+}
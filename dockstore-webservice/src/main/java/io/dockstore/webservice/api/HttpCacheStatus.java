@@ -0,0 +1,109 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * What the cache of outbound responses holds and how well it does, counted since the service started.
+ */
+@ApiModel("HttpCacheStatus")
+public class HttpCacheStatus {
+    private String directory;
+    private long size;
+    private long maxSize;
+    private int requests;
+    private int hits;
+    private int network;
+    private int writes;
+    private int writeAborts;
+    private long purged;
+
+    public HttpCacheStatus() {
+    }
+
+    @SuppressWarnings("checkstyle:parameternumber")
+    public HttpCacheStatus(String directory, long size, long maxSize, int requests, int hits, int network, int writes, int writeAborts,
+            long purged) {
+        this.directory = directory;
+        this.size = size;
+        this.maxSize = maxSize;
+        this.requests = requests;
+        this.hits = hits;
+        this.network = network;
+        this.writes = writes;
+        this.writeAborts = writeAborts;
+        this.purged = purged;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Directory the responses are stored in")
+    public String getDirectory() {
+        return directory;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Bytes taken by the cached responses")
+    public long getSize() {
+        return size;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Bytes the cache may take before responses are evicted")
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Requests that consulted the cache")
+    public int getRequests() {
+        return requests;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Requests answered from the cache, including those revalidated with the server")
+    public int getHits() {
+        return hits;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Requests that went to the server")
+    public int getNetwork() {
+        return network;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Responses written to the cache")
+    public int getWrites() {
+        return writes;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Responses that could not be written to the cache")
+    public int getWriteAborts() {
+        return writeAborts;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Responses evicted through the admin endpoint")
+    public long getPurged() {
+        return purged;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.api;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dockstore.webservice.core.Registry;
+import io.dockstore.webservice.core.Tool;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * A tool as shown in lists, the version names stand in for the tags. Used for the body of /containers/published,
+ * /containers/search and /users/{userId}/containers/published
+ */
+@ApiModel("ToolSummary")
+public class ToolSummary extends EntrySummary {
+    private String path;
+    private Registry registry;
+    private String namespace;
+    private String name;
+    private String toolname;
+    private boolean validTrigger;
+    private Date lastBuild;
+
+    public ToolSummary() {
+    }
+
+    /**
+     * Called from the constructor expressions in {@link Tool}'s named queries.
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    public ToolSummary(long id, String path, Registry registry, String namespace, String name, String toolname, String description,
+            String author, String gitUrl, boolean isPublished, boolean validTrigger, Date lastBuild, Integer lastModified,
+            Date lastUpdated) {
+        super(id, description, author, gitUrl, isPublished, lastModified, lastUpdated);
+        this.path = Tool.getPath(path, registry, namespace, name);
+        this.registry = registry;
+        this.namespace = namespace;
+        this.name = name;
+        this.toolname = toolname;
+        this.validTrigger = validTrigger;
+        this.lastBuild = lastBuild;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("This is a generated full docker path including registry and namespace, used for docker pull commands")
+    public String getPath() {
+        return path;
+    }
+
+    @JsonProperty("tool_path")
+    @ApiModelProperty("The docker path followed by the tool name, if there is one")
+    public String getToolPath() {
+        return Tool.getToolPath(path, toolname);
+    }
+
+    @JsonProperty
+    @ApiModelProperty(value = "This is a specific docker provider like quay.io or dockerhub", allowableValues = "QUAY_IO,DOCKER_HUB")
+    public Registry getRegistry() {
+        return registry;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("This is a docker namespace for the container")
+    public String getNamespace() {
+        return namespace;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("This is the name of the container")
+    public String getName() {
+        return name;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("This is the tool name of the container, distinguishes tools based on the same image")
+    public String getToolname() {
+        return toolname;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Implementation specific, this image has descriptor file(s) associated with it")
+    public boolean getValidTrigger() {
+        return validTrigger;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Implementation specific timestamp for last built")
+    public Date getLastBuild() {
+        return lastBuild;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.api;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dockstore.webservice.core.Workflow;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * A workflow as shown in lists, the version names stand in for the workflow versions. Used for the body of /workflows/published,
+ * /workflows/search and /users/{userId}/workflows/published
+ */
+@ApiModel("WorkflowSummary")
+public class WorkflowSummary extends EntrySummary {
+    private String path;
+    private String organization;
+    private String repository;
+    private String workflowName;
+    private String descriptorType;
+
+    public WorkflowSummary() {
+    }
+
+    /**
+     * Called from the constructor expressions in {@link Workflow}'s named queries.
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    public WorkflowSummary(long id, String path, String organization, String repository, String workflowName, String descriptorType,
+            String description, String author, String gitUrl, boolean isPublished, Integer lastModified, Date lastUpdated) {
+        super(id, description, author, gitUrl, isPublished, lastModified, lastUpdated);
+        this.path = Workflow.getPath(path, organization, repository, workflowName);
+        this.organization = organization;
+        this.repository = repository;
+        this.workflowName = workflowName;
+        this.descriptorType = descriptorType;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("This is a generated full workflow path including organization, repository name, and workflow name")
+    public String getPath() {
+        return path;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("This is a git organization for the workflow")
+    public String getOrganization() {
+        return organization;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("This is a git repository name")
+    public String getRepository() {
+        return repository;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("This is the name of the workflow, not needed when only one workflow in a repo")
+    public String getWorkflowName() {
+        return workflowName;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("This is a descriptor type for the workflow, either CWL or WDL")
+    public String getDescriptorType() {
+        return descriptorType;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.core;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.util.Date;
+
+/**
+ * Content of a file in a git repository at a specific commit. A commit never changes, so an entry never goes stale
+ * and can be reused by every later refresh of a branch or tag that still points at the same commit.
+ * An entry without content records that the file does not exist at that commit. Entries that have not been read for a
+ * while are pruned, see {@link io.dockstore.webservice.helpers.SourceFileCache#prune()}.
+ */
+@Entity
+@Table(name = "cachedfile", uniqueConstraints = @UniqueConstraint(columnNames = { "repository", "commitid", "path" }))
+@NamedQueries({
+        @NamedQuery(name = "io.dockstore.webservice.core.CachedFile.findByKey", query = "SELECT f FROM CachedFile f WHERE f.repository = :repository AND f.commitId = :commitId AND f.path = :path"),
+        @NamedQuery(name = "io.dockstore.webservice.core.CachedFile.markRead", query = "UPDATE CachedFile f SET f.lastRead = :now WHERE f.id = :id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.CachedFile.deleteUnreadSince", query = "DELETE FROM CachedFile f WHERE f.lastRead < :since") })
+public class CachedFile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(nullable = false)
+    private String repository;
+
+    @Column(nullable = false)
+    private String commitId;
+
+    @Column(nullable = false)
+    private String path;
+
+    @Column(columnDefinition = "TEXT")
+    private String content;
+
+    // only moved forward once a day or so, it decides when the entry is pruned
+    @Column(nullable = false)
+    private Date lastRead;
+
+    public CachedFile() {
+    }
+
+    public CachedFile(String repository, String commitId, String path, String content) {
+        this.repository = repository;
+        this.commitId = commitId;
+        this.path = path;
+        this.content = content;
+        this.lastRead = new Date();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public String getCommitId() {
+        return commitId;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public Date getLastRead() {
+        return lastRead;
+    }
+}
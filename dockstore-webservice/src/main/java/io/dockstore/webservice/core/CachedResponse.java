@@ -0,0 +1,151 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.core;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+/**
+ * The last response to an outbound GET along with its validators (ETag, Last-Modified). The validators are sent with
+ * the next identical request, a 304 Not Modified then lets us reuse the stored body. Responses that have not been used
+ * for a while are pruned, see {@link io.dockstore.webservice.helpers.CachedResponseStore#prune()}.
+ */
+@Entity
+@Table(name = "cachedresponse")
+@NamedQueries({
+        @NamedQuery(name = "io.dockstore.webservice.core.CachedResponse.findByRequestKey", query = "SELECT r FROM CachedResponse r WHERE r.requestKey = :requestKey"),
+        @NamedQuery(name = "io.dockstore.webservice.core.CachedResponse.markRead", query = "UPDATE CachedResponse r SET r.lastRead = :now WHERE r.id = :id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.CachedResponse.deleteUnreadSince", query = "DELETE FROM CachedResponse r WHERE r.lastRead < :since") })
+public class CachedResponse {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    // hash of the url and the credentials used, responses differ between users
+    @Column(nullable = false, unique = true)
+    private String requestKey;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String url;
+
+    @Column
+    private String etag;
+
+    @Column
+    private String lastModified;
+
+    // pagination links of the response, a 304 does not always repeat them
+    @Column(columnDefinition = "TEXT")
+    private String link;
+
+    @Column(columnDefinition = "TEXT")
+    private String body;
+
+    @Column
+    private Date updated;
+
+    // only moved forward once a day or so, it decides when the response is pruned
+    @Column(nullable = false)
+    private Date lastRead;
+
+    public CachedResponse() {
+    }
+
+    public CachedResponse(String requestKey, String url) {
+        this.requestKey = requestKey;
+        this.url = url;
+        this.lastRead = new Date();
+    }
+
+    /**
+     * Copy a stored response so it can be replaced without changing an instance other threads may be reading
+     *
+     * @param previous the stored response
+     */
+    public CachedResponse(CachedResponse previous) {
+        this.id = previous.id;
+        this.requestKey = previous.requestKey;
+        this.url = previous.url;
+        this.etag = previous.etag;
+        this.lastModified = previous.lastModified;
+        this.link = previous.link;
+        this.body = previous.body;
+        this.updated = previous.updated;
+        this.lastRead = new Date();
+    }
+
+    /**
+     * Replace the stored response
+     *
+     * @param newEtag
+     * @param newLastModified
+     * @param newLink
+     * @param newBody
+     */
+    public void update(String newEtag, String newLastModified, String newLink, String newBody) {
+        this.etag = newEtag;
+        this.lastModified = newLastModified;
+        this.link = newLink;
+        this.body = newBody;
+        this.updated = new Date();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getRequestKey() {
+        return requestKey;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public String getLink() {
+        return link;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public Date getUpdated() {
+        return updated;
+    }
+
+    public Date getLastRead() {
+        return lastRead;
+    }
+}
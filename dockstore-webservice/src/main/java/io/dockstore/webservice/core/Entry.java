@@ -19,6 +19,8 @@ package io.dockstore.webservice.core;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -46,6 +48,7 @@ import java.util.TreeSet;
  */
 @Entity
 @Inheritance(strategy= InheritanceType.TABLE_PER_CLASS)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public abstract class Entry<S extends Entry, T extends Version> {
 
     /** re-use existing generator for backwards compatibility */
@@ -63,6 +66,7 @@ public abstract class Entry<S extends Entry, T extends Version> {
     private String description;
 
     @ManyToMany(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(name = "entry_label", joinColumns = @JoinColumn(name = "entryid", referencedColumnName = "id"), inverseJoinColumns = @JoinColumn(name = "labelid", referencedColumnName = "id"))
     @ApiModelProperty("Labels (i.e. meta tags) for describing the purpose and contents of containers")
     @OrderBy("id")
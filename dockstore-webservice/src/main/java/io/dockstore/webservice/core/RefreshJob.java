@@ -0,0 +1,249 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.core;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * A request to refresh the tools or workflows of every user. Jobs are stored so that they survive a restart and are
+ * worked through one user at a time in the background.
+ */
+@ApiModel(value = "RefreshJob", description = "A background refresh of all tools or all workflows")
+@Entity
+@Table(name = "refreshjob")
+@NamedQueries({
+        @NamedQuery(name = "io.dockstore.webservice.core.RefreshJob.findAll", query = "SELECT j FROM RefreshJob j ORDER BY j.id DESC"),
+        @NamedQuery(name = "io.dockstore.webservice.core.RefreshJob.findByStatus", query = "SELECT j FROM RefreshJob j WHERE j.status = :status ORDER BY j.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.RefreshJob.claim", query = "UPDATE RefreshJob j SET j.status = :running, j.owner = :owner, j.heartbeat = :now WHERE j.id = :id AND j.status = :queued"),
+        @NamedQuery(name = "io.dockstore.webservice.core.RefreshJob.heartbeat", query = "UPDATE RefreshJob j SET j.heartbeat = :now WHERE j.id = :id AND j.status = :running AND j.owner = :owner"),
+        @NamedQuery(name = "io.dockstore.webservice.core.RefreshJob.requeueStale", query = "UPDATE RefreshJob j SET j.status = :queued, j.owner = NULL WHERE j.status = :running AND (j.heartbeat IS NULL OR j.heartbeat < :staleBefore)") })
+public class RefreshJob {
+
+    /**
+     * What is being refreshed
+     */
+    public enum JobType {
+        TOOLS, WORKFLOWS
+    }
+
+    /**
+     * Where a job is in its life cycle
+     */
+    public enum JobStatus {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ApiModelProperty("Implementation specific ID for the job in this web service")
+    private long id;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    @ApiModelProperty("Whether tools or workflows are refreshed")
+    private JobType type;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    @ApiModelProperty("Status of the job, FAILED when refreshing any user failed")
+    private JobStatus status = JobStatus.QUEUED;
+
+    @Column
+    @ApiModelProperty("ID of the user who requested the refresh")
+    private long requestedBy;
+
+    @Column
+    @ApiModelProperty("Number of users whose entries will be refreshed")
+    private int usersTotal;
+
+    @Column
+    @ApiModelProperty("Number of users processed so far, including failures")
+    private int usersDone;
+
+    @Column
+    @ApiModelProperty("Number of tools or workflows refreshed so far")
+    private int entriesDone;
+
+    @Column
+    @ApiModelProperty("Number of users whose refresh failed")
+    private int failures;
+
+    // users are processed in id order, this is the last one handled so an interrupted job can resume after it
+    @Column
+    private long lastUserId;
+
+    // the node running the job and when it last reported progress, a job whose node stopped reporting is queued again
+    @Column
+    private String owner;
+
+    @Column
+    private Date heartbeat;
+
+    @Column(columnDefinition = "TEXT")
+    @ApiModelProperty("Message from the most recent failure")
+    private String lastError;
+
+    @Column
+    @ApiModelProperty("When the job was requested")
+    private Date createdAt;
+
+    @Column
+    @ApiModelProperty("When the job started running")
+    private Date startedAt;
+
+    @Column
+    @ApiModelProperty("When the job finished")
+    private Date finishedAt;
+
+    public RefreshJob() {
+    }
+
+    public RefreshJob(JobType type, long requestedBy) {
+        this.type = type;
+        this.requestedBy = requestedBy;
+        this.createdAt = new Date();
+    }
+
+    @JsonProperty
+    public long getId() {
+        return id;
+    }
+
+    @JsonProperty
+    public JobType getType() {
+        return type;
+    }
+
+    @JsonProperty
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(JobStatus status) {
+        this.status = status;
+    }
+
+    @JsonProperty
+    public long getRequestedBy() {
+        return requestedBy;
+    }
+
+    @JsonProperty
+    public int getUsersTotal() {
+        return usersTotal;
+    }
+
+    public void setUsersTotal(int usersTotal) {
+        this.usersTotal = usersTotal;
+    }
+
+    @JsonProperty
+    public int getUsersDone() {
+        return usersDone;
+    }
+
+    @JsonProperty
+    public int getEntriesDone() {
+        return entriesDone;
+    }
+
+    @JsonProperty
+    public int getFailures() {
+        return failures;
+    }
+
+    public long getLastUserId() {
+        return lastUserId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public Date getHeartbeat() {
+        return heartbeat;
+    }
+
+    @JsonProperty
+    public String getLastError() {
+        return lastError;
+    }
+
+    @JsonProperty
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    @JsonProperty
+    public Date getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Date startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    @JsonProperty
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Date finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    /**
+     * Record that a user's entries were refreshed.
+     *
+     * @param userId  the user
+     * @param entries how many tools or workflows the user now has
+     */
+    public void userSucceeded(long userId, int entries) {
+        this.lastUserId = userId;
+        this.usersDone++;
+        this.entriesDone += entries;
+    }
+
+    /**
+     * Record that refreshing a user's entries failed.
+     *
+     * @param userId  the user
+     * @param message why it failed
+     */
+    public void userFailed(long userId, String message) {
+        this.lastUserId = userId;
+        this.usersDone++;
+        this.failures++;
+        this.lastError = message;
+    }
+}
@@ -18,6 +18,8 @@ package io.dockstore.webservice.core;
 
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -26,6 +28,7 @@ import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import java.util.Objects;
 
@@ -37,6 +40,7 @@ import java.util.Objects;
 @ApiModel("SourceFile")
 @Entity
 @Table(name = "sourcefile")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class SourceFile {
     public enum FileType {
         // Add supported descriptor types here
@@ -44,7 +48,8 @@ public class SourceFile {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sourcefile_id_seq")
+    @SequenceGenerator(name = "sourcefile_id_seq", sequenceName = "sourcefile_id_seq")
     @ApiModelProperty("Implementation specific ID for the source file in this web service")
     private long id;
 
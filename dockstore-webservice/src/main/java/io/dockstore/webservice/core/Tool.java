@@ -28,10 +28,12 @@ import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
+import javax.persistence.NamedNativeQuery;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.OrderBy;
+import javax.persistence.QueryHint;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 
@@ -39,6 +41,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * This describes one tool in the dockstore, extending entry with fields necessary to describe bioinformatics tools.
@@ -55,15 +59,26 @@ import io.swagger.annotations.ApiModelProperty;
 @Table(uniqueConstraints = @UniqueConstraint(columnNames = { "registry", "namespace", "name", "toolname" }))
 @NamedQueries({
         @NamedQuery(name = "io.dockstore.webservice.core.Tool.findByNameAndNamespaceAndRegistry", query = "SELECT c FROM Tool c WHERE c.name = :name AND c.namespace = :namespace AND c.registry = :registry"),
-        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findPublishedById", query = "SELECT c FROM Tool c WHERE c.id = :id AND c.isPublished = true"),
-        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findAllPublished", query = "SELECT c FROM Tool c WHERE c.isPublished = true"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findPublishedById", query = "SELECT c FROM Tool c WHERE c.id = :id AND c.isPublished = true", hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findAllPublished", query = "SELECT c FROM Tool c WHERE c.isPublished = true", hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")),
         @NamedQuery(name = "io.dockstore.webservice.core.Tool.findAll", query = "SELECT c FROM Tool c"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findAllAfter", query = "SELECT c FROM Tool c WHERE c.id > :after ORDER BY c.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findPublishedAfter", query = "SELECT c FROM Tool c WHERE c.isPublished = true AND c.id > :after ORDER BY c.id"),
         @NamedQuery(name = "io.dockstore.webservice.core.Tool.findByPath", query = "SELECT c FROM Tool c WHERE c.path = :path"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findByPaths", query = "SELECT c FROM Tool c WHERE c.path IN (:paths)"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findByGitUrl", query = "SELECT c FROM Tool c WHERE c.gitUrl = :gitUrl"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findStale", query = "SELECT c FROM Tool c WHERE (c.lastUpdated IS NULL OR c.lastUpdated < :before) AND c.mode <> :manualMode AND c.registry <> :dockerHub ORDER BY c.isPublished DESC, c.lastUpdated ASC NULLS FIRST"),
         @NamedQuery(name = "io.dockstore.webservice.core.Tool.findByToolPath", query = "SELECT c FROM Tool c WHERE c.path = :path AND c.toolname = :toolname"),
-        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findPublishedByToolPath", query = "SELECT c FROM Tool c WHERE c.path = :path AND c.toolname = :toolname AND c.isPublished = true"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findPublishedByToolPath", query = "SELECT c FROM Tool c WHERE c.path = :path AND c.toolname = :toolname AND c.isPublished = true", hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")),
         @NamedQuery(name = "io.dockstore.webservice.core.Tool.findByMode", query = "SELECT c FROM Tool c WHERE c.mode = :mode"),
-        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findPublishedByPath", query = "SELECT c FROM Tool c WHERE c.path = :path AND c.isPublished = true"),
-        @NamedQuery(name = "io.dockstore.webservice.core.Tool.searchPattern", query = "SELECT c FROM Tool c WHERE ((c.path LIKE :pattern) OR (c.registry LIKE :pattern) OR (c.description LIKE :pattern)) AND c.isPublished = true") })
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findPublishedByPath", query = "SELECT c FROM Tool c WHERE c.path = :path AND c.isPublished = true", hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.searchPattern", query = "SELECT c FROM Tool c WHERE ((c.path LIKE :pattern) OR (c.registry LIKE :pattern) OR (c.description LIKE :pattern)) AND c.isPublished = true"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findAllPublishedSummaries", query = "SELECT new io.dockstore.webservice.api.ToolSummary(c.id, c.path, c.registry, c.namespace, c.name, c.toolname, c.description, c.author, c.gitUrl, c.isPublished, c.validTrigger, c.lastBuild, c.lastModified, c.lastUpdated) FROM Tool c WHERE c.isPublished = true AND c.id > :after ORDER BY c.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findPublishedSummariesByUserId", query = "SELECT new io.dockstore.webservice.api.ToolSummary(c.id, c.path, c.registry, c.namespace, c.name, c.toolname, c.description, c.author, c.gitUrl, c.isPublished, c.validTrigger, c.lastBuild, c.lastModified, c.lastUpdated) FROM Tool c JOIN c.users u WHERE u.id = :userId AND c.isPublished = true ORDER BY c.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.searchPatternSummaries", query = "SELECT new io.dockstore.webservice.api.ToolSummary(c.id, c.path, c.registry, c.namespace, c.name, c.toolname, c.description, c.author, c.gitUrl, c.isPublished, c.validTrigger, c.lastBuild, c.lastModified, c.lastUpdated) FROM Tool c WHERE ((c.path LIKE :pattern) OR (c.registry LIKE :pattern) OR (c.description LIKE :pattern)) AND c.isPublished = true AND c.id > :after ORDER BY c.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findSummariesByIds", query = "SELECT new io.dockstore.webservice.api.ToolSummary(c.id, c.path, c.registry, c.namespace, c.name, c.toolname, c.description, c.author, c.gitUrl, c.isPublished, c.validTrigger, c.lastBuild, c.lastModified, c.lastUpdated) FROM Tool c WHERE c.id IN (:ids)"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findVersionNames", query = "SELECT c.id, t.name FROM Tool c JOIN c.tags t WHERE c.id IN (:ids) AND t.hidden = false ORDER BY t.id") })
+@NamedNativeQuery(name = "io.dockstore.webservice.core.Tool.searchRanked", query = "SELECT c.id FROM tool c, to_tsquery('simple', :query) q WHERE c.ispublished = true AND c.search_vector @@ q ORDER BY ts_rank(c.search_vector, q) DESC, c.id")
 public class Tool extends Entry<Tool, Tag> {
 
     @Column(nullable = false, columnDefinition = "Text default 'AUTO_DETECT_QUAY_TAGS_AUTOMATED_BUILDS'")
@@ -120,6 +135,7 @@ public class Tool extends Entry<Tool, Tag> {
     private boolean validTrigger;
 
     @OneToMany(fetch = FetchType.EAGER, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(name = "tool_tag", joinColumns = @JoinColumn(name = "toolid", referencedColumnName = "id"), inverseJoinColumns = @JoinColumn(name = "tagid", referencedColumnName = "id"))
     @ApiModelProperty("Implementation specific tracking of valid build tags for the docker container")
     @OrderBy("id")
@@ -170,6 +186,19 @@ public class Tool extends Entry<Tool, Tag> {
 
     @JsonProperty("path")
     public String getPath() {
+        return getPath(path, registry, namespace, name);
+    }
+
+    /**
+     * Also used by summaries of tools that are read without loading the tool itself
+     *
+     * @param path      the stored path, may be null for older tools
+     * @param registry
+     * @param namespace
+     * @param name
+     * @return the full docker path
+     */
+    public static String getPath(String path, Registry registry, String namespace, String name) {
         String repositoryPath;
         if (path == null) {
             StringBuilder builder = new StringBuilder();
@@ -292,7 +321,11 @@ public class Tool extends Entry<Tool, Tag> {
 
     @JsonProperty("tool_path")
     public String getToolPath() {
-        return getPath() + (toolname == null || toolname.isEmpty() ? "" : '/' + toolname);
+        return getToolPath(getPath(), toolname);
+    }
+
+    public static String getToolPath(String path, String toolname) {
+        return path + (toolname == null || toolname.isEmpty() ? "" : '/' + toolname);
     }
 
     /**
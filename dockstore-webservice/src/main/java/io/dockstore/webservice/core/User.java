@@ -50,7 +50,9 @@ import io.swagger.annotations.ApiModelProperty;
 @Entity
 @Table(name = "enduser")
 @NamedQueries({ @NamedQuery(name = "io.dockstore.webservice.core.User.findAll", query = "SELECT t FROM User t"),
-        @NamedQuery(name = "io.dockstore.webservice.core.User.findByUsername", query = "SELECT t FROM User t WHERE t.username = :username") })
+        @NamedQuery(name = "io.dockstore.webservice.core.User.findAllAfter", query = "SELECT t FROM User t WHERE t.id > :after ORDER BY t.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.User.findByUsername", query = "SELECT t FROM User t WHERE t.username = :username"),
+        @NamedQuery(name = "io.dockstore.webservice.core.User.findIdsAfter", query = "SELECT t.id FROM User t WHERE t.id > :id ORDER BY t.id") })
 public class User implements Principal {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
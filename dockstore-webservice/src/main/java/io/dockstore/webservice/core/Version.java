@@ -41,6 +41,8 @@ import com.google.common.collect.Ordering;
 
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * This describes one version of either a workflow or a tool.
@@ -50,6 +52,7 @@ import io.swagger.annotations.ApiModelProperty;
 @Entity
 @ApiModel(value = "Base class for versions of entries in the Dockstore")
 @Inheritance(strategy= InheritanceType.TABLE_PER_CLASS)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public abstract class Version<T extends Version> implements Comparable<T>{
     /** re-use existing generator for backwards compatibility */
     @Id
@@ -69,6 +72,7 @@ public abstract class Version<T extends Version> implements Comparable<T>{
 
 
     @OneToMany(fetch = FetchType.EAGER, orphanRemoval = true, cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(name = "version_sourcefile", joinColumns = @JoinColumn(name = "versionid", referencedColumnName = "id"), inverseJoinColumns = @JoinColumn(name = "sourcefileid", referencedColumnName = "id"))
     @ApiModelProperty("Cached files for each version. Includes Dockerfile and Descriptor files")
     private final Set<SourceFile> sourceFiles;
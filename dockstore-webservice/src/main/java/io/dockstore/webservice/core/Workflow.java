@@ -28,10 +28,12 @@ import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
+import javax.persistence.NamedNativeQuery;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.OrderBy;
+import javax.persistence.QueryHint;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 
@@ -39,6 +41,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * This describes one workflow in the dockstore, extending Entry with the fields necessary to describe workflows.
@@ -51,13 +55,22 @@ import io.swagger.annotations.ApiModelProperty;
 @Entity
 @Table(uniqueConstraints = @UniqueConstraint(columnNames = { "organization", "repository", "workflowName" }))
 @NamedQueries({
-        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findPublishedById", query = "SELECT c FROM Workflow c WHERE c.id = :id AND c.isPublished = true"),
-        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findAllPublished", query = "SELECT c FROM Workflow c WHERE c.isPublished = true"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findPublishedById", query = "SELECT c FROM Workflow c WHERE c.id = :id AND c.isPublished = true", hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")),
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findAllPublished", query = "SELECT c FROM Workflow c WHERE c.isPublished = true", hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")),
         @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findAll", query = "SELECT c FROM Workflow c"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findAllAfter", query = "SELECT c FROM Workflow c WHERE c.id > :after ORDER BY c.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findPublishedAfter", query = "SELECT c FROM Workflow c WHERE c.isPublished = true AND c.id > :after ORDER BY c.id"),
         @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findByPath", query = "SELECT c FROM Workflow c WHERE c.path = :path"),
-        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findPublishedByPath", query = "SELECT c FROM Workflow c WHERE c.path = :path AND c.isPublished = true"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findPublishedByPath", query = "SELECT c FROM Workflow c WHERE c.path = :path AND c.isPublished = true", hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")),
         @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findByGitUrl", query = "SELECT c FROM Workflow c WHERE c.gitUrl = :gitUrl"),
-                  @NamedQuery(name = "io.dockstore.webservice.core.Workflow.searchPattern", query = "SELECT c FROM Workflow c WHERE ((c.defaultWorkflowPath LIKE :pattern) OR (c.description LIKE :pattern) OR (c.path LIKE :pattern)) AND c.isPublished = true") })
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findStale", query = "SELECT c FROM Workflow c WHERE c.lastUpdated IS NULL OR c.lastUpdated < :before ORDER BY c.isPublished DESC, c.lastUpdated ASC NULLS FIRST"),
+                  @NamedQuery(name = "io.dockstore.webservice.core.Workflow.searchPattern", query = "SELECT c FROM Workflow c WHERE ((c.defaultWorkflowPath LIKE :pattern) OR (c.description LIKE :pattern) OR (c.path LIKE :pattern)) AND c.isPublished = true"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findAllPublishedSummaries", query = "SELECT new io.dockstore.webservice.api.WorkflowSummary(c.id, c.path, c.organization, c.repository, c.workflowName, c.descriptorType, c.description, c.author, c.gitUrl, c.isPublished, c.lastModified, c.lastUpdated) FROM Workflow c WHERE c.isPublished = true AND c.id > :after ORDER BY c.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findPublishedSummariesByUserId", query = "SELECT new io.dockstore.webservice.api.WorkflowSummary(c.id, c.path, c.organization, c.repository, c.workflowName, c.descriptorType, c.description, c.author, c.gitUrl, c.isPublished, c.lastModified, c.lastUpdated) FROM Workflow c JOIN c.users u WHERE u.id = :userId AND c.isPublished = true ORDER BY c.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.searchPatternSummaries", query = "SELECT new io.dockstore.webservice.api.WorkflowSummary(c.id, c.path, c.organization, c.repository, c.workflowName, c.descriptorType, c.description, c.author, c.gitUrl, c.isPublished, c.lastModified, c.lastUpdated) FROM Workflow c WHERE ((c.defaultWorkflowPath LIKE :pattern) OR (c.description LIKE :pattern) OR (c.path LIKE :pattern)) AND c.isPublished = true AND c.id > :after ORDER BY c.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findSummariesByIds", query = "SELECT new io.dockstore.webservice.api.WorkflowSummary(c.id, c.path, c.organization, c.repository, c.workflowName, c.descriptorType, c.description, c.author, c.gitUrl, c.isPublished, c.lastModified, c.lastUpdated) FROM Workflow c WHERE c.id IN (:ids)"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findVersionNames", query = "SELECT c.id, v.name FROM Workflow c JOIN c.workflowVersions v WHERE c.id IN (:ids) AND v.hidden = false ORDER BY v.id") })
+@NamedNativeQuery(name = "io.dockstore.webservice.core.Workflow.searchRanked", query = "SELECT c.id FROM workflow c, to_tsquery('simple', :query) q WHERE c.ispublished = true AND c.search_vector @@ q ORDER BY ts_rank(c.search_vector, q) DESC, c.id")
 @DiscriminatorValue("workflow")
 public class Workflow extends Entry<Workflow, WorkflowVersion> {
 
@@ -91,6 +104,7 @@ public class Workflow extends Entry<Workflow, WorkflowVersion> {
     private String defaultWorkflowPath = "/Dockstore.cwl";
 
     @OneToMany(fetch = FetchType.EAGER, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(name = "workflow_workflowversion", joinColumns = @JoinColumn(name = "workflowid", referencedColumnName = "id"), inverseJoinColumns = @JoinColumn(name = "workflowversionid", referencedColumnName = "id"))
     @ApiModelProperty(value = "Implementation specific tracking of valid build workflowVersions for the docker container")
     @OrderBy("id")
@@ -121,6 +135,7 @@ public class Workflow extends Entry<Workflow, WorkflowVersion> {
         this.setMode(workflow.getMode());
         this.setWorkflowName(workflow.getWorkflowName());
         this.setPath(workflow.getPath());
+        this.setLastUpdated(workflow.getLastUpdated());
     }
 
     @JsonProperty
@@ -189,10 +204,25 @@ public class Workflow extends Entry<Workflow, WorkflowVersion> {
 
     @JsonProperty
     public String getPath() {
+        if (path == null){
+            path = getPath(null, organization, repository, workflowName);
+        }
+        return path;
+    }
+
+    /**
+     * Also used by summaries of workflows that are read without loading the workflow itself
+     *
+     * @param path         the stored path, may be null for older workflows
+     * @param organization
+     * @param repository
+     * @param workflowName
+     * @return the full workflow path
+     */
+    public static String getPath(String path, String organization, String repository, String workflowName) {
         String constructedPath;
         if (path == null){
             constructedPath = organization + '/' + repository + (workflowName == null ? "": '/' + workflowName);
-            path = constructedPath;
         }else{
             constructedPath = path;
         }
@@ -17,32 +17,34 @@
 package io.dockstore.webservice.helpers;
 
 import com.google.common.base.Optional;
-import com.google.common.io.Files;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import io.dockstore.webservice.CustomWebApplicationException;
 import io.dockstore.webservice.core.SourceFile;
-import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowMode;
 import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.helpers.RetryPolicy.CircuitOpenException;
 import io.dockstore.webservice.resources.ResourceUtilities;
-import org.apache.commons.io.FilenameUtils;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -51,14 +53,18 @@ import java.util.regex.Pattern;
  */
 public class BitBucketSourceCodeRepo extends SourceCodeRepoInterface {
     private static final String BITBUCKET_API_URL = "https://bitbucket.org/api/1.0/";
+    private static final String BITBUCKET_ARCHIVE_URL = "https://bitbucket.org/";
     private static final String BITBUCKET_GIT_URL_PREFIX = "git@bitbucket.org:";
     private static final String BITBUCKET_GIT_URL_SUFFIX = ".git";
 
     private static final Logger LOG = LoggerFactory.getLogger(BitBucketSourceCodeRepo.class);
+    private static BitbucketResponseCache responseCache = null;
     private final String gitUsername;
     private final HttpClient client;
     private final String bitbucketTokenContent;
     private final String gitRepository;
+    // repository id -> (branch or tag name -> commit SHA), resolved once per instance
+    private final Map<String, Map<String, String>> commitIdsByRepository = new ConcurrentHashMap<>();
 
     public BitBucketSourceCodeRepo(String gitUsername, HttpClient client, String bitbucketTokenContent, String gitRepository) {
         this.client = client;
@@ -67,6 +73,24 @@ public class BitBucketSourceCodeRepo extends SourceCodeRepoInterface {
         this.gitRepository = gitRepository;
     }
 
+    /**
+     * Attach the response cache, see {@link SourceCodeRepoFactory}
+     * @param cache the cache, null to ask Bitbucket every time
+     */
+    public static void setResponseCache(BitbucketResponseCache cache) {
+        responseCache = cache;
+    }
+
+    /**
+     * Forget the default branch and the branches and tags of a repository, after a push to it
+     * @param repositoryId of the form owner/repo_name
+     */
+    public static void invalidate(String repositoryId) {
+        if (responseCache != null) {
+            responseCache.invalidate(repositoryId);
+        }
+    }
+
     @Override
     public FileResponse readFile(String fileName, String reference, String gitUrl) {
         String repositoryId = this.getRepositoryId(gitUrl);
@@ -80,10 +104,7 @@ public class BitBucketSourceCodeRepo extends SourceCodeRepoInterface {
         String branch = null;
 
         if (reference == null) {
-            String mainBranchUrl = BITBUCKET_API_URL + "repositories/" + repositoryId + "/main-branch";
-
-            Optional<String> asString = ResourceUtilities.asString(mainBranchUrl, bitbucketTokenContent, client);
-            LOG.info(gitUsername + ": RESOURCE CALL: {}", mainBranchUrl);
+            Optional<String> asString = getRepositoryResponse(repositoryId, "main-branch");
             if (asString.isPresent()) {
                 String branchJson = asString.get();
 
@@ -126,83 +147,51 @@ public class BitBucketSourceCodeRepo extends SourceCodeRepoInterface {
     }
 
     @Override
-    public Tool findDescriptor(Tool tool, String fileName) {
-        String descriptorType = FilenameUtils.getExtension(fileName);
+    public String readDescriptor(String gitUrl, String fileName) {
         if (fileName.startsWith("/")) {
             fileName = fileName.substring(1);
         }
+        if (gitUrl == null || gitUrl.isEmpty()) {
+            return null;
+        }
 
-        String giturl = tool.getGitUrl();
-        if (giturl != null && !giturl.isEmpty()) {
-
-            Pattern p = Pattern.compile("git\\@bitbucket.org:(\\S+)/(\\S+)\\.git");
-            Matcher m = p.matcher(giturl);
-            LOG.info(gitUsername + ": " + giturl);
-            if (!m.find()) {
-                LOG.info(gitUsername + ": Namespace and/or repository name could not be found from tool's giturl");
-                return tool;
-            }
-
-            String url = BITBUCKET_API_URL + "repositories/" + m.group(1) + '/' + m.group(2) + "/main-branch";
-            Optional<String> asString = ResourceUtilities.asString(url, bitbucketTokenContent, client);
-            LOG.info(gitUsername + ": RESOURCE CALL: {}", url);
-            if (asString.isPresent()) {
-                String branchJson = asString.get();
-
-                Gson gson = new Gson();
-                Map<String, String> map = new HashMap<>();
-                map = (Map<String, String>) gson.fromJson(branchJson, map.getClass());
-
-                String branch = map.get("name");
-
-                if (branch == null) {
-                    LOG.info(gitUsername + ": Could NOT find bitbucket default branch!");
-                    return null;
-                } else {
-                    LOG.info(gitUsername + ": Default branch: {}", branch);
-                }
+        Pattern p = Pattern.compile("git\\@bitbucket.org:(\\S+)/(\\S+)\\.git");
+        Matcher m = p.matcher(gitUrl);
+        LOG.info(gitUsername + ": " + gitUrl);
+        if (!m.find()) {
+            LOG.info(gitUsername + ": Namespace and/or repository name could not be found from tool's giturl");
+            return null;
+        }
 
-                // String response = asString.get();
-                //
-                // Gson gson = new Gson();
-                // Map<String, Object> branchMap = new HashMap<>();
-                //
-                // branchMap = (Map<String, Object>) gson.fromJson(response, branchMap.getClass());
-                // Set<String> branches = branchMap.keySet();
-                //
-                // for (String branch : branches) {
-                LOG.info(gitUsername + ": Checking {} branch for {} file", branch, descriptorType);
-
-                String content = "";
-
-                url = BITBUCKET_API_URL + "repositories/" + m.group(1) + '/' + m.group(2) + "/raw/" + branch + '/' + fileName;
-                asString = ResourceUtilities.asString(url, bitbucketTokenContent, client);
-                LOG.info(gitUsername + ": RESOURCE CALL: {}", url);
-                if (asString.isPresent()) {
-                    LOG.info(gitUsername + ": {} FOUND", descriptorType);
-                    content = asString.get();
-                } else {
-                    LOG.info(gitUsername + ": Branch: {} has no {}", branch, fileName);
-                }
+        Optional<String> asString = getRepositoryResponse(m.group(1) + '/' + m.group(2), "main-branch");
+        if (!asString.isPresent()) {
+            return null;
+        }
+        String branchJson = asString.get();
 
-                // Add for new descriptor types
-                // expects file to have .cwl extension
-                if (descriptorType.equals("cwl")) {
-                    tool = parseCWLContent(tool, content);
-                }
-                if (descriptorType.equals("wdl")) {
-                     tool = parseWDLContent(tool, content);
-                }
+        Gson gson = new Gson();
+        Map<String, String> map = new HashMap<>();
+        map = (Map<String, String>) gson.fromJson(branchJson, map.getClass());
 
-                // if (tool.getHasCollab()) {
-                // break;
-                // }
-                // }
+        String branch = map.get("name");
 
-            }
+        if (branch == null) {
+            LOG.info(gitUsername + ": Could NOT find bitbucket default branch!");
+            return null;
+        } else {
+            LOG.info(gitUsername + ": Default branch: {}", branch);
         }
+        LOG.info(gitUsername + ": Checking {} branch for {} file", branch, fileName);
 
-        return tool;
+        String url = BITBUCKET_API_URL + "repositories/" + m.group(1) + '/' + m.group(2) + "/raw/" + branch + '/' + fileName;
+        asString = ResourceUtilities.asString(url, bitbucketTokenContent, client);
+        LOG.info(gitUsername + ": RESOURCE CALL: {}", url);
+        if (asString.isPresent()) {
+            LOG.info(gitUsername + ": {} FOUND", fileName);
+            return asString.get();
+        }
+        LOG.info(gitUsername + ": Branch: {} has no {}", branch, fileName);
+        return null;
     }
 
     @Override
@@ -239,7 +228,7 @@ public class BitBucketSourceCodeRepo extends SourceCodeRepoInterface {
         return reposByGitURl;
     }
 
-    @Override public Workflow getNewWorkflow(String repositoryId, Optional<Workflow> existingWorkflow) {
+    @Override public Workflow getNewWorkflow(String repositoryId, Optional<Workflow> existingWorkflow, Optional<String> reference) {
         // repository id of the form owner/name
         String[] id = repositoryId.split("/");
         String owner = id[0];
@@ -278,88 +267,164 @@ public class BitBucketSourceCodeRepo extends SourceCodeRepoInterface {
 
         // Look at each version, check for valid workflows
 
-        String url = BITBUCKET_API_URL + "repositories/" + repositoryId + "/branches-tags";
-
-        // Call to Bitbucket API to get list of branches for a given repo (what about tags)
-        Optional<String> asString = ResourceUtilities.asString(url, bitbucketTokenContent, client);
-        LOG.info(gitUsername + ": RESOURCE CALL: {}", url);
+        // Call to Bitbucket API to get list of branches and tags for a given repo
+        Optional<String> asString = getRepositoryResponse(repositoryId, "branches-tags");
 
         if (asString.isPresent()) {
             String repoJson = asString.get();
 
             JsonElement jsonElement = new JsonParser().parse(repoJson);
             JsonObject jsonObject = jsonElement.getAsJsonObject();
+            // each commit is read once on the executor, branches and tags pointing at the same commit share the result
+            final ImportResolver importResolver = new ImportResolver(this);
+            final ExecutorService executor = getReferenceExecutor();
+            final List<WorkflowVersion> versions = new ArrayList<>();
+            final List<String> versionKeys = new ArrayList<>();
+            final Map<String, Future<List<SourceFile>>> filesByCommit = new HashMap<>();
             // Iterate to find branches and tags arrays
             for (Map.Entry<String, JsonElement> objectEntry : jsonObject.entrySet()) {
                 JsonArray branchArray = objectEntry.getValue().getAsJsonArray();
                 // Iterate over both arrays
                 for (JsonElement branch : branchArray) {
                     String branchName = branch.getAsJsonObject().get("name").getAsString();
+                    if (reference.isPresent() && !reference.get().equals(branchName)) {
+                        continue;
+                    }
+                    String commitId = getCommitID(branch.getAsJsonObject());
 
+                    // determine workflow version from previous
+                    String calculatedPath = existingDefaults.getOrDefault(branchName, existingWorkflow.get().getDefaultWorkflowPath());
                     WorkflowVersion version = new WorkflowVersion();
                     version.setName(branchName);
                     version.setReference(branchName);
-                    version.setValid(false);
-
-                    // determine workflow version from previous
-                    String calculatedPath = existingDefaults.getOrDefault(branchName, existingWorkflow.get().getDefaultWorkflowPath());
                     version.setWorkflowPath(calculatedPath);
+                    final String versionKey = getVersionKey(branchName, commitId, calculatedPath);
+                    versions.add(version);
+                    versionKeys.add(versionKey);
+                    filesByCommit.computeIfAbsent(versionKey,
+                            key -> executor.submit(RateLimiter.inheritBackground(
+                                    () -> readVersionFiles(repositoryId, calculatedPath, branchName, commitId, importResolver))));
+                }
+            }
 
-                    // Get relative path of main workflow descriptor to find relative paths
-                    String[] path = calculatedPath.split("/");
-                    String basepath = "";
-                    for (int i = 0; i < path.length - 1; i++) {
-                        basepath += path[i] + "/";
-                    }
-
-                    // Now grab source files
-                    SourceFile sourceFile;
-                    Set<SourceFile> sourceFileSet = new HashSet<>();
-                    ArrayList<String> importPaths;
+            // versions are assembled on this thread in the order of the listing, whatever order the reads finish in
+            try {
+                for (int i = 0; i < versions.size(); i++) {
+                    final List<SourceFile> files = filesByCommit.get(versionKeys.get(i)).get();
+                    final WorkflowVersion version = versions.get(i);
+                    // each version owns its files, aliases get copies
+                    files.forEach(file -> version.getSourceFiles().add(copySourceFile(file)));
+                    version.setValid(!files.isEmpty());
+                    workflow.addWorkflowVersion(version);
+                }
+            } catch (InterruptedException e) {
+                filesByCommit.values().forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new CustomWebApplicationException("Refresh was interrupted.", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+            } catch (ExecutionException e) {
+                filesByCommit.values().forEach(future -> future.cancel(true));
+                LOG.error(gitUsername + ": Could not read versions of " + repositoryId, e.getCause());
+                throw new CustomWebApplicationException("Could not read versions of " + repositoryId, HttpStatus.SC_INTERNAL_SERVER_ERROR);
+            }
+        }
 
-                    if (calculatedPath.toLowerCase().endsWith(".cwl")) {
-                        sourceFile = getSourceFile(calculatedPath, repositoryId, branchName, "cwl");
-                    } else {
-                        sourceFile = getSourceFile(calculatedPath, repositoryId, branchName, "wdl");
-                    }
+        return workflow;
+    }
 
-                    // Find all import files
-                    if (sourceFile.getContent() != null) {
-                        try {
-                            final File tempDesc = File.createTempFile("temp", ".descriptor", Files.createTempDir());
-                            Files.write(sourceFile.getContent(), tempDesc, StandardCharsets.UTF_8);
-                            importPaths = calculatedPath.toLowerCase().endsWith(".cwl") ? getCwlImports(tempDesc) : getWdlImports(tempDesc);
-                            for (String importPath : importPaths) {
-                                LOG.info(gitUsername + ": Grabbing file " + basepath + importPath);
-                                sourceFileSet.add(getSourceFile(basepath + importPath, repositoryId, branchName,
-                                        importPath.toLowerCase().endsWith(".cwl") ? "cwl" : "wdl"));
-                            }
-                        } catch (IOException e) {
-                            LOG.info(gitUsername + ": Error writing descriptor file to temp file.");
-                            e.printStackTrace();
-                        }
-                    }
+    /**
+     * Read the descriptor of a version and the files it imports. Runs on the reference executor, so it must not touch
+     * the workflow being built.
+     *
+     * @param repositoryId   of the form owner/repo_name
+     * @param calculatedPath path of the descriptor
+     * @param branchName     the branch or tag
+     * @param commitId       the commit the reference points at, may be null
+     * @param importResolver follows the imports, shared by the versions of the workflow
+     * @return the descriptor followed by its imports, empty if there is no descriptor
+     */
+    private List<SourceFile> readVersionFiles(String repositoryId, String calculatedPath, String branchName, String commitId,
+            ImportResolver importResolver) {
+        List<SourceFile> files = new ArrayList<>();
+
+        // Now grab source files
+        final String type = calculatedPath.toLowerCase().endsWith(".cwl") ? "cwl" : "wdl";
+        SourceFile sourceFile = getSourceFile(calculatedPath, repositoryId, branchName, commitId, type);
+
+        // Find all import files, imports of imports included
+        if (sourceFile.getContent() != null) {
+            files.add(sourceFile);
+            final String versionKey = commitId == null ? "ref:" + branchName : commitId;
+            for (SourceFile importFile : importResolver.resolve(calculatedPath, sourceFile.getContent(), sourceFile.getType(), versionKey,
+                    importPath -> getSourceFile(importPath, repositoryId, branchName, commitId, type).getContent())) {
+                // imports are typed by their own extension rather than by the descriptor that imports them
+                importFile.setType(importFile.getPath().toLowerCase().endsWith(".cwl") ? SourceFile.FileType.DOCKSTORE_CWL
+                        : SourceFile.FileType.DOCKSTORE_WDL);
+                files.add(importFile);
+            }
+        }
+        return files;
+    }
 
-                    if (sourceFile.getContent() != null) {
-                        version.getSourceFiles().add(sourceFile);
-                    }
+    /**
+     * Ask Bitbucket about a repository, through the response cache when there is one
+     * @param repositoryId of the form owner/repo_name
+     * @param endpoint     main-branch or branches-tags
+     * @return the body of the response, absent if the request failed
+     */
+    private Optional<String> getRepositoryResponse(String repositoryId, String endpoint) {
+        final Supplier<Optional<String>> loader = () -> {
+            String url = BITBUCKET_API_URL + "repositories/" + repositoryId + '/' + endpoint;
+            Optional<String> asString = ResourceUtilities.asString(url, bitbucketTokenContent, client);
+            LOG.info(gitUsername + ": RESOURCE CALL: {}", url);
+            return asString;
+        };
+        return responseCache == null ? loader.get() : responseCache.get(bitbucketTokenContent, repositoryId, endpoint, loader);
+    }
 
-                    if (version.getSourceFiles().size() > 0) {
-                        version.setValid(true);
-                    }
+    @Override
+    public String getCommitID(String repositoryId, String reference) {
+        final String commitId = super.getCommitID(repositoryId, reference);
+        if (commitId != null || reference == null) {
+            return commitId;
+        }
+        final Map<String, String> commitIds = commitIdsByRepository.computeIfAbsent(repositoryId, this::getReferenceCommitIds);
+        return commitIds.get(reference.replaceFirst("^refs/(heads|tags)/", ""));
+    }
 
-                    // add extra source files here
-                    if (sourceFileSet.size() > 0) {
-                        version.getSourceFiles().addAll(sourceFileSet);
+    /**
+     * Lists the branches and tags of a repository
+     * @param repositoryId of the form owner/repo_name
+     * @return branch or tag name -> commit SHA, empty if the repository could not be read
+     */
+    private Map<String, String> getReferenceCommitIds(String repositoryId) {
+        final Map<String, String> commitIds = new HashMap<>();
+        Optional<String> asString = getRepositoryResponse(repositoryId, "branches-tags");
+        if (asString.isPresent()) {
+            JsonObject jsonObject = new JsonParser().parse(asString.get()).getAsJsonObject();
+            for (Map.Entry<String, JsonElement> objectEntry : jsonObject.entrySet()) {
+                for (JsonElement reference : objectEntry.getValue().getAsJsonArray()) {
+                    String commitId = getCommitID(reference.getAsJsonObject());
+                    if (commitId != null) {
+                        commitIds.putIfAbsent(reference.getAsJsonObject().get("name").getAsString(), commitId);
                     }
-
-                    workflow.addWorkflowVersion(version);
                 }
             }
-
         }
+        return commitIds;
+    }
 
-        return workflow;
+    /**
+     * @param reference a branch or tag from the branches-tags listing
+     * @return the full commit SHA it points at, null if the listing did not include it
+     */
+    private String getCommitID(JsonObject reference) {
+        for (String field : new String[] { "raw_node", "changeset" }) {
+            final JsonElement commitId = reference.get(field);
+            if (commitId != null && !commitId.isJsonNull()) {
+                return super.getCommitID(null, commitId.getAsString());
+            }
+        }
+        return null;
     }
 
     /**
@@ -367,31 +432,46 @@ public class BitBucketSourceCodeRepo extends SourceCodeRepoInterface {
      * @param path
      * @param repositoryId
      * @param branch
+     * @param commitId the commit the branch points at, the file is read through the file cache when known
          * @param type
          * @return source file
          */
-    private SourceFile getSourceFile(String path, String repositoryId, String branch, String type) {
+    private SourceFile getSourceFile(String path, String repositoryId, String branch, String commitId, String type) {
         SourceFile file = new SourceFile();
-        String url = BITBUCKET_API_URL + "repositories/" + repositoryId + "/raw/" + branch + "/" + path;
-
-        Optional<String> asString = ResourceUtilities.asString(url, bitbucketTokenContent, client);
-        LOG.info(gitUsername + ": RESOURCE CALL: {}", url);
+        final String gitUrl = BITBUCKET_GIT_URL_PREFIX + repositoryId + BITBUCKET_GIT_URL_SUFFIX;
+        String content;
+        try {
+            content = getCachedContent(gitUrl, commitId, path, () -> readSnapshotFile(repositoryId, commitId, path, () -> {
+                String url = BITBUCKET_API_URL + "repositories/" + repositoryId + "/raw/" + (commitId == null ? branch : commitId) + "/" + path;
+                Optional<String> asString = ResourceUtilities.asString(url, bitbucketTokenContent, client);
+                LOG.info(gitUsername + ": RESOURCE CALL: {}", url);
+                return asString.orNull();
+            }));
+        } catch (CircuitOpenException e) {
+            throw e.toWebApplicationException();
+        } catch (IOException e) {
+            content = null;
+        }
 
-        if (asString.isPresent()) {
-            String content = asString.get();
-            if (content != null) {
-                if (type.equals("cwl")) {
-                    file.setType(SourceFile.FileType.DOCKSTORE_CWL);
-                } else {
-                    file.setType(SourceFile.FileType.DOCKSTORE_WDL);
-                }
-                file.setContent(content);
-                file.setPath(path);
+        if (content != null) {
+            if (type.equals("cwl")) {
+                file.setType(SourceFile.FileType.DOCKSTORE_CWL);
+            } else {
+                file.setType(SourceFile.FileType.DOCKSTORE_WDL);
             }
+            file.setContent(content);
+            file.setPath(path);
         }
         return file;
     }
 
+    @Override
+    protected RepositorySnapshot downloadSnapshot(String repositoryId, String commitId) throws IOException {
+        String url = BITBUCKET_ARCHIVE_URL + repositoryId + "/get/" + commitId + ".zip";
+        LOG.info(gitUsername + ": RESOURCE CALL: {}", url);
+        return ResourceUtilities.readStream(url, bitbucketTokenContent, client, RepositorySnapshot::fromZip);
+    }
+
     /**
      * Parses git url for bitbucket to get the owner/repo_name
      * @param gitUrl
@@ -0,0 +1,86 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.BitbucketCacheConfiguration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Keeps the responses Bitbucket gives for the default branch and the branches and tags of a repository, which are asked
+ * for on nearly every file read and refresh. Entries are keyed by a hash of the token since what a token can see differs.
+ */
+public class BitbucketResponseCache {
+
+    private final Cache<String, String> responses;
+
+    public BitbucketResponseCache(BitbucketCacheConfiguration configuration, MetricRegistry metrics) {
+        this.responses = CacheBuilder.newBuilder().maximumSize(configuration.getMaxEntries())
+                .expireAfterWrite(configuration.getTtl().toMilliseconds(), TimeUnit.MILLISECONDS).recordStats().build();
+        metrics.register(name(BitbucketResponseCache.class, "size"), (Gauge<Long>)responses::size);
+        metrics.register(name(BitbucketResponseCache.class, "hits"), (Gauge<Long>)() -> responses.stats().hitCount());
+        metrics.register(name(BitbucketResponseCache.class, "misses"), (Gauge<Long>)() -> responses.stats().missCount());
+        metrics.register(name(BitbucketResponseCache.class, "evictions"), (Gauge<Long>)() -> responses.stats().evictionCount());
+    }
+
+    /**
+     * @param token        the token the request is made with
+     * @param repositoryId of the form owner/repo_name
+     * @param endpoint     the part of the url after the repository, like main-branch
+     * @param loader       makes the request
+     * @return the body of the response, failed requests are not kept
+     */
+    public Optional<String> get(String token, String repositoryId, String endpoint, Supplier<Optional<String>> loader) {
+        final String key = getPrefix(repositoryId) + endpoint + '\n'
+                + Hashing.sha256().hashString(token == null ? "" : token, StandardCharsets.UTF_8).toString();
+        final String cached = responses.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        final Optional<String> response = loader.get();
+        if (response.isPresent()) {
+            responses.put(key, response.get());
+        }
+        return response;
+    }
+
+    /**
+     * Drop what is kept for a repository, for every token, after it changed
+     * @param repositoryId of the form owner/repo_name
+     */
+    public void invalidate(String repositoryId) {
+        final String prefix = getPrefix(repositoryId);
+        responses.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private static String getPrefix(String repositoryId) {
+        // Bitbucket names are case insensitive
+        return repositoryId.toLowerCase(Locale.ENGLISH) + '/';
+    }
+}
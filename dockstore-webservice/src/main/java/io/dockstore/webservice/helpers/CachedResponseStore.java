@@ -0,0 +1,284 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.ResponseStoreConfiguration;
+import io.dockstore.webservice.core.CachedResponse;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Persistent store of validators and bodies for outbound GETs, so conditional requests keep working across restarts.
+ * Uses its own stateless sessions, it is called from refresh workers outside of any unit of work. The most recently
+ * used responses are also kept in memory, so a request answered with 304 Not Modified usually does not touch the
+ * database at all. Responses that have not been used within the expiry are deleted periodically.
+ */
+public class CachedResponseStore implements Managed {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachedResponseStore.class);
+
+    // how stale the read time of a response may get before a read records it, keeps most reads free of writes
+    private static final long MARK_READ_INTERVAL = TimeUnit.DAYS.toMillis(1);
+    private static final long PRUNE_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    private final SessionFactory sessionFactory;
+    private final Duration expiry;
+    private final ScheduledExecutorService executor;
+    // instances in here are shared between threads and never changed, a new response replaces the instance
+    private final Cache<String, CachedResponse> recent;
+    private final Meter requests;
+    private final Meter conditionalRequests;
+    private final Meter notModified;
+
+    /**
+     * @param sessionFactory session factory
+     * @param configuration  how many responses are kept in memory and when stored ones are pruned
+     * @param executor       runs the pruning
+     * @param metrics        metric registry
+     */
+    public CachedResponseStore(SessionFactory sessionFactory, ResponseStoreConfiguration configuration, ScheduledExecutorService executor,
+            MetricRegistry metrics) {
+        this.sessionFactory = sessionFactory;
+        this.expiry = configuration.getExpiry();
+        this.executor = executor;
+        this.recent = CacheBuilder.newBuilder().maximumSize(configuration.getMaxEntries()).recordStats().build();
+        this.requests = metrics.meter(name(CachedResponseStore.class, "requests"));
+        this.conditionalRequests = metrics.meter(name(CachedResponseStore.class, "conditional-requests"));
+        this.notModified = metrics.meter(name(CachedResponseStore.class, "not-modified"));
+        metrics.register(name(CachedResponseStore.class, "not-modified-ratio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(notModified.getCount(), requests.getCount());
+            }
+        });
+        metrics.register(name(CachedResponseStore.class, "memory-hits"), (Gauge<Long>)() -> recent.stats().hitCount());
+        metrics.register(name(CachedResponseStore.class, "memory-size"), (Gauge<Long>)recent::size);
+    }
+
+    @Override
+    public void start() {
+        executor.scheduleWithFixedDelay(this::prune, PRUNE_INTERVAL, PRUNE_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        // the executor is shut down by its own lifecycle
+    }
+
+    /**
+     * @param url         the full url requested
+     * @param credentials the token or other credentials sent with the request, may be null
+     * @return a key identifying the request without storing the credentials
+     */
+    public String getKey(String url, String credentials) {
+        return Hashing.sha256().newHasher().putString(url, StandardCharsets.UTF_8).putChar('\n')
+                .putString(credentials == null ? "" : credentials, StandardCharsets.UTF_8).hash().toString();
+    }
+
+    /**
+     * Look up the previous response to a request, counting the request towards the metrics.
+     *
+     * @param key from getKey
+     * @return the previous response, absent if none was stored
+     */
+    public Optional<CachedResponse> get(String key) {
+        requests.mark();
+        CachedResponse response = recent.getIfPresent(key);
+        if (response == null) {
+            response = load(key);
+            if (response != null) {
+                recent.put(key, response);
+            }
+        }
+        if (response != null) {
+            conditionalRequests.mark();
+            if (response.getLastRead().getTime() < System.currentTimeMillis() - MARK_READ_INTERVAL) {
+                markRead(response);
+                // picked up again with the new read time on the next request
+                recent.invalidate(key);
+            }
+        }
+        return Optional.fromNullable(response);
+    }
+
+    private CachedResponse load(String key) {
+        StatelessSession session = null;
+        try {
+            session = sessionFactory.openStatelessSession();
+            return (CachedResponse)session.getNamedQuery("io.dockstore.webservice.core.CachedResponse.findByRequestKey")
+                    .setParameter("requestKey", key).uniqueResult();
+        } catch (RuntimeException e) {
+            // the request goes out without validators
+            LOG.warn("Could not read cached response", e);
+            return null;
+        } finally {
+            close(session);
+        }
+    }
+
+    private void markRead(CachedResponse response) {
+        StatelessSession session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionFactory.openStatelessSession();
+            transaction = session.beginTransaction();
+            session.getNamedQuery("io.dockstore.webservice.core.CachedResponse.markRead").setParameter("now", new Date())
+                    .setParameter("id", response.getId()).executeUpdate();
+            transaction.commit();
+        } catch (RuntimeException e) {
+            // the response may be pruned a little early, it is fetched in full again if so
+            LOG.warn("Could not record use of cached response for " + response.getUrl(), e);
+            rollback(transaction);
+        } finally {
+            close(session);
+        }
+    }
+
+    /**
+     * Record that the server answered 304 Not Modified
+     */
+    public void markNotModified() {
+        notModified.mark();
+    }
+
+    /**
+     * Store a full response. Responses without validators are not stored since they cannot be revalidated.
+     *
+     * @param key          from getKey
+     * @param url          the full url requested
+     * @param etag         the ETag header, may be null
+     * @param lastModified the Last-Modified header, may be null
+     * @param link         the Link header, may be null
+     * @param body         the response body
+     */
+    public void put(String key, String url, String etag, String lastModified, String link, String body) {
+        if (etag == null && lastModified == null) {
+            return;
+        }
+        StatelessSession session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionFactory.openStatelessSession();
+            transaction = session.beginTransaction();
+            // the previous response was usually just looked up by get, only look for it in the database if it was not
+            CachedResponse previous = recent.getIfPresent(key);
+            if (previous == null) {
+                previous = (CachedResponse)session.getNamedQuery("io.dockstore.webservice.core.CachedResponse.findByRequestKey")
+                        .setParameter("requestKey", key).uniqueResult();
+            }
+            final CachedResponse response;
+            if (previous == null) {
+                response = new CachedResponse(key, url);
+                response.update(etag, lastModified, link, body);
+                session.insert(response);
+            } else {
+                response = new CachedResponse(previous);
+                response.update(etag, lastModified, link, body);
+                session.update(response);
+            }
+            transaction.commit();
+            recent.put(key, response);
+        } catch (ConstraintViolationException e) {
+            // a concurrent request stored the same response first
+            rollback(transaction);
+            recent.invalidate(key);
+        } catch (RuntimeException e) {
+            // the response was already read, only the next request misses the cache
+            LOG.warn("Could not store response for " + url, e);
+            rollback(transaction);
+            recent.invalidate(key);
+        } finally {
+            close(session);
+        }
+    }
+
+    /**
+     * Delete the responses that have not been used within the expiry
+     *
+     * @return the number of responses deleted
+     */
+    public int prune() {
+        StatelessSession session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionFactory.openStatelessSession();
+            transaction = session.beginTransaction();
+            final int deleted = session.getNamedQuery("io.dockstore.webservice.core.CachedResponse.deleteUnreadSince")
+                    .setParameter("since", new Date(System.currentTimeMillis() - expiry.toMilliseconds())).executeUpdate();
+            transaction.commit();
+            if (deleted > 0) {
+                // an instance kept in memory could point at a deleted row
+                recent.invalidateAll();
+            }
+            LOG.info("Pruned {} cached responses not used in {}", deleted, expiry);
+            return deleted;
+        } catch (RuntimeException e) {
+            // an exception here would cancel all future runs
+            LOG.error("Could not prune cached responses", e);
+            rollback(transaction);
+            return 0;
+        } finally {
+            close(session);
+        }
+    }
+
+    /**
+     * Roll back after a failure, a failure to roll back is only logged so that it does not hide the first one
+     */
+    private static void rollback(Transaction transaction) {
+        if (transaction == null) {
+            return;
+        }
+        try {
+            transaction.rollback();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not roll back", e);
+        }
+    }
+
+    private static void close(StatelessSession session) {
+        if (session == null) {
+            return;
+        }
+        try {
+            session.close();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not close session", e);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.google.common.base.Optional;
+import com.google.common.io.ByteStreams;
+import io.dockstore.webservice.core.CachedResponse;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.client.GitHubResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A GitHub client that revalidates GETs against the last stored response. GitHub does not count 304 Not Modified
+ * responses against the rate limit, so unchanged listings and files come back for free.
+ */
+public class ConditionalGitHubClient extends RateLimitedGitHubClient {
+
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String HEADER_LINK = "Link";
+
+    private final CachedResponseStore store;
+    private final RequestCoalescer coalescer;
+    private final String token;
+
+    /**
+     * @param store       where responses are kept
+     * @param coalescer   shares identical requests in flight with other clients for the same token, null to send every request
+     * @param rateLimiter paces the requests, null to send them straight away
+     * @param retryPolicy retries failed GETs, null to send them once
+     * @param token       the OAuth token, also used to keep the responses of different users apart
+     */
+    public ConditionalGitHubClient(CachedResponseStore store, RequestCoalescer coalescer, RateLimiter rateLimiter, RetryPolicy retryPolicy,
+            String token) {
+        super(rateLimiter, retryPolicy, token);
+        this.store = store;
+        this.coalescer = coalescer;
+        this.token = token;
+    }
+
+    @Override
+    public GitHubResponse get(GitHubRequest request) throws IOException {
+        final String uri = request.generateUri();
+        final String accept = request.getResponseContentType();
+        final String url = createUri(uri) + (accept == null ? "" : " " + accept);
+        final Exchange exchange;
+        if (coalescer == null) {
+            exchange = withRetries(() -> send(uri, accept, url));
+        } else {
+            try {
+                exchange = coalescer.execute(coalescer.getKey(url, token), () -> {
+                    try {
+                        return withRetries(() -> send(uri, accept, url));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        if (exchange.body == null) {
+            return new GitHubResponse(exchange.connection, null);
+        }
+        // every caller parses the body itself, the parsed objects are not shared
+        return new GitHubResponse(exchange.connection, getBody(request, toStream(exchange.body))) {
+            @Override
+            public String getHeader(String name) {
+                return HEADER_LINK.equals(name) ? exchange.link : super.getHeader(name);
+            }
+        };
+    }
+
+    /**
+     * Send the GET, revalidating against the stored response.
+     *
+     * @param uri    the uri of the request
+     * @param accept the requested representation, may be null
+     * @param url    the uri with the representation, the responses are stored under this
+     * @return the response
+     * @throws IOException when the request failed or GitHub answered with an error
+     */
+    private Exchange send(String uri, String accept, String url) throws IOException {
+        final String key = store.getKey(url, token);
+        final Optional<CachedResponse> cached = store.get(key);
+
+        HttpURLConnection httpRequest = createGet(uri);
+        if (accept != null) {
+            httpRequest.setRequestProperty(HEADER_ACCEPT, accept);
+        }
+        if (cached.isPresent()) {
+            if (cached.get().getEtag() != null) {
+                httpRequest.setRequestProperty("If-None-Match", cached.get().getEtag());
+            }
+            if (cached.get().getLastModified() != null) {
+                httpRequest.setRequestProperty("If-Modified-Since", cached.get().getLastModified());
+            }
+        }
+
+        final int code = httpRequest.getResponseCode();
+        updateRateLimits(httpRequest);
+        if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached.isPresent()) {
+            store.markNotModified();
+            return new Exchange(httpRequest, cached.get().getBody() == null ? "" : cached.get().getBody(), cached.get().getLink());
+        }
+        if (isOk(code)) {
+            final String body;
+            try (InputStream stream = getStream(httpRequest)) {
+                body = new String(ByteStreams.toByteArray(stream), StandardCharsets.UTF_8);
+            }
+            final String link = httpRequest.getHeaderField(HEADER_LINK);
+            store.put(key, createUri(uri), httpRequest.getHeaderField(HEADER_ETAG), httpRequest.getHeaderField(HEADER_LAST_MODIFIED), link,
+                    body);
+            return new Exchange(httpRequest, body, link);
+        }
+        if (isEmpty(code)) {
+            return new Exchange(httpRequest, null, null);
+        }
+        throw createException(getStream(httpRequest), code, httpRequest.getResponseMessage());
+    }
+
+    /**
+     * What came back for a GET, possibly shared by several callers.
+     */
+    private static final class Exchange {
+        private final HttpURLConnection connection;
+        private final String body;
+        private final String link;
+
+        private Exchange(HttpURLConnection connection, String body, String link) {
+            this.connection = connection;
+            this.body = body;
+            this.link = link;
+        }
+    }
+
+    private static InputStream toStream(String body) {
+        return new ByteArrayInputStream(body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8));
+    }
+}
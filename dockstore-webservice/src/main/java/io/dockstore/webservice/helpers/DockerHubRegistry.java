@@ -56,7 +56,7 @@ public class DockerHubRegistry implements ImageRegistryInterface {
     }
 
     @Override
-    public Map<String, ArrayList<?>> getBuildMap(List<Tool> allRepos) {
+    public Map<String, Map<String, QuayBuild>> getBuildMap(List<Tool> allRepos) {
         return new HashMap<>();
     }
 }
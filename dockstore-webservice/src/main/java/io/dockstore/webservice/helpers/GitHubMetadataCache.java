@@ -0,0 +1,111 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.GitHubCacheConfiguration;
+import org.eclipse.egit.github.core.Repository;
+import org.eclipse.egit.github.core.client.GitHubClient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Keeps GitHub clients and repository lookups between requests. Entries are keyed by a hash of the token since what a
+ * token can see differs, the tokens themselves are not kept as keys.
+ */
+public class GitHubMetadataCache {
+
+    private final Cache<String, GitHubClient> clients;
+    private final Cache<String, Repository> repositories;
+
+    public GitHubMetadataCache(GitHubCacheConfiguration configuration, MetricRegistry metrics) {
+        this.clients = CacheBuilder.newBuilder().maximumSize(configuration.getMaxClients()).recordStats().build();
+        this.repositories = CacheBuilder.newBuilder().maximumSize(configuration.getMaxRepositories())
+                .expireAfterWrite(configuration.getRepositoryTtl().toMilliseconds(), TimeUnit.MILLISECONDS).recordStats().build();
+        register(metrics, "clients", clients);
+        register(metrics, "repositories", repositories);
+    }
+
+    private static void register(MetricRegistry metrics, String cacheName, Cache<?, ?> cache) {
+        metrics.register(name(GitHubMetadataCache.class, cacheName, "size"), (Gauge<Long>)cache::size);
+        metrics.register(name(GitHubMetadataCache.class, cacheName, "hits"), (Gauge<Long>)() -> cache.stats().hitCount());
+        metrics.register(name(GitHubMetadataCache.class, cacheName, "misses"), (Gauge<Long>)() -> cache.stats().missCount());
+        metrics.register(name(GitHubMetadataCache.class, cacheName, "evictions"), (Gauge<Long>)() -> cache.stats().evictionCount());
+    }
+
+    /**
+     * @param token   the GitHub token, may be null
+     * @param factory creates a client for the token when there is none yet
+     * @return the client kept for the token
+     */
+    public GitHubClient getClient(String token, Callable<GitHubClient> factory) {
+        try {
+            return clients.get(getTokenKey(token), factory);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new IllegalStateException("Could not create a GitHub client", e.getCause());
+        }
+    }
+
+    /**
+     * @param token        the GitHub token the repository is looked up with, may be null
+     * @param repositoryId "owner/name"
+     * @param loader       looks the repository up on GitHub
+     * @return the repository, looked up again once the entry has expired
+     * @throws IOException when the lookup failed, failures are not kept
+     */
+    public Repository getRepository(String token, String repositoryId, RepositoryLoader loader) throws IOException {
+        try {
+            // GitHub names are case insensitive
+            return repositories.get(getTokenKey(token) + '/' + repositoryId.toLowerCase(Locale.ENGLISH), loader::load);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static String getTokenKey(String token) {
+        return Hashing.sha256().hashString(token == null ? "" : token, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * Looks a repository up on GitHub
+     */
+    @FunctionalInterface
+    public interface RepositoryLoader {
+        Repository load() throws IOException;
+    }
+}
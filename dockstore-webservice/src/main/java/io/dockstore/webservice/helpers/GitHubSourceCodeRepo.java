@@ -17,20 +17,21 @@
 package io.dockstore.webservice.helpers;
 
 import com.google.common.base.Optional;
-import com.google.common.io.Files;
 import io.dockstore.webservice.CustomWebApplicationException;
 import io.dockstore.webservice.core.SourceFile;
-import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowMode;
 import io.dockstore.webservice.core.WorkflowVersion;
-import org.apache.commons.io.FilenameUtils;
+import io.dockstore.webservice.helpers.RetryPolicy.CircuitOpenException;
 import org.apache.http.HttpStatus;
 import org.eclipse.egit.github.core.Repository;
+import org.eclipse.egit.github.core.RepositoryBranch;
 import org.eclipse.egit.github.core.RepositoryContents;
 import org.eclipse.egit.github.core.RepositoryId;
+import org.eclipse.egit.github.core.RepositoryTag;
 import org.eclipse.egit.github.core.User;
 import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.GitHubRequest;
 import org.eclipse.egit.github.core.client.RequestException;
 import org.eclipse.egit.github.core.service.ContentsService;
 import org.eclipse.egit.github.core.service.OrganizationService;
@@ -39,17 +40,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import wdl4s.NamespaceWithWorkflow;
 
-import java.io.File;
+import javax.ws.rs.WebApplicationException;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -59,34 +64,107 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
 
     private static final Logger LOG = LoggerFactory.getLogger(GitHubSourceCodeRepo.class);
+    private static final long BYTES_PER_KILOBYTE = 1024;
+    private static CachedResponseStore responseStore = null;
+    private static RateLimiter rateLimiter = null;
+    private static GitHubMetadataCache metadataCache = null;
+    private static RequestCoalescer coalescer = null;
+    private static RetryPolicy retryPolicy = null;
     private final String gitUsername;
+    private final GitHubClient githubClient;
     private final ContentsService cService;
     private final RepositoryService service;
     private final OrganizationService oService;
     private final String gitRepository;
+    private final String githubTokenContent;
+    // repository id -> (branch or tag name -> commit SHA), resolved once per instance
+    private final Map<String, Map<String, String>> commitIdsByRepository = new ConcurrentHashMap<>();
 
     public GitHubSourceCodeRepo(String gitUsername, String githubTokenContent, String gitRepository) {
 
-        GitHubClient githubClient = new GitHubClient();
-        githubClient.setOAuth2Token(githubTokenContent);
+        final GitHubClient githubClient = metadataCache == null ? createClient(githubTokenContent)
+                : metadataCache.getClient(githubTokenContent, () -> createClient(githubTokenContent));
 
         RepositoryService service = new RepositoryService(githubClient);
         ContentsService cService = new ContentsService(githubClient);
         OrganizationService oService = new OrganizationService(githubClient);
 
+        this.githubClient = githubClient;
         this.service = service;
         this.cService = cService;
         this.oService = oService;
         this.gitUsername = gitUsername;
         this.gitRepository = gitRepository;
+        this.githubTokenContent = githubTokenContent;
+    }
+
+    private static GitHubClient createClient(String githubTokenContent) {
+        if (responseStore == null) {
+            return new RateLimitedGitHubClient(rateLimiter, retryPolicy, githubTokenContent);
+        }
+        return new ConditionalGitHubClient(responseStore, coalescer, rateLimiter, retryPolicy, githubTokenContent);
+    }
+
+    /**
+     * Attach the client and repository cache, see {@link SourceCodeRepoFactory}
+     * @param cache the cache, null to create a client for every instance and look repositories up every time
+     */
+    public static void setMetadataCache(GitHubMetadataCache cache) {
+        metadataCache = cache;
+    }
+
+    /**
+     * Attach the response store, see {@link SourceCodeRepoFactory}
+     * @param store the store, null to make plain requests
+     */
+    public static void setResponseStore(CachedResponseStore store) {
+        responseStore = store;
+    }
+
+    /**
+     * Attach the rate limiter, see {@link SourceCodeRepoFactory}
+     * @param limiter the rate limiter, null to send requests straight away
+     */
+    public static void setRateLimiter(RateLimiter limiter) {
+        rateLimiter = limiter;
+    }
+
+    /**
+     * Attach the request coalescer, see {@link SourceCodeRepoFactory}. Only GETs revalidated against the response store
+     * are shared
+     * @param requestCoalescer the coalescer, null to send every GET
+     */
+    public static void setCoalescer(RequestCoalescer requestCoalescer) {
+        coalescer = requestCoalescer;
+    }
+
+    /**
+     * Attach the retry policy, see {@link SourceCodeRepoFactory}
+     * @param policy the retry policy, null to send every request once
+     */
+    public static void setRetryPolicy(RetryPolicy policy) {
+        retryPolicy = policy;
     }
 
     @Override
     public FileResponse readFile(String fileName, String reference, String gitUrl) {
+        try {
+            return readExistingFile(fileName, reference, gitUrl);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected FileResponse readExistingFile(String fileName, String reference, String gitUrl) throws FileNotFoundException {
         FileResponse cwl = new FileResponse();
         checkNotNull(fileName, "The fileName given is null.");
         try {
-            Repository repo = service.getRepository(gitUsername, gitRepository); // may need to pass owner from git url, as this may differ from the git username
+            Repository repo = getRepository(RepositoryId.create(gitUsername, gitRepository)); // may need to pass owner from git url, as this may differ from the git username
+            if (repo == null) {
+                LOG.info(gitUsername + ": Github repository not found for {}", gitUrl);
+                return null;
+            }
             List<RepositoryContents> contents;
             try {
                 contents = cService.getContents(repo, fileName, reference);
@@ -107,49 +185,130 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
                 // we have bad credentials which should not be ignored
                 throw new CustomWebApplicationException("Error reading from "+gitUrl+", please re-create your git token", HttpStatus.SC_BAD_REQUEST);
             }
+            if (e.getStatus() == HttpStatus.SC_NOT_FOUND) {
+                throw new FileNotFoundException(fileName + " not found on " + reference);
+            }
             return null;
+        } catch (CircuitOpenException e) {
+            throw e.toWebApplicationException();
         } catch (IOException e) {
             LOG.error(gitUsername + ": IOException on readFile" + e.getMessage());
         }
         return cwl;
     }
 
+    /**
+     * Look a repository up, through the metadata cache when there is one
+     * @param id the repository, null when the owner or name is missing
+     * @return the repository, null if there is no id
+     * @throws IOException when the lookup failed
+     */
+    private Repository getRepository(RepositoryId id) throws IOException {
+        if (id == null) {
+            return null;
+        }
+        if (metadataCache == null) {
+            return service.getRepository(id);
+        }
+        return metadataCache.getRepository(githubTokenContent, id.generateId(), () -> service.getRepository(id));
+    }
+
     @Override
-    public Tool findDescriptor(Tool c, String fileName) {
-        String descriptorType = FilenameUtils.getExtension(fileName);
-        Repository repository = null;
+    public String getCommitID(String repositoryId, String reference) {
+        final String commitId = super.getCommitID(repositoryId, reference);
+        if (commitId != null || reference == null) {
+            return commitId;
+        }
+        final Map<String, String> commitIds = commitIdsByRepository.computeIfAbsent(repositoryId, this::getReferenceCommitIds);
+        return commitIds.get(reference.replaceFirst("^refs/(heads|tags)/", ""));
+    }
+
+    /**
+     * Lists the branches and tags of a repository, a branch wins when a tag has the same name since that is what
+     * GitHub resolves the name to.
+     *
+     * @param repositoryId
+     * @return branch or tag name -> commit SHA, empty if the repository could not be read
+     */
+    private Map<String, String> getReferenceCommitIds(String repositoryId) {
+        final Map<String, String> commitIds = new HashMap<>();
         try {
-            repository = service.getRepository(gitUsername, gitRepository);
+            final RepositoryId id = RepositoryId.createFromId(repositoryId);
+            service.getBranches(id).forEach(branch -> commitIds.put(branch.getName(), branch.getCommit().getSha()));
+            service.getTags(id).forEach(tag -> commitIds.putIfAbsent(tag.getName(), tag.getCommit().getSha()));
+        } catch (CircuitOpenException e) {
+            throw e.toWebApplicationException();
         } catch (IOException e) {
-            LOG.error(gitUsername + ": Repo: {} could not be retrieved", c.getGitUrl());
+            LOG.info(gitUsername + ": Cannot list branches and tags of {}", repositoryId);
         }
-        if (repository == null) {
-            LOG.info(gitUsername + ": Github repository not found for {}", c.getPath());
-        } else {
-            LOG.info(gitUsername + ": Github found for: {}", repository.getName());
+        return commitIds;
+    }
+
+    /**
+     * Read a file from a repository through the file cache.
+     *
+     * @param id        the repository
+     * @param gitUrl    git url of the repository, used as the cache key
+     * @param path      the file to read
+     * @param reference the branch or tag to read from
+     * @param commitId  the commit the reference points at, null to read the reference without caching
+     * @return the decoded content, null if there was none
+     * @throws IOException when the file could not be read, FileNotFoundException when it does not exist
+     */
+    private String readContents(RepositoryId id, String gitUrl, String path, String reference, String commitId) throws IOException {
+        return getCachedContent(gitUrl, commitId, path, () -> readSnapshotFile(id.generateId(), commitId, path, () -> {
             try {
-                List<RepositoryContents> contents;
-                contents = cService.getContents(repository, fileName);
-                if (!(contents == null || contents.isEmpty())) {
-                    String content = extractGitHubContents(contents);
-
-                    // Add for new descriptor types
-                    // Grab important metadata from CWL file (expects file to have .cwl extension)
-                    if (descriptorType.equals("cwl")) {
-                        c = parseCWLContent(c, content);
-                    }
-                    if (descriptorType.equals("wdl")) {
-                        c = parseWDLContent(c, content);
-                    }
-                    
-                    // Currently only can pull name of task? or workflow from WDL
-                    // Add this later, should call parseWDLContent and use the existing Broad WDL parser
+                final List<RepositoryContents> contents = cService.getContents(id, path, commitId == null ? reference : commitId);
+                return contents == null || contents.isEmpty() ? null : extractGitHubContents(contents);
+            } catch (RequestException e) {
+                if (e.getStatus() == HttpStatus.SC_NOT_FOUND) {
+                    throw new FileNotFoundException(path + " not found on " + reference);
                 }
-            } catch (IOException ex) {
-                LOG.info(gitUsername + ": Repo: {} has no descriptor file ", repository.getName());
+                throw e;
             }
+        }));
+    }
+
+    @Override
+    protected RepositorySnapshot downloadSnapshot(String repositoryId, String commitId) throws IOException {
+        // the size GitHub reports is in kilobytes and includes the history, so it overestimates the archive
+        final Repository repository = getRepository(RepositoryId.createFromId(repositoryId));
+        if (repository.getSize() * BYTES_PER_KILOBYTE > RepositorySnapshot.MAX_ARCHIVE_SIZE) {
+            LOG.info(gitUsername + ": {} is too large for a snapshot, reading its files one by one", repositoryId);
+            return null;
+        }
+        // zipball redirects to codeload, HttpURLConnection follows it, closing the stream early drops the connection
+        try (InputStream stream = githubClient.getStream(new GitHubRequest().setUri("/repos/" + repositoryId + "/zipball/" + commitId))) {
+            return RepositorySnapshot.fromZip(stream);
         }
-        return c;
+    }
+
+    @Override
+    public String readDescriptor(String gitUrl, String fileName) {
+        Repository repository = null;
+        try {
+            repository = getRepository(RepositoryId.create(gitUsername, gitRepository));
+        } catch (CircuitOpenException e) {
+            throw e.toWebApplicationException();
+        } catch (IOException e) {
+            LOG.error(gitUsername + ": Repo: {} could not be retrieved", gitUrl);
+        }
+        if (repository == null) {
+            LOG.info(gitUsername + ": Github repository not found for {}", gitUrl);
+            return null;
+        }
+        LOG.info(gitUsername + ": Github found for: {}", repository.getName());
+        try {
+            List<RepositoryContents> contents = cService.getContents(repository, fileName);
+            if (!(contents == null || contents.isEmpty())) {
+                return extractGitHubContents(contents);
+            }
+        } catch (CircuitOpenException ex) {
+            throw ex.toWebApplicationException();
+        } catch (IOException ex) {
+            LOG.info(gitUsername + ": Repo: {} has no descriptor file ", repository.getName());
+        }
+        return null;
     }
 
     @Override
@@ -160,6 +319,8 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
             // TODO: only works if the gitUsername is an actual organization on github
             // ie, it does not work if it is just a user
             organization = oService.getOrganization(gitUsername);
+        } catch (CircuitOpenException ex) {
+            throw ex.toWebApplicationException();
         } catch (IOException ex) {
             LOG.info(gitUsername + ": Cannot find Organization {}", gitUsername);
             return "";
@@ -177,6 +338,8 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
                 reposByGitURl.put(repo.getGitUrl(), repo.generateId());
             }
             return reposByGitURl;
+        } catch (CircuitOpenException e) {
+            throw e.toWebApplicationException();
         } catch (IOException e) {
             LOG.info(gitUsername + ": Cannot getWorkflowGitUrl2RepositoryId workflows {}", gitUsername);
             return null;
@@ -184,11 +347,11 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
     }
 
     @Override
-    public Workflow getNewWorkflow(String repositoryId, Optional<Workflow> existingWorkflow) {
+    public Workflow getNewWorkflow(String repositoryId, Optional<Workflow> existingWorkflow, Optional<String> reference) {
         //TODO: need to add pass-through when paths are custom
         RepositoryId id = RepositoryId.createFromId(repositoryId);
         try {
-            final Repository repository = service.getRepository(id);
+            final Repository repository = getRepository(id);
             LOG.info(gitUsername + ": Looking at repo: " + repository.getGitUrl());
             Workflow workflow = new Workflow();
             workflow.setOrganization(repository.getOwner().getLogin());
@@ -216,114 +379,151 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
             }
 
             // when getting a full workflow, look for versions and check each version for valid workflows
+            // the listing also gives us the commit of each reference, unchanged references are read from the file cache
             List<String> references = new ArrayList<>();
-            service.getBranches(id).forEach(branch -> references.add(branch.getName()));
-            service.getTags(id).forEach(tag -> references.add(tag.getName()));
+            Map<String, String> commitIds = new HashMap<>();
+            for (RepositoryBranch branch : service.getBranches(id)) {
+                references.add(branch.getName());
+                commitIds.put(branch.getName(), branch.getCommit().getSha());
+            }
+            for (RepositoryTag tag : service.getTags(id)) {
+                references.add(tag.getName());
+                commitIds.putIfAbsent(tag.getName(), tag.getCommit().getSha());
+            }
+            commitIdsByRepository.put(repositoryId, commitIds);
+
+            // read each commit once on the executor, branches and tags pointing at the same commit share the result
+            final List<String> selected = new ArrayList<>();
+            final Map<String, String> paths = new HashMap<>();
+            final Map<String, Future<List<SourceFile>>> filesByCommit = new HashMap<>();
+            final ExecutorService executor = getReferenceExecutor();
+            final String gitUrl = workflow.getGitUrl();
+            final ImportResolver importResolver = new ImportResolver(this);
             for (String ref : references) {
-                LOG.info(gitUsername + ": Looking at reference: " + ref);
-                WorkflowVersion version = new WorkflowVersion();
-                version.setName(ref);
-                version.setReference(ref);
-                version.setValid(false);
-
-                // determine workflow version from previous
-                String calculatedPath = existingDefaults.getOrDefault(ref, existingWorkflow.get().getDefaultWorkflowPath());
-                version.setWorkflowPath(calculatedPath);
-
-                // Get relative path of main workflow descriptor to find relative paths
-                String[] path = calculatedPath.split("/");
-                String basepath = "";
-                for (int i = 0; i < path.length - 1; i++) {
-                    basepath += path[i] + "/";
-                }
-
-                ArrayList<String> importPaths;
-                Set<SourceFile> sourceFileSet = new HashSet<>();
-
-
-                //TODO: is there a case-insensitive endsWith?
-                if (calculatedPath.endsWith(".cwl") || calculatedPath.endsWith(".CWL")) {
-                    // look for workflow file
-                    try {
-                        final List<RepositoryContents> cwlContents = cService.getContents(id, calculatedPath, ref);
-                        if (cwlContents != null && cwlContents.size() > 0) {
-                            String content = extractGitHubContents(cwlContents);
-                            if (content.contains("class: Workflow")) {
-                                // if we have a valid workflow document
-                                SourceFile file = new SourceFile();
-                                file.setType(SourceFile.FileType.DOCKSTORE_CWL);
-                                file.setContent(content);
-                                file.setPath(calculatedPath);
-                                version.getSourceFiles().add(file);
-                                final File tempDesc = File.createTempFile("temp", ".cwl", Files.createTempDir());
-                                Files.write(content, tempDesc, StandardCharsets.UTF_8);
-                                importPaths = getCwlImports(tempDesc);
-                                for (String importPath : importPaths) {
-                                    LOG.info(gitUsername + ": Grabbing file " + basepath + importPath);
-                                    SourceFile importFile = new SourceFile();
-                                    importFile.setContent(extractGitHubContents(cService.getContents(id, basepath + importPath, ref)));
-                                    importFile.setPath(basepath + importPath);
-                                    importFile.setType(SourceFile.FileType.DOCKSTORE_CWL);
-                                    sourceFileSet.add(importFile);
-                                }
-                            }
-                        }
-
-                    } catch (IOException ex) {
-                        LOG.info(gitUsername + ": Error getting contents of file.");
-                    } catch (Exception ex) {
-                        LOG.info(gitUsername + ": " + workflow.getDefaultWorkflowPath() + " on " + ref + " was not valid CWL workflow");
-                    }
-                } else {
-                    try {
-                        final List<RepositoryContents> wdlContents = cService.getContents(id, calculatedPath, ref);
-                        if (wdlContents != null && wdlContents.size() > 0) {
-                            String content = extractGitHubContents(wdlContents);
-
-                            final NamespaceWithWorkflow nameSpaceWithWorkflow = NamespaceWithWorkflow.load(content);
-                            if (nameSpaceWithWorkflow != null) {
-                                // if we have a valid workflow document
-                                SourceFile file = new SourceFile();
-                                file.setType(SourceFile.FileType.DOCKSTORE_WDL);
-                                file.setContent(content);
-                                file.setPath(calculatedPath);
-                                version.getSourceFiles().add(file);
-                                final File tempDesc = File.createTempFile("temp", ".wdl", Files.createTempDir());
-                                Files.write(content, tempDesc, StandardCharsets.UTF_8);
-                                importPaths = getWdlImports(tempDesc);
-                                for (String importPath : importPaths) {
-                                    LOG.info(gitUsername + ": Grabbing file " + importPath);
-                                    SourceFile importFile = new SourceFile();
-                                    importFile.setContent(extractGitHubContents(cService.getContents(id, basepath + importPath, ref)));
-                                    importFile.setPath(basepath + importPath);
-                                    importFile.setType(SourceFile.FileType.DOCKSTORE_WDL);
-                                    sourceFileSet.add(importFile);
-                                }
-                            }
-                        }
-                    } catch (Exception ex) {
-                        LOG.info(gitUsername + ": " + calculatedPath + " on " + ref + " was not valid WDL workflow");
-                    }
+                if (reference.isPresent() && !reference.get().equals(ref)) {
+                    continue;
                 }
+                // determine workflow version from previous
+                final String calculatedPath = existingDefaults.getOrDefault(ref, existingWorkflow.get().getDefaultWorkflowPath());
+                final String commitId = commitIds.get(ref);
+                selected.add(ref);
+                paths.put(ref, calculatedPath);
+                filesByCommit.computeIfAbsent(getVersionKey(ref, commitId, calculatedPath),
+                        key -> executor.submit(RateLimiter.inheritBackground(
+                                () -> readVersionFiles(id, gitUrl, calculatedPath, ref, commitId, importResolver))));
+            }
 
-                if (version.getSourceFiles().size() > 0) {
-                    version.setValid(true);
+            // versions are assembled on this thread in the order of the listing, whatever order the reads finish in
+            try {
+                for (String ref : selected) {
+                    final String calculatedPath = paths.get(ref);
+                    final List<SourceFile> files = filesByCommit.get(getVersionKey(ref, commitIds.get(ref), calculatedPath)).get();
+                    WorkflowVersion version = new WorkflowVersion();
+                    version.setName(ref);
+                    version.setReference(ref);
+                    version.setWorkflowPath(calculatedPath);
+                    // each version owns its files, aliases get copies
+                    files.forEach(file -> version.getSourceFiles().add(copySourceFile(file)));
+                    version.setValid(!files.isEmpty());
+                    workflow.addWorkflowVersion(version);
                 }
-
-                // add extra source files here
-                if (sourceFileSet.size() > 0) {
-                    version.getSourceFiles().addAll(sourceFileSet);
+            } catch (InterruptedException e) {
+                filesByCommit.values().forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new CustomWebApplicationException("Refresh was interrupted.", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+            } catch (ExecutionException e) {
+                filesByCommit.values().forEach(future -> future.cancel(true));
+                if (e.getCause() instanceof WebApplicationException) {
+                    // rate limited or the host is failing, the client should retry later rather than see an error
+                    throw (WebApplicationException)e.getCause();
                 }
-
-                workflow.addWorkflowVersion(version);
+                LOG.error(gitUsername + ": Could not read versions of " + repositoryId, e.getCause());
+                throw new CustomWebApplicationException("Could not read versions of " + repositoryId, HttpStatus.SC_INTERNAL_SERVER_ERROR);
             }
             return workflow;
+        } catch (CircuitOpenException e) {
+            throw e.toWebApplicationException();
         } catch (IOException e) {
             LOG.info(gitUsername + ": Cannot getNewWorkflow {}");
             return null;
         }
     }
 
+    /**
+     * Read the descriptor of a version and the files it imports. Runs on the reference executor, so it must not touch
+     * the workflow being built.
+     *
+     * @param id             the repository
+     * @param gitUrl         git url of the repository
+     * @param calculatedPath path of the descriptor
+     * @param ref            the branch or tag
+     * @param commitId       the commit the reference points at, may be null
+     * @param importResolver follows the imports, shared by the versions of the workflow
+     * @return the descriptor followed by its imports, empty if the descriptor is not a valid workflow
+     * @throws WebApplicationException when the rate limit or an unavailable host means the version cannot be read now,
+     *                                 rather than leaving it out as if it were invalid
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    private List<SourceFile> readVersionFiles(RepositoryId id, String gitUrl, String calculatedPath, String ref, String commitId,
+            ImportResolver importResolver) {
+        LOG.info(gitUsername + ": Looking at reference: " + ref);
+        List<SourceFile> files = new ArrayList<>();
+        final String versionKey = commitId == null ? "ref:" + ref : commitId;
+        final ImportResolver.ContentReader reader = importPath -> readContents(id, gitUrl, importPath, ref, commitId);
+
+        //TODO: is there a case-insensitive endsWith?
+        if (calculatedPath.endsWith(".cwl") || calculatedPath.endsWith(".CWL")) {
+            // look for workflow file
+            try {
+                final String content = readContents(id, gitUrl, calculatedPath, ref, commitId);
+                if (content != null) {
+                    if (content.contains("class: Workflow")) {
+                        // if we have a valid workflow document
+                        SourceFile file = new SourceFile();
+                        file.setType(SourceFile.FileType.DOCKSTORE_CWL);
+                        file.setContent(content);
+                        file.setPath(calculatedPath);
+                        files.add(file);
+                        files.addAll(importResolver.resolve(calculatedPath, content, SourceFile.FileType.DOCKSTORE_CWL, versionKey, reader));
+                    }
+                }
+
+            } catch (WebApplicationException ex) {
+                throw ex;
+            } catch (CircuitOpenException ex) {
+                throw ex.toWebApplicationException();
+            } catch (IOException ex) {
+                LOG.info(gitUsername + ": Error getting contents of file.");
+            } catch (Exception ex) {
+                LOG.info(gitUsername + ": " + calculatedPath + " on " + ref + " was not valid CWL workflow");
+            }
+        } else {
+            try {
+                final String content = readContents(id, gitUrl, calculatedPath, ref, commitId);
+                if (content != null) {
+
+                    final NamespaceWithWorkflow nameSpaceWithWorkflow = NamespaceWithWorkflow.load(content);
+                    if (nameSpaceWithWorkflow != null) {
+                        // if we have a valid workflow document
+                        SourceFile file = new SourceFile();
+                        file.setType(SourceFile.FileType.DOCKSTORE_WDL);
+                        file.setContent(content);
+                        file.setPath(calculatedPath);
+                        files.add(file);
+                        files.addAll(importResolver.resolve(calculatedPath, content, SourceFile.FileType.DOCKSTORE_WDL, versionKey, reader));
+                    }
+                }
+            } catch (WebApplicationException ex) {
+                throw ex;
+            } catch (CircuitOpenException ex) {
+                throw ex.toWebApplicationException();
+            } catch (Exception ex) {
+                LOG.info(gitUsername + ": " + calculatedPath + " on " + ref + " was not valid WDL workflow");
+            }
+        }
+        return files;
+    }
+
     private String extractGitHubContents(List<RepositoryContents> cwlContents) {
         String encoded = cwlContents.get(0).getContent().replace("\n", "");
         byte[] decode = Base64.getDecoder().decode(encoded);
@@ -30,6 +30,7 @@ import io.dockstore.webservice.core.TokenType;
 import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.ToolMode;
 import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.helpers.RefreshEngine.Provider;
 import io.dockstore.webservice.helpers.SourceCodeRepoInterface.FileResponse;
 import io.dockstore.webservice.jdbi.FileDAO;
 import io.dockstore.webservice.jdbi.TagDAO;
@@ -44,12 +45,18 @@ import org.slf4j.LoggerFactory;
 
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -77,27 +84,28 @@ public final class Helper {
         }
     }
 
-    private static void updateFiles(Tool tool, final HttpClient client, final FileDAO fileDAO, final Token githubToken, final Token bitbucketToken) {
-        Set<Tag> tags = tool.getTags();
-
-        for (Tag tag : tags) {
-            LOG.info(githubToken.getUsername() + " : Updating files for tag {}", tag.getName());
-
-            List<SourceFile> newFiles = loadFiles(client, bitbucketToken, githubToken, tool, tag);
-            tag.getSourceFiles().clear();
+    private static void updateFiles(Tool tool, final Map<Tag, List<SourceFile>> filesByTag, final FileDAO fileDAO,
+            final Token githubToken) {
+        // only the tags in the map are touched, a refresh of a single reference passes just the tags built from it
+        for (Map.Entry<Tag, List<SourceFile>> entry : filesByTag.entrySet()) {
+            final Tag tag = entry.getKey();
+            final List<SourceFile> newFiles = entry.getValue();
+            // most tags did not change since the last refresh, keep their files rather than replacing them with copies
+            if (!hasSameFiles(tag.getSourceFiles(), newFiles)) {
+                tag.getSourceFiles().clear();
+                for (SourceFile newFile : newFiles) {
+                    // no read-back, the inserts are batched when the session is flushed
+                    fileDAO.create(newFile);
+                    tag.addSourceFile(newFile);
+                }
+            }
 
             // Add for new descriptor types
             boolean hasCwl = false;
             boolean hasWdl = false;
             boolean hasDockerfile = false;
 
-            for (SourceFile newFile : newFiles) {
-                long id = fileDAO.create(newFile);
-                SourceFile file = fileDAO.findById(id);
-                tag.addSourceFile(file);
-
-                // oldFiles.add(newFile);
-                // }
+            for (SourceFile file : tag.getSourceFiles()) {
                 if (file.getType() == FileType.DOCKERFILE) {
                     hasDockerfile = true;
                     LOG.info(githubToken.getUsername() + " : HAS Dockerfile");
@@ -118,6 +126,137 @@ public final class Helper {
         }
     }
 
+    /**
+     * @param oldFiles
+     * @param newFiles
+     * @return true if both contain the same type, path and content for every file
+     */
+    private static boolean hasSameFiles(Set<SourceFile> oldFiles, List<SourceFile> newFiles) {
+        if (oldFiles.size() != newFiles.size()) {
+            return false;
+        }
+        for (SourceFile newFile : newFiles) {
+            boolean found = false;
+            for (SourceFile oldFile : oldFiles) {
+                if (oldFile.getType() == newFile.getType() && Objects.equals(oldFile.getPath(), newFile.getPath()) && Objects
+                        .equals(oldFile.getContent(), newFile.getContent())) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * What a refresh worker read from source control for one tool, applied to the tool on the request thread.
+     */
+    private static final class ToolFiles {
+        private final Map<Tag, List<SourceFile>> filesByTag = new IdentityHashMap<>();
+        private String cwlDescriptor;
+        private String wdlDescriptor;
+    }
+
+    /**
+     * Reads the files for every tag of a tool along with the tool level descriptors from source control.
+     * This runs on a refresh worker, it only reads from the tags and creates new, unsaved source files.
+     *
+     * @param sourceCodeRepo  the tool's repository, null if it has none
+     * @param gitUrl          the tool's git url
+     * @param tags            the tool's tags
+     * @param defaultCwlPath
+     * @param defaultWdlPath
+     * @param githubToken
+     * @return files found for each tag and the tool level descriptors
+     */
+    private static ToolFiles loadToolFiles(final SourceCodeRepoInterface sourceCodeRepo, final String gitUrl, final List<Tag> tags,
+            final String defaultCwlPath, final String defaultWdlPath, final Token githubToken) {
+        final ToolFiles toolFiles = new ToolFiles();
+        for (Tag tag : tags) {
+            LOG.info(githubToken.getUsername() + " : Updating files for tag {}", tag.getName());
+            toolFiles.filesByTag.put(tag, loadFiles(sourceCodeRepo, gitUrl, tag));
+        }
+
+        if (sourceCodeRepo != null) {
+            // Grab files to get tool information
+            // Add for new descriptor types
+            if (defaultCwlPath != null) {
+                LOG.info(githubToken.getUsername() + " : Reading CWL...");
+                toolFiles.cwlDescriptor = sourceCodeRepo.readDescriptor(gitUrl, defaultCwlPath);
+            }
+
+            if (defaultWdlPath != null) {
+                LOG.info(githubToken.getUsername() + " : Reading WDL...");
+                toolFiles.wdlDescriptor = sourceCodeRepo.readDescriptor(gitUrl, defaultWdlPath);
+            }
+        }
+        return toolFiles;
+    }
+
+    /**
+     * Apply the descriptors read by {@link #loadToolFiles} to the tool.
+     *
+     * @param sourceCodeRepo the tool's repository, null if it has none
+     * @param tool
+     * @param toolFiles
+     */
+    private static void updateDescriptors(final SourceCodeRepoInterface sourceCodeRepo, final Tool tool, final ToolFiles toolFiles) {
+        if (sourceCodeRepo == null) {
+            return;
+        }
+        // Add for new descriptor types
+        tool.setValidTrigger(false);  // Default is false since we must first check to see if descriptors are valid
+        if (tool.getDefaultCwlPath() != null) {
+            sourceCodeRepo.parseDescriptor(tool, tool.getDefaultCwlPath(), toolFiles.cwlDescriptor);
+        }
+        if (tool.getDefaultWdlPath() != null) {
+            sourceCodeRepo.parseDescriptor(tool, tool.getDefaultWdlPath(), toolFiles.wdlDescriptor);
+        }
+    }
+
+    /**
+     * Match the tags currently stored for a tool against the tags found in the registry, by name.
+     *
+     * @param existingTags
+     *            the stored tags, on return the tags the tool should have: stored tags still in the registry updated from it,
+     *            followed by copies of the new ones
+     * @param newTags
+     *            tags found in the registry
+     * @param toDelete
+     *            receives the stored tags that are no longer in the registry
+     */
+    static void reconcileTags(final List<Tag> existingTags, final List<Tag> newTags, final List<Tag> toDelete) {
+        final Set<String> newTagNames = new HashSet<>();
+        newTags.forEach(newTag -> newTagNames.add(newTag.getName()));
+
+        final Map<String, Tag> existingByName = new HashMap<>();
+        for (Iterator<Tag> iterator = existingTags.iterator(); iterator.hasNext();) {
+            Tag oldTag = iterator.next();
+            if (newTagNames.contains(oldTag.getName())) {
+                existingByName.putIfAbsent(oldTag.getName(), oldTag);
+            } else {
+                toDelete.add(oldTag);
+                iterator.remove();
+            }
+        }
+
+        for (Tag newTag : newTags) {
+            Tag oldTag = existingByName.get(newTag.getName());
+            if (oldTag != null) {
+                oldTag.update(newTag);
+            } else {
+                // this could result in the same tag being added to multiple containers with the same path, need to clone
+                Tag clonedTag = new Tag();
+                clonedTag.clone(newTag);
+                existingTags.add(clonedTag);
+                existingByName.put(clonedTag.getName(), clonedTag);
+            }
+        }
+    }
+
     /**
      * Updates each container's tags.
      *
@@ -130,11 +269,14 @@ public final class Helper {
      * @param bitbucketToken
      * @param tagMap
      *            docker image path -> list of corresponding Tags
+     * @param refreshEngine
+     *            runs the reads from source control
      */
     @SuppressWarnings("checkstyle:parameternumber")
     private static void updateTags(final Iterable<Tool> containers, final HttpClient client, final ToolDAO toolDAO,
             final TagDAO tagDAO, final FileDAO fileDAO, final Token githubToken, final Token bitbucketToken,
-            final Map<String, List<Tag>> tagMap) {
+            final Map<String, List<Tag>> tagMap, final RefreshEngine refreshEngine) {
+        final List<Tool> toolsToLoad = new ArrayList<>();
         for (final Tool tool : containers) {
             LOG.info(githubToken.getUsername() + " : --------------- Updating tags for {} ---------------", tool.getToolPath());
             List<Tag> existingTags = new ArrayList(tool.getTags());
@@ -148,48 +290,11 @@ public final class Helper {
 
                 if (newTags == null) {
                     LOG.info(githubToken.getUsername() + " : Tags for tool {} did not get updated because new tags were not found", tool.getPath());
-                    return;
+                    continue;
                 }
 
                 List<Tag> toDelete = new ArrayList<>(0);
-                for (Iterator<Tag> iterator = existingTags.iterator(); iterator.hasNext();) {
-                    Tag oldTag = iterator.next();
-                    boolean exists = false;
-                    for (Tag newTag : newTags) {
-                        if (newTag.getName().equals(oldTag.getName())) {
-                            exists = true;
-                            break;
-                        }
-                    }
-                    if (!exists) {
-                        toDelete.add(oldTag);
-                        iterator.remove();
-                    }
-                }
-
-                for (Tag newTag : newTags) {
-                    boolean exists = false;
-
-                    // Find if user already has the tool
-                    for (Tag oldTag : existingTags) {
-                        if (newTag.getName().equals(oldTag.getName())) {
-                            exists = true;
-
-                            oldTag.update(newTag);
-
-                            break;
-                        }
-                    }
-
-                    // Tag does not already exist
-                    if (!exists) {
-                        // this could result in the same tag being added to multiple containers with the same path, need to clone
-                        Tag clonedTag = new Tag();
-                        clonedTag.clone(newTag);
-                        existingTags.add(clonedTag);
-                    }
-
-                }
+                reconcileTags(existingTags, newTags, toDelete);
 
                 boolean allAutomated = true;
                 for (Tag tag : existingTags) {
@@ -197,8 +302,7 @@ public final class Helper {
                     if (!tool.getTags().contains(tag)) {
                         LOG.info(githubToken.getUsername() + " : Updating tag {}", tag.getName());
 
-                        long id = tagDAO.create(tag);
-                        tag = tagDAO.findById(id);
+                        tagDAO.create(tag);
                         tool.addTag(tag);
 
                         if (!tag.isAutomated()) {
@@ -224,29 +328,35 @@ public final class Helper {
                 }
             }
 
-            updateFiles(tool, client, fileDAO, githubToken, bitbucketToken);
-
-            final SourceCodeRepoInterface sourceCodeRepo = SourceCodeRepoFactory.createSourceCodeRepo(tool.getGitUrl(), client,
-                    bitbucketToken == null ? null : bitbucketToken.getContent(), githubToken.getContent());
-            String email = "";
-            if (sourceCodeRepo != null) {
-                // Grab and parse files to get tool information
-                // Add for new descriptor types
-                tool.setValidTrigger(false);  // Default is false since we must first check to see if descriptors are valid
-
-                if (tool.getDefaultCwlPath() != null) {
-                    LOG.info(githubToken.getUsername() + " : Parsing CWL...");
-                    sourceCodeRepo.findDescriptor(tool, tool.getDefaultCwlPath());
-                }
-
-                if (tool.getDefaultWdlPath() != null) {
-                    LOG.info(githubToken.getUsername() + " : Parsing WDL...");
-                    sourceCodeRepo.findDescriptor(tool, tool.getDefaultWdlPath());
-                }
+            toolsToLoad.add(tool);
+        }
 
+        // reading from source control is the slow part, do it for all tools at once, everything the workers need is
+        // gathered here so that they never load anything through the session
+        final List<SourceCodeRepoInterface> repos = new ArrayList<>();
+        final List<Future<ToolFiles>> futures = new ArrayList<>();
+        for (final Tool tool : toolsToLoad) {
+            SourceCodeRepoInterface sourceCodeRepo = null;
+            if (tool.getGitUrl() != null && !tool.getGitUrl().isEmpty()) {
+                sourceCodeRepo = SourceCodeRepoFactory.createSourceCodeRepo(tool.getGitUrl(), client,
+                        bitbucketToken == null ? null : bitbucketToken.getContent(), githubToken.getContent());
             }
-            tool.setEmail(email);
+            repos.add(sourceCodeRepo);
+            final SourceCodeRepoInterface repo = sourceCodeRepo;
+            final String gitUrl = tool.getGitUrl();
+            final List<Tag> tags = new ArrayList<>(tool.getTags());
+            final String defaultCwlPath = tool.getDefaultCwlPath();
+            final String defaultWdlPath = tool.getDefaultWdlPath();
+            futures.add(refreshEngine.submit(Provider.fromGitUrl(gitUrl),
+                    () -> loadToolFiles(repo, gitUrl, tags, defaultCwlPath, defaultWdlPath, githubToken)));
+        }
+        final List<ToolFiles> filesByTool = RefreshEngine.awaitAll(futures);
 
+        for (int i = 0; i < toolsToLoad.size(); i++) {
+            final Tool tool = toolsToLoad.get(i);
+            updateDescriptors(repos.get(i), tool, filesByTool.get(i));
+            updateFiles(tool, filesByTool.get(i).filesByTag, fileDAO, githubToken);
+            tool.setEmail("");
             toolDAO.create(tool);
         }
 
@@ -267,18 +377,17 @@ public final class Helper {
     private static List<Tool> updateContainers(final Iterable<Tool> apiContainerList, final List<Tool> dbToolList,
             final User user, final ToolDAO toolDAO) {
 
+        final Set<String> newToolKeys = new HashSet<>();
+        for (final Tool newTool : apiContainerList) {
+            newToolKeys.add(newTool.getToolPath());
+            newToolKeys.add(getPathAndGitUrl(newTool));
+        }
+
         final List<Tool> toDelete = new ArrayList<>();
         // Find containers that the user no longer has
         for (final Iterator<Tool> iterator = dbToolList.iterator(); iterator.hasNext();) {
             final Tool oldTool = iterator.next();
-            boolean exists = false;
-            for (final Tool newTool : apiContainerList) {
-                if ((newTool.getToolPath().equals(oldTool.getToolPath())) || (newTool.getPath().equals(oldTool.getPath()) && newTool.getGitUrl().equals(
-                    oldTool.getGitUrl()))) {
-                    exists = true;
-                    break;
-                }
-            }
+            boolean exists = newToolKeys.contains(oldTool.getToolPath()) || newToolKeys.contains(getPathAndGitUrl(oldTool));
             if (!exists && oldTool.getMode() != ToolMode.MANUAL_IMAGE_PATH) {
                 oldTool.removeUser(user);
                 // user.removeTool(oldTool);
@@ -287,37 +396,46 @@ public final class Helper {
             }
         }
 
-        // when a container from the registry (ex: quay.io) has newer content, update it from
+        final ToolIndex index = new ToolIndex();
+        dbToolList.forEach(index::add);
+
+        // Find containers that already exist but do not belong to the user, with one query instead of one per container
+        final Set<String> unmatchedPaths = new HashSet<>();
         for (Tool newTool : apiContainerList) {
-            String path = newTool.getPath();
-            boolean exists = false;
+            if (index.find(newTool) == null) {
+                unmatchedPaths.add(newTool.getPath());
+            }
+        }
+        final Map<String, Tool> storedTools = new HashMap<>();
+        if (!unmatchedPaths.isEmpty()) {
+            for (Tool storedTool : toolDAO.findByPaths(unmatchedPaths)) {
+                storedTools.putIfAbsent(storedTool.getPath() + '\n' + storedTool.getToolname(), storedTool);
+            }
+        }
 
+        // when a container from the registry (ex: quay.io) has newer content, update it from
+        for (Tool newTool : apiContainerList) {
             // Find if user already has the container
-            for (Tool oldTool : dbToolList) {
-                if ((newTool.getToolPath().equals(oldTool.getToolPath())) || (newTool.getPath().equals(oldTool.getPath()) && newTool.getGitUrl().equals(
-                    oldTool.getGitUrl()))) {
-                    exists = true;
-                    oldTool.update(newTool);
-                    break;
-                }
-            }
+            Tool oldTool = index.find(newTool);
 
             // Find if container already exists, but does not belong to user
-            if (!exists) {
-                Tool oldTool = toolDAO.findByToolPath(path, newTool.getToolname());
+            if (oldTool == null && newTool.getToolname() != null) {
+                oldTool = storedTools.get(newTool.getPath() + '\n' + newTool.getToolname());
                 if (oldTool != null) {
-                    exists = true;
-                    oldTool.update(newTool);
                     dbToolList.add(oldTool);
                 }
             }
 
-            // Tool does not already exist
-            if (!exists) {
+            if (oldTool != null) {
+                oldTool.update(newTool);
+                index.add(oldTool);
+            } else {
+                // Tool does not already exist
                 // newTool.setUserId(userId);
                 newTool.setPath(newTool.getPath());
 
                 dbToolList.add(newTool);
+                index.add(newTool);
             }
         }
 
@@ -347,6 +465,42 @@ public final class Helper {
         return dbToolList;
     }
 
+    /**
+     * @param tool
+     * @return a key for matching tools by path and git url, null if the tool has no git url
+     */
+    private static String getPathAndGitUrl(Tool tool) {
+        return tool.getGitUrl() == null ? null : tool.getPath() + '\n' + tool.getGitUrl();
+    }
+
+    /**
+     * Tools of a user, looked up the way registry tools are matched to them: by tool path, or by path and git url.
+     * When both match different tools, the one added first wins.
+     */
+    private static class ToolIndex {
+        private final Map<String, Tool> byToolPath = new HashMap<>();
+        private final Map<String, Tool> byPathAndGitUrl = new HashMap<>();
+        private final Map<Tool, Integer> order = new IdentityHashMap<>();
+
+        void add(Tool tool) {
+            order.putIfAbsent(tool, order.size());
+            byToolPath.putIfAbsent(tool.getToolPath(), tool);
+            final String pathAndGitUrl = getPathAndGitUrl(tool);
+            if (pathAndGitUrl != null) {
+                byPathAndGitUrl.putIfAbsent(pathAndGitUrl, tool);
+            }
+        }
+
+        Tool find(Tool newTool) {
+            final Tool byPath = byToolPath.get(newTool.getToolPath());
+            final Tool byGitUrl = byPathAndGitUrl.get(getPathAndGitUrl(newTool));
+            if (byPath == null || byGitUrl == null) {
+                return byPath == null ? byGitUrl : byPath;
+            }
+            return order.get(byPath) <= order.get(byGitUrl) ? byPath : byGitUrl;
+        }
+    }
+
     /**
      * Get the list of tags for each container from Quay.io.
      *
@@ -355,65 +509,53 @@ public final class Helper {
      * @param objectMapper
      * @param quayToken
      * @param mapOfBuilds
+     * @param refreshEngine
      * @return a map: key = path; value = list of tags
      */
     @SuppressWarnings("checkstyle:parameternumber")
     private static Map<String, List<Tag>> getTags(final HttpClient client, final List<Tool> tools,
-            final ObjectMapper objectMapper, final Token quayToken, final Map<String, ArrayList<?>> mapOfBuilds) {
+            final ObjectMapper objectMapper, final Token quayToken, final Map<String, Map<String, QuayBuild>> mapOfBuilds,
+            final RefreshEngine refreshEngine) {
         final Map<String, List<Tag>> tagMap = new HashMap<>();
 
         ImageRegistryFactory factory = new ImageRegistryFactory(client, objectMapper, quayToken);
 
+        // fetch tags for all tools at once, then match them up with builds one tool at a time
+        final List<Tool> registryTools = new ArrayList<>();
+        final List<Future<List<Tag>>> futures = new ArrayList<>();
         for (final Tool c : tools) {
 
             final ImageRegistryInterface imageRegistry = factory.createImageRegistry(c.getRegistry());
             if (imageRegistry == null) {
                 continue;
             }
-            final List<Tag> tags = imageRegistry.getTags(c);
+            registryTools.add(c);
+            futures.add(refreshEngine.submit(Provider.fromRegistry(c.getRegistry()), () -> imageRegistry.getTags(c)));
+        }
+        final List<List<Tag>> tagsByTool = RefreshEngine.awaitAll(futures);
+
+        for (int i = 0; i < registryTools.size(); i++) {
+            final Tool c = registryTools.get(i);
+            final List<Tag> tags = tagsByTool.get(i);
 
             // if (c.getMode() == ToolMode.AUTO_DETECT_QUAY_TAGS_AUTOMATED_BUILDS
             // || c.getMode() == ToolMode.AUTO_DETECT_QUAY_TAGS_WITH_MIXED) {
             if (c.getRegistry() == Registry.QUAY_IO) {
                 // TODO: this part isn't very good, a true implementation of Docker Hub would need to return
                 // a quay.io-like data structure, we need to replace mapOfBuilds
-                List builds = mapOfBuilds.get(c.getPath());
+                Map<String, QuayBuild> builds = mapOfBuilds.get(c.getPath());
 
                 if (builds != null && !builds.isEmpty()) {
                     for (Tag tag : tags) {
-                        LOG.info(quayToken.getUsername() + " : TAG: {}", tag.getName());
-
-                        for (final Object build : builds) {
-                            Map<String, String> idMap = (Map<String, String>) build;
-                            String buildId = idMap.get("id");
-
-                            LOG.info(quayToken.getUsername() + " : Build ID: {}", buildId);
-
-                            Map<String, ArrayList<String>> tagsMap = (Map<String, ArrayList<String>>) build;
-
-                            List<String> buildTags = tagsMap.get("tags");
-
-                            if (buildTags.contains(tag.getName())) {
-                                LOG.info(quayToken.getUsername() + " : Build found with tag: {}", tag.getName());
-
-                                Map<String, Map<String, String>> triggerMetadataMap = (Map<String, Map<String, String>>) build;
-
-                                Map<String, String> triggerMetadata = triggerMetadataMap.get("trigger_metadata");
-
-                                if (triggerMetadata != null) {
-                                    String ref = triggerMetadata.get("ref");
-                                    ref = parseReference(ref);
-                                    tag.setReference(ref);
-                                    if (ref == null) {
-                                        tag.setAutomated(false);
-                                    } else {
-                                        tag.setAutomated(true);
-                                    }
-                                } else {
-                                    LOG.error(quayToken.getUsername() + " : WARNING: trigger_metadata is NULL. Could not parse to get reference!");
-                                }
-
-                                break;
+                        final QuayBuild build = builds.get(tag.getName());
+                        if (build != null) {
+                            LOG.debug(quayToken.getUsername() + " : Build {} found with tag: {}", build.getId(), tag.getName());
+                            if (build.getTriggerMetadata() != null) {
+                                String ref = parseReference(build.getTriggerMetadata().getRef());
+                                tag.setReference(ref);
+                                tag.setAutomated(ref != null);
+                            } else {
+                                LOG.error(quayToken.getUsername() + " : WARNING: trigger_metadata is NULL. Could not parse to get reference!");
                             }
                         }
 
@@ -460,19 +602,21 @@ public final class Helper {
     /**
      * Given a container and tags, load up required files from git repository
      *
-     * @param client
-     * @param bitbucketToken
-     * @param githubToken
-     * @param c
+     * @param sourceCodeRepo
+     *            the repository the tool is built from, may be null
+     * @param gitUrl
      * @param tag
      * @return list of SourceFiles containing cwl and dockerfile.
      */
-    private static List<SourceFile> loadFiles(HttpClient client, Token bitbucketToken, Token githubToken, Tool c, Tag tag) {
+    private static List<SourceFile> loadFiles(SourceCodeRepoInterface sourceCodeRepo, String gitUrl, Tag tag) {
         List<SourceFile> files = new ArrayList<>();
+        if (sourceCodeRepo == null) {
+            return files;
+        }
 
         // Add for new descriptor types
         for (FileType f : FileType.values()) {
-            FileResponse fileResponse = readGitRepositoryFile(c, f, client, tag, bitbucketToken, githubToken);
+            FileResponse fileResponse = readGitRepositoryFile(sourceCodeRepo, gitUrl, f, tag);
             if (fileResponse != null) {
                 SourceFile dockstoreFile = new SourceFile();
                 dockstoreFile.setType(f);
@@ -503,11 +647,13 @@ public final class Helper {
      * @param tokenDAO
      * @param tagDAO
      * @param fileDAO
+     * @param refreshEngine
      * @return list of updated containers
      */
     @SuppressWarnings("checkstyle:parameternumber")
     public static List<Tool> refresh(final Long userId, final HttpClient client, final ObjectMapper objectMapper,
-            final UserDAO userDAO, final ToolDAO toolDAO, final TokenDAO tokenDAO, final TagDAO tagDAO, final FileDAO fileDAO) {
+            final UserDAO userDAO, final ToolDAO toolDAO, final TokenDAO tokenDAO, final TagDAO tagDAO, final FileDAO fileDAO,
+            final RefreshEngine refreshEngine) {
         List<Tool> dbTools = new ArrayList(getContainers(userId, userDAO));// toolDAO.findByUserId(userId);
 
         // Get user's quay and git tokens
@@ -546,10 +692,7 @@ public final class Helper {
         findByMode.removeIf(test -> !test.getUsers().contains(currentUser));
         apiTools.addAll(findByMode);
         // ends up with docker image path -> quay.io data structure representing builds
-        final Map<String, ArrayList<?>> mapOfBuilds = new HashMap<>();
-        for (final ImageRegistryInterface anInterface : allRegistries) {
-            mapOfBuilds.putAll(anInterface.getBuildMap(apiTools));
-        }
+        final Map<String, Map<String, QuayBuild>> mapOfBuilds = getBuildMaps(factory, apiTools, refreshEngine);
 
         // end up with key = path; value = list of tags
         // final Map<String, List<Tag>> tagMap = getWorkflowVersions(client, allRepos, objectMapper, quayToken, bitbucketToken, githubToken,
@@ -563,9 +706,9 @@ public final class Helper {
 
         final List<Tool> newDBTools = getContainers(userId, userDAO);
         // update information on a tag by tag level
-        final Map<String, List<Tag>> tagMap = getTags(client, newDBTools, objectMapper, quayToken, mapOfBuilds);
+        final Map<String, List<Tag>> tagMap = getTags(client, newDBTools, objectMapper, quayToken, mapOfBuilds, refreshEngine);
 
-        updateTags(newDBTools, client, toolDAO, tagDAO, fileDAO, githubToken, bitbucketToken, tagMap);
+        updateTags(newDBTools, client, toolDAO, tagDAO, fileDAO, githubToken, bitbucketToken, tagMap, refreshEngine);
         userDAO.clearCache();
         return getContainers(userId, userDAO);
     }
@@ -573,7 +716,7 @@ public final class Helper {
     @SuppressWarnings("checkstyle:parameternumber")
     public static Tool refreshContainer(final long containerId, final long userId, final HttpClient client,
             final ObjectMapper objectMapper, final UserDAO userDAO, final ToolDAO toolDAO, final TokenDAO tokenDAO,
-            final TagDAO tagDAO, final FileDAO fileDAO) {
+            final TagDAO tagDAO, final FileDAO fileDAO, final RefreshEngine refreshEngine) {
         Tool tool = toolDAO.findById(containerId);
         String gitUrl = tool.getGitUrl();
         Map<String, String> gitMap = SourceCodeRepoFactory.parseGitUrl(gitUrl);
@@ -640,10 +783,7 @@ public final class Helper {
         }
         apiTools.removeIf(container1 -> !container1.getPath().equals(tool.getPath()));
 
-        Map<String, ArrayList<?>> mapOfBuilds = new HashMap<>();
-        if (anInterface != null) {
-            mapOfBuilds.putAll(anInterface.getBuildMap(apiTools));
-        }
+        Map<String, Map<String, QuayBuild>> mapOfBuilds = getBuildMaps(factory, apiTools, refreshEngine);
 
         List<Tool> dbTools = new ArrayList<>();
         dbTools.add(tool);
@@ -659,14 +799,78 @@ public final class Helper {
         newDBTools.add(toolDAO.findById(tool.getId()));
 
         // update information on a tag by tag level
-        final Map<String, List<Tag>> tagMap = getTags(client, newDBTools, objectMapper, quayToken, mapOfBuilds);
+        final Map<String, List<Tag>> tagMap = getTags(client, newDBTools, objectMapper, quayToken, mapOfBuilds, refreshEngine);
 
-        updateTags(newDBTools, client, toolDAO, tagDAO, fileDAO, githubToken, bitbucketToken, tagMap);
+        updateTags(newDBTools, client, toolDAO, tagDAO, fileDAO, githubToken, bitbucketToken, tagMap, refreshEngine);
         userDAO.clearCache();
 
         return toolDAO.findById(tool.getId());
     }
 
+    /**
+     * Reload the files of the tags that are built from one branch or tag of the tool's git repository, the tags themselves
+     * come from the image registry and are left alone.
+     *
+     * @param tool
+     * @param reference the branch or tag that changed
+     * @param userId    a user of the tool whose tokens are used
+     * @param client
+     * @param tokenDAO
+     * @param fileDAO
+     * @return the tags whose files were reloaded
+     */
+    public static List<Tag> refreshToolFiles(final Tool tool, final String reference, final long userId, final HttpClient client,
+            final TokenDAO tokenDAO, final FileDAO fileDAO) {
+        List<Token> tokens = tokenDAO.findByUserId(userId);
+        Token githubToken = extractToken(tokens, TokenType.GITHUB_COM.toString());
+        Token bitbucketToken = extractToken(tokens, TokenType.BITBUCKET_ORG.toString());
+        if (githubToken == null) {
+            throw new CustomWebApplicationException("A valid GitHub token is required to refresh this tool.", HttpStatus.SC_CONFLICT);
+        }
+        if (tool.getGitUrl() == null || tool.getGitUrl().isEmpty()) {
+            return new ArrayList<>();
+        }
+        final SourceCodeRepoInterface sourceCodeRepo = SourceCodeRepoFactory.createSourceCodeRepo(tool.getGitUrl(), client,
+                bitbucketToken == null ? null : bitbucketToken.getContent(), githubToken.getContent());
+
+        final Map<Tag, List<SourceFile>> filesByTag = new IdentityHashMap<>();
+        for (Tag tag : tool.getTags()) {
+            if (reference.equals(tag.getReference())) {
+                LOG.info(githubToken.getUsername() + " : Updating files for tag {}", tag.getName());
+                filesByTag.put(tag, loadFiles(sourceCodeRepo, tool.getGitUrl(), tag));
+            }
+        }
+        updateFiles(tool, filesByTag, fileDAO, githubToken);
+        return new ArrayList<>(filesByTag.keySet());
+    }
+
+    /**
+     * Look up build information for each tool, one registry call per tool run in parallel.
+     *
+     * @param factory
+     * @param apiTools
+     * @param refreshEngine
+     * @return docker image path -> quay.io data structure representing builds
+     */
+    private static Map<String, Map<String, QuayBuild>> getBuildMaps(final ImageRegistryFactory factory, final List<Tool> apiTools,
+            final RefreshEngine refreshEngine) {
+        final Map<Registry, ImageRegistryInterface> registries = new EnumMap<>(Registry.class);
+        final List<Future<Map<String, Map<String, QuayBuild>>>> futures = new ArrayList<>();
+        for (final Tool tool : apiTools) {
+            if (tool.getRegistry() == null) {
+                continue;
+            }
+            final ImageRegistryInterface anInterface = registries.computeIfAbsent(tool.getRegistry(), factory::createImageRegistry);
+            if (anInterface != null) {
+                futures.add(refreshEngine.submit(Provider.fromRegistry(tool.getRegistry()),
+                        () -> anInterface.getBuildMap(Collections.singletonList(tool))));
+            }
+        }
+        final Map<String, Map<String, QuayBuild>> mapOfBuilds = new HashMap<>();
+        RefreshEngine.awaitAll(futures).forEach(mapOfBuilds::putAll);
+        return mapOfBuilds;
+    }
+
     private static void removeContainersThatCannotBeUpdated(List<Tool> dbTools) {
         // TODO: for now, with no info coming back from Docker Hub, just skip them always
         dbTools.removeIf(container1 -> container1.getRegistry() == Registry.DOCKER_HUB);
@@ -725,7 +929,19 @@ public final class Helper {
         if (sourceCodeRepo == null) {
             return null;
         }
+        return readGitRepositoryFile(sourceCodeRepo, tool.getGitUrl(), fileType, tag);
+    }
 
+    /**
+     * Read a file from the tool's git repository using an existing connection to it.
+     *
+     * @param sourceCodeRepo
+     * @param gitUrl
+     * @param fileType
+     * @param tag
+     * @return a FileResponse instance
+     */
+    private static FileResponse readGitRepositoryFile(SourceCodeRepoInterface sourceCodeRepo, String gitUrl, FileType fileType, Tag tag) {
         final String reference = tag.getReference();// sourceCodeRepo.getReference(tool.getGitUrl(), tag.getReference());
 
         // Do not try to get file if the reference is not available
@@ -744,7 +960,7 @@ public final class Helper {
             fileName = tag.getWdlPath();
         }
 
-        return sourceCodeRepo.readFile(fileName, reference, tool.getGitUrl());
+        return sourceCodeRepo.readCachedFile(fileName, reference, gitUrl);
     }
 
     /**
@@ -0,0 +1,186 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.HttpCacheConfiguration;
+import io.dockstore.webservice.api.HttpCacheStatus;
+import io.dropwizard.lifecycle.Managed;
+import okhttp3.Cache;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Iterator;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * The on-disk cache of the outbound client. The directory is kept across restarts, so a restarted instance revalidates
+ * what it fetched before instead of downloading it again. OkHttp does not coordinate between processes, so the directory
+ * is locked until the cache is stopped and a second instance pointed at it fails on start.
+ */
+public class HttpResponseCache implements Managed {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpResponseCache.class);
+
+    private final Cache cache;
+    private final FileLock lock;
+    private long purged;
+
+    public HttpResponseCache(HttpCacheConfiguration configuration) {
+        final File directory = new File(configuration.getDirectory());
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalStateException("Could not create the web cache directory " + directory.getAbsolutePath());
+        }
+        this.lock = lockDirectory(directory);
+        this.cache = new Cache(directory, configuration.getMaxSize().toBytes());
+        try {
+            // read the journal now, a damaged cache is logged and dropped by OkHttp rather than failing requests later
+            cache.initialize();
+            if (configuration.isClearOnStart()) {
+                cache.evictAll();
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not open the web cache in " + directory.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Lock a file next to the directory rather than in it, evicting everything empties the directory
+     *
+     * @param directory the cache directory
+     * @return the lock
+     */
+    private static FileLock lockDirectory(File directory) {
+        final File lockFile = new File(directory.getAbsolutePath() + ".lock");
+        FileChannel channel = null;
+        FileLock fileLock = null;
+        try {
+            channel = new RandomAccessFile(lockFile, "rw").getChannel();
+            fileLock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // already locked by this process
+            fileLock = null;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not lock the web cache directory " + directory.getAbsolutePath(), e);
+        } finally {
+            if (fileLock == null && channel != null) {
+                IOUtils.closeQuietly(channel);
+            }
+        }
+        if (fileLock == null) {
+            throw new IllegalStateException("The web cache directory " + directory.getAbsolutePath()
+                    + " is used by another process, give each instance its own httpCache directory");
+        }
+        return fileLock;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    /**
+     * Report hits, misses and writes. The counters belong to the cache, so they keep counting when metrics are registered
+     * with a new registry.
+     *
+     * @param metrics
+     */
+    public void registerMetrics(MetricRegistry metrics) {
+        metrics.register(name(HttpResponseCache.class, "size"), (Gauge<Long>)this::getSize);
+        metrics.register(name(HttpResponseCache.class, "maxSize"), (Gauge<Long>)cache::maxSize);
+        metrics.register(name(HttpResponseCache.class, "requests"), (Gauge<Integer>)cache::requestCount);
+        metrics.register(name(HttpResponseCache.class, "hits"), (Gauge<Integer>)cache::hitCount);
+        metrics.register(name(HttpResponseCache.class, "misses"), (Gauge<Integer>)() -> cache.requestCount() - cache.hitCount());
+        metrics.register(name(HttpResponseCache.class, "network"), (Gauge<Integer>)cache::networkCount);
+        metrics.register(name(HttpResponseCache.class, "writes"), (Gauge<Integer>)cache::writeSuccessCount);
+        metrics.register(name(HttpResponseCache.class, "writeAborts"), (Gauge<Integer>)cache::writeAbortCount);
+        metrics.register(name(HttpResponseCache.class, "purged"), (Gauge<Long>)this::getPurged);
+    }
+
+    public HttpCacheStatus getStatus() {
+        return new HttpCacheStatus(cache.directory().getAbsolutePath(), getSize(), cache.maxSize(), cache.requestCount(),
+                cache.hitCount(), cache.networkCount(), cache.writeSuccessCount(), cache.writeAbortCount(), getPurged());
+    }
+
+    /**
+     * Evict cached responses.
+     *
+     * @param prefix only evict responses for URLs starting with this, null to evict everything
+     * @return the number of responses evicted
+     * @throws IOException
+     */
+    public int purge(String prefix) throws IOException {
+        int evicted = 0;
+        final Iterator<String> urls = cache.urls();
+        while (urls.hasNext()) {
+            final String url = urls.next();
+            if (prefix == null || url.startsWith(prefix)) {
+                urls.remove();
+                evicted++;
+            }
+        }
+        synchronized (this) {
+            purged += evicted;
+        }
+        LOG.info("Evicted {} responses from the web cache", evicted);
+        return evicted;
+    }
+
+    @Override
+    public void start() {
+        // opened in the constructor, the client needs the cache before the lifecycle starts
+    }
+
+    /**
+     * Close the cache and release the directory, the next instance pointed at it may open it
+     *
+     * @throws IOException
+     */
+    @Override
+    public void stop() throws IOException {
+        try {
+            cache.close();
+        } finally {
+            try {
+                lock.release();
+            } finally {
+                lock.channel().close();
+            }
+        }
+    }
+
+    private synchronized long getPurged() {
+        return purged;
+    }
+
+    private long getSize() {
+        try {
+            return cache.size();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
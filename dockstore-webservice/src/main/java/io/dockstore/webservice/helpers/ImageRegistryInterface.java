@@ -16,7 +16,6 @@
 
 package io.dockstore.webservice.helpers;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -59,7 +58,7 @@ public interface ImageRegistryInterface {
      *
      * @param allRepos
      *            a list of images that gets modified with data from builds like data modified, size, etc.
-     * @return map of path -> list of quay.io build data structure
+     * @return map of path -> (tag name -> newest quay.io build of that tag)
      */
-    Map<String, ArrayList<?>> getBuildMap(List<Tool> allRepos);
+    Map<String, Map<String, QuayBuild>> getBuildMap(List<Tool> allRepos);
 }
@@ -0,0 +1,190 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.core.SourceFile;
+import io.dockstore.webservice.helpers.RetryPolicy.CircuitOpenException;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.WebApplicationException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Follows the imports of a workflow descriptor transitively, imports of imports included. Each file of a commit is read
+ * and parsed once per resolver, so create one resolver per workflow refresh and share it between the versions: branches
+ * and tags that point at the same commit, or files that did not change between commits the file cache knows about, are
+ * then not fetched again. Safe to use from several threads.
+ */
+public class ImportResolver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImportResolver.class);
+
+    private final SourceCodeRepoInterface sourceCodeRepo;
+    // commit + path -> file read at that commit
+    private final Cache<String, ImportedFile> files = CacheBuilder.newBuilder().build();
+
+    /**
+     * @param sourceCodeRepo used to parse the imports out of descriptors
+     */
+    public ImportResolver(SourceCodeRepoInterface sourceCodeRepo) {
+        this.sourceCodeRepo = sourceCodeRepo;
+    }
+
+    /**
+     * Find every file a descriptor imports, directly or through other imports. Imports are relative to the file that
+     * imports them, imports that do not exist are left out.
+     *
+     * @param descriptorPath path of the descriptor in the repository
+     * @param content        content of the descriptor
+     * @param type           language of the descriptor, imports are of the same language
+     * @param versionKey     identifies the files that can be read, the commit or failing that the branch or tag
+     * @param reader         reads a file of the version
+     * @return the imported files in the order they were found, not including the descriptor
+     * @throws WebApplicationException when an import could not be read, only imports that do not exist are left out
+     */
+    public List<SourceFile> resolve(String descriptorPath, String content, SourceFile.FileType type, String versionKey,
+            ContentReader reader) {
+        final String root = normalize(descriptorPath);
+        final List<SourceFile> imports = new ArrayList<>();
+        if (root == null) {
+            return imports;
+        }
+        // paths already reached, so that a cycle stops where it closes
+        final Set<String> seen = new HashSet<>();
+        seen.add(root);
+        final Deque<String> pending = new ArrayDeque<>();
+        queueImports(root, parseImports(root, content, type), seen, pending);
+        while (!pending.isEmpty()) {
+            final String path = pending.poll();
+            final ImportedFile file = read(versionKey, path, type, reader);
+            if (file.content == null) {
+                continue;
+            }
+            SourceFile sourceFile = new SourceFile();
+            sourceFile.setType(type);
+            sourceFile.setContent(file.content);
+            sourceFile.setPath(path);
+            imports.add(sourceFile);
+            queueImports(path, file.imports, seen, pending);
+        }
+        return imports;
+    }
+
+    private void queueImports(String importer, List<String> importPaths, Set<String> seen, Deque<String> pending) {
+        final String basepath = FilenameUtils.getFullPath(importer);
+        for (String importPath : importPaths) {
+            if (importPath.contains("://")) {
+                // imports by url are not part of the repository
+                continue;
+            }
+            final String path = normalize(importPath.startsWith("/") ? importPath : basepath + importPath);
+            if (path == null) {
+                LOG.info("Import {} of {} is outside of the repository", importPath, importer);
+            } else if (seen.add(path)) {
+                pending.add(path);
+            }
+        }
+    }
+
+    private ImportedFile read(String versionKey, String path, SourceFile.FileType type, ContentReader reader) {
+        try {
+            return files.get(versionKey + ':' + path, () -> {
+                String content;
+                try {
+                    LOG.info("Grabbing file {}", path);
+                    content = reader.read(path);
+                } catch (FileNotFoundException e) {
+                    content = null;
+                }
+                return new ImportedFile(content, content == null ? Collections.emptyList() : parseImports(path, content, type));
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            // not cached, a later refresh reads it again
+            final Throwable cause = e.getCause();
+            if (cause instanceof WebApplicationException) {
+                // rate limited, the client should retry later rather than get a version with imports missing
+                throw (WebApplicationException)cause;
+            }
+            if (cause instanceof CircuitOpenException) {
+                throw ((CircuitOpenException)cause).toWebApplicationException();
+            }
+            if (cause instanceof IOException) {
+                LOG.info("Could not read {}: {}", path, cause.getMessage());
+                throw new CustomWebApplicationException("Could not read " + path + ", try again later.", HttpStatus.SC_SERVICE_UNAVAILABLE);
+            }
+            Throwables.propagateIfPossible(cause);
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private List<String> parseImports(String path, String content, SourceFile.FileType type) {
+        try {
+            return type == SourceFile.FileType.DOCKSTORE_CWL ? sourceCodeRepo.getCwlImports(content) : sourceCodeRepo.getWdlImports(content);
+        } catch (RuntimeException e) {
+            LOG.info("Could not find the imports of {}: {}", path, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    private static String normalize(String path) {
+        return FilenameUtils.normalize(path, true);
+    }
+
+    /**
+     * Reads a file of the version being resolved.
+     */
+    @FunctionalInterface
+    public interface ContentReader {
+        /**
+         * @param path path of the file in the repository
+         * @return the content, null if there is none
+         * @throws IOException when the file could not be read, FileNotFoundException when it does not exist
+         */
+        String read(String path) throws IOException;
+    }
+
+    /**
+     * A file and what it imports
+     */
+    private static final class ImportedFile {
+        private final String content;
+        private final List<String> imports;
+
+        private ImportedFile(String content, List<String> imports) {
+            this.content = content;
+            this.imports = imports;
+        }
+    }
+}
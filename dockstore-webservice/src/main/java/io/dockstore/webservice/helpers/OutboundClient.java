@@ -0,0 +1,297 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.OutboundHttpConfiguration;
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The one client requests to GitHub, Bitbucket and Quay.io go out through. It bounds how many requests are in flight per
+ * host, reuses connections (one multiplexed connection for hosts that speak HTTP/2), retries failed GETs and never waits
+ * forever. HttpURLConnection, which egit uses, is pointed at the same client, so it shares the connections and the cache,
+ * but not the interceptors.
+ */
+public class OutboundClient {
+
+    // tags the GETs sent by send(), they are retried by rescheduling rather than in the interceptor
+    private static final Object RESCHEDULED = new Object();
+
+    private final OkHttpClient client;
+    private final RetryPolicy retryPolicy;
+    private final ScheduledExecutorService retryExecutor;
+
+    /**
+     * @param configuration timeouts and limits
+     * @param cache         the HTTP cache, null for none
+     * @param retryPolicy   retries failed GETs and keeps failing hosts alone, null to send every request once
+     * @param retryExecutor sends asynchronous GETs again once they have backed off, so no dispatcher thread waits
+     */
+    public OutboundClient(OutboundHttpConfiguration configuration, Cache cache, RetryPolicy retryPolicy,
+            ScheduledExecutorService retryExecutor) {
+        this.retryPolicy = retryPolicy;
+        this.retryExecutor = retryExecutor;
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(configuration.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(configuration.getMaxRequestsPerHost());
+        OkHttpClient.Builder builder = new OkHttpClient.Builder().cache(cache).dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(configuration.getMaxIdleConnections(), configuration.getKeepAlive().toMilliseconds(),
+                        TimeUnit.MILLISECONDS))
+                .connectTimeout(configuration.getConnectTimeout().toMilliseconds(), TimeUnit.MILLISECONDS)
+                .readTimeout(configuration.getReadTimeout().toMilliseconds(), TimeUnit.MILLISECONDS)
+                .writeTimeout(configuration.getWriteTimeout().toMilliseconds(), TimeUnit.MILLISECONDS);
+        if (retryPolicy != null) {
+            // ahead of the host limit, so that a request waiting to be retried does not hold a permit
+            builder.addInterceptor(new Retry(retryPolicy));
+        }
+        // the dispatcher only bounds asynchronous calls, this bounds blocking ones too
+        builder.addInterceptor(new HostLimit(configuration.getMaxRequestsPerHost()));
+        if (configuration.isHttp2()) {
+            builder.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        } else {
+            builder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+        }
+        this.client = builder.build();
+    }
+
+    /**
+     * @return the underlying client, for code that needs to hand it to a library
+     */
+    public OkHttpClient getOkHttpClient() {
+        return client;
+    }
+
+    /**
+     * Send a request and wait for the response.
+     *
+     * @param request the request
+     * @return the response, the caller closes it
+     * @throws IOException if the request could not be sent or no response came back
+     */
+    public Response execute(Request request) throws IOException {
+        return client.newCall(request).execute();
+    }
+
+    /**
+     * Prepare a request, for callers that may need to cancel it while reading the response.
+     *
+     * @param request the request
+     * @return the call, send it with {@link Call#execute()}
+     */
+    public Call newCall(Request request) {
+        return client.newCall(request);
+    }
+
+    /**
+     * Send a request without blocking the caller. The future completes on a dispatcher thread, so work composed on it
+     * should be short or moved to another executor. A failed GET is sent again from the retry executor once it has
+     * backed off.
+     *
+     * @param request the request
+     * @return completes with the response, the consumer closes it, or exceptionally with the IOException
+     */
+    public CompletableFuture<Response> send(Request request) {
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        // the call of the current attempt, cancelled with the future
+        final AtomicReference<Call> current = new AtomicReference<>();
+        future.whenComplete((response, throwable) -> {
+            final Call call = current.get();
+            if (future.isCancelled() && call != null) {
+                call.cancel();
+            }
+        });
+        if (retryPolicy == null || !"GET".equals(request.method())) {
+            enqueue(request, future, current, new Callback() {
+                @Override
+                public void onFailure(Call failed, IOException e) {
+                    future.completeExceptionally(e);
+                }
+
+                @Override
+                public void onResponse(Call succeeded, Response response) {
+                    complete(future, response);
+                }
+            });
+        } else {
+            attempt(request.newBuilder().tag(RESCHEDULED).build(), future, current, 1);
+        }
+        return future;
+    }
+
+    private void attempt(Request request, CompletableFuture<Response> future, AtomicReference<Call> current, int attempt) {
+        final String host = request.url().host();
+        if (future.isDone()) {
+            return;
+        }
+        if (!retryPolicy.allow(host)) {
+            future.completeExceptionally(new RetryPolicy.CircuitOpenException(host));
+            return;
+        }
+        enqueue(request, future, current, new Callback() {
+            @Override
+            public void onFailure(Call failed, IOException e) {
+                retryPolicy.failed(host);
+                if (attempt >= retryPolicy.getMaxAttempts() || !retryLater(request, future, current, attempt)) {
+                    future.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onResponse(Call succeeded, Response response) {
+                if (!RetryPolicy.isServerError(response.code())) {
+                    retryPolicy.succeeded(host);
+                    complete(future, response);
+                    return;
+                }
+                retryPolicy.failed(host);
+                if (attempt >= retryPolicy.getMaxAttempts()) {
+                    complete(future, response);
+                    return;
+                }
+                response.body().close();
+                if (!retryLater(request, future, current, attempt)) {
+                    future.completeExceptionally(new IOException(host + " answered " + response.code()));
+                }
+            }
+        });
+    }
+
+    /**
+     * @return false if the retry could not be scheduled because the application is stopping
+     */
+    private boolean retryLater(Request request, CompletableFuture<Response> future, AtomicReference<Call> current, int attempt) {
+        try {
+            retryExecutor.schedule(() -> attempt(request, future, current, attempt + 1),
+                    retryPolicy.nextBackoff(request.url().host(), attempt), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void enqueue(Request request, CompletableFuture<Response> future, AtomicReference<Call> current, Callback callback) {
+        final Call call = client.newCall(request);
+        current.set(call);
+        if (future.isCancelled()) {
+            return;
+        }
+        call.enqueue(callback);
+    }
+
+    private static void complete(CompletableFuture<Response> future, Response response) {
+        if (!future.complete(response)) {
+            // cancelled in the meantime
+            response.body().close();
+        }
+    }
+
+    /**
+     * Bounds the requests in flight to each host, whichever way they are sent
+     */
+    private static final class HostLimit implements Interceptor {
+        private final int permits;
+        private final Map<String, Semaphore> hosts = new ConcurrentHashMap<>();
+
+        private HostLimit(int permits) {
+            this.permits = permits;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            final Semaphore semaphore = hosts.computeIfAbsent(chain.request().url().host(), host -> new Semaphore(permits));
+            try {
+                semaphore.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to contact " + chain.request().url().host());
+            }
+            try {
+                return chain.proceed(chain.request());
+            } finally {
+                semaphore.release();
+            }
+        }
+    }
+
+    /**
+     * Sends blocking GETs again while they fail on the network or with a server error, see {@link RetryPolicy}
+     */
+    private static final class Retry implements Interceptor {
+        private final RetryPolicy policy;
+
+        private Retry(RetryPolicy policy) {
+            this.policy = policy;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            final Request request = chain.request();
+            if (!"GET".equals(request.method()) || request.tag() == RESCHEDULED) {
+                return chain.proceed(request);
+            }
+            final String host = request.url().host();
+            for (int attempt = 1;; attempt++) {
+                if (!policy.allow(host)) {
+                    throw new RetryPolicy.CircuitOpenException(host);
+                }
+                final Response response;
+                try {
+                    response = chain.proceed(request);
+                } catch (IOException e) {
+                    policy.failed(host);
+                    if (attempt >= policy.getMaxAttempts() || Thread.currentThread().isInterrupted()) {
+                        throw e;
+                    }
+                    policy.backoff(host, attempt);
+                    continue;
+                }
+                if (!RetryPolicy.isServerError(response.code())) {
+                    policy.succeeded(host);
+                    return response;
+                }
+                policy.failed(host);
+                if (attempt >= policy.getMaxAttempts()) {
+                    return response;
+                }
+                response.body().close();
+                policy.backoff(host, attempt);
+            }
+        }
+    }
+}
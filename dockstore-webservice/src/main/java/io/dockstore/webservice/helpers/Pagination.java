@@ -0,0 +1,149 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.CustomWebApplicationException;
+import org.apache.http.HttpStatus;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Keyset pagination for the collection endpoints. A page holds the items with ids greater than the after parameter in
+ * ascending order, so a page costs the same no matter how deep into a collection it is. The next page is linked from a
+ * Link header with rel="next", the last page has no such link. Results in an order other than by id, such as ranked search
+ * results, are paged by offset instead.
+ */
+public final class Pagination {
+
+    public static final String AFTER = "after";
+    public static final String LIMIT = "limit";
+    public static final String OFFSET = "offset";
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    private Pagination() {
+        // hide the default constructor for a utility class
+    }
+
+    /**
+     * @param after id of the last item of the previous page, null for the first page
+     * @return the exclusive lower bound of the ids on the page
+     */
+    public static long checkAfter(Long after) {
+        if (after == null) {
+            return 0;
+        }
+        if (after < 0) {
+            throw new CustomWebApplicationException("after must not be negative.", HttpStatus.SC_BAD_REQUEST);
+        }
+        return after;
+    }
+
+    /**
+     * @param limit requested page size, null for the default
+     * @return the page size to use
+     */
+    public static int checkLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new CustomWebApplicationException("limit must be between 1 and " + MAX_LIMIT + ".", HttpStatus.SC_BAD_REQUEST);
+        }
+        return limit;
+    }
+
+    /**
+     * @param offset number of items to skip, null for the first page
+     * @return the number of items to skip
+     */
+    public static int checkOffset(Integer offset) {
+        if (offset == null) {
+            return 0;
+        }
+        if (offset < 0) {
+            throw new CustomWebApplicationException("offset must not be negative.", HttpStatus.SC_BAD_REQUEST);
+        }
+        return offset;
+    }
+
+    /**
+     * Pages read by offset are not in the order of their ids, so there is nothing to continue after.
+     *
+     * @param after must be null
+     */
+    public static void checkNoAfter(Long after) {
+        if (after != null) {
+            throw new CustomWebApplicationException("after cannot be used with ranked search, use offset or follow the next link.",
+                    HttpStatus.SC_BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Build the response for a page, a full page links to the next one.
+     *
+     * @param items   the page, in ascending order of id
+     * @param limit   the page size that was used
+     * @param id      gets the id of an item
+     * @param uriInfo the request, the next link keeps its other query parameters
+     * @return the response
+     */
+    public static <T> Response page(List<T> items, int limit, ToLongFunction<T> id, UriInfo uriInfo) {
+        if (items.size() < limit) {
+            return Response.ok(items).build();
+        }
+        return page(items, limit, id.applyAsLong(items.get(items.size() - 1)), uriInfo);
+    }
+
+    /**
+     * Build the response for a page where the next page starts after the given id, for pages that are filtered after
+     * they are read.
+     *
+     * @param items   the page
+     * @param limit   the page size that was used
+     * @param lastId  the id the next page starts after
+     * @param uriInfo the request, the next link keeps its other query parameters
+     * @return the response
+     */
+    public static Response page(List<?> items, int limit, long lastId, UriInfo uriInfo) {
+        return Response.ok(items)
+                .link(uriInfo.getRequestUriBuilder().replaceQueryParam(AFTER, lastId).replaceQueryParam(LIMIT, limit).build(), "next")
+                .build();
+    }
+
+    /**
+     * Build the response for a page that was read by offset, a full page links to the next one.
+     *
+     * @param items   the page
+     * @param limit   the page size that was used
+     * @param offset  the number of items skipped for this page
+     * @param uriInfo the request, the next link keeps its other query parameters
+     * @return the response
+     */
+    public static Response pageByOffset(List<?> items, int limit, int offset, UriInfo uriInfo) {
+        if (items.size() < limit) {
+            return Response.ok(items).build();
+        }
+        return Response.ok(items)
+                .link(uriInfo.getRequestUriBuilder().replaceQueryParam(OFFSET, offset + limit).replaceQueryParam(LIMIT, limit).build(), "next")
+                .build();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The parts of a quay.io build that we use, as returned by /repository/{repo}/build/
+ */
+public class QuayBuild {
+
+    private String id;
+    private List<String> tags = new ArrayList<>();
+    private String started;
+    @JsonProperty("trigger_metadata")
+    private TriggerMetadata triggerMetadata;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+    public String getStarted() {
+        return started;
+    }
+
+    public void setStarted(String started) {
+        this.started = started;
+    }
+
+    public TriggerMetadata getTriggerMetadata() {
+        return triggerMetadata;
+    }
+
+    public void setTriggerMetadata(TriggerMetadata triggerMetadata) {
+        this.triggerMetadata = triggerMetadata;
+    }
+
+    /**
+     * What caused the build, only present for builds triggered from source control
+     */
+    public static class TriggerMetadata {
+        @JsonProperty("git_url")
+        private String gitUrl;
+        private String ref;
+
+        public String getGitUrl() {
+            return gitUrl;
+        }
+
+        public void setGitUrl(String gitUrl) {
+            this.gitUrl = gitUrl;
+        }
+
+        public String getRef() {
+            return ref;
+        }
+
+        public void setRef(String ref) {
+            this.ref = ref;
+        }
+    }
+
+    /**
+     * A page of builds, newest first
+     */
+    public static class BuildList {
+        private List<QuayBuild> builds = new ArrayList<>();
+
+        public List<QuayBuild> getBuilds() {
+            return builds;
+        }
+
+        public void setBuilds(List<QuayBuild> builds) {
+            this.builds = builds;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package io.dockstore.webservice.helpers;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Optional;
 import com.google.gson.Gson;
@@ -26,11 +27,6 @@ import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.ToolMode;
 import io.dockstore.webservice.helpers.Helper.RepoList;
 import io.dockstore.webservice.resources.ResourceUtilities;
-import io.swagger.quay.client.ApiClient;
-import io.swagger.quay.client.ApiException;
-import io.swagger.quay.client.Configuration;
-import io.swagger.quay.client.api.UserApi;
-import io.swagger.quay.client.model.UserView;
 import org.apache.http.client.HttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,7 +39,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author dyuen
@@ -57,16 +53,11 @@ public class QuayImageRegistry implements ImageRegistryInterface {
     private final HttpClient client;
     private final ObjectMapper objectMapper;
     private final Token quayToken;
-    private final ApiClient apiClient;
 
     public QuayImageRegistry(final HttpClient client, final ObjectMapper objectMapper, final Token quayToken) {
         this.client = client;
         this.objectMapper = objectMapper;
         this.quayToken = quayToken;
-
-        apiClient = Configuration.getDefaultApiClient();
-        apiClient.addDefaultHeader("Authorization", "Bearer " + quayToken.getContent());
-        // apiClient.setBasePath(QUAY_URL);
     }
 
     @Override
@@ -82,20 +73,21 @@ public class QuayImageRegistry implements ImageRegistryInterface {
             final String json = asStringBuilds.get();
             // LOG.info(json);
 
-            Gson gson = new Gson();
-            Map<String, Map<String, Map<String, String>>> map = new HashMap<>();
-            map = (Map<String, Map<String, Map<String, String>>>) gson.fromJson(json, map.getClass());
-
-            final Map<String, Map<String, String>> listOfTags = map.get("tags");
+            final JsonNode listOfTags;
+            try {
+                listOfTags = objectMapper.readTree(json).get("tags");
+            } catch (IOException ex) {
+                LOG.info(quayToken.getUsername() + " Exception: {}", ex);
+                return tags;
+            }
 
-            for (Entry<String, Map<String, String>> stringMapEntry : listOfTags.entrySet()) {
-                final String s = gson.toJson(stringMapEntry.getValue());
-                try {
-                    final Tag tag = objectMapper.readValue(s, Tag.class);
-                    tags.add(tag);
-                    // LOG.info(gson.toJson(tag));
-                } catch (IOException ex) {
-                    LOG.info(quayToken.getUsername() + " Exception: {}", ex);
+            if (listOfTags != null) {
+                for (JsonNode tagNode : listOfTags) {
+                    try {
+                        tags.add(objectMapper.treeToValue(tagNode, Tag.class));
+                    } catch (IOException ex) {
+                        LOG.info(quayToken.getUsername() + " Exception: {}", ex);
+                    }
                 }
             }
 
@@ -107,16 +99,19 @@ public class QuayImageRegistry implements ImageRegistryInterface {
     public List<String> getNamespaces() {
         List<String> namespaces = new ArrayList<>();
 
-        UserApi api = new UserApi(apiClient);
-        try {
-            final UserView loggedInUser = api.getLoggedInUser();
-            final List organizations = loggedInUser.getOrganizations();
-            for (Object organization : organizations) {
-                Map<String, String> organizationMap = (Map) organization;
-                namespaces.add(organizationMap.get("name"));
+        // the logged in user, through the same client as every other call
+        final Optional<String> asString = ResourceUtilities.asString(QUAY_URL + "user/", quayToken.getContent(), client);
+        if (asString.isPresent()) {
+            try {
+                final JsonNode organizations = objectMapper.readTree(asString.get()).get("organizations");
+                if (organizations != null) {
+                    for (JsonNode organization : organizations) {
+                        namespaces.add(organization.get("name").asText());
+                    }
+                }
+            } catch (IOException e) {
+                LOG.info(quayToken.getUsername() + " Exception: {}", e);
             }
-        } catch (ApiException e) {
-            LOG.info(quayToken.getUsername() + " Exception: {}", e);
         }
 
         namespaces.add(quayToken.getUsername());
@@ -127,11 +122,16 @@ public class QuayImageRegistry implements ImageRegistryInterface {
     public List<Tool> getContainers(List<String> namespaces) {
         List<Tool> toolList = new ArrayList<>(0);
 
+        // ask for every namespace at once, then go through the answers in order
+        final List<CompletableFuture<Optional<String>>> listings = new ArrayList<>();
         for (String namespace : namespaces) {
             String url = QUAY_URL + "repository?namespace=" + namespace;
-            Optional<String> asString = ResourceUtilities.asString(url, quayToken.getContent(), client);
+            listings.add(ResourceUtilities.asStringAsync(url, quayToken.getContent(), client));
             LOG.info(quayToken.getUsername() + " : RESOURCE CALL: {}", url);
+        }
 
+        for (CompletableFuture<Optional<String>> listing : listings) {
+            Optional<String> asString = listing.join();
             if (asString.isPresent()) {
                 RepoList repos;
                 try {
@@ -157,13 +157,12 @@ public class QuayImageRegistry implements ImageRegistryInterface {
     }
 
     @Override
-    public Map<String, ArrayList<?>> getBuildMap(List<Tool> allRepos) {
+    public Map<String, Map<String, QuayBuild>> getBuildMap(List<Tool> allRepos) {
         final SimpleDateFormat formatter = new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss Z");
 
-        final Map<String, ArrayList<?>> mapOfBuilds = new HashMap<>();
+        final Map<String, Map<String, QuayBuild>> mapOfBuilds = new HashMap<>();
 
         // Go through each container for each namespace
-        final Gson gson = new Gson();
         for (final Tool tool : allRepos) {
 
             if (tool.getRegistry() != Registry.QUAY_IO) {
@@ -179,7 +178,7 @@ public class QuayImageRegistry implements ImageRegistryInterface {
             // checkTriggers(tool);
             // if (tool.hasValidTrigger()) {
 
-            updateContainersWithBuildInfo(formatter, mapOfBuilds, gson, tool, repo, path);
+            updateContainersWithBuildInfo(formatter, mapOfBuilds, tool, repo, path);
             // }
             // }
         }
@@ -191,12 +190,11 @@ public class QuayImageRegistry implements ImageRegistryInterface {
      * 
      * @param formatter
      * @param mapOfBuilds
-     * @param gson
      * @param tool
      * @param repo
      * @param path
      */
-    private void updateContainersWithBuildInfo(SimpleDateFormat formatter, Map<String, ArrayList<?>> mapOfBuilds, Gson gson,
+    private void updateContainersWithBuildInfo(SimpleDateFormat formatter, Map<String, Map<String, QuayBuild>> mapOfBuilds,
             Tool tool, String repo, String path) {
         // Get the list of builds from the tool.
         // Builds contain information such as the Git URL and tags
@@ -208,35 +206,36 @@ public class QuayImageRegistry implements ImageRegistryInterface {
         String gitURL = "";
 
         if (asStringBuilds.isPresent()) {
-            String json = asStringBuilds.get();
-
-            // parse json using Gson to get the git url of repository and the list of tags
-            Map<String, ArrayList> map = new HashMap<>();
-            map = (Map<String, ArrayList>) gson.fromJson(json, map.getClass());
-            ArrayList builds = map.get("builds");
-            if (builds.size() > 0) {
-
-                mapOfBuilds.put(path, builds);
-
-                if (!builds.isEmpty()) {
-                    Map<String, Map<String, String>> map2 = (Map<String, Map<String, String>>) builds.get(0);
-
-                    Map<String, String> triggerMetadata = map2.get("trigger_metadata");
-
-                    if (triggerMetadata != null) {
-                        gitURL = triggerMetadata.get("git_url");
+            List<QuayBuild> builds;
+            try {
+                builds = objectMapper.readValue(asStringBuilds.get(), QuayBuild.BuildList.class).getBuilds();
+            } catch (IOException ex) {
+                LOG.info(quayToken.getUsername() + " Exception: {}", ex);
+                return;
+            }
+            if (!builds.isEmpty()) {
+                // builds are listed newest first, keep the first build seen for each tag
+                final Map<String, QuayBuild> buildsByTag = new HashMap<>();
+                for (QuayBuild build : builds) {
+                    for (String tagName : build.getTags()) {
+                        buildsByTag.putIfAbsent(tagName, build);
                     }
+                }
+                mapOfBuilds.put(path, buildsByTag);
+
+                final QuayBuild lastBuild = builds.get(0);
+                if (lastBuild.getTriggerMetadata() != null) {
+                    gitURL = lastBuild.getTriggerMetadata().getGitUrl();
+                }
 
-                    Map<String, String> map3 = (Map<String, String>) builds.get(0);
-                    String lastBuild = map3.get("started");
-                    LOG.info(quayToken.getUsername() + " : LAST BUILD: {}", lastBuild);
+                LOG.info(quayToken.getUsername() + " : LAST BUILD: {}", lastBuild.getStarted());
 
-                    Date date;
+                if (lastBuild.getStarted() != null) {
                     try {
-                        date = formatter.parse(lastBuild);
+                        Date date = formatter.parse(lastBuild.getStarted());
                         tool.setLastBuild(date);
                     } catch (ParseException ex) {
-                        LOG.info(quayToken.getUsername() + ": "  + quayToken.getUsername() + " Build date did not match format 'EEE, d MMM yyyy HH:mm:ss Z'");
+                        LOG.info(quayToken.getUsername() + ": " + quayToken.getUsername() + " Build date did not match format 'EEE, d MMM yyyy HH:mm:ss Z'");
                     }
                 }
                 if (tool.getMode() != ToolMode.MANUAL_IMAGE_PATH) {
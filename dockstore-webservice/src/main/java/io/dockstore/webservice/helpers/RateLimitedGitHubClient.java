@@ -0,0 +1,88 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.client.GitHubResponse;
+import org.eclipse.egit.github.core.client.RequestException;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+/**
+ * A GitHub client that waits for the rate limit of its token before each request, see {@link RateLimiter}, and retries
+ * GETs that fail on the network or with a server error, see {@link RetryPolicy}.
+ */
+public class RateLimitedGitHubClient extends GitHubClient {
+
+    private static final String HOST = "api.github.com";
+
+    private final RateLimiter rateLimiter;
+    private final RetryPolicy retryPolicy;
+    private final String token;
+
+    /**
+     * @param rateLimiter paces the requests, null to send them straight away
+     * @param retryPolicy retries failed GETs, null to send them once
+     * @param token       the OAuth token
+     */
+    public RateLimitedGitHubClient(RateLimiter rateLimiter, RetryPolicy retryPolicy, String token) {
+        this.rateLimiter = rateLimiter;
+        this.retryPolicy = retryPolicy;
+        this.token = token;
+        setOAuth2Token(token);
+    }
+
+    @Override
+    public GitHubResponse get(GitHubRequest request) throws IOException {
+        return withRetries(() -> super.get(request));
+    }
+
+    /**
+     * Send a GET, retrying it while it fails on the network or with a server error.
+     *
+     * @param request sends the GET
+     * @param <T>     the result of the GET
+     * @return the result of the first attempt that succeeded
+     * @throws IOException the exception of the last attempt
+     */
+    protected <T> T withRetries(RetryPolicy.Attempt<T> request) throws IOException {
+        if (retryPolicy == null) {
+            return request.run();
+        }
+        return retryPolicy.execute(HOST, request,
+                e -> !(e instanceof RequestException) || RetryPolicy.isServerError(((RequestException)e).getStatus()));
+    }
+
+    @Override
+    protected HttpURLConnection createConnection(String uri, String method) throws IOException {
+        if (rateLimiter != null) {
+            rateLimiter.acquire(HOST, token);
+        }
+        return super.createConnection(uri, method);
+    }
+
+    @Override
+    protected GitHubClient updateRateLimits(HttpURLConnection request) {
+        if (rateLimiter != null) {
+            rateLimiter.update(HOST, token, request::getHeaderField);
+        }
+        return super.updateRateLimits(request);
+    }
+}
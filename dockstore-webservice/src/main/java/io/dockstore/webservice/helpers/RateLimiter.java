@@ -0,0 +1,299 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.RateLimitConfiguration;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Paces outbound requests so that a refresh does not use up the rate limit of a token. The budget of each token at each
+ * host is read from the X-RateLimit-* and Retry-After headers of its responses. Requests go out freely while the budget
+ * is high, are spread over the rest of the rate limit window once it runs low, and are refused when the wait would be
+ * too long, so that the work can be retried later instead of failing request by request. Only background work waits,
+ * that is work run through {@link #runInBackground(Runnable)} and the tasks it hands to other threads through
+ * {@link #inheritBackground(Callable)}. Any other request, such as one made while serving a client, is never held up:
+ * it may use the budget kept in reserve and is refused straight away once it is gone.
+ */
+public class RateLimiter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimiter.class);
+
+    private static final String HEADER_LIMIT = "X-RateLimit-Limit";
+    private static final String HEADER_REMAINING = "X-RateLimit-Remaining";
+    private static final String HEADER_RESET = "X-RateLimit-Reset";
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+    private static final int PERCENT = 100;
+    // budgets of tokens that are no longer used are forgotten, a window is an hour at GitHub
+    private static final int MAX_BUDGETS = 10000;
+    private static final long BUDGET_EXPIRY_HOURS = 2;
+    // whether requests made on this thread may wait for the rate limit
+    private static final ThreadLocal<Boolean> BACKGROUND = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final RateLimitConfiguration configuration;
+    private final MetricRegistry metrics;
+    // host + hash of the credentials -> budget
+    private final Cache<String, Budget> budgets = CacheBuilder.newBuilder().maximumSize(MAX_BUDGETS)
+            .expireAfterAccess(BUDGET_EXPIRY_HOURS, TimeUnit.HOURS).build();
+    private final Set<String> hosts = ConcurrentHashMap.newKeySet();
+    private final Meter paced;
+    private final Meter deferred;
+
+    public RateLimiter(RateLimitConfiguration configuration, MetricRegistry metrics) {
+        this.configuration = configuration;
+        this.metrics = metrics;
+        this.paced = metrics.meter(name(RateLimiter.class, "paced"));
+        this.deferred = metrics.meter(name(RateLimiter.class, "deferred"));
+    }
+
+    /**
+     * Run work nobody is waiting on, such as a refresh job or a scheduled refresh. Requests it makes may wait for the
+     * rate limit.
+     *
+     * @param work
+     */
+    public static void runInBackground(Runnable work) {
+        final boolean previous = BACKGROUND.get();
+        BACKGROUND.set(Boolean.TRUE);
+        try {
+            work.run();
+        } finally {
+            BACKGROUND.set(previous);
+        }
+    }
+
+    /**
+     * Wrap a task that is handed to another thread, its requests may wait for the rate limit only if the thread handing
+     * it over may.
+     *
+     * @param task
+     * @return the task, run with the background flag of the calling thread
+     */
+    public static <T> Callable<T> inheritBackground(Callable<T> task) {
+        final boolean background = BACKGROUND.get();
+        return () -> {
+            final boolean previous = BACKGROUND.get();
+            BACKGROUND.set(background);
+            try {
+                return task.call();
+            } finally {
+                BACKGROUND.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Wait until a request may be sent. Outside of background work nothing waits, the request is sent or refused.
+     *
+     * @param host        the host the request goes to
+     * @param credentials the token or other credentials sent with the request, may be null
+     * @throws CustomWebApplicationException when the budget of the token will not allow a request within the configured wait
+     */
+    public void acquire(String host, String credentials) {
+        final Budget budget = budgets.getIfPresent(getKey(host, credentials));
+        if (budget == null) {
+            return;
+        }
+        final boolean background = BACKGROUND.get();
+        final long wait = budget.reserve(System.currentTimeMillis(), background);
+        if (wait <= 0) {
+            return;
+        }
+        if (!background || wait > configuration.getMaxWait().toMilliseconds()) {
+            deferred.mark();
+            throw new CustomWebApplicationException(
+                    "Rate limit for " + host + " reached, try again in " + TimeUnit.MILLISECONDS.toSeconds(wait) + " seconds.",
+                    HttpStatus.SC_SERVICE_UNAVAILABLE);
+        }
+        paced.mark();
+        try {
+            Thread.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomWebApplicationException("Interrupted while waiting for the rate limit of " + host, HttpStatus.SC_SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Record the budget reported with a response.
+     *
+     * @param host        the host the request went to
+     * @param credentials the token or other credentials sent with the request, may be null
+     * @param headers     looks up a response header, returns null when it is not there
+     */
+    public void update(String host, String credentials, Function<String, String> headers) {
+        final Integer limit = parseInt(headers.apply(HEADER_LIMIT));
+        final Integer remaining = parseInt(headers.apply(HEADER_REMAINING));
+        final Integer reset = parseInt(headers.apply(HEADER_RESET));
+        final Long retryAfter = parseRetryAfter(headers.apply(HEADER_RETRY_AFTER));
+        if (remaining == null && retryAfter == null) {
+            return;
+        }
+        if (hosts.add(host)) {
+            metrics.register(name(RateLimiter.class, host, "remaining"), (Gauge<Integer>)() -> getRemaining(host));
+        }
+        final Budget budget = budgets.asMap().computeIfAbsent(getKey(host, credentials), key -> new Budget(host));
+        budget.update(limit, remaining, reset == null ? null : TimeUnit.SECONDS.toMillis(reset), retryAfter);
+        if (retryAfter != null) {
+            LOG.info("{} asked to wait until {}", host, new Date(retryAfter));
+        }
+    }
+
+    /**
+     * @param host
+     * @return the lowest budget left among the tokens used with the host, null if no host reported one
+     */
+    private Integer getRemaining(String host) {
+        final long now = System.currentTimeMillis();
+        Integer lowest = null;
+        for (Budget budget : budgets.asMap().values()) {
+            final Integer remaining = budget.getHost().equals(host) ? budget.getRemaining(now) : null;
+            if (remaining != null && (lowest == null || remaining < lowest)) {
+                lowest = remaining;
+            }
+        }
+        return lowest;
+    }
+
+    private static String getKey(String host, String credentials) {
+        return host + '\n' + Hashing.sha256().hashString(credentials == null ? "" : credentials, StandardCharsets.UTF_8).toString();
+    }
+
+    private static Integer parseInt(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param value seconds to wait or an HTTP date
+     * @return when requests may be sent again, null if not given
+     */
+    private static Long parseRetryAfter(String value) {
+        if (value == null) {
+            return null;
+        }
+        final Integer seconds = parseInt(value);
+        if (seconds != null) {
+            return System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+        }
+        final Date date = DateUtils.parseDate(value);
+        return date == null ? null : date.getTime();
+    }
+
+    /**
+     * What is left of the rate limit of one token at one host, in the current window.
+     */
+    private final class Budget {
+        private final String host;
+        private int limit = -1;
+        private int remaining = -1;
+        private long resetAt;
+        private long blockedUntil;
+        private long nextAllowed;
+
+        Budget(String host) {
+            this.host = host;
+        }
+
+        String getHost() {
+            return host;
+        }
+
+        synchronized Integer getRemaining(long now) {
+            return remaining < 0 || resetAt <= now ? null : remaining;
+        }
+
+        synchronized void update(Integer newLimit, Integer newRemaining, Long newResetAt, Long newBlockedUntil) {
+            if (newLimit != null) {
+                limit = newLimit;
+            }
+            if (newRemaining != null) {
+                remaining = newRemaining;
+            }
+            if (newResetAt != null) {
+                resetAt = newResetAt;
+            }
+            if (newBlockedUntil != null) {
+                blockedUntil = Math.max(blockedUntil, newBlockedUntil);
+            }
+        }
+
+        /**
+         * Take one request from the budget.
+         *
+         * @param now
+         * @param pace whether the request is background work that keeps off the reserve and is spread over the window
+         * @return how long to wait before sending it
+         */
+        synchronized long reserve(long now, boolean pace) {
+            if (blockedUntil > now) {
+                return blockedUntil - now;
+            }
+            if (remaining < 0 || resetAt <= now) {
+                // nothing known about the current window
+                return 0;
+            }
+            if (!pace) {
+                if (remaining == 0) {
+                    return resetAt - now;
+                }
+                remaining--;
+                return 0;
+            }
+            final int reserve = configuration.getReserve();
+            if (remaining <= reserve) {
+                return resetAt - now;
+            }
+            // count requests sent since the last response so that concurrent requests see a lower budget
+            remaining--;
+            if (limit > 0 && remaining * PERCENT >= limit * configuration.getPaceBelowPercent()) {
+                return 0;
+            }
+            // spread what is left evenly over the rest of the window
+            final long interval = (resetAt - now) / (remaining + 1 - reserve);
+            final long start = Math.max(now, nextAllowed);
+            nextAllowed = start + interval;
+            return start - now;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.RefreshConfiguration;
+import io.dockstore.webservice.core.Registry;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the network-bound parts of a refresh (registry calls, reads from source control) on a shared worker pool.
+ * Each provider has its own bound on how many requests may be in flight at once so that a large refresh does not
+ * trip rate limits. Tasks over a provider's bound wait in a queue of their own and only reach the pool once a task of
+ * the same provider finishes, so pool threads are never held by tasks that are waiting for their provider. Work handed
+ * to the engine must not touch the Hibernate session, database writes stay on the calling thread.
+ */
+public class RefreshEngine {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RefreshEngine.class);
+
+    /**
+     * Remote services that work is throttled against
+     */
+    public enum Provider {
+        GITHUB, BITBUCKET, QUAY, DOCKER_HUB;
+
+        /**
+         * @param gitUrl a git url like git@github.com:user/repo.git
+         * @return the provider hosting the repository, null if not recognized
+         */
+        public static Provider fromGitUrl(String gitUrl) {
+            if (gitUrl == null || gitUrl.isEmpty()) {
+                return null;
+            }
+            final Map<String, String> gitMap = SourceCodeRepoFactory.parseGitUrl(gitUrl);
+            if (gitMap == null) {
+                return null;
+            }
+            final String source = gitMap.get("Source");
+            if ("github.com".equals(source)) {
+                return GITHUB;
+            } else if ("bitbucket.org".equals(source)) {
+                return BITBUCKET;
+            }
+            return null;
+        }
+
+        public static Provider fromRegistry(Registry registry) {
+            return registry == Registry.DOCKER_HUB ? DOCKER_HUB : QUAY;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final Map<Provider, Lane> lanes = new EnumMap<>(Provider.class);
+
+    public RefreshEngine(ExecutorService executor, RefreshConfiguration configuration) {
+        this.executor = executor;
+        lanes.put(Provider.GITHUB, new Lane(configuration.getGithubConcurrency()));
+        lanes.put(Provider.BITBUCKET, new Lane(configuration.getBitbucketConcurrency()));
+        lanes.put(Provider.QUAY, new Lane(configuration.getQuayConcurrency()));
+        lanes.put(Provider.DOCKER_HUB, new Lane(configuration.getDockerHubConcurrency()));
+    }
+
+    /**
+     * Schedule a task against a provider. Returns immediately, while the provider is at its limit the task waits in the
+     * provider's queue rather than on a pool thread.
+     *
+     * @param provider the provider the task talks to, tasks with no provider only share the pool bound
+     * @param task     the work to do
+     * @return a future for the result, see {@link #awaitAll(List)}
+     */
+    public <T> Future<T> submit(final Provider provider, final Callable<T> task) {
+        if (provider == null) {
+            return executor.submit(RateLimiter.inheritBackground(task));
+        }
+        final FutureTask<T> future = new FutureTask<>(RateLimiter.inheritBackground(task));
+        lanes.get(provider).submit(future);
+        return future;
+    }
+
+    /**
+     * Wait for a batch of tasks. If any task failed, the rest are cancelled and the first failure is rethrown as-is
+     * when it is unchecked so that a CustomWebApplicationException from a worker reaches the client unchanged.
+     *
+     * @param futures futures from {@link #submit(Provider, Callable)}
+     * @return results in the same order as the futures
+     */
+    public static <T> List<T> awaitAll(List<Future<T>> futures) {
+        final List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new CustomWebApplicationException("Refresh was interrupted.", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            LOG.error("Refresh task failed", cause);
+            throw new CustomWebApplicationException("Refresh failed: " + cause.getMessage(), HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+        return results;
+    }
+
+    /**
+     * The tasks of one provider: at most limit of them are on the pool, the rest wait here in order
+     */
+    private final class Lane {
+        private final int limit;
+        private final Queue<FutureTask<?>> waiting = new ArrayDeque<>();
+        private int running;
+
+        Lane(int limit) {
+            this.limit = limit;
+        }
+
+        void submit(FutureTask<?> task) {
+            synchronized (this) {
+                if (running == limit) {
+                    waiting.add(task);
+                    return;
+                }
+                running++;
+            }
+            if (!dispatch(task)) {
+                finished();
+            }
+        }
+
+        /**
+         * @return false if the pool is shutting down, the task is then cancelled and its slot is still taken
+         */
+        private boolean dispatch(FutureTask<?> task) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        finished();
+                    }
+                });
+                return true;
+            } catch (RejectedExecutionException e) {
+                task.cancel(false);
+                return false;
+            }
+        }
+
+        /**
+         * Hand a finished task's slot to the next waiting task, cancelled tasks are dispatched too and finish at once.
+         */
+        private void finished() {
+            FutureTask<?> next;
+            do {
+                synchronized (this) {
+                    next = waiting.poll();
+                    if (next == null) {
+                        running--;
+                        return;
+                    }
+                }
+            } while (!dispatch(next));
+        }
+    }
+}
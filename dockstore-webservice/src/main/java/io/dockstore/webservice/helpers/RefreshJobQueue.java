@@ -0,0 +1,133 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.core.RefreshJob.JobStatus;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.WebApplicationException;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the database for queued refresh jobs and works through them one user at a time. Since jobs are stored,
+ * a job is picked up again after a restart instead of being lost with the request that created it. Several nodes can
+ * share the table: a job is claimed by one node and reports a heartbeat as it goes, jobs of a node that stopped
+ * reporting are queued again for any node to take.
+ */
+public class RefreshJobQueue implements Managed {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RefreshJobQueue.class);
+
+    private final RefreshJobWorker worker;
+    private final ScheduledExecutorService executor;
+    private final Duration pollInterval;
+    private final Duration staleAfter;
+    // identifies this node in the jobs it claims, unique across restarts
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + '/' + UUID.randomUUID();
+
+    /**
+     * @param worker       a worker created through UnitOfWorkAwareProxyFactory
+     * @param executor     runs the jobs, jobs are run one after another
+     * @param pollInterval how often to look for new jobs
+     * @param staleAfter   how long a running job may go without a heartbeat before it is queued again, longer than
+     *                     refreshing a single user takes
+     */
+    public RefreshJobQueue(RefreshJobWorker worker, ScheduledExecutorService executor, Duration pollInterval, Duration staleAfter) {
+        this.worker = worker;
+        this.executor = executor;
+        this.pollInterval = pollInterval;
+        this.staleAfter = staleAfter;
+    }
+
+    @Override
+    public void start() {
+        executor.scheduleWithFixedDelay(() -> RateLimiter.runInBackground(this::runQueuedJobs), 0, pollInterval.toMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        // the executor is shut down by its own lifecycle, an interrupted job stays RUNNING and is requeued once it is stale
+    }
+
+    private void runQueuedJobs() {
+        try {
+            final int requeued = worker.requeueStale(new Date(System.currentTimeMillis() - staleAfter.toMilliseconds()));
+            if (requeued > 0) {
+                LOG.info("Queued {} stale refresh jobs again", requeued);
+            }
+            for (Long jobId : worker.findQueued()) {
+                if (!worker.claim(jobId, owner)) {
+                    // taken by another node
+                    continue;
+                }
+                runJob(jobId);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            // an exception here would cancel all future polls
+            LOG.error("Could not process refresh jobs", e);
+        }
+    }
+
+    private void runJob(long jobId) {
+        LOG.info("Starting refresh job {}", jobId);
+        try {
+            final List<Long> userIds = worker.start(jobId);
+            for (Long userId : userIds) {
+                if (Thread.currentThread().isInterrupted()) {
+                    LOG.info("Refresh job {} interrupted, it will resume after user {}", jobId, userId);
+                    return;
+                }
+                if (!worker.heartbeat(jobId, owner)) {
+                    LOG.info("Refresh job {} was taken over by another node, stopping before user {}", jobId, userId);
+                    return;
+                }
+                try {
+                    worker.refreshUser(jobId, userId);
+                } catch (RuntimeException e) {
+                    LOG.error("Refresh job " + jobId + " failed for user " + userId, e);
+                    worker.recordFailure(jobId, userId, getMessage(e));
+                }
+            }
+            worker.finish(jobId, owner, JobStatus.SUCCEEDED);
+            LOG.info("Finished refresh job {}", jobId);
+        } catch (RuntimeException e) {
+            LOG.error("Refresh job " + jobId + " failed", e);
+            worker.finish(jobId, owner, JobStatus.FAILED);
+        }
+    }
+
+    private static String getMessage(RuntimeException e) {
+        if (e instanceof WebApplicationException) {
+            final Object entity = ((WebApplicationException)e).getResponse().getEntity();
+            if (entity != null) {
+                return entity.toString();
+            }
+        }
+        return e.getMessage();
+    }
+}
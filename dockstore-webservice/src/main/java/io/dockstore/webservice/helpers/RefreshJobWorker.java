@@ -0,0 +1,157 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.core.RefreshJob;
+import io.dockstore.webservice.core.RefreshJob.JobStatus;
+import io.dockstore.webservice.core.RefreshJob.JobType;
+import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.core.Workflow;
+import io.dockstore.webservice.jdbi.RefreshJobDAO;
+import io.dockstore.webservice.jdbi.UserDAO;
+import io.dockstore.webservice.resources.DockerRepoResource;
+import io.dockstore.webservice.resources.WorkflowResource;
+import io.dropwizard.hibernate.UnitOfWork;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The database side of a refresh job. Every method runs in its own short transaction, create instances through
+ * {@link io.dropwizard.hibernate.UnitOfWorkAwareProxyFactory} so that the {@link UnitOfWork} annotations take effect.
+ */
+public class RefreshJobWorker {
+
+    private final RefreshJobDAO refreshJobDAO;
+    private final UserDAO userDAO;
+    private final DockerRepoResource dockerRepoResource;
+    private final WorkflowResource workflowResource;
+
+    public RefreshJobWorker(RefreshJobDAO refreshJobDAO, UserDAO userDAO, DockerRepoResource dockerRepoResource,
+            WorkflowResource workflowResource) {
+        this.refreshJobDAO = refreshJobDAO;
+        this.userDAO = userDAO;
+        this.dockerRepoResource = dockerRepoResource;
+        this.workflowResource = workflowResource;
+    }
+
+    /**
+     * Put running jobs whose node stopped reporting progress back on the queue, they resume after the last user handled.
+     *
+     * @param staleBefore jobs without a heartbeat since then are queued again
+     * @return how many jobs were queued again
+     */
+    @UnitOfWork
+    public int requeueStale(Date staleBefore) {
+        return refreshJobDAO.requeueStale(staleBefore);
+    }
+
+    @UnitOfWork
+    public List<Long> findQueued() {
+        List<Long> ids = new ArrayList<>();
+        refreshJobDAO.findByStatus(JobStatus.QUEUED).forEach(job -> ids.add(job.getId()));
+        return ids;
+    }
+
+    /**
+     * Take a queued job for this node. Other nodes poll the same table, only one of them gets the job.
+     *
+     * @param jobId
+     * @param owner the node taking the job
+     * @return whether this node got the job
+     */
+    @UnitOfWork
+    public boolean claim(long jobId, String owner) {
+        return refreshJobDAO.claim(jobId, owner);
+    }
+
+    /**
+     * Record that a claimed job is still making progress.
+     *
+     * @param jobId
+     * @param owner the node running the job
+     * @return false when the job was given to another node in the meantime
+     */
+    @UnitOfWork
+    public boolean heartbeat(long jobId, String owner) {
+        return refreshJobDAO.heartbeat(jobId, owner);
+    }
+
+    /**
+     * Prepare a claimed job to run.
+     *
+     * @param jobId
+     * @return ids of the users still to be refreshed, in order
+     */
+    @UnitOfWork
+    public List<Long> start(long jobId) {
+        RefreshJob job = refreshJobDAO.findById(jobId);
+        List<Long> userIds = userDAO.findIdsAfter(job.getLastUserId());
+        job.setUsersTotal(job.getUsersDone() + userIds.size());
+        if (job.getStartedAt() == null) {
+            job.setStartedAt(new Date());
+        }
+        return userIds;
+    }
+
+    /**
+     * Refresh one user's tools or workflows, the job's progress is saved in the same transaction.
+     *
+     * @param jobId
+     * @param userId
+     */
+    @UnitOfWork
+    public void refreshUser(long jobId, long userId) {
+        JobType type = refreshJobDAO.findById(jobId).getType();
+        int entries;
+        if (type == JobType.TOOLS) {
+            entries = dockerRepoResource.refreshToolsForUser(userId).size();
+        } else {
+            User user = userDAO.findById(userId);
+            workflowResource.refreshStubWorkflowsForUser(user);
+            entries = 0;
+            for (Entry entry : user.getEntries()) {
+                if (entry instanceof Workflow) {
+                    entries++;
+                }
+            }
+        }
+        // refreshing tools clears the session, look the job up again
+        refreshJobDAO.findById(jobId).userSucceeded(userId, entries);
+    }
+
+    @UnitOfWork
+    public void recordFailure(long jobId, long userId, String message) {
+        refreshJobDAO.findById(jobId).userFailed(userId, message);
+    }
+
+    /**
+     * @param jobId
+     * @param owner  the node running the job, a job that was given to another node is left to that node
+     * @param status how the job ended, FAILED instead when refreshing any user failed, also before a restart
+     */
+    @UnitOfWork
+    public void finish(long jobId, String owner, JobStatus status) {
+        RefreshJob job = refreshJobDAO.findById(jobId);
+        if (job.getStatus() == JobStatus.RUNNING && owner.equals(job.getOwner())) {
+            job.setStatus(job.getFailures() > 0 ? JobStatus.FAILED : status);
+            job.setFinishedAt(new Date());
+        }
+    }
+}
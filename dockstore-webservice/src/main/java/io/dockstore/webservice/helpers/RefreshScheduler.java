@@ -0,0 +1,205 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.RefreshSchedulerConfiguration;
+import io.dockstore.webservice.helpers.StaleEntryWorker.StaleEntry;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalTime;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Refreshes tools and workflows in the background at a steady rate, stalest first. Published entries come before
+ * unpublished ones, and entries that have never been refreshed come before all others.
+ */
+public class RefreshScheduler implements Managed {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RefreshScheduler.class);
+
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+    // how many minutes of work to load into the queue at a time
+    private static final int MINUTES_PER_LOAD = 15;
+
+    private static final Comparator<StaleEntry> STALEST_FIRST = Comparator.comparing(StaleEntry::isPublished).reversed()
+            .thenComparing(StaleEntry::getLastUpdated, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final StaleEntryWorker worker;
+    private final ScheduledExecutorService executor;
+    private final RefreshSchedulerConfiguration configuration;
+    private final long staleAfterMillis;
+    private final Semaphore running;
+
+    private final PriorityQueue<StaleEntry> queue = new PriorityQueue<>(STALEST_FIRST);
+    // entry id -> when it was last tried, so that entries that cannot be refreshed do not come straight back
+    private final Map<Long, Long> attempted = new ConcurrentHashMap<>();
+
+    private final Meter refreshed;
+    private final Meter skipped;
+    private final Meter failed;
+    private final Timer refreshTimer;
+
+    /**
+     * @param worker        a worker created through UnitOfWorkAwareProxyFactory
+     * @param executor      needs one thread more than the number of concurrent refreshes
+     * @param configuration
+     * @param metrics
+     */
+    public RefreshScheduler(StaleEntryWorker worker, ScheduledExecutorService executor, RefreshSchedulerConfiguration configuration,
+            MetricRegistry metrics) {
+        this.worker = worker;
+        this.executor = executor;
+        this.configuration = configuration;
+        this.staleAfterMillis = configuration.getStaleAfter().toMilliseconds();
+        this.running = new Semaphore(configuration.getMaxConcurrent());
+
+        this.refreshed = metrics.meter(name(RefreshScheduler.class, "refreshed"));
+        this.skipped = metrics.meter(name(RefreshScheduler.class, "skipped"));
+        this.failed = metrics.meter(name(RefreshScheduler.class, "failed"));
+        this.refreshTimer = metrics.timer(name(RefreshScheduler.class, "refresh"));
+        metrics.register(name(RefreshScheduler.class, "queued"), (Gauge<Integer>)this::getQueued);
+        metrics.register(name(RefreshScheduler.class, "running"),
+                (Gauge<Integer>)() -> configuration.getMaxConcurrent() - running.availablePermits());
+        metrics.register(name(RefreshScheduler.class, "lag-seconds"), (Gauge<Long>)this::getLagSeconds);
+    }
+
+    @Override
+    public void start() {
+        if (!configuration.isEnabled()) {
+            return;
+        }
+        // in nanoseconds so that high rates do not round down to 0, which scheduleAtFixedRate rejects
+        final long interval = Math.max(1, NANOS_PER_MINUTE / configuration.getEntriesPerMinute());
+        executor.scheduleAtFixedRate(this::tick, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void stop() {
+        // the executor is shut down by its own lifecycle, nothing is lost since staleness is read from the database
+    }
+
+    private void tick() {
+        try {
+            if (isQuietHour(LocalTime.now().getHour()) || !running.tryAcquire()) {
+                return;
+            }
+            final StaleEntry entry = next();
+            if (entry == null) {
+                running.release();
+                return;
+            }
+            executor.execute(() -> {
+                try {
+                    RateLimiter.runInBackground(() -> refresh(entry));
+                } finally {
+                    running.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            // an exception here would cancel all future ticks
+            LOG.error("Could not schedule a refresh", e);
+        }
+    }
+
+    private void refresh(StaleEntry entry) {
+        attempted.put(entry.getId(), System.currentTimeMillis());
+        try (Timer.Context ignored = refreshTimer.time()) {
+            if (worker.refresh(entry, getStaleBefore())) {
+                refreshed.mark();
+            } else {
+                skipped.mark();
+            }
+        } catch (RuntimeException e) {
+            failed.mark();
+            LOG.error("Scheduled refresh of entry " + entry.getId() + " failed", e);
+        }
+    }
+
+    /**
+     * @return the stalest entry, loading more from the database when the queue runs out
+     */
+    private synchronized StaleEntry next() {
+        if (queue.isEmpty()) {
+            load();
+        }
+        return queue.poll();
+    }
+
+    private void load() {
+        final long now = System.currentTimeMillis();
+        attempted.values().removeIf(time -> now - time > staleAfterMillis);
+        for (StaleEntry entry : worker.findStale(getStaleBefore(), configuration.getEntriesPerMinute() * MINUTES_PER_LOAD)) {
+            if (!attempted.containsKey(entry.getId())) {
+                queue.add(entry);
+            }
+        }
+        LOG.debug("Loaded {} stale entries", queue.size());
+    }
+
+    private Date getStaleBefore() {
+        return new Date(System.currentTimeMillis() - staleAfterMillis);
+    }
+
+    private synchronized int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * @return how long past its refresh time the most overdue queued entry is, 0 when nothing is waiting
+     */
+    private synchronized long getLagSeconds() {
+        long oldest = Long.MAX_VALUE;
+        for (StaleEntry entry : queue) {
+            if (entry.getLastUpdated() != null) {
+                oldest = Math.min(oldest, entry.getLastUpdated().getTime());
+            }
+        }
+        if (oldest == Long.MAX_VALUE) {
+            return 0L;
+        }
+        return TimeUnit.MILLISECONDS.toSeconds(Math.max(System.currentTimeMillis() - oldest - staleAfterMillis, 0L));
+    }
+
+    private boolean isQuietHour(int hour) {
+        final Integer start = configuration.getQuietHoursStart();
+        final Integer end = configuration.getQuietHoursEnd();
+        if (start == null || end == null || start.equals(end)) {
+            return false;
+        }
+        if (start < end) {
+            return hour >= start && hour < end;
+        }
+        // spans midnight
+        return hour >= start || hour < end;
+    }
+}
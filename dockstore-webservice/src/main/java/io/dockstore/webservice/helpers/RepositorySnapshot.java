@@ -0,0 +1,201 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * The descriptors, imports and Dockerfiles of a repository at one commit, read from a zip archive of the commit in a
+ * single request. Archives made by source control providers put everything in one top level directory, which is
+ * stripped from the paths. Other files are not kept and neither are large ones, so a lookup may also answer that the
+ * snapshot does not know. Archives larger than {@link #MAX_ARCHIVE_SIZE} are not read to the end, the download fails
+ * with a {@link TooLargeException} instead.
+ */
+public final class RepositorySnapshot {
+
+    /**
+     * Repositories larger than this are read file by file, downloading an archive of them would cost more than it saves
+     */
+    public static final long MAX_ARCHIVE_SIZE = 64L * 1024 * 1024;
+
+    // descriptors, imports and Dockerfiles are much smaller than this
+    private static final int MAX_FILE_SIZE = 512 * 1024;
+    // what descriptors import, and test parameter files
+    private static final Set<String> EXTENSIONS = ImmutableSet.of("cwl", "wdl", "yml", "yaml", "json");
+
+    private final Map<String, String> contents = new HashMap<>();
+    // files that exist but were too large to keep
+    private final Set<String> skipped = new HashSet<>();
+
+    private RepositorySnapshot() {
+    }
+
+    /**
+     * Read a zip archive, the stream is left open.
+     *
+     * @param zip the archive
+     * @return the files in the archive
+     * @throws TooLargeException once more than {@link #MAX_ARCHIVE_SIZE} has been read, the caller should abort the download
+     * @throws IOException       if the archive could not be read
+     */
+    public static RepositorySnapshot fromZip(InputStream zip) throws IOException {
+        final RepositorySnapshot snapshot = new RepositorySnapshot();
+        final ZipInputStream in = new ZipInputStream(new CappedInputStream(zip));
+        ZipEntry entry;
+        while ((entry = in.getNextEntry()) != null) {
+            final String path = stripTopDirectory(entry.getName());
+            if (entry.isDirectory() || !isKept(path)) {
+                continue;
+            }
+            // the size is only known up front when the archive was written with it, otherwise read up to the limit
+            if (entry.getSize() > MAX_FILE_SIZE) {
+                snapshot.skipped.add(path);
+                continue;
+            }
+            final byte[] content = ByteStreams.toByteArray(ByteStreams.limit(in, MAX_FILE_SIZE + 1L));
+            if (content.length > MAX_FILE_SIZE) {
+                snapshot.skipped.add(path);
+                continue;
+            }
+            snapshot.contents.put(path, new String(content, StandardCharsets.UTF_8));
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param path path of a file in the repository, relative to its root
+     * @return whether the file could be a descriptor, an import or a Dockerfile
+     */
+    private static boolean isKept(String path) {
+        final String name = FilenameUtils.getName(path);
+        return name.toLowerCase(Locale.ENGLISH).contains("dockerfile")
+                || EXTENSIONS.contains(FilenameUtils.getExtension(name).toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @param path path of a file in the repository
+     * @return true if the snapshot can tell whether the file exists and what it contains
+     */
+    public boolean covers(String path) {
+        final String normalized = normalize(path);
+        if (normalized == null) {
+            return false;
+        }
+        return contents.containsKey(normalized) || (isKept(normalized) && !skipped.contains(normalized));
+    }
+
+    /**
+     * @param path path of a file in the repository
+     * @return the content of the file, null if the snapshot does not have it
+     */
+    public String getContent(String path) {
+        final String normalized = normalize(path);
+        return normalized == null ? null : contents.get(normalized);
+    }
+
+    /**
+     * @return number of files kept
+     */
+    public int size() {
+        return contents.size();
+    }
+
+    private static String stripTopDirectory(String name) {
+        final int slash = name.indexOf('/');
+        return slash < 0 ? name : name.substring(slash + 1);
+    }
+
+    /**
+     * @param path absolute or relative to the root of the repository, may contain ..
+     * @return the path relative to the root of the repository, null if it points outside of it
+     */
+    private static String normalize(String path) {
+        if (path == null) {
+            return null;
+        }
+        // a leading // would be read as a network share
+        final String normalized = FilenameUtils.normalize("/" + path.replaceFirst("^/+", ""), true);
+        return normalized == null ? null : normalized.substring(1);
+    }
+
+    /**
+     * Thrown when an archive is larger than {@link #MAX_ARCHIVE_SIZE}
+     */
+    public static class TooLargeException extends IOException {
+        public TooLargeException() {
+            super("Archive is larger than " + MAX_ARCHIVE_SIZE + " bytes");
+        }
+    }
+
+    /**
+     * Fails reads once more than {@link #MAX_ARCHIVE_SIZE} bytes were read, so a huge archive is not downloaded in full
+     */
+    private static final class CappedInputStream extends FilterInputStream {
+        private long count;
+
+        private CappedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long read) throws TooLargeException {
+            count += read;
+            if (count > MAX_ARCHIVE_SIZE) {
+                throw new TooLargeException();
+            }
+        }
+    }
+}
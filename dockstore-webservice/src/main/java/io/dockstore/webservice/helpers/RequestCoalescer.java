@@ -0,0 +1,128 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Lets identical GETs that are in flight at the same time share one request. Users of the same organization refreshing
+ * at once otherwise fetch the same listings and files side by side. Requests are only shared between callers with the
+ * same credentials, since what a token can see differs, and only while in flight, a later caller sends its own request.
+ */
+public class RequestCoalescer {
+
+    // url + hash of the credentials -> the request in flight
+    private final Map<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private final Meter sent;
+    private final Meter coalesced;
+
+    public RequestCoalescer(MetricRegistry metrics) {
+        this.sent = metrics.meter(name(RequestCoalescer.class, "sent"));
+        this.coalesced = metrics.meter(name(RequestCoalescer.class, "coalesced"));
+        metrics.register(name(RequestCoalescer.class, "inFlight"), (Gauge<Integer>)inFlight::size);
+    }
+
+    /**
+     * @param url         the url, including any parameters and representation that change the response
+     * @param credentials the token or other credentials sent with the request, may be null
+     * @return the key that identical requests share
+     */
+    public String getKey(String url, String credentials) {
+        return url + '\n' + Hashing.sha256().hashString(credentials == null ? "" : credentials, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Send a request, or wait for the identical one already in flight.
+     *
+     * @param key     from {@link #getKey(String, String)}
+     * @param request sends the request on the calling thread, the result is handed to every caller so it must not be modified
+     * @param <T>     the result of the request
+     * @return the result of the request
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> request) {
+        final CompletableFuture<T> flight = new CompletableFuture<>();
+        final CompletableFuture<?> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.mark();
+            try {
+                return (T)existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause() : e;
+            }
+        }
+        sent.mark();
+        try {
+            final T result = request.get();
+            inFlight.remove(key, flight);
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Same as execute, for requests that complete asynchronously.
+     *
+     * @param key     from {@link #getKey(String, String)}
+     * @param request starts the request, the result is handed to every caller so it must not be modified
+     * @param <T>     the result of the request
+     * @return completes with the result of the request
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> executeAsync(String key, Supplier<CompletableFuture<T>> request) {
+        final CompletableFuture<T> flight = new CompletableFuture<>();
+        final CompletableFuture<?> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.mark();
+            // a copy, so that one caller cancelling does not cancel the request for the others
+            return ((CompletableFuture<T>)existing).thenApply(result -> result);
+        }
+        sent.mark();
+        try {
+            request.get().whenComplete((result, error) -> {
+                inFlight.remove(key, flight);
+                if (error == null) {
+                    flight.complete(result);
+                } else {
+                    flight.completeExceptionally(error);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        return flight.thenApply(result -> result);
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.RetryConfiguration;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Retries failed outbound GETs and keeps a circuit breaker per host. A GET that fails on the network or with a server
+ * error is sent again after a random wait of up to the initial backoff, doubling for every further attempt. A host that
+ * fails many requests in a row is not contacted for a while so that refreshes fail fast instead of each waiting out its
+ * own retries, after which one request is let through to see whether the host is back.
+ */
+public class RetryPolicy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RetryPolicy.class);
+
+    private final RetryConfiguration configuration;
+    private final MetricRegistry metrics;
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    public RetryPolicy(RetryConfiguration configuration, MetricRegistry metrics) {
+        this.configuration = configuration;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param status the status of a response
+     * @return whether the status means the host failed, rather than the request
+     */
+    public static boolean isServerError(int status) {
+        return status >= HttpStatus.SC_INTERNAL_SERVER_ERROR;
+    }
+
+    public int getMaxAttempts() {
+        return configuration.getMaxAttempts();
+    }
+
+    /**
+     * @param host
+     * @return whether a request may be sent to the host, false while its circuit breaker is open
+     */
+    public boolean allow(String host) {
+        return allow(host, System.currentTimeMillis());
+    }
+
+    boolean allow(String host, long now) {
+        if (getBreaker(host).allow(now)) {
+            return true;
+        }
+        metrics.meter(name(RetryPolicy.class, host, "rejected")).mark();
+        return false;
+    }
+
+    /**
+     * Record that the host answered, even if the answer was a client error.
+     *
+     * @param host
+     */
+    public void succeeded(String host) {
+        getBreaker(host).succeeded();
+    }
+
+    /**
+     * Record that a request to the host failed on the network or with a server error.
+     *
+     * @param host
+     */
+    public void failed(String host) {
+        failed(host, System.currentTimeMillis());
+    }
+
+    void failed(String host, long now) {
+        getBreaker(host).failed(now);
+    }
+
+    /**
+     * @param host
+     * @return the state of the circuit breaker of the host
+     */
+    State getState(String host) {
+        return getBreaker(host).getState();
+    }
+
+    /**
+     * How long to wait before the next attempt, for callers that schedule the retry rather than wait on a thread.
+     *
+     * @param host    the host the request goes to
+     * @param attempt the number of attempts made so far
+     * @return the wait in milliseconds
+     */
+    public long nextBackoff(String host, int attempt) {
+        metrics.meter(name(RetryPolicy.class, host, "retries")).mark();
+        final long cap = Math.min(configuration.getMaxBackoff().toMilliseconds(),
+                configuration.getInitialBackoff().toMilliseconds() << Math.min(attempt - 1, Integer.SIZE));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    /**
+     * Wait before the next attempt.
+     *
+     * @param host    the host the request goes to
+     * @param attempt the number of attempts made so far
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public void backoff(String host, int attempt) throws InterruptedIOException {
+        final long wait = nextBackoff(host, attempt);
+        try {
+            Thread.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry a request to " + host);
+        }
+    }
+
+    /**
+     * Send a GET, retrying it while it fails on the network or with a server error.
+     *
+     * @param host        the host the request goes to
+     * @param request     sends the request
+     * @param serverError tells whether an exception thrown by the request means the host failed, exceptions that do not are
+     *                    thrown straight away
+     * @param <T>         the result of the request
+     * @return the result of the first attempt that succeeded
+     * @throws IOException the exception of the last attempt, or {@link CircuitOpenException} while the host is left alone
+     */
+    public <T> T execute(String host, Attempt<T> request, Predicate<IOException> serverError) throws IOException {
+        for (int attempt = 1;; attempt++) {
+            if (!allow(host)) {
+                throw new CircuitOpenException(host);
+            }
+            try {
+                final T result = request.run();
+                succeeded(host);
+                return result;
+            } catch (IOException e) {
+                if (!serverError.test(e)) {
+                    succeeded(host);
+                    throw e;
+                }
+                failed(host);
+                if (attempt >= getMaxAttempts() || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                LOG.info("Request to {} failed, attempt {} of {}: {}", host, attempt, getMaxAttempts(), e.getMessage());
+            }
+            backoff(host, attempt);
+        }
+    }
+
+    private Breaker getBreaker(String host) {
+        return breakers.computeIfAbsent(host, key -> {
+            final Breaker breaker = new Breaker(key);
+            metrics.register(name(RetryPolicy.class, key, "state"), (Gauge<Integer>)() -> breaker.getState().ordinal());
+            return breaker;
+        });
+    }
+
+    /**
+     * One attempt at a request.
+     *
+     * @param <T> the result of the request
+     */
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Thrown instead of sending a request to a host that is left alone after failing too often.
+     */
+    public static class CircuitOpenException extends IOException {
+        public CircuitOpenException(String host) {
+            super("Requests to " + host + " are failing, not contacting it for now");
+        }
+
+        /**
+         * @return what to answer the client with, the request can be retried once the host has had its rest
+         */
+        public CustomWebApplicationException toWebApplicationException() {
+            return new CustomWebApplicationException(getMessage() + ", try again later.", HttpStatus.SC_SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Reported by the state gauge as the ordinal
+     */
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final class Breaker {
+        private final String host;
+        private State state = State.CLOSED;
+        private int failures;
+        private long openUntil;
+
+        private Breaker(String host) {
+            this.host = host;
+        }
+
+        synchronized State getState() {
+            return state;
+        }
+
+        synchronized boolean allow(long now) {
+            if (state == State.CLOSED || now < openUntil) {
+                return state == State.CLOSED;
+            }
+            if (state == State.OPEN) {
+                // let one request through to try the host again
+                state = State.HALF_OPEN;
+                openUntil = now + configuration.getOpenDuration().toMilliseconds();
+                return true;
+            }
+            // the trial request never reported back, let another one through
+            openUntil = now + configuration.getOpenDuration().toMilliseconds();
+            return true;
+        }
+
+        synchronized void succeeded() {
+            if (state != State.CLOSED) {
+                LOG.info("Requests to {} are succeeding again", host);
+            }
+            state = State.CLOSED;
+            failures = 0;
+        }
+
+        synchronized void failed(long now) {
+            failures++;
+            final boolean trip = state == State.HALF_OPEN || configuration.getFailureThreshold() > 0 && failures >= configuration.getFailureThreshold();
+            if (trip) {
+                if (state == State.CLOSED) {
+                    LOG.warn("{} requests to {} failed in a row, not contacting it for {}", failures, host, configuration.getOpenDuration());
+                }
+                state = State.OPEN;
+                openUntil = now + configuration.getOpenDuration().toMilliseconds();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Exports how well each region of the Hibernate second-level cache does, the query cache is one of the regions.
+ * Needs hibernate.generate_statistics, nothing is registered without it.
+ */
+public final class SecondLevelCacheMetrics {
+
+    private SecondLevelCacheMetrics() {
+        // hide the default constructor for a utility class
+    }
+
+    public static void register(SessionFactory sessionFactory, MetricRegistry metrics) {
+        final Statistics statistics = sessionFactory.getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return;
+        }
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            final SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(region);
+            metrics.register(name(SecondLevelCacheMetrics.class, region, "hits"), (Gauge<Long>)regionStatistics::getHitCount);
+            metrics.register(name(SecondLevelCacheMetrics.class, region, "misses"), (Gauge<Long>)regionStatistics::getMissCount);
+            metrics.register(name(SecondLevelCacheMetrics.class, region, "puts"), (Gauge<Long>)regionStatistics::getPutCount);
+            metrics.register(name(SecondLevelCacheMetrics.class, region, "elements"),
+                    (Gauge<Long>)regionStatistics::getElementCountInMemory);
+            metrics.register(name(SecondLevelCacheMetrics.class, region, "hitRatio"), new RatioGauge() {
+                @Override
+                protected Ratio getRatio() {
+                    final long hits = regionStatistics.getHitCount();
+                    return Ratio.of(hits, hits + regionStatistics.getMissCount());
+                }
+            });
+        }
+    }
+}
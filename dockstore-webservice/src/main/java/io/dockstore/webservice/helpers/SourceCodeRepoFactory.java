@@ -28,6 +28,13 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
+ * Creates the repository for a git url.
+ * <p>
+ * Repositories are created per request, from resources, refresh workers and webhooks alike. What they share for the
+ * life of the application (caches, the executor that reads versions, the rate limiter, retry policy and request
+ * coalescer) is attached once at startup through the static setters of {@link SourceCodeRepoInterface},
+ * {@link GitHubSourceCodeRepo} and {@link BitBucketSourceCodeRepo} rather than passed through here.
+ *
  * @author dyuen
  */
 public class SourceCodeRepoFactory {
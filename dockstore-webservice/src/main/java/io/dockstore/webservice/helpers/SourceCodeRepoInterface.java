@@ -18,9 +18,16 @@ package io.dockstore.webservice.helpers;
 
 import com.esotericsoftware.yamlbeans.YamlReader;
 import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.dockstore.client.Bridge;
+import io.dockstore.webservice.core.CachedFile;
+import io.dockstore.webservice.core.SourceFile;
 import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.Workflow;
+import io.dockstore.webservice.helpers.RetryPolicy.CircuitOpenException;
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +40,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 /**
  * This defines the set of operations that is needed to interact with a particular
@@ -43,6 +52,73 @@ public abstract class SourceCodeRepoInterface {
 
     public static final Logger LOG = LoggerFactory.getLogger(SourceCodeRepoInterface.class);
 
+    private static final int COMMIT_ID_LENGTH = 40;
+
+    // a refresh works through a few references at a time, each needs its own snapshot
+    private static final int MAX_SNAPSHOTS = 8;
+
+    private static SourceFileCache fileCache = null;
+
+    private static boolean snapshots = false;
+
+    private static ExecutorService referenceExecutor = null;
+
+    // repository id + commit -> files at that commit, absent if there is no snapshot
+    private final Cache<String, Optional<RepositorySnapshot>> snapshotCache = CacheBuilder.newBuilder().maximumSize(MAX_SNAPSHOTS).build();
+
+    /**
+     * Attach the file cache, see {@link SourceCodeRepoFactory}
+     * @param cache the cache, null to turn caching off
+     */
+    public static void setFileCache(SourceFileCache cache) {
+        fileCache = cache;
+    }
+
+    /**
+     * Attach the executor that reads the versions of a workflow, see {@link SourceCodeRepoFactory}
+     * @param executor a bounded pool, null to read versions one after another on the calling thread
+     */
+    public static void setReferenceExecutor(ExecutorService executor) {
+        referenceExecutor = executor;
+    }
+
+    /**
+     * @return the executor that reads the versions of a workflow, runs tasks on the calling thread when there is none
+     */
+    protected static ExecutorService getReferenceExecutor() {
+        return referenceExecutor == null ? MoreExecutors.newDirectExecutorService() : referenceExecutor;
+    }
+
+    /**
+     * @param ref      a branch or tag
+     * @param commitId the commit it points at, may be null
+     * @param path     path of the descriptor
+     * @return identifies what a version reads, versions with the same key have the same files
+     */
+    protected static String getVersionKey(String ref, String commitId, String path) {
+        return (commitId == null ? "ref:" + ref : commitId) + ':' + path;
+    }
+
+    /**
+     * @param file a file read for one version
+     * @return a copy that can be added to another version
+     */
+    protected static SourceFile copySourceFile(SourceFile file) {
+        SourceFile copy = new SourceFile();
+        copy.setType(file.getType());
+        copy.setContent(file.getContent());
+        copy.setPath(file.getPath());
+        return copy;
+    }
+
+    /**
+     * Read files that are not in the file cache from an archive of their commit, one request per commit rather than per file
+     * @param enabled false to read each file on its own
+     */
+    public static void setSnapshots(boolean enabled) {
+        snapshots = enabled;
+    }
+
     /**
      * If this interface is pointed at a specific repository, grab a
      * file from a specific branch/tag
@@ -54,12 +130,184 @@ public abstract class SourceCodeRepoInterface {
     public abstract FileResponse readFile(String fileName, String reference, String gitUrl);
 
     /**
-     * Update a container with the contents of the descriptor file from a source code repo
-     * 
-     * @param c a container to be updated
+     * Same as readFile, but distinguishes a file that the source control provider says does not exist from
+     * other failures. Only the former can be remembered.
+     * @param fileName the name of the file (full path) to retrieve
+     * @param reference the tag/branch/commit to get the file from
+     * @param gitUrl the git url for the git repository
+     * @return a wrapper for the file, null if it could not be read
+     * @throws FileNotFoundException if the file definitely does not exist at the reference
+     */
+    protected FileResponse readExistingFile(String fileName, String reference, String gitUrl) throws FileNotFoundException {
+        return readFile(fileName, reference, gitUrl);
+    }
+
+    /**
+     * Resolve a branch or tag to the commit it currently points at.
+     * @param repositoryId uniquely identify a repo, ex. "owner/name"
+     * @param reference the tag/branch
+     * @return the full commit SHA, null if it cannot be determined
+     */
+    public String getCommitID(String repositoryId, String reference) {
+        if (reference != null && reference.length() == COMMIT_ID_LENGTH && reference.matches("[0-9a-f]+")) {
+            return reference;
+        }
+        return null;
+    }
+
+    /**
+     * Read a file like readFile, but first resolve the reference to a commit. Contents at a commit never change,
+     * so files already seen at that commit are served from the file cache without contacting the provider.
+     * @param fileName the name of the file (full path) to retrieve
+     * @param reference the tag/branch to get the file from
+     * @param gitUrl the git url for the git repository
+     * @return a wrapper for the file, null if it does not exist
+     */
+    public FileResponse readCachedFile(String fileName, String reference, String gitUrl) {
+        final Map<String, String> gitMap = SourceCodeRepoFactory.parseGitUrl(gitUrl);
+        final String repositoryId = gitMap == null ? null : gitMap.get("Username") + "/" + gitMap.get("Repository");
+        final String commitId = fileCache == null || repositoryId == null ? null : getCommitID(repositoryId, reference);
+        if (commitId == null) {
+            return readFile(fileName, reference, gitUrl);
+        }
+        try {
+            // read at the commit rather than the reference, the reference may have moved in the meantime
+            final String content = getCachedContent(gitUrl, commitId, fileName, () -> readSnapshotFile(repositoryId, commitId, fileName, () -> {
+                FileResponse response = readExistingFile(fileName, commitId, gitUrl);
+                return response == null ? null : response.getContent();
+            }));
+            if (content == null) {
+                return null;
+            }
+            FileResponse response = new FileResponse();
+            response.setContent(content);
+            return response;
+        } catch (CircuitOpenException e) {
+            throw e.toWebApplicationException();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Look a file up in the file cache, fetching and remembering it on a miss.
+     * @param gitUrl the git url for the git repository
+     * @param commitId the commit the content is read at, null to skip the cache
+     * @param path the name of the file (full path)
+     * @param fetcher reads the content from the provider, throws FileNotFoundException if the file does not exist
+     * @return the content, null if the provider did not return any
+     * @throws IOException when the content could not be read, FileNotFoundException when the file does not exist
+     */
+    protected String getCachedContent(String gitUrl, String commitId, String path, ContentFetcher fetcher) throws IOException {
+        if (fileCache == null || commitId == null) {
+            return fetcher.fetch();
+        }
+        final Optional<CachedFile> cached = fileCache.get(gitUrl, commitId, path);
+        if (cached.isPresent()) {
+            if (cached.get().getContent() == null) {
+                throw new FileNotFoundException(path + " does not exist at " + commitId);
+            }
+            return cached.get().getContent();
+        }
+        try {
+            final String content = fetcher.fetch();
+            if (content != null) {
+                fileCache.put(gitUrl, commitId, path, content);
+            }
+            return content;
+        } catch (FileNotFoundException e) {
+            fileCache.put(gitUrl, commitId, path, null);
+            throw e;
+        }
+    }
+
+    /**
+     * Read a file from the snapshot of its commit, downloading the snapshot the first time a file of the commit is needed.
+     * @param repositoryId uniquely identify a repo, ex. "owner/name"
+     * @param commitId the commit the content is read at, null to skip the snapshot
+     * @param path the name of the file (full path)
+     * @param fetcher reads the content on its own, for when there is no snapshot or it does not cover the file
+     * @return the content, null if the provider did not return any
+     * @throws IOException when the content could not be read, FileNotFoundException when the file does not exist
+     */
+    protected String readSnapshotFile(String repositoryId, String commitId, String path, ContentFetcher fetcher) throws IOException {
+        if (!snapshots || commitId == null) {
+            return fetcher.fetch();
+        }
+        Optional<RepositorySnapshot> snapshot;
+        try {
+            snapshot = snapshotCache.get(repositoryId + '@' + commitId, () -> {
+                try {
+                    return Optional.fromNullable(downloadSnapshot(repositoryId, commitId));
+                } catch (IOException e) {
+                    LOG.info("Could not download a snapshot of {} at {}: {}", repositoryId, commitId, e.getMessage());
+                    return Optional.absent();
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            snapshot = Optional.absent();
+        }
+        if (!snapshot.isPresent() || !snapshot.get().covers(path)) {
+            return fetcher.fetch();
+        }
+        final String content = snapshot.get().getContent(path);
+        if (content == null) {
+            throw new FileNotFoundException(path + " does not exist at " + commitId);
+        }
+        return content;
+    }
+
+    /**
+     * Download the files of a repository at a commit in one request.
+     * @param repositoryId uniquely identify a repo, ex. "owner/name"
+     * @param commitId the full commit SHA
+     * @return the files at the commit, null if the provider cannot make snapshots
+     * @throws IOException if the snapshot could not be downloaded
+     */
+    protected RepositorySnapshot downloadSnapshot(String repositoryId, String commitId) throws IOException {
+        return null;
+    }
+
+    /**
+     * Reads the content of a single file from a provider
+     */
+    @FunctionalInterface
+    protected interface ContentFetcher {
+        String fetch() throws IOException;
+    }
+
+    /**
+     * Read a descriptor from the default branch of a tool's repository. Leaves the tool alone, so this can run on a refresh
+     * worker.
+     *
+     * @param gitUrl   the tool's git url
+     * @param fileName path of the descriptor in the repository
+     * @return the content of the descriptor, null if it could not be read
+     */
+    public abstract String readDescriptor(String gitUrl, String fileName);
+
+    /**
+     * Update a container with the contents of a descriptor read by {@link #readDescriptor(String, String)}
+     *
+     * @param c        a container to be updated
+     * @param fileName path of the descriptor, its extension gives the descriptor type
+     * @param content  the descriptor, nothing is changed when it is null or empty
      * @return an updated container with fields from the descriptor filled in
      */
-    public abstract Tool findDescriptor(Tool c, String fileName);
+    public Tool parseDescriptor(Tool c, String fileName, String content) {
+        if (content == null || content.isEmpty()) {
+            return c;
+        }
+        // Add for new descriptor types
+        String descriptorType = FilenameUtils.getExtension(fileName);
+        if (descriptorType.equals("cwl")) {
+            return parseCWLContent(c, content);
+        }
+        if (descriptorType.equals("wdl")) {
+            return parseWDLContent(c, content);
+        }
+        return c;
+    }
 
     /**
      * Get the email for the current user
@@ -170,12 +418,37 @@ public abstract class SourceCodeRepoInterface {
      *                         for where to look for files
      * @return a fully realized workflow
      */
-    public abstract Workflow getNewWorkflow(String repositoryId, Optional<Workflow> existingWorkflow);
+    public Workflow getNewWorkflow(String repositoryId, Optional<Workflow> existingWorkflow) {
+        return getNewWorkflow(repositoryId, existingWorkflow, Optional.absent());
+    }
+
+    /**
+     * Same as {@link #getNewWorkflow(String, Optional)}, but when a reference is given only the version for that branch or tag
+     * is read. Versions that are not returned are left alone when the workflow is saved.
+     * @param repositoryId uniquely identify a repo
+     * @param existingWorkflow an existing workflow entry
+     * @param reference the branch or tag to read, absent to read all of them
+     * @return a fully realized workflow
+     */
+    public abstract Workflow getNewWorkflow(String repositoryId, Optional<Workflow> existingWorkflow, Optional<String> reference);
 
     public ArrayList<String> getCwlImports(File workflowFile) throws FileNotFoundException {
-        ArrayList<String> imports = new ArrayList<>();
         Yaml yaml = new Yaml();
-        Map <String, Object> groups = (Map<String, Object>) yaml.load(new FileInputStream(workflowFile));
+        return getCwlImports((Map<String, Object>) yaml.load(new FileInputStream(workflowFile)));
+    }
+
+    /**
+     * Find the tools and workflows a CWL workflow runs, without writing the descriptor to disk
+     * @param content the workflow descriptor
+     * @return paths of the imported files, relative to the descriptor
+     */
+    public ArrayList<String> getCwlImports(String content) {
+        Yaml yaml = new Yaml();
+        return getCwlImports((Map<String, Object>) yaml.load(content));
+    }
+
+    private ArrayList<String> getCwlImports(Map <String, Object> groups) {
+        ArrayList<String> imports = new ArrayList<>();
 
         for (String group : groups.keySet()) {
             if (group.equals("steps")) {
@@ -197,6 +470,18 @@ public abstract class SourceCodeRepoInterface {
         return imports;
     }
 
+    /**
+     * Find the files a WDL workflow imports, without writing the descriptor to disk
+     * @param content the workflow descriptor
+     * @return paths of the imported files, relative to the descriptor
+     */
+    public ArrayList<String> getWdlImports(String content) {
+        Bridge bridge = new Bridge();
+        ArrayList<String> imports = bridge.getImportFiles(content);
+
+        return imports;
+    }
+
     public static class FileResponse {
         private String content;
 
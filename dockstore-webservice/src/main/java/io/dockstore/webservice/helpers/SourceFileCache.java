@@ -0,0 +1,190 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.google.common.base.Optional;
+import io.dockstore.webservice.core.CachedFile;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent cache of file contents keyed by (repository, commit, path).
+ * Lookups and inserts use their own stateless sessions so they can be made from refresh workers, outside of the
+ * request's unit of work. Entries are immutable, a failed insert only means the file is fetched again next time.
+ * Entries that have not been read within the expiry are deleted periodically, so files of commits that no branch or
+ * tag points at anymore do not pile up.
+ */
+public class SourceFileCache implements Managed {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SourceFileCache.class);
+
+    // how stale the read time of an entry may get before a read records it, keeps most reads free of writes
+    private static final long MARK_READ_INTERVAL = TimeUnit.DAYS.toMillis(1);
+    private static final long PRUNE_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    private final SessionFactory sessionFactory;
+    private final Duration expiry;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param sessionFactory session factory
+     * @param expiry         entries not read for this long are pruned
+     * @param executor       runs the pruning
+     */
+    public SourceFileCache(SessionFactory sessionFactory, Duration expiry, ScheduledExecutorService executor) {
+        this.sessionFactory = sessionFactory;
+        this.expiry = expiry;
+        this.executor = executor;
+    }
+
+    @Override
+    public void start() {
+        executor.scheduleWithFixedDelay(this::prune, PRUNE_INTERVAL, PRUNE_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        // the executor is shut down by its own lifecycle
+    }
+
+    /**
+     * @param repository git url of the repository
+     * @param commitId   full commit SHA
+     * @param path       path of the file in the repository
+     * @return the cached entry, absent if the file has not been seen at this commit
+     */
+    public Optional<CachedFile> get(String repository, String commitId, String path) {
+        StatelessSession session = null;
+        try {
+            session = sessionFactory.openStatelessSession();
+            CachedFile file = (CachedFile)session.getNamedQuery("io.dockstore.webservice.core.CachedFile.findByKey")
+                    .setParameter("repository", repository).setParameter("commitId", commitId).setParameter("path", path)
+                    .uniqueResult();
+            if (file != null && file.getLastRead().getTime() < System.currentTimeMillis() - MARK_READ_INTERVAL) {
+                markRead(session, file);
+            }
+            return Optional.fromNullable(file);
+        } catch (RuntimeException e) {
+            // the file is read from source control instead
+            LOG.warn("Could not read cached file " + path + " at " + commitId, e);
+            return Optional.absent();
+        } finally {
+            close(session);
+        }
+    }
+
+    private static void markRead(StatelessSession session, CachedFile file) {
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            session.getNamedQuery("io.dockstore.webservice.core.CachedFile.markRead").setParameter("now", new Date())
+                    .setParameter("id", file.getId()).executeUpdate();
+            transaction.commit();
+        } catch (RuntimeException e) {
+            // the entry may be pruned a little early, it is fetched again if so
+            LOG.warn("Could not record read of cached file " + file.getPath() + " at " + file.getCommitId(), e);
+            rollback(transaction);
+        }
+    }
+
+    /**
+     * @param repository git url of the repository
+     * @param commitId   full commit SHA
+     * @param path       path of the file in the repository
+     * @param content    content of the file, null when the file does not exist at this commit
+     */
+    public void put(String repository, String commitId, String path, String content) {
+        StatelessSession session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionFactory.openStatelessSession();
+            transaction = session.beginTransaction();
+            session.insert(new CachedFile(repository, commitId, path, content));
+            transaction.commit();
+        } catch (ConstraintViolationException e) {
+            // another refresh cached the same file first
+            rollback(transaction);
+        } catch (RuntimeException e) {
+            // the refresh goes on, the file is read from source control again next time
+            LOG.warn("Could not cache file " + path + " at " + commitId, e);
+            rollback(transaction);
+        } finally {
+            close(session);
+        }
+    }
+
+    /**
+     * Delete the entries that have not been read within the expiry
+     *
+     * @return the number of entries deleted
+     */
+    public int prune() {
+        StatelessSession session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionFactory.openStatelessSession();
+            transaction = session.beginTransaction();
+            final int deleted = session.getNamedQuery("io.dockstore.webservice.core.CachedFile.deleteUnreadSince")
+                    .setParameter("since", new Date(System.currentTimeMillis() - expiry.toMilliseconds())).executeUpdate();
+            transaction.commit();
+            LOG.info("Pruned {} cached files not read in {}", deleted, expiry);
+            return deleted;
+        } catch (RuntimeException e) {
+            // an exception here would cancel all future runs
+            LOG.error("Could not prune cached files", e);
+            rollback(transaction);
+            return 0;
+        } finally {
+            close(session);
+        }
+    }
+
+    /**
+     * Roll back after a failure, a failure to roll back is only logged so that it does not hide the first one
+     */
+    private static void rollback(Transaction transaction) {
+        if (transaction == null) {
+            return;
+        }
+        try {
+            transaction.rollback();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not roll back", e);
+        }
+    }
+
+    private static void close(StatelessSession session) {
+        if (session == null) {
+            return;
+        }
+        try {
+            session.close();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not close session", e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.core.Workflow;
+import io.dockstore.webservice.jdbi.ToolDAO;
+import io.dockstore.webservice.jdbi.WorkflowDAO;
+import io.dockstore.webservice.resources.DockerRepoResource;
+import io.dockstore.webservice.resources.WorkflowResource;
+import io.dropwizard.hibernate.UnitOfWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The database side of the {@link RefreshScheduler}. Every method runs in its own transaction, create instances through
+ * {@link io.dropwizard.hibernate.UnitOfWorkAwareProxyFactory} so that the {@link UnitOfWork} annotations take effect.
+ */
+public class StaleEntryWorker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StaleEntryWorker.class);
+
+    private final ToolDAO toolDAO;
+    private final WorkflowDAO workflowDAO;
+    private final DockerRepoResource dockerRepoResource;
+    private final WorkflowResource workflowResource;
+
+    public StaleEntryWorker(ToolDAO toolDAO, WorkflowDAO workflowDAO, DockerRepoResource dockerRepoResource,
+            WorkflowResource workflowResource) {
+        this.toolDAO = toolDAO;
+        this.workflowDAO = workflowDAO;
+        this.dockerRepoResource = dockerRepoResource;
+        this.workflowResource = workflowResource;
+    }
+
+    /**
+     * @param before entries last updated before this are stale
+     * @param limit  maximum number of tools and of workflows to return
+     * @return the stalest tools and workflows, in no particular order
+     */
+    @UnitOfWork
+    public List<StaleEntry> findStale(Date before, int limit) {
+        List<StaleEntry> stale = new ArrayList<>();
+        toolDAO.findStale(before, limit).forEach(tool -> stale.add(new StaleEntry(tool, true)));
+        workflowDAO.findStale(before, limit).forEach(workflow -> stale.add(new StaleEntry(workflow, false)));
+        return stale;
+    }
+
+    /**
+     * Refresh one entry with the tokens of its oldest user, unless it was updated since it was found.
+     *
+     * @param entry
+     * @param before the entry is left alone if it was updated after this
+     * @return true if the entry was refreshed
+     */
+    @UnitOfWork
+    public boolean refresh(StaleEntry entry, Date before) {
+        final Entry<?, ?> current = entry.isTool() ? toolDAO.findById(entry.getId()) : workflowDAO.findById(entry.getId());
+        if (current == null || (current.getLastUpdated() != null && !current.getLastUpdated().before(before))) {
+            return false;
+        }
+        final Optional<User> user = WebhookWorker.getUser(current);
+        if (!user.isPresent()) {
+            LOG.info("Entry {} has no users to refresh it with", entry.getId());
+            return false;
+        }
+        if (entry.isTool()) {
+            dockerRepoResource.refreshTool(entry.getId(), user.get().getId());
+        } else {
+            workflowResource.refreshWorkflow((Workflow)current, user.get());
+        }
+        return true;
+    }
+
+    /**
+     * Just enough of a tool or workflow to order it by staleness outside of a session.
+     */
+    public static final class StaleEntry {
+        private final long id;
+        private final boolean tool;
+        private final boolean published;
+        private final Date lastUpdated;
+
+        StaleEntry(Entry<?, ?> entry, boolean tool) {
+            this.id = entry.getId();
+            this.tool = tool;
+            this.published = entry.getIsPublished();
+            this.lastUpdated = entry.getLastUpdated() == null ? null : new Date(entry.getLastUpdated().getTime());
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public boolean isTool() {
+            return tool;
+        }
+
+        public boolean isPublished() {
+            return published;
+        }
+
+        /**
+         * @return when the entry was last updated, null if never
+         */
+        public Date getLastUpdated() {
+            return lastUpdated;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import java.util.Objects;
+
+/**
+ * Something that changed outside of dockstore and that we were notified about. Events are compared by value so that
+ * repeated notifications for the same branch, tag or image can be handled once.
+ */
+public final class WebhookEvent {
+
+    /**
+     * Where the change happened
+     */
+    public enum Type {
+        /**
+         * A branch or tag of a git repository was pushed to
+         */
+        SOURCE_PUSH,
+        /**
+         * A new image was pushed to a docker registry, the notification does not say which git reference it came from
+         */
+        IMAGE_PUSH
+    }
+
+    private final Type type;
+    private final String source;
+    private final String repository;
+    private final String reference;
+
+    private WebhookEvent(Type type, String source, String repository, String reference) {
+        this.type = type;
+        this.source = source;
+        this.repository = repository;
+        this.reference = reference;
+    }
+
+    /**
+     * @param source     host of the git repository, github.com or bitbucket.org
+     * @param repository owner/name
+     * @param reference  name of the branch or tag
+     * @return an event for a push to a git repository
+     */
+    public static WebhookEvent sourcePush(String source, String repository, String reference) {
+        return new WebhookEvent(Type.SOURCE_PUSH, source, repository, reference);
+    }
+
+    /**
+     * @param registry   host of the registry, quay.io
+     * @param repository namespace/name
+     * @return an event for a push to an image repository
+     */
+    public static WebhookEvent imagePush(String registry, String repository) {
+        return new WebhookEvent(Type.IMAGE_PUSH, registry, repository, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    /**
+     * @return the git url that tools and Bitbucket workflows store for the repository
+     */
+    public String getSshGitUrl() {
+        return "git@" + source + ':' + repository + ".git";
+    }
+
+    /**
+     * @return the git url that GitHub workflows store for the repository
+     */
+    public String getGitProtocolUrl() {
+        return "git://" + source + '/' + repository + ".git";
+    }
+
+    /**
+     * @return the path that tools store for the image repository
+     */
+    public String getImagePath() {
+        return source + '/' + repository;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        WebhookEvent that = (WebhookEvent)o;
+        return type == that.type && Objects.equals(source, that.source) && Objects.equals(repository, that.repository) && Objects
+                .equals(reference, that.reference);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, source, repository, reference);
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.SOURCE_PUSH ? getSource() + '/' + repository + '@' + reference : getImagePath();
+    }
+}
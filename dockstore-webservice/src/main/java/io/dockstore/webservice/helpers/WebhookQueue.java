@@ -0,0 +1,129 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds push notifications until their repository has been quiet for a while, then refreshes what they changed in the
+ * background. A burst of pushes to the same branch, tag or image results in a single refresh.
+ */
+public class WebhookQueue implements Managed {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WebhookQueue.class);
+
+    private final WebhookWorker worker;
+    private final ScheduledExecutorService executor;
+    private final long debounceMillis;
+
+    // event -> when it was last received
+    private final ConcurrentMap<WebhookEvent, Long> pending = new ConcurrentHashMap<>();
+
+    /**
+     * @param worker   a worker created through UnitOfWorkAwareProxyFactory
+     * @param executor runs the refreshes, use a single thread so that refreshes of the same entry do not overlap
+     * @param debounce how long to wait for more notifications about the same thing
+     */
+    public WebhookQueue(WebhookWorker worker, ScheduledExecutorService executor, Duration debounce) {
+        this.worker = worker;
+        this.executor = executor;
+        this.debounceMillis = debounce.toMilliseconds();
+    }
+
+    @Override
+    public void start() {
+        // nothing to do, events are scheduled as they arrive
+    }
+
+    @Override
+    public void stop() {
+        // pending events are dropped, the next refresh or push picks up the changes
+        if (!pending.isEmpty()) {
+            LOG.info("Dropping {} pending push notifications", pending.size());
+        }
+    }
+
+    /**
+     * Queue an event, if the same event is already waiting the wait starts over.
+     *
+     * @param event
+     */
+    public void submit(WebhookEvent event) {
+        if (pending.put(event, System.currentTimeMillis()) == null) {
+            schedule(event, debounceMillis);
+        } else {
+            LOG.debug("Coalesced notification for {}", event);
+        }
+    }
+
+    /**
+     * @return number of events waiting to be handled
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private void schedule(WebhookEvent event, long delayMillis) {
+        executor.schedule(() -> RateLimiter.runInBackground(() -> fire(event)), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void fire(WebhookEvent event) {
+        final Long received = pending.get(event);
+        final long quiet = System.currentTimeMillis() - received;
+        // another notification came in while waiting, or after we looked, wait some more
+        if (quiet < debounceMillis) {
+            schedule(event, debounceMillis - quiet);
+            return;
+        }
+        if (!pending.remove(event, received)) {
+            schedule(event, debounceMillis);
+            return;
+        }
+        refresh(event);
+    }
+
+    private void refresh(WebhookEvent event) {
+        LOG.info("Refreshing for push to {}", event);
+        if (event.getType() == WebhookEvent.Type.SOURCE_PUSH && "bitbucket.org".equals(event.getSource())) {
+            // the push moved a branch or tag, do not read the old listing
+            BitBucketSourceCodeRepo.invalidate(event.getRepository());
+        }
+        try {
+            final List<Long> entryIds = worker.findEntries(event);
+            for (Long entryId : entryIds) {
+                try {
+                    worker.refresh(event, entryId);
+                } catch (RuntimeException e) {
+                    LOG.error("Could not refresh entry " + entryId + " for push to " + event, e);
+                }
+            }
+        } catch (RuntimeException e) {
+            // an exception here would be swallowed by the executor
+            LOG.error("Could not handle push to " + event, e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.core.Tag;
+import io.dockstore.webservice.core.Tool;
+import io.dockstore.webservice.core.ToolMode;
+import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.core.Workflow;
+import io.dockstore.webservice.jdbi.ToolDAO;
+import io.dockstore.webservice.jdbi.WorkflowDAO;
+import io.dockstore.webservice.resources.DockerRepoResource;
+import io.dockstore.webservice.resources.WorkflowResource;
+import io.dropwizard.hibernate.UnitOfWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The database side of a push notification. Each entry affected by a notification is refreshed in its own transaction,
+ * create instances through {@link io.dropwizard.hibernate.UnitOfWorkAwareProxyFactory} so that the {@link UnitOfWork}
+ * annotations take effect.
+ */
+public class WebhookWorker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WebhookWorker.class);
+
+    private final ToolDAO toolDAO;
+    private final WorkflowDAO workflowDAO;
+    private final DockerRepoResource dockerRepoResource;
+    private final WorkflowResource workflowResource;
+
+    public WebhookWorker(ToolDAO toolDAO, WorkflowDAO workflowDAO, DockerRepoResource dockerRepoResource,
+            WorkflowResource workflowResource) {
+        this.toolDAO = toolDAO;
+        this.workflowDAO = workflowDAO;
+        this.dockerRepoResource = dockerRepoResource;
+        this.workflowResource = workflowResource;
+    }
+
+    /**
+     * @param event
+     * @return ids of the tools and workflows built from the repository the event is about
+     */
+    @UnitOfWork
+    public List<Long> findEntries(WebhookEvent event) {
+        final Set<Entry> entries = new LinkedHashSet<>();
+        if (event.getType() == WebhookEvent.Type.IMAGE_PUSH) {
+            entries.addAll(toolDAO.findByPath(event.getImagePath()));
+        } else {
+            entries.addAll(toolDAO.findByGitUrl(event.getSshGitUrl()));
+            entries.addAll(workflowDAO.findByGitUrl(event.getSshGitUrl()));
+            entries.addAll(workflowDAO.findByGitUrl(event.getGitProtocolUrl()));
+        }
+        List<Long> ids = new ArrayList<>();
+        entries.forEach(entry -> ids.add(entry.getId()));
+        return ids;
+    }
+
+    /**
+     * Refresh what the event changed for one tool or workflow, using the tokens of one of its users.
+     *
+     * @param event
+     * @param entryId a tool or workflow id from {@link #findEntries(WebhookEvent)}, tools and workflows share ids
+     */
+    @UnitOfWork
+    public void refresh(WebhookEvent event, long entryId) {
+        final Tool tool = toolDAO.findById(entryId);
+        if (tool != null) {
+            final Optional<User> user = getUser(tool);
+            if (!user.isPresent()) {
+                LOG.info("Tool {} has no users to refresh it with", tool.getToolPath());
+            } else if (event.getType() == WebhookEvent.Type.IMAGE_PUSH) {
+                // manually added tools do not follow the registry
+                if (tool.getMode() != ToolMode.MANUAL_IMAGE_PATH) {
+                    dockerRepoResource.refreshTool(entryId, user.get().getId());
+                }
+            } else {
+                final List<Tag> tags = dockerRepoResource.refreshToolFiles(tool, event.getReference(), user.get().getId());
+                LOG.info("Refreshed files of {} tags of tool {} for {}", tags.size(), tool.getToolPath(), event);
+            }
+            return;
+        }
+
+        final Workflow workflow = workflowDAO.findById(entryId);
+        if (workflow != null && event.getType() == WebhookEvent.Type.SOURCE_PUSH) {
+            final Optional<User> user = getUser(workflow);
+            if (user.isPresent()) {
+                workflowResource.refreshReference(workflow, event.getReference(), user.get());
+                LOG.info("Refreshed workflow {} for {}", workflow.getPath(), event);
+            } else {
+                LOG.info("Workflow {} has no users to refresh it with", workflow.getPath());
+            }
+        }
+    }
+
+    static Optional<User> getUser(Entry<?, ?> entry) {
+        // the oldest user, so that the same tokens are used every time
+        final Set<User> users = entry.getUsers();
+        return users.stream().min(Comparator.comparingLong(User::getId));
+    }
+}
@@ -17,11 +17,21 @@
 package io.dockstore.webservice.jdbi;
 
 import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
 
+import com.google.common.base.Joiner;
+import com.google.common.collect.Iterables;
+
+import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 
+import io.dockstore.webservice.api.EntrySummary;
 import io.dockstore.webservice.core.Entry;
 import io.dropwizard.hibernate.AbstractDAO;
 
@@ -30,6 +40,9 @@ import io.dropwizard.hibernate.AbstractDAO;
  * @author dyuen
  */
 public class EntryDAO<T extends Entry> extends AbstractDAO<T> {
+    // keep well below the bind parameter limit of the database
+    private static final int MAX_IDS_PER_QUERY = 1000;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
 
     private Class<T> typeOfT;
 
@@ -73,9 +86,106 @@ public class EntryDAO<T extends Entry> extends AbstractDAO<T> {
         return list(namedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".findAllPublished"));
     }
 
+    /**
+     * @param after exclusive lower bound of the ids
+     * @param limit maximum number of entries to return
+     * @return a page of entries in ascending order of id
+     */
+    public List<T> findAllAfter(long after, int limit) {
+        return list(namedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".findAllAfter").setParameter("after", after)
+                .setMaxResults(limit));
+    }
+
+    /**
+     * @param after exclusive lower bound of the ids
+     * @param limit maximum number of entries to return
+     * @return a page of published entries in ascending order of id
+     */
+    public List<T> findPublishedAfter(long after, int limit) {
+        return list(namedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".findPublishedAfter").setParameter("after", after)
+                .setMaxResults(limit));
+    }
+
     public List<T> searchPattern(String pattern) {
         pattern = '%' + pattern + '%';
         return list(namedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".searchPattern").setParameter("pattern",
                 pattern));
     }
+
+    /**
+     * Run a query for summaries and fill in the names of each entry's versions, hidden versions are left out. Neither the
+     * entries nor their versions are loaded.
+     *
+     * @param query a query with a constructor expression for the summary
+     * @return the summaries in the order of the query
+     */
+    protected <S extends EntrySummary> List<S> summaries(Query query) {
+        @SuppressWarnings("unchecked")
+        final List<S> summaries = query.list();
+        final Map<Long, S> byId = new HashMap<>();
+        for (S summary : summaries) {
+            byId.put(summary.getId(), summary);
+        }
+        for (List<Long> batch : Iterables.partition(byId.keySet(), MAX_IDS_PER_QUERY)) {
+            @SuppressWarnings("unchecked")
+            final List<Object[]> rows = namedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".findVersionNames")
+                    .setParameterList("ids", batch).list();
+            for (Object[] row : rows) {
+                byId.get(row[0]).getVersionNames().add((String)row[1]);
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Full-text search over published entries, best matches first. Needs the full-text-search changeset from migrations.xml.
+     *
+     * @param pattern each word of the pattern has to start a word of the path, name, labels, description or author, case is
+     *                ignored
+     * @param offset  number of matches to skip
+     * @param limit   maximum number of matches to return
+     * @return the summaries of the matches in order of rank
+     */
+    protected <S extends EntrySummary> List<S> rankedSummaries(String pattern, int offset, int limit) {
+        final List<S> results = new ArrayList<>();
+        final String query = toPrefixQuery(pattern);
+        if (query.isEmpty()) {
+            return results;
+        }
+        @SuppressWarnings("unchecked")
+        final List<Number> ranked = namedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".searchRanked")
+                .setParameter("query", query).setFirstResult(offset).setMaxResults(limit).list();
+        if (ranked.isEmpty()) {
+            return results;
+        }
+        final List<Long> ids = new ArrayList<>();
+        ranked.forEach(id -> ids.add(id.longValue()));
+        final Map<Long, S> byId = new HashMap<>();
+        for (S summary : this.<S>summaries(namedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".findSummariesByIds")
+                .setParameterList("ids", ids))) {
+            byId.put(summary.getId(), summary);
+        }
+        for (Long id : ids) {
+            if (byId.containsKey(id)) {
+                results.add(byId.get(id));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @param pattern words typed by a user
+     * @return a tsquery that matches entries with words starting with each of the words, empty if there are no words
+     */
+    private static String toPrefixQuery(String pattern) {
+        final List<String> terms = new ArrayList<>();
+        if (pattern != null) {
+            for (String word : NON_WORD.split(pattern)) {
+                if (!word.isEmpty()) {
+                    terms.add(word.toLowerCase(Locale.ROOT) + ":*");
+                }
+            }
+        }
+        return Joiner.on(" & ").join(terms);
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.jdbi;
+
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+
+import io.dockstore.webservice.core.RefreshJob;
+import io.dockstore.webservice.core.RefreshJob.JobStatus;
+import io.dropwizard.hibernate.AbstractDAO;
+
+public class RefreshJobDAO extends AbstractDAO<RefreshJob> {
+    public RefreshJobDAO(SessionFactory factory) {
+        super(factory);
+    }
+
+    public RefreshJob findById(Long id) {
+        return get(id);
+    }
+
+    public long create(RefreshJob job) {
+        return persist(job).getId();
+    }
+
+    public List<RefreshJob> findAll() {
+        return list(namedQuery("io.dockstore.webservice.core.RefreshJob.findAll"));
+    }
+
+    public List<RefreshJob> findByStatus(JobStatus status) {
+        return list(namedQuery("io.dockstore.webservice.core.RefreshJob.findByStatus").setParameter("status", status));
+    }
+
+    /**
+     * Take a queued job, only one node can take a given job.
+     *
+     * @param id    the job
+     * @param owner the node taking it
+     * @return whether the job was taken, false if it is no longer queued
+     */
+    public boolean claim(long id, String owner) {
+        return namedQuery("io.dockstore.webservice.core.RefreshJob.claim").setParameter("running", JobStatus.RUNNING)
+                .setParameter("owner", owner).setParameter("now", new Date()).setParameter("id", id)
+                .setParameter("queued", JobStatus.QUEUED).executeUpdate() == 1;
+    }
+
+    /**
+     * Record that a running job is still making progress.
+     *
+     * @param id    the job
+     * @param owner the node running it
+     * @return whether the node still owns the job, false if it was queued again because the node looked dead
+     */
+    public boolean heartbeat(long id, String owner) {
+        return namedQuery("io.dockstore.webservice.core.RefreshJob.heartbeat").setParameter("now", new Date()).setParameter("id", id)
+                .setParameter("running", JobStatus.RUNNING).setParameter("owner", owner).executeUpdate() == 1;
+    }
+
+    /**
+     * Queue running jobs again when their node has not reported progress since staleBefore.
+     *
+     * @param staleBefore
+     * @return how many jobs were queued again
+     */
+    public int requeueStale(Date staleBefore) {
+        return namedQuery("io.dockstore.webservice.core.RefreshJob.requeueStale").setParameter("queued", JobStatus.QUEUED)
+                .setParameter("running", JobStatus.RUNNING).setParameter("staleBefore", staleBefore).executeUpdate();
+    }
+}
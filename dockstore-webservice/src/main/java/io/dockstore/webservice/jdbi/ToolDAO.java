@@ -16,10 +16,17 @@
 
 package io.dockstore.webservice.jdbi;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
+import com.google.common.collect.Iterables;
+
 import org.hibernate.SessionFactory;
 
+import io.dockstore.webservice.api.ToolSummary;
+import io.dockstore.webservice.core.Registry;
 import io.dockstore.webservice.core.ToolMode;
 import io.dockstore.webservice.core.Tool;
 
@@ -28,6 +35,9 @@ import io.dockstore.webservice.core.Tool;
  * @author xliu
  */
 public class ToolDAO extends EntryDAO<Tool> {
+    // keep well below the bind parameter limit of the database
+    private static final int MAX_PATHS_PER_QUERY = 1000;
+
     public ToolDAO(SessionFactory factory) {
         super(factory);
     }
@@ -36,11 +46,39 @@ public class ToolDAO extends EntryDAO<Tool> {
         return list(namedQuery("io.dockstore.webservice.core.Tool.findByPath").setParameter("path", path));
     }
 
+    public List<Tool> findByGitUrl(String gitUrl) {
+        return list(namedQuery("io.dockstore.webservice.core.Tool.findByGitUrl").setParameter("gitUrl", gitUrl));
+    }
+
+    /**
+     * @param before tools last updated before this are stale
+     * @param limit  maximum number of tools to return
+     * @return stale tools that a refresh can update, published ones first and then the least recently updated
+     */
+    public List<Tool> findStale(Date before, int limit) {
+        return list(namedQuery("io.dockstore.webservice.core.Tool.findStale").setParameter("before", before)
+                .setParameter("manualMode", ToolMode.MANUAL_IMAGE_PATH).setParameter("dockerHub", Registry.DOCKER_HUB).setMaxResults(limit));
+    }
+
     public Tool findByToolPath(String path, String tool) {
         return uniqueResult(namedQuery("io.dockstore.webservice.core.Tool.findByToolPath").setParameter("path", path).setParameter(
                 "toolname", tool));
     }
 
+    /**
+     * Find all tools with any of the given paths
+     *
+     * @param paths
+     * @return the matching tools
+     */
+    public List<Tool> findByPaths(Collection<String> paths) {
+        List<Tool> tools = new ArrayList<>();
+        for (List<String> batch : Iterables.partition(paths, MAX_PATHS_PER_QUERY)) {
+            tools.addAll(list(namedQuery("io.dockstore.webservice.core.Tool.findByPaths").setParameterList("paths", batch)));
+        }
+        return tools;
+    }
+
     public List<Tool> findByMode(final ToolMode mode) {
         return list(namedQuery("io.dockstore.webservice.core.Tool.findByMode").setParameter("mode", mode));
     }
@@ -53,4 +91,22 @@ public class ToolDAO extends EntryDAO<Tool> {
         return uniqueResult(namedQuery("io.dockstore.webservice.core.Tool.findPublishedByToolPath").setParameter("path", path)
                 .setParameter("toolname", tool));
     }
+
+    public List<ToolSummary> findAllPublishedSummaries(long after, int limit) {
+        return summaries(namedQuery("io.dockstore.webservice.core.Tool.findAllPublishedSummaries").setParameter("after", after)
+                .setMaxResults(limit));
+    }
+
+    public List<ToolSummary> findPublishedSummariesByUserId(long userId) {
+        return summaries(namedQuery("io.dockstore.webservice.core.Tool.findPublishedSummariesByUserId").setParameter("userId", userId));
+    }
+
+    public List<ToolSummary> searchPatternSummaries(String pattern, long after, int limit) {
+        return summaries(namedQuery("io.dockstore.webservice.core.Tool.searchPatternSummaries").setParameter("pattern", '%' + pattern + '%')
+                .setParameter("after", after).setMaxResults(limit));
+    }
+
+    public List<ToolSummary> searchRankedSummaries(String pattern, int offset, int limit) {
+        return rankedSummaries(pattern, offset, limit);
+    }
 }
@@ -49,6 +49,23 @@ public class UserDAO extends AbstractDAO<User> {
         return list(namedQuery("io.dockstore.webservice.core.User.findAll"));
     }
 
+    /**
+     * @param after exclusive lower bound of the ids
+     * @param limit maximum number of users to return
+     * @return a page of users in ascending order of id
+     */
+    public List<User> findAllAfter(long after, int limit) {
+        return list(namedQuery("io.dockstore.webservice.core.User.findAllAfter").setParameter("after", after).setMaxResults(limit));
+    }
+
+    /**
+     * @param id exclusive lower bound
+     * @return ids of users after the given id, in ascending order
+     */
+    public List<Long> findIdsAfter(long id) {
+        return namedQuery("io.dockstore.webservice.core.User.findIdsAfter").setParameter("id", id).list();
+    }
+
     public User findByUsername(String username) {
         Query query = namedQuery("io.dockstore.webservice.core.User.findByUsername").setParameter("username", username);
         return (User) query.uniqueResult();
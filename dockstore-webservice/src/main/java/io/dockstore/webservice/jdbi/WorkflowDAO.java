@@ -16,10 +16,12 @@
 
 package io.dockstore.webservice.jdbi;
 
+import java.util.Date;
 import java.util.List;
 
 import org.hibernate.SessionFactory;
 
+import io.dockstore.webservice.api.WorkflowSummary;
 import io.dockstore.webservice.core.Workflow;
 
 /**
@@ -43,4 +45,31 @@ public class WorkflowDAO extends EntryDAO<Workflow> {
     public List<Workflow> findByGitUrl(String giturl) {
         return list(namedQuery("io.dockstore.webservice.core.Workflow.findByGitUrl").setParameter("gitUrl", giturl));
     }
+
+    /**
+     * @param before workflows last updated before this are stale
+     * @param limit  maximum number of workflows to return
+     * @return stale workflows, published ones first and then the least recently updated
+     */
+    public List<Workflow> findStale(Date before, int limit) {
+        return list(namedQuery("io.dockstore.webservice.core.Workflow.findStale").setParameter("before", before).setMaxResults(limit));
+    }
+
+    public List<WorkflowSummary> findAllPublishedSummaries(long after, int limit) {
+        return summaries(namedQuery("io.dockstore.webservice.core.Workflow.findAllPublishedSummaries").setParameter("after", after)
+                .setMaxResults(limit));
+    }
+
+    public List<WorkflowSummary> findPublishedSummariesByUserId(long userId) {
+        return summaries(namedQuery("io.dockstore.webservice.core.Workflow.findPublishedSummariesByUserId").setParameter("userId", userId));
+    }
+
+    public List<WorkflowSummary> searchPatternSummaries(String pattern, long after, int limit) {
+        return summaries(namedQuery("io.dockstore.webservice.core.Workflow.searchPatternSummaries").setParameter("pattern", '%' + pattern + '%')
+                .setParameter("after", after).setMaxResults(limit));
+    }
+
+    public List<WorkflowSummary> searchRankedSummaries(String pattern, int offset, int limit) {
+        return rankedSummaries(pattern, offset, limit);
+    }
 }
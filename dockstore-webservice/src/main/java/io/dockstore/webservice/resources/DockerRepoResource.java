@@ -23,7 +23,10 @@ import com.google.common.base.Optional;
 import com.google.gson.Gson;
 import io.dockstore.webservice.CustomWebApplicationException;
 import io.dockstore.webservice.api.PublishRequest;
+import io.dockstore.webservice.api.ToolSummary;
 import io.dockstore.webservice.core.Label;
+import io.dockstore.webservice.core.RefreshJob;
+import io.dockstore.webservice.core.RefreshJob.JobType;
 import io.dockstore.webservice.core.Registry;
 import io.dockstore.webservice.core.SourceFile;
 import io.dockstore.webservice.core.SourceFile.FileType;
@@ -36,8 +39,11 @@ import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.helpers.EntryLabelHelper;
 import io.dockstore.webservice.helpers.EntryVersionHelper;
 import io.dockstore.webservice.helpers.Helper;
+import io.dockstore.webservice.helpers.Pagination;
+import io.dockstore.webservice.helpers.RefreshEngine;
 import io.dockstore.webservice.jdbi.FileDAO;
 import io.dockstore.webservice.jdbi.LabelDAO;
+import io.dockstore.webservice.jdbi.RefreshJobDAO;
 import io.dockstore.webservice.jdbi.TagDAO;
 import io.dockstore.webservice.jdbi.TokenDAO;
 import io.dockstore.webservice.jdbi.ToolDAO;
@@ -63,8 +69,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -87,10 +95,13 @@ public class DockerRepoResource {
     private final TagDAO tagDAO;
     private final LabelDAO labelDAO;
     private final FileDAO fileDAO;
+    private final RefreshJobDAO refreshJobDAO;
     private final HttpClient client;
+    private final RefreshEngine refreshEngine;
 
     private final String bitbucketClientID;
     private final String bitbucketClientSecret;
+    private final boolean fullTextSearch;
 
     private final EntryVersionHelper<Tool> entryVersionHelper;
 
@@ -103,17 +114,21 @@ public class DockerRepoResource {
 
     @SuppressWarnings("checkstyle:parameternumber")
     public DockerRepoResource(ObjectMapper mapper, HttpClient client, UserDAO userDAO, TokenDAO tokenDAO, ToolDAO toolDAO,
-            TagDAO tagDAO, LabelDAO labelDAO, FileDAO fileDAO, String bitbucketClientID, String bitbucketClientSecret) {
+            TagDAO tagDAO, LabelDAO labelDAO, FileDAO fileDAO, RefreshJobDAO refreshJobDAO, RefreshEngine refreshEngine,
+            String bitbucketClientID, String bitbucketClientSecret, boolean fullTextSearch) {
         objectMapper = mapper;
         this.userDAO = userDAO;
         this.tokenDAO = tokenDAO;
         this.tagDAO = tagDAO;
         this.labelDAO = labelDAO;
         this.fileDAO = fileDAO;
+        this.refreshJobDAO = refreshJobDAO;
         this.client = client;
+        this.refreshEngine = refreshEngine;
 
         this.bitbucketClientID = bitbucketClientID;
         this.bitbucketClientSecret = bitbucketClientSecret;
+        this.fullTextSearch = fullTextSearch;
 
         this.toolDAO = toolDAO;
         entryVersionHelper = new EntryVersionHelper<>(toolDAO);
@@ -124,29 +139,48 @@ public class DockerRepoResource {
     @Timed
     @UnitOfWork
     @RolesAllowed("admin")
-    @ApiOperation(value = "Refresh all repos", notes = "Updates some metadata. ADMIN ONLY", response = Tool.class, responseContainer = "List")
-    public List<Tool> refreshAll(@ApiParam(hidden = true) @Auth User authUser) {
+    @ApiOperation(value = "Refresh all repos", notes = "Queues a refresh of every user's tools, progress can be followed at /refreshJobs/{jobId}. ADMIN ONLY", response = RefreshJob.class)
+    public RefreshJob refreshAll(@ApiParam(hidden = true) @Auth User authUser) {
+        RefreshJob job = new RefreshJob(JobType.TOOLS, authUser.getId());
+        refreshJobDAO.create(job);
+        return job;
+    }
 
-        List<Tool> tools;
-        List<User> users = userDAO.findAll();
-        for (User user : users) {
-            refreshToolsForUser(user.getId());
-        }
+    public List<Tool> refreshToolsForUser(Long userId) {
+        refreshBitbucketToken(userId);
+        return Helper.refresh(userId, client, objectMapper, userDAO, toolDAO, tokenDAO, tagDAO, fileDAO, refreshEngine);
+    }
 
-        tools = toolDAO.findAll();
+    /**
+     * Refresh one tool with the tokens of one of its users, for refreshes that do not come from that user
+     * @param toolId
+     * @param userId
+     * @return the refreshed tool
+     */
+    public Tool refreshTool(long toolId, long userId) {
+        refreshBitbucketToken(userId);
+        return Helper.refreshContainer(toolId, userId, client, objectMapper, userDAO, toolDAO, tokenDAO, tagDAO, fileDAO, refreshEngine);
+    }
 
-        return tools;
+    /**
+     * Reload the files of the tags built from one branch or tag of a tool's git repository
+     * @param tool
+     * @param reference the branch or tag that changed
+     * @param userId a user of the tool whose tokens are used
+     * @return the tags whose files were reloaded
+     */
+    public List<Tag> refreshToolFiles(Tool tool, String reference, long userId) {
+        refreshBitbucketToken(userId);
+        return Helper.refreshToolFiles(tool, reference, userId, client, tokenDAO, fileDAO);
     }
 
-    List<Tool> refreshToolsForUser(Long userId) {
+    private void refreshBitbucketToken(long userId) {
         List<Token> tokens = tokenDAO.findBitbucketByUserId(userId);
 
         if (!tokens.isEmpty()) {
             Token bitbucketToken = tokens.get(0);
             Helper.refreshBitbucketToken(bitbucketToken, client, tokenDAO, bitbucketClientID, bitbucketClientSecret);
         }
-
-        return Helper.refresh(userId, client, objectMapper, userDAO, toolDAO, tokenDAO, tagDAO, fileDAO);
     }
 
     @GET
@@ -161,15 +195,7 @@ public class DockerRepoResource {
 
         Helper.checkUser(user, c);
 
-        List<Token> tokens = tokenDAO.findBitbucketByUserId(user.getId());
-
-        if (!tokens.isEmpty()) {
-            Token bitbucketToken = tokens.get(0);
-            Helper.refreshBitbucketToken(bitbucketToken, client, tokenDAO, bitbucketClientID, bitbucketClientSecret);
-        }
-
-        return Helper.refreshContainer(containerId, user.getId(), client, objectMapper, userDAO, toolDAO,
-                tokenDAO, tagDAO, fileDAO);
+        return refreshTool(containerId, user.getId());
     }
 
     @GET
@@ -177,8 +203,12 @@ public class DockerRepoResource {
     @UnitOfWork
     @RolesAllowed("admin")
     @ApiOperation(value = "List all docker containers cached in database", notes = "List docker container repos currently known. Admin Only", response = Tool.class, responseContainer = "List")
-    public List<Tool> allContainers(@ApiParam(hidden = true) @Auth User user) {
-        return toolDAO.findAll();
+    public Response allContainers(@ApiParam(hidden = true) @Auth User user,
+            @ApiParam(value = "Id of the last item on the previous page, the next page is linked from the Link header") @QueryParam(Pagination.AFTER) Long after,
+            @ApiParam(value = "Maximum number of items on a page, 100 by default and at most 1000") @QueryParam(Pagination.LIMIT) Integer limit,
+            @Context UriInfo uriInfo) {
+        final int pageSize = Pagination.checkLimit(limit);
+        return Pagination.page(toolDAO.findAllAfter(Pagination.checkAfter(after), pageSize), pageSize, Tool::getId, uriInfo);
     }
 
     @GET
@@ -398,11 +428,12 @@ public class DockerRepoResource {
     @Timed
     @UnitOfWork
     @Path("published")
-    @ApiOperation(value = "List all published containers.", tags = { "containers" }, notes = "NO authentication", response = Tool.class, responseContainer = "List")
-    public List<Tool> allPublishedContainers() {
-        List<Tool> tools = toolDAO.findAllPublished();
-        entryVersionHelper.filterContainersForHiddenTags(tools);
-        return tools;
+    @ApiOperation(value = "List all published containers.", tags = { "containers" }, notes = "NO authentication", response = ToolSummary.class, responseContainer = "List")
+    public Response allPublishedContainers(@ApiParam(value = "Id of the last item on the previous page, the next page is linked from the Link header") @QueryParam(Pagination.AFTER) Long after,
+            @ApiParam(value = "Maximum number of items on a page, 100 by default and at most 1000") @QueryParam(Pagination.LIMIT) Integer limit,
+            @Context UriInfo uriInfo) {
+        final int pageSize = Pagination.checkLimit(limit);
+        return Pagination.page(toolDAO.findAllPublishedSummaries(Pagination.checkAfter(after), pageSize), pageSize, ToolSummary::getId, uriInfo);
     }
 
 
@@ -550,10 +581,20 @@ public class DockerRepoResource {
     @UnitOfWork
     @Path("/search")
     @ApiOperation(value = "Search for matching registered containers."
-            , notes = "Search on the name (full path name) and description. NO authentication", response = Tool.class, responseContainer = "List", tags = {
+            , notes = "Search on the path, name, labels, description and author, best matches first. With search.fullText off, search on the path and description. NO authentication", response = ToolSummary.class, responseContainer = "List", tags = {
             "containers" })
-    public List<Tool> search(@QueryParam("pattern") String word) {
-        return toolDAO.searchPattern(word);
+    public Response search(@QueryParam("pattern") String word,
+            @ApiParam(value = "Id of the last item on the previous page, the next page is linked from the Link header. Rejected when search.fullText is on") @QueryParam(Pagination.AFTER) Long after,
+            @ApiParam(value = "Maximum number of items on a page, 100 by default and at most 1000") @QueryParam(Pagination.LIMIT) Integer limit,
+            @ApiParam(value = "Number of matches to skip, used instead of after when search.fullText is on") @QueryParam(Pagination.OFFSET) Integer offset,
+            @Context UriInfo uriInfo) {
+        final int pageSize = Pagination.checkLimit(limit);
+        if (fullTextSearch) {
+            Pagination.checkNoAfter(after);
+            final int skip = Pagination.checkOffset(offset);
+            return Pagination.pageByOffset(toolDAO.searchRankedSummaries(word, skip, pageSize), pageSize, skip, uriInfo);
+        }
+        return Pagination.page(toolDAO.searchPatternSummaries(word, Pagination.checkAfter(after), pageSize), pageSize, ToolSummary::getId, uriInfo);
     }
 
     @GET
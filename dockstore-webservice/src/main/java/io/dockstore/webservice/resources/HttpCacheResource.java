@@ -0,0 +1,80 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.resources;
+
+import com.codahale.metrics.annotation.Timed;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.api.HttpCacheStatus;
+import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.helpers.HttpResponseCache;
+import io.dropwizard.auth.Auth;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+
+/**
+ * Inspect and purge the on-disk cache of responses from source control and image registries.
+ */
+@Path("/httpCache")
+@Api("httpCache")
+@Produces(MediaType.APPLICATION_JSON)
+public class HttpCacheResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpCacheResource.class);
+
+    private final HttpResponseCache cache;
+
+    public HttpCacheResource(HttpResponseCache cache) {
+        this.cache = cache;
+    }
+
+    @GET
+    @Timed
+    @RolesAllowed("admin")
+    @ApiOperation(value = "Get the size and hit rate of the outbound response cache", notes = "ADMIN ONLY", response = HttpCacheStatus.class)
+    public HttpCacheStatus getHttpCache(@ApiParam(hidden = true) @Auth User user) {
+        return cache.getStatus();
+    }
+
+    @DELETE
+    @Timed
+    @RolesAllowed("admin")
+    @ApiOperation(value = "Evict responses from the outbound response cache", notes = "Evicts everything unless a URL prefix is given. ADMIN ONLY", response = HttpCacheStatus.class)
+    public HttpCacheStatus purgeHttpCache(@ApiParam(hidden = true) @Auth User user,
+            @ApiParam(value = "Only evict responses for URLs starting with this, e.g. https://api.github.com/repos/owner/name/") @QueryParam("prefix") String prefix) {
+        try {
+            cache.purge(prefix);
+        } catch (IOException e) {
+            LOG.error("Could not purge the web cache", e);
+            throw new CustomWebApplicationException("Could not purge the web cache.", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+        return cache.getStatus();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.resources;
+
+import com.codahale.metrics.annotation.Timed;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.core.RefreshJob;
+import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.jdbi.RefreshJobDAO;
+import io.dropwizard.auth.Auth;
+import io.dropwizard.hibernate.UnitOfWork;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import org.apache.http.HttpStatus;
+
+import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import java.util.List;
+
+/**
+ * Progress of the background refreshes started from /containers/refresh and /workflows/refresh.
+ */
+@Path("/refreshJobs")
+@Api("refreshJobs")
+@Produces(MediaType.APPLICATION_JSON)
+public class RefreshJobResource {
+
+    private final RefreshJobDAO refreshJobDAO;
+
+    public RefreshJobResource(RefreshJobDAO refreshJobDAO) {
+        this.refreshJobDAO = refreshJobDAO;
+    }
+
+    @GET
+    @Timed
+    @UnitOfWork
+    @RolesAllowed("admin")
+    @ApiOperation(value = "List refresh jobs", notes = "Newest first. ADMIN ONLY", response = RefreshJob.class, responseContainer = "List")
+    public List<RefreshJob> listRefreshJobs(@ApiParam(hidden = true) @Auth User user) {
+        return refreshJobDAO.findAll();
+    }
+
+    @GET
+    @Path("/{jobId}")
+    @Timed
+    @UnitOfWork
+    @RolesAllowed("admin")
+    @ApiOperation(value = "Get the status of a refresh job", notes = "ADMIN ONLY", response = RefreshJob.class)
+    public RefreshJob getRefreshJob(@ApiParam(hidden = true) @Auth User user,
+            @ApiParam(value = "Refresh job ID", required = true) @PathParam("jobId") Long jobId) {
+        RefreshJob job = refreshJobDAO.findById(jobId);
+        if (job == null) {
+            throw new CustomWebApplicationException("Refresh job not found.", HttpStatus.SC_NOT_FOUND);
+        }
+        return job;
+    }
+}
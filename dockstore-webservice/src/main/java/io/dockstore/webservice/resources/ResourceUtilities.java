@@ -17,6 +17,22 @@
 package io.dockstore.webservice.resources;
 
 import com.google.common.base.Optional;
+import io.dockstore.webservice.core.CachedResponse;
+import io.dockstore.webservice.helpers.CachedResponseStore;
+import io.dockstore.webservice.helpers.OutboundClient;
+import io.dockstore.webservice.helpers.RateLimiter;
+import io.dockstore.webservice.helpers.RequestCoalescer;
+import io.dockstore.webservice.helpers.RetryPolicy;
+import io.dockstore.webservice.helpers.RetryPolicy.CircuitOpenException;
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpMessage;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.ResponseHandler;
@@ -26,13 +42,17 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.BasicResponseHandler;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  *
@@ -41,9 +61,154 @@ import java.util.Base64;
 public class ResourceUtilities {
     private static final Logger LOG = LoggerFactory.getLogger(ResourceUtilities.class);
 
+    private static CachedResponseStore responseStore = null;
+    private static RateLimiter rateLimiter = null;
+    private static OutboundClient outboundClient = null;
+    private static RequestCoalescer coalescer = null;
+    private static RetryPolicy retryPolicy = null;
+
+    /**
+     * Attach the response store statically, GETs then send the validators of the previous response
+     * @param store the store, null to make plain requests
+     */
+    public static void setResponseStore(CachedResponseStore store) {
+        responseStore = store;
+    }
+
+    /**
+     * Attach the rate limiter statically, requests then wait for the budget of their token
+     * @param limiter the rate limiter, null to send requests straight away
+     */
+    public static void setRateLimiter(RateLimiter limiter) {
+        rateLimiter = limiter;
+    }
+
+    /**
+     * Attach the outbound client statically, GETs then go through it instead of the HttpClient passed in
+     * @param client the client, null to use the HttpClient passed in
+     */
+    public static void setOutboundClient(OutboundClient client) {
+        outboundClient = client;
+    }
+
+    /**
+     * Attach the request coalescer statically, identical GETs in flight at the same time then share one request
+     * @param requestCoalescer the coalescer, null to send every GET
+     */
+    public static void setCoalescer(RequestCoalescer requestCoalescer) {
+        coalescer = requestCoalescer;
+    }
+
+    /**
+     * Attach the retry policy statically, failed GETs sent through the HttpClient are then retried. GETs sent through the
+     * outbound client are retried by the client itself
+     * @param policy the retry policy, null to send every request once
+     */
+    public static void setRetryPolicy(RetryPolicy policy) {
+        retryPolicy = policy;
+    }
+
     // from dropwizard example
     public static Optional<String> asString(String input, String token, HttpClient client) {
-        return getResponseAsString(buildHttpGet(input, token), client);
+        if (outboundClient != null) {
+            try {
+                return asStringAsync(input, token, client).join();
+            } catch (CompletionException e) {
+                // a shared request that failed before it was sent, e.g. refused by the rate limiter
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause() : e;
+            }
+        }
+        if (coalescer == null) {
+            return getString(input, token, client);
+        }
+        return coalescer.execute(coalescer.getKey(input, token), () -> getString(input, token, client));
+    }
+
+    private static Optional<String> getString(String input, String token, HttpClient client) {
+        if (responseStore == null) {
+            return getResponseAsString(buildHttpGet(input, token), client);
+        }
+        return getConditionalResponseAsString(buildHttpGet(input, token), token, client);
+    }
+
+    /**
+     * Same as asString, but the request is sent without blocking so that several can be in flight and composed. Waiting for
+     * rate limit budget still happens on the calling thread.
+     *
+     * @param input  the url
+     * @param token  the token sent with the request, may be null
+     * @param client used instead when there is no outbound client, the request then completes before this returns
+     * @return completes with the body of the response, absent on failure
+     */
+    public static CompletableFuture<Optional<String>> asStringAsync(String input, String token, HttpClient client) {
+        if (outboundClient == null) {
+            return CompletableFuture.completedFuture(asString(input, token, client));
+        }
+        if (coalescer == null) {
+            return sendString(input, token);
+        }
+        return coalescer.executeAsync(coalescer.getKey(input, token), () -> sendString(input, token));
+    }
+
+    private static CompletableFuture<Optional<String>> sendString(String input, String token) {
+        final Request.Builder builder = buildRequest(input, token);
+        final String key = responseStore == null ? null : responseStore.getKey(input, token);
+        final Optional<CachedResponse> cached = key == null ? Optional.absent() : responseStore.get(key);
+        if (cached.isPresent()) {
+            if (cached.get().getEtag() != null) {
+                builder.header(HttpHeaders.IF_NONE_MATCH, cached.get().getEtag());
+            }
+            if (cached.get().getLastModified() != null) {
+                builder.header(HttpHeaders.IF_MODIFIED_SINCE, cached.get().getLastModified());
+            }
+        }
+        final Request request = builder.build();
+        acquire(request);
+        return outboundClient.send(request).handle((response, error) -> {
+            if (error instanceof CircuitOpenException) {
+                throw ((CircuitOpenException)error).toWebApplicationException();
+            }
+            if (error != null) {
+                LOG.error("getResponseAsString(): caught 'IOException' while processing request <{}> :=> <{}>", request, error.getMessage());
+                return Optional.absent();
+            }
+            try {
+                return readResponse(request, response, key, cached);
+            } catch (IOException ioe) {
+                LOG.error("getResponseAsString(): caught 'IOException' while processing request <{}> :=> <{}>", request, ioe.getMessage());
+                return Optional.absent();
+            }
+        });
+    }
+
+    private static Optional<String> readResponse(Request request, Response response, String key, Optional<CachedResponse> cached)
+            throws IOException {
+        try (ResponseBody body = response.body()) {
+            updateRateLimit(request, response);
+            if (response.code() == HttpStatus.SC_NOT_MODIFIED && cached.isPresent()) {
+                responseStore.markNotModified();
+                return Optional.of(cached.get().getBody());
+            }
+            if (!response.isSuccessful()) {
+                LOG.error("getResponseAsString(): caught 'HttpResponseException' while processing request <{}> :=> <{}>", request,
+                        response.message());
+                return Optional.absent();
+            }
+            final String content = body.string();
+            if (key != null) {
+                responseStore.put(key, request.url().toString(), response.header(HttpHeaders.ETAG), response.header(HttpHeaders.LAST_MODIFIED),
+                        null, content);
+            }
+            return Optional.of(content);
+        }
+    }
+
+    private static Request.Builder buildRequest(String input, String token) {
+        final Request.Builder builder = new Request.Builder().url(input);
+        if (token != null) {
+            builder.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        }
+        return builder;
     }
 
     public static Optional<String> bitbucketPost(String input, String token, HttpClient client, String client_id, String secret,
@@ -76,24 +241,198 @@ public class ResourceUtilities {
         return httpPost;
     }
 
-    // Todo: Implement a backoff algorithm for below HTTP calls
+    /**
+     * Send a request and read the body of the response. GETs that fail on the network or with a server error are retried.
+     *
+     * @param httpRequest the request
+     * @param client
+     * @return the body of the response, absent on failure
+     * @throws io.dockstore.webservice.CustomWebApplicationException while requests to the host fail straight away, so that the work is retried later
+     */
     public static Optional<String> getResponseAsString(HttpRequestBase httpRequest, HttpClient client) {
         Optional<String> result = Optional.absent();
-        final int waitTime = 60000;
         try {
-            ResponseHandler<String> responseHandler = new BasicResponseHandler();
-            RequestConfig requestConfig = RequestConfig.custom().setSocketTimeout(waitTime).setConnectTimeout(waitTime).setConnectionRequestTimeout(waitTime).build();
-            httpRequest.setConfig(requestConfig);
-            result = Optional.of(client.execute(httpRequest, responseHandler));
+            httpRequest.setConfig(buildRequestConfig());
+            acquire(httpRequest);
+            result = Optional.of(execute(httpRequest, client, response -> new BasicResponseHandler().handleResponse(response)));
+        } catch (CircuitOpenException e) {
+            throw e.toWebApplicationException();
         } catch (HttpResponseException httpResponseException) {
             LOG.error("getResponseAsString(): caught 'HttpResponseException' while processing request <{}> :=> <{}>", httpRequest,
                     httpResponseException.getMessage());
         } catch (IOException ioe) {
             LOG.error("getResponseAsString(): caught 'IOException' while processing request <{}> :=> <{}>", httpRequest, ioe.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Send a request through the HttpClient, retrying GETs when there is a retry policy.
+     */
+    private static <T> T execute(HttpRequestBase request, HttpClient client, ResponseHandler<T> handler) throws IOException {
+        if (retryPolicy == null || !HttpGet.METHOD_NAME.equals(request.getMethod())) {
+            return send(request, client, handler);
+        }
+        return retryPolicy.execute(request.getURI().getHost(), () -> send(request, client, handler),
+                e -> !(e instanceof HttpResponseException) || RetryPolicy.isServerError(((HttpResponseException)e).getStatusCode()));
+    }
+
+    private static <T> T send(HttpRequestBase request, HttpClient client, ResponseHandler<T> handler) throws IOException {
+        try {
+            HttpResponse response = client.execute(request);
+            updateRateLimit(request, response);
+            return handler.handleResponse(response);
         } finally {
-            httpRequest.releaseConnection();
+            request.releaseConnection();
+        }
+    }
+
+    /**
+     * Stream the body of a GET instead of reading it into a string, for large downloads such as archives.
+     *
+     * @param input  the url
+     * @param token  the token sent with the request, may be null
+     * @param client
+     * @param reader consumes the body, the stream is closed once it returns, the request is aborted if it throws
+     * @param <T>    what the reader makes of the body
+     * @return what the reader returned
+     * @throws IOException when the request failed or the response was not a success
+     */
+    public static <T> T readStream(String input, String token, HttpClient client, StreamReader<T> reader) throws IOException {
+        if (outboundClient != null) {
+            final Request request = buildRequest(input, token).build();
+            acquire(request);
+            final Call call = outboundClient.newCall(request);
+            final Response response = call.execute();
+            try (ResponseBody body = response.body()) {
+                updateRateLimit(request, response);
+                if (!response.isSuccessful()) {
+                    throw new HttpResponseException(response.code(), response.message());
+                }
+                try {
+                    return reader.read(body.byteStream());
+                } catch (IOException | RuntimeException e) {
+                    // drop the connection rather than read the rest of the body to reuse it
+                    call.cancel();
+                    throw e;
+                }
+            }
+        }
+        final HttpGet httpGet = buildHttpGet(input, token);
+        try {
+            httpGet.setConfig(buildRequestConfig());
+            acquire(httpGet);
+            HttpResponse response = client.execute(httpGet);
+            updateRateLimit(httpGet, response);
+            final int status = response.getStatusLine().getStatusCode();
+            if (status >= HttpStatus.SC_MULTIPLE_CHOICES || response.getEntity() == null) {
+                EntityUtils.consumeQuietly(response.getEntity());
+                throw new HttpResponseException(status, response.getStatusLine().getReasonPhrase());
+            }
+            final InputStream stream = response.getEntity().getContent();
+            final T result;
+            try {
+                result = reader.read(stream);
+            } catch (IOException | RuntimeException e) {
+                // closing the stream would read the rest of the body to reuse the connection, drop it instead
+                httpGet.abort();
+                throw e;
+            }
+            stream.close();
+            return result;
+        } finally {
+            httpGet.releaseConnection();
+        }
+    }
+
+    /**
+     * Consumes the body of a response.
+     *
+     * @param <T> what the body is turned into
+     */
+    @FunctionalInterface
+    public interface StreamReader<T> {
+        T read(InputStream stream) throws IOException;
+    }
+
+    /**
+     * Same as getResponseAsString, but revalidates against the stored response and reuses its body on a 304.
+     *
+     * @param httpGet the request
+     * @param token   the token sent with the request
+     * @param client
+     * @return the body of the response, absent on failure
+     */
+    private static Optional<String> getConditionalResponseAsString(HttpGet httpGet, String token, HttpClient client) {
+        Optional<String> result = Optional.absent();
+        final String url = httpGet.getURI().toString();
+        final String key = responseStore.getKey(url, token);
+        final Optional<CachedResponse> cached = responseStore.get(key);
+        if (cached.isPresent()) {
+            if (cached.get().getEtag() != null) {
+                httpGet.addHeader(HttpHeaders.IF_NONE_MATCH, cached.get().getEtag());
+            }
+            if (cached.get().getLastModified() != null) {
+                httpGet.addHeader(HttpHeaders.IF_MODIFIED_SINCE, cached.get().getLastModified());
+            }
+        }
+        try {
+            httpGet.setConfig(buildRequestConfig());
+            acquire(httpGet);
+            result = execute(httpGet, client, response -> {
+                if (response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED && cached.isPresent()) {
+                    responseStore.markNotModified();
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    return Optional.of(cached.get().getBody());
+                }
+                String body = new BasicResponseHandler().handleResponse(response);
+                responseStore.put(key, url, getHeader(response, HttpHeaders.ETAG), getHeader(response, HttpHeaders.LAST_MODIFIED), null,
+                        body);
+                return Optional.of(body);
+            });
+        } catch (CircuitOpenException e) {
+            throw e.toWebApplicationException();
+        } catch (HttpResponseException httpResponseException) {
+            LOG.error("getResponseAsString(): caught 'HttpResponseException' while processing request <{}> :=> <{}>", httpGet,
+                    httpResponseException.getMessage());
+        } catch (IOException ioe) {
+            LOG.error("getResponseAsString(): caught 'IOException' while processing request <{}> :=> <{}>", httpGet, ioe.getMessage());
         }
         return result;
     }
 
+    private static void acquire(HttpRequestBase request) {
+        if (rateLimiter != null) {
+            rateLimiter.acquire(request.getURI().getHost(), getHeader(request, HttpHeaders.AUTHORIZATION));
+        }
+    }
+
+    private static void updateRateLimit(HttpRequestBase request, HttpResponse response) {
+        if (rateLimiter != null) {
+            rateLimiter.update(request.getURI().getHost(), getHeader(request, HttpHeaders.AUTHORIZATION), name -> getHeader(response, name));
+        }
+    }
+
+    private static void acquire(Request request) {
+        if (rateLimiter != null) {
+            rateLimiter.acquire(request.url().host(), request.header(HttpHeaders.AUTHORIZATION));
+        }
+    }
+
+    private static void updateRateLimit(Request request, Response response) {
+        if (rateLimiter != null) {
+            rateLimiter.update(request.url().host(), request.header(HttpHeaders.AUTHORIZATION), response::header);
+        }
+    }
+
+    private static String getHeader(HttpMessage message, String name) {
+        final Header header = message.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
+    private static RequestConfig buildRequestConfig() {
+        final int waitTime = 60000;
+        return RequestConfig.custom().setSocketTimeout(waitTime).setConnectTimeout(waitTime).setConnectionRequestTimeout(waitTime).build();
+    }
+
 }
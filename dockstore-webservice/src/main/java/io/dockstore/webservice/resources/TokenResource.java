@@ -35,6 +35,7 @@ import javax.ws.rs.core.Response;
 
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
 import org.eclipse.egit.github.core.client.GitHubClient;
 import org.eclipse.egit.github.core.service.UserService;
 import org.slf4j.Logger;
@@ -217,8 +218,9 @@ public class TokenResource {
         String error;
         int count = MAX_ITERATIONS;
         while (true) {
-            Optional<String> asString = ResourceUtilities.asString(GIT_URL + "login/oauth/access_token?code=" + code + "&client_id="
-                    + githubClientID + "&client_secret=" + githubClientSecret, null, client);
+            // the response holds a token and the url our secret, keep both out of the response store
+            Optional<String> asString = ResourceUtilities.getResponseAsString(new HttpGet(GIT_URL + "login/oauth/access_token?code=" + code
+                    + "&client_id=" + githubClientID + "&client_secret=" + githubClientSecret), client);
 
             if (asString.isPresent()) {
                 Map<String, String> split = Splitter.on('&').trimResults().withKeyValueSeparator("=").split(asString.get());
@@ -20,12 +20,12 @@ import com.codahale.metrics.annotation.Timed;
 import com.google.common.base.Charsets;
 import com.google.common.base.Optional;
 import com.google.common.collect.FluentIterable;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Lists;
 import com.google.common.hash.Hashing;
 import com.google.common.io.BaseEncoding;
 import com.google.gson.Gson;
 import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.api.ToolSummary;
+import io.dockstore.webservice.api.WorkflowSummary;
 import io.dockstore.webservice.core.Group;
 import io.dockstore.webservice.core.Token;
 import io.dockstore.webservice.core.TokenType;
@@ -33,9 +33,12 @@ import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.helpers.Helper;
+import io.dockstore.webservice.helpers.Pagination;
 import io.dockstore.webservice.jdbi.GroupDAO;
 import io.dockstore.webservice.jdbi.TokenDAO;
+import io.dockstore.webservice.jdbi.ToolDAO;
 import io.dockstore.webservice.jdbi.UserDAO;
+import io.dockstore.webservice.jdbi.WorkflowDAO;
 import io.dropwizard.auth.Auth;
 import io.dropwizard.hibernate.UnitOfWork;
 import io.swagger.annotations.Api;
@@ -57,11 +60,12 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -78,18 +82,22 @@ public class UserResource {
     private final UserDAO userDAO;
     private final GroupDAO groupDAO;
     private final TokenDAO tokenDAO;
-
+    private final ToolDAO toolDAO;
+    private final WorkflowDAO workflowDAO;
 
     private static final Logger LOG = LoggerFactory.getLogger(UserResource.class);
     private final WorkflowResource workflowResource;
     private final DockerRepoResource dockerRepoResource;
 
-    public UserResource(HttpClient client, TokenDAO tokenDAO, UserDAO userDAO, GroupDAO groupDAO,
+    @SuppressWarnings("checkstyle:parameternumber")
+    public UserResource(HttpClient client, TokenDAO tokenDAO, UserDAO userDAO, GroupDAO groupDAO, ToolDAO toolDAO, WorkflowDAO workflowDAO,
             WorkflowResource workflowResource, DockerRepoResource dockerRepoResource) {
         this.client = client;
         this.userDAO = userDAO;
         this.groupDAO = groupDAO;
         this.tokenDAO = tokenDAO;
+        this.toolDAO = toolDAO;
+        this.workflowDAO = workflowDAO;
         this.workflowResource = workflowResource;
         this.dockerRepoResource = dockerRepoResource;
     }
@@ -132,8 +140,12 @@ public class UserResource {
     @UnitOfWork
     @RolesAllowed("admin")
     @ApiOperation(value = "List all known users", notes = "List all users. Admin only.", response = User.class, responseContainer = "List")
-    public List<User> listUsers(@ApiParam(hidden = true) @Auth User user) {
-        return userDAO.findAll();
+    public Response listUsers(@ApiParam(hidden = true) @Auth User user,
+            @ApiParam(value = "Id of the last item on the previous page, the next page is linked from the Link header") @QueryParam(Pagination.AFTER) Long after,
+            @ApiParam(value = "Maximum number of items on a page, 100 by default and at most 1000") @QueryParam(Pagination.LIMIT) Integer limit,
+            @Context UriInfo uriInfo) {
+        final int pageSize = Pagination.checkLimit(limit);
+        return Pagination.page(userDAO.findAllAfter(Pagination.checkAfter(after), pageSize), pageSize, User::getId, uriInfo);
     }
 
     @GET
@@ -340,50 +352,22 @@ public class UserResource {
     @Timed
     @UnitOfWork
     @Path("/{userId}/containers/published")
-    @ApiOperation(value = "List all published containers from a user", notes = "Get user's published containers only", response = Tool.class, responseContainer = "List")
-    public List<Tool> userPublishedContainers(@ApiParam(hidden = true) @Auth User user,
+    @ApiOperation(value = "List all published containers from a user", notes = "Get user's published containers only", response = ToolSummary.class, responseContainer = "List")
+    public List<ToolSummary> userPublishedContainers(@ApiParam(hidden = true) @Auth User user,
             @ApiParam(value = "User ID", required = true) @PathParam("userId") Long userId) {
         Helper.checkUser(user, userId);
-
-        // get live entity
-        final User byId = this.userDAO.findById(user.getId());
-        final ImmutableList<Tool> immutableList = FluentIterable.from(byId.getEntries()).filter(Tool.class).toList();
-        final List<Tool> repositories = Lists.newArrayList(immutableList);
-
-        for (Iterator<Tool> iterator = repositories.iterator(); iterator.hasNext();) {
-            Tool c = iterator.next();
-
-            if (!c.getIsPublished()) {
-                iterator.remove();
-            }
-        }
-
-        return repositories;
+        return toolDAO.findPublishedSummariesByUserId(user.getId());
     }
 
     @GET
     @Timed
     @UnitOfWork
     @Path("/{userId}/workflows/published")
-    @ApiOperation(value = "List all published workflows from a user", notes = "Get user's published workflows only", response = Workflow.class, responseContainer = "List")
-    public List<Workflow> userPublishedWorkflows(@ApiParam(hidden = true) @Auth User user,
+    @ApiOperation(value = "List all published workflows from a user", notes = "Get user's published workflows only", response = WorkflowSummary.class, responseContainer = "List")
+    public List<WorkflowSummary> userPublishedWorkflows(@ApiParam(hidden = true) @Auth User user,
             @ApiParam(value = "User ID", required = true) @PathParam("userId") Long userId) {
         Helper.checkUser(user, userId);
-
-        // get live entity
-        final User byId = this.userDAO.findById(user.getId());
-        final ImmutableList<Workflow> immutableList = FluentIterable.from(byId.getEntries()).filter(Workflow.class).toList();
-        final List<Workflow> repositories = Lists.newArrayList(immutableList);
-
-        for (Iterator<Workflow> iterator = repositories.iterator(); iterator.hasNext();) {
-            Workflow workflow = iterator.next();
-
-            if (!workflow.getIsPublished()) {
-                iterator.remove();
-            }
-        }
-
-        return repositories;
+        return workflowDAO.findPublishedSummariesByUserId(user.getId());
     }
 
     @GET
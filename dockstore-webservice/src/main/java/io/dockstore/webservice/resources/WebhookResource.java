@@ -0,0 +1,209 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.resources;
+
+import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.BaseEncoding;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.WebhookConfiguration;
+import io.dockstore.webservice.helpers.WebhookEvent;
+import io.dockstore.webservice.helpers.WebhookQueue;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+/**
+ * Receives push notifications from GitHub, Bitbucket and Quay.io so that only the branch, tag or image that changed is
+ * refreshed, instead of waiting for a refresh of the whole repository. Notifications are acknowledged straight away and
+ * handled by the {@link WebhookQueue}.
+ */
+@Path("/webhooks")
+@Api("webhooks")
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class WebhookResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WebhookResource.class);
+
+    private static final String GITHUB_SIGNATURE_PREFIX = "sha1=";
+    private static final String HMAC_SHA1 = "HmacSHA1";
+
+    private final ObjectMapper objectMapper;
+    private final WebhookQueue queue;
+    private final WebhookConfiguration configuration;
+
+    public WebhookResource(ObjectMapper objectMapper, WebhookQueue queue, WebhookConfiguration configuration) {
+        this.objectMapper = objectMapper;
+        this.queue = queue;
+        this.configuration = configuration;
+    }
+
+    @POST
+    @Path("/github")
+    @Timed
+    @ApiOperation(value = "Receive a GitHub push", notes = "Handles push and create events. The webhook must use the content type "
+            + "application/json and the GitHub secret of this webservice.")
+    public Response githubPush(@ApiParam(value = "GitHub event type") @HeaderParam("X-GitHub-Event") String eventType,
+            @ApiParam(value = "HMAC of the payload") @HeaderParam("X-Hub-Signature") String signature,
+            @ApiParam(hidden = true) String payload) {
+        checkSignature(payload, signature);
+        final JsonNode json = readPayload(payload);
+
+        String reference = json.path("ref").asText(null);
+        if ("push".equals(eventType)) {
+            if (json.path("deleted").asBoolean(false)) {
+                // nothing left to read, the next full refresh removes it
+                return accepted();
+            }
+            reference = stripReferencePrefix(reference);
+        } else if (!"create".equals(eventType)) {
+            // ping and anything else we did not ask for
+            return accepted();
+        }
+        final String repository = json.path("repository").path("full_name").asText(null);
+        if (reference == null || repository == null) {
+            throw new CustomWebApplicationException("Push notification is missing the repository or reference.", HttpStatus.SC_BAD_REQUEST);
+        }
+        queue.submit(WebhookEvent.sourcePush("github.com", repository, reference));
+        return accepted();
+    }
+
+    @POST
+    @Path("/bitbucket")
+    @Timed
+    @ApiOperation(value = "Receive a Bitbucket push", notes = "Handles repo:push events. Bitbucket does not sign payloads, the "
+            + "webhook URL must include the secret of this webservice.")
+    public Response bitbucketPush(@ApiParam(value = "Secret of this webservice", required = true) @QueryParam("secret") String secret,
+            @ApiParam(hidden = true) String payload) {
+        checkSecret(secret);
+        final JsonNode json = readPayload(payload);
+
+        final String repository = json.path("repository").path("full_name").asText(null);
+        if (repository == null) {
+            throw new CustomWebApplicationException("Push notification is missing the repository.", HttpStatus.SC_BAD_REQUEST);
+        }
+        for (JsonNode change : json.path("push").path("changes")) {
+            // new is null when a branch or tag was deleted
+            final String reference = change.path("new").path("name").asText(null);
+            if (reference != null) {
+                queue.submit(WebhookEvent.sourcePush("bitbucket.org", repository, reference));
+            }
+        }
+        return accepted();
+    }
+
+    @POST
+    @Path("/quay")
+    @Timed
+    @ApiOperation(value = "Receive a Quay.io push", notes = "Handles repository push notifications. Quay.io does not sign payloads, "
+            + "the webhook URL must include the secret of this webservice.")
+    public Response quayPush(@ApiParam(value = "Secret of this webservice", required = true) @QueryParam("secret") String secret,
+            @ApiParam(hidden = true) String payload) {
+        checkSecret(secret);
+        final JsonNode json = readPayload(payload);
+
+        final String repository = json.path("repository").asText(null);
+        if (repository == null) {
+            throw new CustomWebApplicationException("Push notification is missing the repository.", HttpStatus.SC_BAD_REQUEST);
+        }
+        // the tags come from the registry during the refresh, so all pushes to a repository are handled together
+        queue.submit(WebhookEvent.imagePush("quay.io", repository));
+        return accepted();
+    }
+
+    private static Response accepted() {
+        return Response.status(HttpStatus.SC_ACCEPTED).build();
+    }
+
+    private JsonNode readPayload(String payload) {
+        try {
+            return objectMapper.readTree(payload == null ? "" : payload);
+        } catch (IOException e) {
+            throw new CustomWebApplicationException("Could not parse push notification.", HttpStatus.SC_BAD_REQUEST);
+        }
+    }
+
+    /**
+     * @param reference refs/heads/name or refs/tags/name
+     * @return the name of the branch or tag
+     */
+    private static String stripReferencePrefix(String reference) {
+        if (reference == null) {
+            return null;
+        }
+        return reference.replaceFirst("^refs/(heads|tags)/", "");
+    }
+
+    private void checkSignature(String payload, String signature) {
+        final String githubSecret = configuration.getGithubSecret();
+        if (githubSecret == null || githubSecret.isEmpty()) {
+            throw new CustomWebApplicationException("GitHub notifications are not enabled.", HttpStatus.SC_NOT_FOUND);
+        }
+        if (signature == null || !signature.startsWith(GITHUB_SIGNATURE_PREFIX)) {
+            throw new CustomWebApplicationException("Push notification is not signed.", HttpStatus.SC_FORBIDDEN);
+        }
+        final String expected;
+        try {
+            Mac mac = Mac.getInstance(HMAC_SHA1);
+            mac.init(new SecretKeySpec(githubSecret.getBytes(StandardCharsets.UTF_8), HMAC_SHA1));
+            final byte[] hmac = mac.doFinal((payload == null ? "" : payload).getBytes(StandardCharsets.UTF_8));
+            expected = GITHUB_SIGNATURE_PREFIX + BaseEncoding.base16().lowerCase().encode(hmac);
+        } catch (GeneralSecurityException e) {
+            LOG.error("Could not check push notification signature", e);
+            throw new CustomWebApplicationException("Could not check push notification signature.", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+        if (!isEqual(expected, signature)) {
+            throw new CustomWebApplicationException("Push notification signature does not match.", HttpStatus.SC_FORBIDDEN);
+        }
+    }
+
+    private void checkSecret(String secret) {
+        final String expected = configuration.getSecret();
+        if (expected == null || expected.isEmpty()) {
+            throw new CustomWebApplicationException("Push notifications are not enabled.", HttpStatus.SC_NOT_FOUND);
+        }
+        if (secret == null || !isEqual(expected, secret)) {
+            throw new CustomWebApplicationException("Push notification secret does not match.", HttpStatus.SC_FORBIDDEN);
+        }
+    }
+
+    private static boolean isEqual(String a, String b) {
+        // constant time, so the secret cannot be guessed from response times
+        return MessageDigest.isEqual(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    }
+}
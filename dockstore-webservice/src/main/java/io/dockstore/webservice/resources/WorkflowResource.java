@@ -20,6 +20,9 @@ import com.codahale.metrics.annotation.Timed;
 import com.google.common.base.Optional;
 import io.dockstore.webservice.CustomWebApplicationException;
 import io.dockstore.webservice.api.PublishRequest;
+import io.dockstore.webservice.api.WorkflowSummary;
+import io.dockstore.webservice.core.RefreshJob;
+import io.dockstore.webservice.core.RefreshJob.JobType;
 import io.dockstore.webservice.core.SourceFile;
 import io.dockstore.webservice.core.SourceFile.FileType;
 import io.dockstore.webservice.core.Token;
@@ -33,9 +36,11 @@ import io.dockstore.webservice.helpers.EntryLabelHelper;
 import io.dockstore.webservice.helpers.EntryVersionHelper;
 import io.dockstore.webservice.helpers.GitHubSourceCodeRepo;
 import io.dockstore.webservice.helpers.Helper;
+import io.dockstore.webservice.helpers.Pagination;
 import io.dockstore.webservice.helpers.SourceCodeRepoInterface;
 import io.dockstore.webservice.jdbi.FileDAO;
 import io.dockstore.webservice.jdbi.LabelDAO;
+import io.dockstore.webservice.jdbi.RefreshJobDAO;
 import io.dockstore.webservice.jdbi.TokenDAO;
 import io.dockstore.webservice.jdbi.UserDAO;
 import io.dockstore.webservice.jdbi.WorkflowDAO;
@@ -59,7 +64,10 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -81,10 +89,12 @@ public class WorkflowResource {
     private final WorkflowVersionDAO workflowVersionDAO;
     private final LabelDAO labelDAO;
     private final FileDAO fileDAO;
+    private final RefreshJobDAO refreshJobDAO;
     private final HttpClient client;
 
     private final String bitbucketClientID;
     private final String bitbucketClientSecret;
+    private final boolean fullTextSearch;
     private final EntryVersionHelper<Workflow> entryVersionHelper;
 
 
@@ -92,16 +102,19 @@ public class WorkflowResource {
 
     @SuppressWarnings("checkstyle:parameternumber")
     public WorkflowResource(HttpClient client, UserDAO userDAO, TokenDAO tokenDAO, WorkflowDAO workflowDAO, WorkflowVersionDAO workflowVersionDAO,
-            LabelDAO labelDAO, FileDAO fileDAO, String bitbucketClientID, String bitbucketClientSecret) {
+            LabelDAO labelDAO, FileDAO fileDAO, RefreshJobDAO refreshJobDAO, String bitbucketClientID, String bitbucketClientSecret,
+            boolean fullTextSearch) {
         this.userDAO = userDAO;
         this.tokenDAO = tokenDAO;
         this.workflowVersionDAO = workflowVersionDAO;
         this.labelDAO = labelDAO;
         this.fileDAO = fileDAO;
+        this.refreshJobDAO = refreshJobDAO;
         this.client = client;
 
         this.bitbucketClientID = bitbucketClientID;
         this.bitbucketClientSecret = bitbucketClientSecret;
+        this.fullTextSearch = fullTextSearch;
 
         this.workflowDAO = workflowDAO;
         entryVersionHelper = new EntryVersionHelper<>(workflowDAO);
@@ -112,11 +125,11 @@ public class WorkflowResource {
     @Timed
     @UnitOfWork
     @RolesAllowed("admin")
-    @ApiOperation(value = "Refresh all workflows", notes = "Updates some metadata. ADMIN ONLY", response = Workflow.class, responseContainer = "List")
-    public List<Workflow> refreshAll(@ApiParam(hidden = true) @Auth User authUser) {
-        List<User> users = userDAO.findAll();
-        users.forEach(this::refreshStubWorkflowsForUser);
-        return workflowDAO.findAll();
+    @ApiOperation(value = "Refresh all workflows", notes = "Queues a refresh of every user's workflows, progress can be followed at /refreshJobs/{jobId}. ADMIN ONLY", response = RefreshJob.class)
+    public RefreshJob refreshAll(@ApiParam(hidden = true) @Auth User authUser) {
+        RefreshJob job = new RefreshJob(JobType.WORKFLOWS, authUser.getId());
+        refreshJobDAO.create(job);
+        return job;
     }
 
     @GET
@@ -247,9 +260,51 @@ public class WorkflowResource {
 
         // get a live user for the following
         user = userDAO.findById(user.getId());
-        List<Token> tokens = checkOnBitbucketToken(user);
+        SourceCodeRepoInterface sourceCodeRepo = getSourceCodeRepo(workflow, user);
+
+        // do a full refresh when targeted like this
+        workflow.setMode(WorkflowMode.FULL);
+        final Workflow newWorkflow = sourceCodeRepo.getNewWorkflow(workflow.getOrganization() + '/' + workflow.getRepository(), Optional.of(workflow));
+        workflow.getUsers().add(user);
+        updateDBWorkflowWithSourceControlWorkflow(workflow, newWorkflow);
+
+        return workflowDAO.findById(workflowId);
+    }
+
+    /**
+     * Refresh the version of a full workflow for one branch or tag, the other versions are left alone
+     * @param workflow workflow to be updated
+     * @param reference the branch or tag that changed
+     * @param user a user of the workflow whose tokens are used
+     */
+    public void refreshReference(Workflow workflow, String reference, User user) {
+        if (workflow.getMode() != WorkflowMode.FULL) {
+            // stubs have no versions to update
+            return;
+        }
+        refreshFromSourceControl(workflow, Optional.of(reference), user);
+    }
+
+    /**
+     * Refresh a workflow without changing its mode, stubs stay stubs
+     * @param workflow workflow to be updated
+     * @param user a user of the workflow whose tokens are used
+     */
+    public void refreshWorkflow(Workflow workflow, User user) {
+        refreshFromSourceControl(workflow, Optional.absent(), user);
+    }
 
-        SourceCodeRepoInterface sourceCodeRepo = null;
+    private void refreshFromSourceControl(Workflow workflow, Optional<String> reference, User user) {
+        SourceCodeRepoInterface sourceCodeRepo = getSourceCodeRepo(workflow, user);
+        final Workflow newWorkflow = sourceCodeRepo.getNewWorkflow(workflow.getOrganization() + '/' + workflow.getRepository(),
+                Optional.of(workflow), reference);
+        if (newWorkflow != null) {
+            updateDBWorkflowWithSourceControlWorkflow(workflow, newWorkflow);
+        }
+    }
+
+    private SourceCodeRepoInterface getSourceCodeRepo(Workflow workflow, User user) {
+        List<Token> tokens = checkOnBitbucketToken(user);
 
         // Workflow is either from bitbucket or github
         if (workflow.getGitUrl().contains("bitbucket")) {
@@ -258,7 +313,7 @@ public class WorkflowResource {
                 throw new CustomWebApplicationException("No bitbucket token for this user.", HttpStatus.SC_BAD_REQUEST);
             }
 
-            sourceCodeRepo = new BitBucketSourceCodeRepo(bitbucketToken.getUsername(), client, bitbucketToken.getContent(), null);
+            return new BitBucketSourceCodeRepo(bitbucketToken.getUsername(), client, bitbucketToken.getContent(), null);
 
         } else if (workflow.getGitUrl().contains("github")) {
             Token githubToken = Helper.extractToken(tokens, TokenType.GITHUB_COM.toString());
@@ -266,19 +321,11 @@ public class WorkflowResource {
                 throw new CustomWebApplicationException("No github token for this user.", HttpStatus.SC_BAD_REQUEST);
             }
 
-            sourceCodeRepo = new GitHubSourceCodeRepo(user.getUsername(), githubToken.getContent(), null);
+            return new GitHubSourceCodeRepo(user.getUsername(), githubToken.getContent(), null);
 
         } else {
             throw new CustomWebApplicationException("Registries are limited to Github and Bitbucket.", HttpStatus.SC_BAD_REQUEST);
         }
-
-        // do a full refresh when targeted like this
-        workflow.setMode(WorkflowMode.FULL);
-        final Workflow newWorkflow = sourceCodeRepo.getNewWorkflow(workflow.getOrganization() + '/' + workflow.getRepository(), Optional.of(workflow));
-        workflow.getUsers().add(user);
-        updateDBWorkflowWithSourceControlWorkflow(workflow, newWorkflow);
-
-        return workflowDAO.findById(workflowId);
     }
 
     /**
@@ -297,9 +344,9 @@ public class WorkflowResource {
             if (existingVersionMap.containsKey(version.getName())){
                 workflowVersionFromDB.update(version);
             } else{
-                // create a new one and replace the old one
-                final long workflowVersionId = workflowVersionDAO.create(version);
-                workflowVersionFromDB = workflowVersionDAO.findById(workflowVersionId);
+                // create a new one and replace the old one, the insert is batched at flush
+                workflowVersionDAO.create(version);
+                workflowVersionFromDB = version;
                 workflow.getVersions().add(workflowVersionFromDB);
                 existingVersionMap.put(workflowVersionFromDB.getName(), workflowVersionFromDB);
             }
@@ -310,9 +357,8 @@ public class WorkflowResource {
                 if (existingFileMap.containsKey(file.getType().toString() + file.getPath())){
                     existingFileMap.get(file.getType().toString() + file.getPath()).setContent(file.getContent());
                 } else{
-                    final long fileID = fileDAO.create(file);
-                    final SourceFile fileFromDB = fileDAO.findById(fileID);
-                    workflowVersionFromDB.getSourceFiles().add(fileFromDB);
+                    fileDAO.create(file);
+                    workflowVersionFromDB.getSourceFiles().add(file);
                 }
             }
             //TODO: this needs a strategy for dealing with content on our side that has since been deleted
@@ -324,8 +370,12 @@ public class WorkflowResource {
     @UnitOfWork
     @RolesAllowed("admin")
     @ApiOperation(value = "List all workflows cached in database", notes = "List workflows currently known. Admin Only", response = Workflow.class, responseContainer = "List")
-    public List<Workflow> allWorkflows(@ApiParam(hidden = true) @Auth User user) {
-        return workflowDAO.findAll();
+    public Response allWorkflows(@ApiParam(hidden = true) @Auth User user,
+            @ApiParam(value = "Id of the last item on the previous page, the next page is linked from the Link header") @QueryParam(Pagination.AFTER) Long after,
+            @ApiParam(value = "Maximum number of items on a page, 100 by default and at most 1000") @QueryParam(Pagination.LIMIT) Integer limit,
+            @Context UriInfo uriInfo) {
+        final int pageSize = Pagination.checkLimit(limit);
+        return Pagination.page(workflowDAO.findAllAfter(Pagination.checkAfter(after), pageSize), pageSize, Workflow::getId, uriInfo);
     }
 
     @GET
@@ -455,11 +505,12 @@ public class WorkflowResource {
     @Timed
     @UnitOfWork
     @Path("published")
-    @ApiOperation(value = "List all published workflows.", tags = { "workflows" }, notes = "NO authentication", response = Workflow.class, responseContainer = "List")
-    public List<Workflow> allPublishedWorkflows() {
-        List<Workflow> tools = workflowDAO.findAllPublished();
-        entryVersionHelper.filterContainersForHiddenTags(tools);
-        return tools;
+    @ApiOperation(value = "List all published workflows.", tags = { "workflows" }, notes = "NO authentication", response = WorkflowSummary.class, responseContainer = "List")
+    public Response allPublishedWorkflows(@ApiParam(value = "Id of the last item on the previous page, the next page is linked from the Link header") @QueryParam(Pagination.AFTER) Long after,
+            @ApiParam(value = "Maximum number of items on a page, 100 by default and at most 1000") @QueryParam(Pagination.LIMIT) Integer limit,
+            @Context UriInfo uriInfo) {
+        final int pageSize = Pagination.checkLimit(limit);
+        return Pagination.page(workflowDAO.findAllPublishedSummaries(Pagination.checkAfter(after), pageSize), pageSize, WorkflowSummary::getId, uriInfo);
     }
 
     @GET
@@ -495,10 +546,20 @@ public class WorkflowResource {
     @UnitOfWork
     @Path("/search")
     @ApiOperation(value = "Search for matching published workflows."
-            , notes = "Search on the name (full path name) and description. NO authentication", response = Workflow.class, responseContainer = "List", tags = {
+            , notes = "Search on the path, name, labels, description and author, best matches first. With search.fullText off, search on the path and description. NO authentication", response = WorkflowSummary.class, responseContainer = "List", tags = {
             "workflows" })
-    public List<Workflow> search(@QueryParam("pattern") String word) {
-        return workflowDAO.searchPattern(word);
+    public Response search(@QueryParam("pattern") String word,
+            @ApiParam(value = "Id of the last item on the previous page, the next page is linked from the Link header. Rejected when search.fullText is on") @QueryParam(Pagination.AFTER) Long after,
+            @ApiParam(value = "Maximum number of items on a page, 100 by default and at most 1000") @QueryParam(Pagination.LIMIT) Integer limit,
+            @ApiParam(value = "Number of matches to skip, used instead of after when search.fullText is on") @QueryParam(Pagination.OFFSET) Integer offset,
+            @Context UriInfo uriInfo) {
+        final int pageSize = Pagination.checkLimit(limit);
+        if (fullTextSearch) {
+            Pagination.checkNoAfter(after);
+            final int skip = Pagination.checkOffset(offset);
+            return Pagination.pageByOffset(workflowDAO.searchRankedSummaries(word, skip, pageSize), pageSize, skip, uriInfo);
+        }
+        return Pagination.page(workflowDAO.searchPatternSummaries(word, Pagination.checkAfter(after), pageSize), pageSize, WorkflowSummary::getId, uriInfo);
     }
 
     @GET
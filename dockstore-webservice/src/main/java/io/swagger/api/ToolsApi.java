@@ -17,6 +17,7 @@
 package io.swagger.api;
 
 import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.helpers.Pagination;
 import io.dropwizard.hibernate.UnitOfWork;
 import io.swagger.annotations.ApiParam;
 import io.swagger.api.factories.ToolsApiServiceFactory;
@@ -33,6 +34,7 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.UriInfo;
 
 @Path(DockstoreWebserviceApplication.GA4GH_API_PATH + "/tools")
 
@@ -56,9 +58,12 @@ public class ToolsApi  {
         @ApiParam(value = "The name of the tool.") @QueryParam("toolname") String toolname,
         @ApiParam(value = "The description of the tool.") @QueryParam("description") String description,
         @ApiParam(value = "The author of the tool (TODO a thought occurs, are we assuming that the author of the CWL and the image are the same?).") @QueryParam("author") String author,
+        @ApiParam(value = "Id of the last tool on the previous page, the next page is linked from the Link header") @QueryParam(Pagination.AFTER) Long after,
+        @ApiParam(value = "Maximum number of tools on a page, 100 by default and at most 1000") @QueryParam(Pagination.LIMIT) Integer limit,
+        @Context UriInfo uriInfo,
         @Context SecurityContext securityContext)
     throws NotFoundException {
-        return delegate.toolsGet(id,registry,organization,name,toolname,description,author,securityContext);
+        return delegate.toolsGet(id,registry,organization,name,toolname,description,author,after,limit,uriInfo,securityContext);
     }
     @GET
     @Path("/{id}")
@@ -18,10 +18,11 @@ package io.swagger.api;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.UriInfo;
 
 @javax.annotation.Generated(value = "class io.swagger.codegen.languages.JavaJerseyServerCodegen", date = "2016-06-07T18:19:37.276Z")
 public abstract class ToolsApiService {
-      public abstract Response toolsGet(String id,String registry,String organization,String name,String toolname,String description,String author,SecurityContext securityContext)
+      public abstract Response toolsGet(String id,String registry,String organization,String name,String toolname,String description,String author,Long after,Integer limit,UriInfo uriInfo,SecurityContext securityContext)
       throws NotFoundException;
       public abstract Response toolsIdGet(String id,SecurityContext securityContext)
       throws NotFoundException;
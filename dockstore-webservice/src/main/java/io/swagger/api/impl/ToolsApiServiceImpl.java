@@ -22,6 +22,7 @@ import io.dockstore.webservice.core.SourceFile;
 import io.dockstore.webservice.core.Tag;
 import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.helpers.EntryVersionHelper;
+import io.dockstore.webservice.helpers.Pagination;
 import io.dockstore.webservice.jdbi.ToolDAO;
 import io.swagger.api.NotFoundException;
 import io.swagger.api.ToolsApiService;
@@ -34,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.UriInfo;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -157,52 +159,67 @@ public class ToolsApiServiceImpl extends ToolsApiService {
 
     @Override
     public Response toolsGet(String registryId, String registry, String organization, String name, String toolname,
-            String description, String author, SecurityContext securityContext) throws NotFoundException {
-        final List<Tool> all = toolDAO.findAllPublished();
+            String description, String author, Long after, Integer limit, UriInfo uriInfo, SecurityContext securityContext)
+            throws NotFoundException {
+        final int pageSize = Pagination.checkLimit(limit);
+        long lastId = Pagination.checkAfter(after);
         List<io.swagger.model.Tool> results = new ArrayList<>();
-        for (Tool c : all) {
-            // check each criteria. This sucks. Can we do this better with reflection? Or should we pre-convert?
-            if (registryId != null) {
-                if (!registryId.contains(c.getToolPath())) {
-                    continue;
+        // the criteria are checked after reading, keep reading published tools until the page is full or there are no more
+        boolean more = true;
+        while (more && results.size() < pageSize) {
+            final List<Tool> batch = toolDAO.findPublishedAfter(lastId, pageSize);
+            more = batch.size() == pageSize;
+            for (Tool c : batch) {
+                if (results.size() == pageSize) {
+                    break;
                 }
-            }
-            if (registry != null && c.getRegistry() != null) {
-                if (!c.getRegistry().toString().contains(registry)) {
-                    continue;
+                lastId = c.getId();
+                // check each criteria. This sucks. Can we do this better with reflection? Or should we pre-convert?
+                if (registryId != null) {
+                    if (!registryId.contains(c.getToolPath())) {
+                        continue;
+                    }
                 }
-            }
-            if (organization != null && c.getNamespace() != null) {
-                if (!c.getNamespace().contains(organization)) {
-                    continue;
+                if (registry != null && c.getRegistry() != null) {
+                    if (!c.getRegistry().toString().contains(registry)) {
+                        continue;
+                    }
                 }
-            }
-            if (name != null && c.getName() != null) {
-                if (!c.getName().contains(name)) {
-                    continue;
+                if (organization != null && c.getNamespace() != null) {
+                    if (!c.getNamespace().contains(organization)) {
+                        continue;
+                    }
                 }
-            }
-            if (toolname != null && c.getToolname() != null) {
-                if (!c.getToolname().contains(toolname)) {
-                    continue;
+                if (name != null && c.getName() != null) {
+                    if (!c.getName().contains(name)) {
+                        continue;
+                    }
                 }
-            }
-            if (description != null && c.getDescription() != null) {
-                if (!c.getDescription().contains(description)) {
-                    continue;
+                if (toolname != null && c.getToolname() != null) {
+                    if (!c.getToolname().contains(toolname)) {
+                        continue;
+                    }
                 }
-            }
-            if (author != null && c.getAuthor() != null) {
-                if (!c.getAuthor().contains(author)) {
-                    continue;
+                if (description != null && c.getDescription() != null) {
+                    if (!c.getDescription().contains(description)) {
+                        continue;
+                    }
                 }
+                if (author != null && c.getAuthor() != null) {
+                    if (!c.getAuthor().contains(author)) {
+                        continue;
+                    }
+                }
+                // if passing, for each container that matches the criteria, convert to standardised format and return
+                io.swagger.model.Tool tool = convertContainer2Tool(c);
+                results.add(tool);
             }
-            // if passing, for each container that matches the criteria, convert to standardised format and return
-            io.swagger.model.Tool tool = convertContainer2Tool(c);
-            results.add(tool);
         }
 
-        return Response.ok(results).build();
+        if (results.size() < pageSize) {
+            return Response.ok(results).build();
+        }
+        return Pagination.page(results, pageSize, lastId, uriInfo);
     }
 
     /**
@@ -0,0 +1,99 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.HttpCacheConfiguration;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that a cache directory cannot be shared while it is open.
+ */
+public class HttpResponseCacheTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<HttpResponseCache> opened = new ArrayList<>();
+
+    @After
+    public void tearDown() throws IOException {
+        for (HttpResponseCache cache : opened) {
+            cache.stop();
+        }
+    }
+
+    @Test
+    public void directoryIsLocked() {
+        final HttpCacheConfiguration configuration = configuration("shared");
+        final HttpResponseCache cache = open(configuration);
+        assertThat(cache.getCache().directory()).isDirectory();
+
+        assertThatThrownBy(() -> new HttpResponseCache(configuration)).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("used by another process");
+    }
+
+    @Test
+    public void clearOnStartKeepsTheLock() {
+        final HttpCacheConfiguration configuration = configuration("cleared");
+        configuration.setClearOnStart(true);
+        final HttpResponseCache cache = open(configuration);
+
+        assertThatThrownBy(() -> new HttpResponseCache(configuration)).isInstanceOf(IllegalStateException.class);
+        assertThat(cache.getCache().directory()).isDirectory();
+    }
+
+    @Test
+    public void directoriesAreLockedSeparately() {
+        final HttpResponseCache first = open(configuration("first"));
+        final HttpResponseCache second = open(configuration("second"));
+
+        assertThat(first.getCache().directory()).isNotEqualTo(second.getCache().directory());
+    }
+
+    @Test
+    public void stoppedCacheReleasesTheDirectory() throws IOException {
+        final HttpCacheConfiguration configuration = configuration("reopened");
+        final HttpResponseCache cache = new HttpResponseCache(configuration);
+        cache.stop();
+
+        assertThat(cache.getCache().isClosed()).isTrue();
+        assertThat(open(configuration).getCache().directory()).isDirectory();
+    }
+
+    private HttpResponseCache open(HttpCacheConfiguration configuration) {
+        final HttpResponseCache cache = new HttpResponseCache(configuration);
+        opened.add(cache);
+        return cache;
+    }
+
+    private HttpCacheConfiguration configuration(String name) {
+        final HttpCacheConfiguration configuration = new HttpCacheConfiguration();
+        configuration.setDirectory(new File(folder.getRoot(), name).getPath());
+        return configuration;
+    }
+}
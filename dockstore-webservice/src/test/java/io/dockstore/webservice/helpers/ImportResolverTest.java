@@ -0,0 +1,255 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.google.common.base.Optional;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.core.SourceFile;
+import io.dockstore.webservice.core.Workflow;
+import org.apache.http.HttpStatus;
+import org.junit.Test;
+
+import javax.ws.rs.WebApplicationException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks how descriptor imports are followed: relative paths, cycles, imports by url and reads shared between versions.
+ */
+public class ImportResolverTest {
+
+    private final ImportResolver resolver = new ImportResolver(new StubSourceCodeRepo());
+
+    @Test
+    public void followsImportsOfImports() {
+        final RecordingReader reader = new RecordingReader();
+        reader.files.put("tools/a.cwl", cwl("b.cwl"));
+        reader.files.put("tools/b.cwl", cwl());
+
+        final List<SourceFile> imports = resolve("tools/main.cwl", cwl("a.cwl"), "commit1", reader);
+
+        assertThat(paths(imports)).containsExactly("tools/a.cwl", "tools/b.cwl");
+        assertThat(imports).extracting(SourceFile::getType).containsOnly(SourceFile.FileType.DOCKSTORE_CWL);
+    }
+
+    @Test
+    public void cycleStopsWhereItCloses() {
+        final RecordingReader reader = new RecordingReader();
+        reader.files.put("a.cwl", cwl("b.cwl"));
+        reader.files.put("b.cwl", cwl("a.cwl", "main.cwl"));
+
+        final List<SourceFile> imports = resolve("main.cwl", cwl("a.cwl"), "commit1", reader);
+
+        assertThat(paths(imports)).containsExactly("a.cwl", "b.cwl");
+        assertThat(reader.reads).containsExactly("a.cwl", "b.cwl");
+    }
+
+    @Test
+    public void parentPathsAreNormalized() {
+        final RecordingReader reader = new RecordingReader();
+        reader.files.put("shared/tool.cwl", cwl("./../shared/tool.cwl"));
+
+        final List<SourceFile> imports = resolve("workflows/main.cwl", cwl("../shared/tool.cwl", "./../shared/./tool.cwl"),
+                "commit1", reader);
+
+        assertThat(paths(imports)).containsExactly("shared/tool.cwl");
+        assertThat(reader.reads).containsExactly("shared/tool.cwl");
+    }
+
+    @Test
+    public void importsOutsideOfTheRepositoryAreSkipped() {
+        final RecordingReader reader = new RecordingReader();
+
+        final List<SourceFile> imports = resolve("main.cwl", cwl("../../outside.cwl"), "commit1", reader);
+
+        assertThat(imports).isEmpty();
+        assertThat(reader.reads).isEmpty();
+    }
+
+    @Test
+    public void importsByUrlAreSkipped() {
+        final RecordingReader reader = new RecordingReader();
+        reader.files.put("local.cwl", cwl());
+
+        final List<SourceFile> imports = resolve("main.cwl", cwl("https://example.com/remote.cwl", "local.cwl"), "commit1", reader);
+
+        assertThat(paths(imports)).containsExactly("local.cwl");
+        assertThat(reader.reads).containsExactly("local.cwl");
+    }
+
+    @Test
+    public void missingImportsAreLeftOut() {
+        final RecordingReader reader = new RecordingReader();
+        reader.files.put("present.cwl", cwl());
+
+        final List<SourceFile> imports = resolve("main.cwl", cwl("missing.cwl", "present.cwl"), "commit1", reader);
+
+        assertThat(paths(imports)).containsExactly("present.cwl");
+    }
+
+    @Test
+    public void rateLimitedReadFailsTheVersion() {
+        final RecordingReader reader = new RecordingReader();
+        reader.failures.put("limited.cwl", new CustomWebApplicationException("Too many requests", HttpStatus.SC_SERVICE_UNAVAILABLE));
+
+        assertUnavailable("main.cwl", cwl("limited.cwl"), reader);
+    }
+
+    @Test
+    public void openCircuitFailsTheVersion() {
+        final RecordingReader reader = new RecordingReader();
+        reader.failures.put("unreachable.cwl", new RetryPolicy.CircuitOpenException("api.github.com"));
+
+        assertUnavailable("main.cwl", cwl("unreachable.cwl"), reader);
+    }
+
+    @Test
+    public void failedReadIsTriedAgain() {
+        final RecordingReader reader = new RecordingReader();
+        reader.failures.put("flaky.cwl", new IOException("connection reset"));
+
+        assertUnavailable("main.cwl", cwl("flaky.cwl"), reader);
+
+        reader.failures.clear();
+        reader.files.put("flaky.cwl", cwl());
+        final List<SourceFile> imports = resolve("main.cwl", cwl("flaky.cwl"), "commit1", reader);
+
+        assertThat(paths(imports)).containsExactly("flaky.cwl");
+        assertThat(reader.reads).containsExactly("flaky.cwl", "flaky.cwl");
+    }
+
+    @Test
+    public void filesAreReadOncePerVersionAndPath() {
+        final RecordingReader reader = new RecordingReader();
+        reader.files.put("a.cwl", cwl());
+        reader.files.put("b.cwl", cwl("a.cwl"));
+
+        resolve("main.cwl", cwl("a.cwl", "b.cwl"), "commit1", reader);
+        // another descriptor of the same commit
+        final List<SourceFile> imports = resolve("other.cwl", cwl("b.cwl"), "commit1", reader);
+
+        assertThat(paths(imports)).containsExactly("b.cwl", "a.cwl");
+        assertThat(reader.reads).containsExactly("a.cwl", "b.cwl");
+    }
+
+    @Test
+    public void versionsDoNotShareReads() {
+        final RecordingReader reader = new RecordingReader();
+        reader.files.put("a.cwl", cwl());
+
+        resolve("main.cwl", cwl("a.cwl"), "commit1", reader);
+        resolve("main.cwl", cwl("a.cwl"), "commit2", reader);
+
+        assertThat(reader.reads).containsExactly("a.cwl", "a.cwl");
+    }
+
+    private List<SourceFile> resolve(String descriptorPath, String content, String versionKey, RecordingReader reader) {
+        return resolver.resolve(descriptorPath, content, SourceFile.FileType.DOCKSTORE_CWL, versionKey, reader);
+    }
+
+    private void assertUnavailable(String descriptorPath, String content, RecordingReader reader) {
+        try {
+            resolve(descriptorPath, content, "commit1", reader);
+            fail("a version with an unreadable import was resolved");
+        } catch (WebApplicationException e) {
+            assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, e.getResponse().getStatus());
+        }
+    }
+
+    private static List<String> paths(List<SourceFile> files) {
+        return files.stream().map(SourceFile::getPath).collect(Collectors.toList());
+    }
+
+    /**
+     * @param imports paths the descriptor imports
+     * @return a CWL workflow with a step per import
+     */
+    private static String cwl(String... imports) {
+        StringBuilder builder = new StringBuilder("class: Workflow\nsteps:\n");
+        for (String importPath : imports) {
+            builder.append("  - run:\n      import: ").append(importPath).append('\n');
+        }
+        if (imports.length == 0) {
+            builder.append("  []\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Serves files from a map, fails reads of the paths in failures and records what was read
+     */
+    private static final class RecordingReader implements ImportResolver.ContentReader {
+        private final Map<String, String> files = new HashMap<>();
+        private final Map<String, Exception> failures = new HashMap<>();
+        private final List<String> reads = new ArrayList<>();
+
+        @Override
+        public synchronized String read(String path) throws IOException {
+            reads.add(path);
+            final Exception failure = failures.get(path);
+            if (failure instanceof IOException) {
+                throw (IOException)failure;
+            } else if (failure != null) {
+                throw (RuntimeException)failure;
+            }
+            final String content = files.get(path);
+            if (content == null) {
+                throw new FileNotFoundException(path);
+            }
+            return content;
+        }
+    }
+
+    /**
+     * Only parses imports, the resolver does not use anything else
+     */
+    private static final class StubSourceCodeRepo extends SourceCodeRepoInterface {
+        @Override
+        public FileResponse readFile(String fileName, String reference, String gitUrl) {
+            return null;
+        }
+
+        @Override
+        public String readDescriptor(String gitUrl, String fileName) {
+            return null;
+        }
+
+        @Override
+        public String getOrganizationEmail() {
+            return null;
+        }
+
+        @Override
+        public Map<String, String> getWorkflowGitUrl2RepositoryId() {
+            return null;
+        }
+
+        @Override
+        public Workflow getNewWorkflow(String repositoryId, Optional<Workflow> existingWorkflow, Optional<String> reference) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.core.Tag;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The nested loops Helper.updateTags used to match stored tags against registry tags, kept as the reference that
+ * {@link Helper#reconcileTags(List, List, List)} is tested and benchmarked against.
+ */
+final class NestedLoopTagReconciliation {
+
+    private NestedLoopTagReconciliation() {
+        // hide the default constructor for a utility class
+    }
+
+    static void reconcileTags(final List<Tag> existingTags, final List<Tag> newTags, final List<Tag> toDelete) {
+        for (Iterator<Tag> iterator = existingTags.iterator(); iterator.hasNext();) {
+            Tag oldTag = iterator.next();
+            boolean exists = false;
+            for (Tag newTag : newTags) {
+                if (newTag.getName().equals(oldTag.getName())) {
+                    exists = true;
+                    break;
+                }
+            }
+            if (!exists) {
+                toDelete.add(oldTag);
+                iterator.remove();
+            }
+        }
+        for (Tag newTag : newTags) {
+            boolean exists = false;
+            for (Tag oldTag : existingTags) {
+                if (newTag.getName().equals(oldTag.getName())) {
+                    exists = true;
+                    oldTag.update(newTag);
+                    break;
+                }
+            }
+            if (!exists) {
+                Tag clonedTag = new Tag();
+                clonedTag.clone(newTag);
+                existingTags.add(clonedTag);
+            }
+        }
+    }
+}
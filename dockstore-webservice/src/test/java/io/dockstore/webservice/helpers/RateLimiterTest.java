@@ -0,0 +1,98 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.RateLimitConfiguration;
+import org.apache.http.HttpStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Checks that only background work waits for a spent budget, on its own thread and on the threads it hands tasks to.
+ */
+public class RateLimiterTest {
+
+    private static final String HOST = "api.github.com";
+    private static final String TOKEN = "token";
+
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private RateLimiter limiter;
+
+    @Before
+    public void setUp() {
+        limiter = new RateLimiter(new RateLimitConfiguration(), metrics);
+        // nothing left until the window resets in one to two seconds, the reset is given in whole seconds
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("X-RateLimit-Limit", "5000");
+        headers.put("X-RateLimit-Remaining", "0");
+        headers.put("X-RateLimit-Reset", Long.toString(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 2));
+        limiter.update(HOST, TOKEN, headers::get);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void requestsOutsideOfBackgroundWorkAreRefused() {
+        final Throwable refused = catchThrowable(() -> limiter.acquire(HOST, TOKEN));
+
+        assertThat(refused).isInstanceOf(CustomWebApplicationException.class);
+        assertThat(((CustomWebApplicationException)refused).getResponse().getStatus()).isEqualTo(HttpStatus.SC_SERVICE_UNAVAILABLE);
+        assertThat(metrics.meter(MetricRegistry.name(RateLimiter.class, "deferred")).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void backgroundWorkWaits() {
+        RateLimiter.runInBackground(() -> limiter.acquire(HOST, TOKEN));
+
+        assertThat(metrics.meter(MetricRegistry.name(RateLimiter.class, "deferred")).getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void tasksInheritTheFlagOfTheThreadHandingThemOver() throws Exception {
+        final Callable<Boolean> acquire = () -> {
+            limiter.acquire(HOST, TOKEN);
+            return true;
+        };
+        final AtomicReference<Callable<Boolean>> inherited = new AtomicReference<>();
+        RateLimiter.runInBackground(() -> inherited.set(RateLimiter.inheritBackground(acquire)));
+
+        // before the background task waits out the window
+        assertThatThrownBy(() -> executor.submit(RateLimiter.inheritBackground(acquire)).get()).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(CustomWebApplicationException.class);
+        assertThat(executor.submit(inherited.get()).get()).isTrue();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.RefreshConfiguration;
+import io.dockstore.webservice.helpers.RefreshEngine.Provider;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that each provider's bound holds and that tasks waiting for their provider do not hold pool threads.
+ */
+public class RefreshEngineTest {
+
+    private static final int POOL_THREADS = 2;
+    private static final int TASKS = 20;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(POOL_THREADS);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void waitingTasksDoNotHoldPoolThreads() throws Exception {
+        final RefreshEngine engine = new RefreshEngine(executor, configuration(1));
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final Future<Boolean> blocked = engine.submit(Provider.GITHUB, () -> release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        final Future<String> waiting = engine.submit(Provider.GITHUB, () -> "github");
+        // the second pool thread is free for another provider
+        assertThat(engine.submit(Provider.QUAY, () -> "quay").get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo("quay");
+        assertThat(waiting.isDone()).isFalse();
+
+        release.countDown();
+        assertThat(blocked.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        assertThat(waiting.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo("github");
+    }
+
+    @Test
+    public void providerBoundHolds() throws Exception {
+        final int limit = 3;
+        // more threads than the bound, only the bound keeps the tasks apart
+        final ExecutorService wide = Executors.newFixedThreadPool(TASKS);
+        final RefreshEngine engine = new RefreshEngine(wide, configuration(limit));
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger mostRunning = new AtomicInteger();
+
+        final List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            final int result = i;
+            futures.add(engine.submit(Provider.BITBUCKET, () -> {
+                mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                running.decrementAndGet();
+                return result;
+            }));
+        }
+
+        try {
+            final List<Integer> results = RefreshEngine.awaitAll(futures);
+            assertThat(results).hasSize(TASKS);
+            assertThat(results.get(TASKS - 1)).isEqualTo(TASKS - 1);
+            assertThat(mostRunning.get()).isLessThanOrEqualTo(limit);
+        } finally {
+            wide.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancelledWaitingTaskFreesItsTurn() throws Exception {
+        final RefreshEngine engine = new RefreshEngine(executor, configuration(1));
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger ran = new AtomicInteger();
+
+        final Future<Boolean> blocked = engine.submit(Provider.DOCKER_HUB, () -> release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        final Future<Integer> cancelled = engine.submit(Provider.DOCKER_HUB, ran::incrementAndGet);
+        cancelled.cancel(true);
+        release.countDown();
+        blocked.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertThat(engine.submit(Provider.DOCKER_HUB, () -> "next").get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo("next");
+        assertThat(ran.get()).isEqualTo(0);
+    }
+
+    private static RefreshConfiguration configuration(int concurrency) {
+        final RefreshConfiguration configuration = new RefreshConfiguration();
+        configuration.setGithubConcurrency(concurrency);
+        configuration.setBitbucketConcurrency(concurrency);
+        configuration.setQuayConcurrency(concurrency);
+        configuration.setDockerHubConcurrency(concurrency);
+        return configuration;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.RetryConfiguration;
+import io.dockstore.webservice.helpers.RetryPolicy.CircuitOpenException;
+import io.dockstore.webservice.helpers.RetryPolicy.State;
+import io.dropwizard.util.Duration;
+import org.apache.http.HttpStatus;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the circuit breaker of each host through closed, open and half open, and the retries of a request.
+ */
+public class RetryPolicyTest {
+
+    private static final String HOST = "api.github.com";
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long OPEN_MILLIS = 1000;
+
+    private final MetricRegistry metrics = new MetricRegistry();
+    private RetryConfiguration configuration;
+    private RetryPolicy policy;
+
+    @Before
+    public void setUp() {
+        configuration = new RetryConfiguration();
+        configuration.setFailureThreshold(FAILURE_THRESHOLD);
+        configuration.setOpenDuration(Duration.milliseconds(OPEN_MILLIS));
+        configuration.setMaxAttempts(3);
+        configuration.setInitialBackoff(Duration.milliseconds(1));
+        configuration.setMaxBackoff(Duration.milliseconds(1));
+        policy = new RetryPolicy(configuration, metrics);
+    }
+
+    @Test
+    public void opensAfterFailuresInARow() {
+        failTimes(FAILURE_THRESHOLD - 1, 0);
+        assertThat(policy.getState(HOST)).isEqualTo(State.CLOSED);
+        assertThat(policy.allow(HOST, 0)).isTrue();
+
+        policy.failed(HOST, 0);
+        assertThat(policy.getState(HOST)).isEqualTo(State.OPEN);
+        assertThat(policy.allow(HOST, OPEN_MILLIS - 1)).isFalse();
+        assertThat(metrics.meter(MetricRegistry.name(RetryPolicy.class, HOST, "rejected")).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void successResetsTheCount() {
+        failTimes(FAILURE_THRESHOLD - 1, 0);
+        policy.succeeded(HOST);
+        failTimes(FAILURE_THRESHOLD - 1, 0);
+
+        assertThat(policy.getState(HOST)).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    public void halfOpenLetsOneRequestThrough() {
+        failTimes(FAILURE_THRESHOLD, 0);
+
+        assertThat(policy.allow(HOST, OPEN_MILLIS)).isTrue();
+        assertThat(policy.getState(HOST)).isEqualTo(State.HALF_OPEN);
+        assertThat(policy.allow(HOST, OPEN_MILLIS + 1)).isFalse();
+    }
+
+    @Test
+    public void halfOpenClosesOnSuccess() {
+        failTimes(FAILURE_THRESHOLD, 0);
+        policy.allow(HOST, OPEN_MILLIS);
+
+        policy.succeeded(HOST);
+
+        assertThat(policy.getState(HOST)).isEqualTo(State.CLOSED);
+        assertThat(policy.allow(HOST, OPEN_MILLIS + 1)).isTrue();
+    }
+
+    @Test
+    public void halfOpenReopensOnFailure() {
+        failTimes(FAILURE_THRESHOLD, 0);
+        policy.allow(HOST, OPEN_MILLIS);
+
+        policy.failed(HOST, OPEN_MILLIS);
+
+        assertThat(policy.getState(HOST)).isEqualTo(State.OPEN);
+        assertThat(policy.allow(HOST, 2 * OPEN_MILLIS - 1)).isFalse();
+        assertThat(policy.allow(HOST, 2 * OPEN_MILLIS)).isTrue();
+        assertThat(policy.getState(HOST)).isEqualTo(State.HALF_OPEN);
+    }
+
+    @Test
+    public void halfOpenTrialThatNeverReportsLetsAnotherThrough() {
+        failTimes(FAILURE_THRESHOLD, 0);
+        policy.allow(HOST, OPEN_MILLIS);
+
+        assertThat(policy.allow(HOST, 2 * OPEN_MILLIS)).isTrue();
+        assertThat(policy.getState(HOST)).isEqualTo(State.HALF_OPEN);
+    }
+
+    @Test
+    public void zeroThresholdNeverOpens() {
+        configuration.setFailureThreshold(0);
+        failTimes(100, 0);
+
+        assertThat(policy.getState(HOST)).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    public void hostsHaveTheirOwnBreaker() {
+        failTimes(FAILURE_THRESHOLD, 0);
+
+        assertThat(policy.allow("bitbucket.org", 0)).isTrue();
+        assertThat(policy.getState("bitbucket.org")).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    public void executeRetriesServerErrors() throws IOException {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final String result = policy.execute(HOST, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IOException("connection reset");
+            }
+            return "ok";
+        }, e -> true);
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(policy.getState(HOST)).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    public void executeDoesNotRetryClientErrors() {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> policy.execute(HOST, () -> {
+            attempts.incrementAndGet();
+            throw new IOException("not found");
+        }, e -> false)).hasMessage("not found");
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void executeFailsFastWhileOpen() {
+        failTimes(FAILURE_THRESHOLD, System.currentTimeMillis());
+        final AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> policy.execute(HOST, attempts::incrementAndGet, e -> true)).isInstanceOf(CircuitOpenException.class);
+        assertThat(attempts.get()).isZero();
+    }
+
+    @Test
+    public void openCircuitIsServiceUnavailable() {
+        final CustomWebApplicationException exception = new CircuitOpenException(HOST).toWebApplicationException();
+
+        assertThat(exception.getResponse().getStatus()).isEqualTo(HttpStatus.SC_SERVICE_UNAVAILABLE);
+    }
+
+    private void failTimes(int times, long now) {
+        for (int i = 0; i < times; i++) {
+            policy.failed(HOST, now);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.core.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares matching stored tags against registry tags by name with the nested loops that Helper.updateTags used to
+ * run and with Helper.reconcileTags. A tenth of the stored tags are gone from the registry and a tenth of the
+ * registry tags are new.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.mainClass=io.dockstore.webservice.helpers.TagReconciliationBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TagReconciliationBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    private int tags;
+
+    private List<Tag> storedTags;
+    private List<Tag> registryTags;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        final int changed = tags / 10;
+        storedTags = new ArrayList<>();
+        registryTags = new ArrayList<>();
+        for (int i = 0; i < tags; i++) {
+            storedTags.add(createTag("tag-" + i));
+            registryTags.add(createTag("tag-" + (i + changed)));
+        }
+    }
+
+    @Benchmark
+    public List<Tag> nestedLoops() {
+        List<Tag> toDelete = new ArrayList<>(0);
+        NestedLoopTagReconciliation.reconcileTags(storedTags, registryTags, toDelete);
+        return storedTags;
+    }
+
+    @Benchmark
+    public List<Tag> reconcileTags() {
+        List<Tag> toDelete = new ArrayList<>(0);
+        Helper.reconcileTags(storedTags, registryTags, toDelete);
+        return storedTags;
+    }
+
+    private static Tag createTag(String name) {
+        Tag tag = new Tag();
+        tag.setName(name);
+        tag.setReference("master");
+        tag.setImageId(name);
+        return tag;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TagReconciliationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.core.Tag;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that {@link Helper#reconcileTags(List, List, List)} leaves tags exactly as the nested loops it replaced did.
+ */
+public class TagReconciliationTest {
+
+    @Test
+    public void addsNewTags() {
+        assertSameAsNestedLoops(Arrays.asList("1.0"), Arrays.asList("1.0", "1.1", "latest"));
+    }
+
+    @Test
+    public void updatesExistingTags() {
+        assertSameAsNestedLoops(Arrays.asList("1.0", "latest"), Arrays.asList("latest", "1.0"));
+    }
+
+    @Test
+    public void deletesMissingTags() {
+        assertSameAsNestedLoops(Arrays.asList("1.0", "1.1", "latest"), Arrays.asList("latest"));
+    }
+
+    @Test
+    public void addsUpdatesAndDeletes() {
+        assertSameAsNestedLoops(Arrays.asList("0.9", "1.0", "develop", "latest"), Arrays.asList("latest", "1.1", "1.0", "master"));
+    }
+
+    @Test
+    public void emptyRegistryDeletesEverything() {
+        assertSameAsNestedLoops(Arrays.asList("1.0", "latest"), new ArrayList<>());
+    }
+
+    @Test
+    public void duplicateStoredTags() {
+        assertSameAsNestedLoops(Arrays.asList("latest", "1.0", "latest", "old", "old"), Arrays.asList("latest", "1.0"));
+    }
+
+    @Test
+    public void duplicateRegistryTags() {
+        assertSameAsNestedLoops(Arrays.asList("1.0"), Arrays.asList("1.0", "new", "1.0", "new"));
+    }
+
+    /**
+     * Reconcile the same stored and registry tags both ways and compare what the stored tags end up as: which of the
+     * original stored tags are kept, in which order, and the values they and the added copies hold.
+     */
+    private static void assertSameAsNestedLoops(List<String> storedNames, List<String> registryNames) {
+        final List<Tag> expectedStored = createTags(storedNames, "stored");
+        final List<Tag> expectedOriginals = new ArrayList<>(expectedStored);
+        final List<Tag> expectedDeleted = new ArrayList<>();
+        NestedLoopTagReconciliation.reconcileTags(expectedStored, createTags(registryNames, "registry"), expectedDeleted);
+
+        final List<Tag> actualStored = createTags(storedNames, "stored");
+        final List<Tag> actualOriginals = new ArrayList<>(actualStored);
+        final List<Tag> actualDeleted = new ArrayList<>();
+        Helper.reconcileTags(actualStored, createTags(registryNames, "registry"), actualDeleted);
+
+        assertThat(describe(actualStored, actualOriginals)).isEqualTo(describe(expectedStored, expectedOriginals));
+        assertThat(describe(actualDeleted, actualOriginals)).isEqualTo(describe(expectedDeleted, expectedOriginals));
+    }
+
+    /**
+     * @param names  tag names, a duplicate name gets a different image so updates from it can be told apart
+     * @param source what the image ids start with
+     */
+    private static List<Tag> createTags(List<String> names, String source) {
+        final List<Tag> tags = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            Tag tag = new Tag();
+            tag.setName(names.get(i));
+            tag.setReference(source + "-ref-" + i);
+            tag.setImageId(source + "-image-" + i);
+            tag.setSize(i);
+            tag.setAutomated(i % 2 == 0);
+            tag.setValid(i % 2 == 1);
+            tags.add(tag);
+        }
+        return tags;
+    }
+
+    private static List<String> describe(List<Tag> tags, List<Tag> originals) {
+        return tags.stream().map(tag -> {
+            int original = -1;
+            for (int i = 0; i < originals.size(); i++) {
+                if (originals.get(i) == tag) {
+                    original = i;
+                }
+            }
+            return (original < 0 ? "copy" : "stored#" + original) + ' ' + tag.getName() + ' ' + tag.getReference() + ' '
+                    + tag.getImageId() + ' ' + tag.getSize() + ' ' + tag.isAutomated() + ' ' + tag.isValid();
+        }).collect(Collectors.toList());
+    }
+}
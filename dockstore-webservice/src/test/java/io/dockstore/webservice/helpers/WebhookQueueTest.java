@@ -0,0 +1,154 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dropwizard.util.Duration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that bursts of push notifications are debounced into one refresh per branch, tag or image.
+ */
+public class WebhookQueueTest {
+
+    private static final long DEBOUNCE_MILLIS = 300;
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final RecordingWorker worker = new RecordingWorker();
+    private ScheduledExecutorService executor;
+    private WebhookQueue queue;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        queue = new WebhookQueue(worker, executor, Duration.milliseconds(DEBOUNCE_MILLIS));
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void burstIsRefreshedOnce() throws InterruptedException {
+        final WebhookEvent event = WebhookEvent.sourcePush("github.com", "user/repo", "master");
+        for (int i = 0; i < 5; i++) {
+            queue.submit(event);
+            Thread.sleep(DEBOUNCE_MILLIS / 6);
+        }
+        assertThat(queue.getPendingCount()).isEqualTo(1);
+
+        waitForRefreshes(1);
+        // long enough for a second refresh to show up if the burst was not coalesced
+        Thread.sleep(DEBOUNCE_MILLIS * 2);
+        assertThat(worker.getRefreshed()).containsExactly(event);
+        assertThat(queue.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void refreshWaitsUntilQuiet() throws InterruptedException {
+        final WebhookEvent event = WebhookEvent.sourcePush("github.com", "user/repo", "master");
+        final long start = System.currentTimeMillis();
+        queue.submit(event);
+        Thread.sleep(DEBOUNCE_MILLIS / 2);
+        final long lastSubmit = System.currentTimeMillis();
+        queue.submit(event);
+
+        waitForRefreshes(1);
+        assertThat(worker.getRefreshedAt().get(0) - lastSubmit).isGreaterThanOrEqualTo(DEBOUNCE_MILLIS);
+        assertThat(worker.getRefreshedAt().get(0) - start).isGreaterThanOrEqualTo(DEBOUNCE_MILLIS + DEBOUNCE_MILLIS / 2);
+    }
+
+    @Test
+    public void differentReferencesAreRefreshedSeparately() throws InterruptedException {
+        final WebhookEvent master = WebhookEvent.sourcePush("github.com", "user/repo", "master");
+        final WebhookEvent develop = WebhookEvent.sourcePush("github.com", "user/repo", "develop");
+        final WebhookEvent image = WebhookEvent.imagePush("quay.io", "user/repo");
+        queue.submit(master);
+        queue.submit(develop);
+        queue.submit(image);
+        queue.submit(master);
+        assertThat(queue.getPendingCount()).isEqualTo(3);
+
+        waitForRefreshes(3);
+        assertThat(worker.getRefreshed()).containsOnly(master, develop, image).hasSize(3);
+    }
+
+    @Test
+    public void pushAfterRefreshIsRefreshedAgain() throws InterruptedException {
+        final WebhookEvent event = WebhookEvent.sourcePush("github.com", "user/repo", "master");
+        queue.submit(event);
+        waitForRefreshes(1);
+        queue.submit(event);
+        waitForRefreshes(2);
+        assertThat(worker.getRefreshed()).containsExactly(event, event);
+    }
+
+    private void waitForRefreshes(int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (worker.getRefreshed().size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(DEBOUNCE_MILLIS / 10);
+        }
+        assertThat(worker.getRefreshed()).hasSize(count);
+    }
+
+    /**
+     * Records what would have been refreshed instead of going to the database
+     */
+    private static final class RecordingWorker extends WebhookWorker {
+
+        private final List<WebhookEvent> refreshed = Collections.synchronizedList(new ArrayList<>());
+        private final List<Long> refreshedAt = Collections.synchronizedList(new ArrayList<>());
+
+        RecordingWorker() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public List<Long> findEntries(WebhookEvent event) {
+            return Collections.singletonList(1L);
+        }
+
+        @Override
+        public void refresh(WebhookEvent event, long entryId) {
+            refreshedAt.add(System.currentTimeMillis());
+            refreshed.add(event);
+        }
+
+        List<WebhookEvent> getRefreshed() {
+            synchronized (refreshed) {
+                return new ArrayList<>(refreshed);
+            }
+        }
+
+        List<Long> getRefreshedAt() {
+            synchronized (refreshedAt) {
+                return new ArrayList<>(refreshedAt);
+            }
+        }
+    }
+}
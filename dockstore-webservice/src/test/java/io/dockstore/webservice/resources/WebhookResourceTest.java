@@ -0,0 +1,132 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.resources;
+
+import com.google.common.io.BaseEncoding;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.WebhookConfiguration;
+import io.dockstore.webservice.helpers.WebhookQueue;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.util.Duration;
+import org.apache.http.HttpStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.ws.rs.WebApplicationException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that push notifications are only accepted with the right signature or secret.
+ */
+public class WebhookResourceTest {
+
+    private static final String GITHUB_SECRET = "github-secret";
+    private static final String SECRET = "secret";
+    private static final String GITHUB_PAYLOAD = "{\"ref\":\"refs/heads/master\",\"repository\":{\"full_name\":\"user/repo\"}}";
+    private static final String QUAY_PAYLOAD = "{\"repository\":\"user/repo\"}";
+
+    private final WebhookConfiguration configuration = new WebhookConfiguration();
+    private ScheduledExecutorService executor;
+    private WebhookQueue queue;
+    private WebhookResource resource;
+
+    @Before
+    public void setUp() {
+        configuration.setGithubSecret(GITHUB_SECRET);
+        configuration.setSecret(SECRET);
+        executor = Executors.newSingleThreadScheduledExecutor();
+        // nothing is refreshed while a test runs, so the queue needs no worker
+        queue = new WebhookQueue(null, executor, Duration.hours(1));
+        resource = new WebhookResource(Jackson.newObjectMapper(), queue, configuration);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void validSignatureIsAccepted() throws GeneralSecurityException {
+        assertThat(resource.githubPush("push", sign(GITHUB_SECRET, GITHUB_PAYLOAD), GITHUB_PAYLOAD).getStatus())
+                .isEqualTo(HttpStatus.SC_ACCEPTED);
+        assertThat(queue.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void invalidSignatureIsForbidden() throws GeneralSecurityException {
+        final String wrongSecret = sign("wrong-secret", GITHUB_PAYLOAD);
+        assertStatus(HttpStatus.SC_FORBIDDEN, () -> resource.githubPush("push", wrongSecret, GITHUB_PAYLOAD));
+        final String signature = sign(GITHUB_SECRET, GITHUB_PAYLOAD);
+        final String tampered = GITHUB_PAYLOAD.replace("master", "develop");
+        assertStatus(HttpStatus.SC_FORBIDDEN, () -> resource.githubPush("push", signature, tampered));
+        assertThat(queue.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void missingSignatureIsForbidden() {
+        assertStatus(HttpStatus.SC_FORBIDDEN, () -> resource.githubPush("push", null, GITHUB_PAYLOAD));
+        assertStatus(HttpStatus.SC_FORBIDDEN, () -> resource.githubPush("push", "md5=0123", GITHUB_PAYLOAD));
+        assertThat(queue.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void missingGithubSecretIsNotFound() throws GeneralSecurityException {
+        final String signature = sign(GITHUB_SECRET, GITHUB_PAYLOAD);
+        configuration.setGithubSecret(null);
+        assertStatus(HttpStatus.SC_NOT_FOUND, () -> resource.githubPush("push", signature, GITHUB_PAYLOAD));
+        configuration.setGithubSecret("");
+        assertStatus(HttpStatus.SC_NOT_FOUND, () -> resource.githubPush("push", signature, GITHUB_PAYLOAD));
+    }
+
+    @Test
+    public void secretIsChecked() {
+        assertThat(resource.quayPush(SECRET, QUAY_PAYLOAD).getStatus()).isEqualTo(HttpStatus.SC_ACCEPTED);
+        assertStatus(HttpStatus.SC_FORBIDDEN, () -> resource.quayPush("wrong-secret", QUAY_PAYLOAD));
+        assertStatus(HttpStatus.SC_FORBIDDEN, () -> resource.quayPush(null, QUAY_PAYLOAD));
+        assertThat(queue.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void missingSecretIsNotFound() {
+        configuration.setSecret(null);
+        assertStatus(HttpStatus.SC_NOT_FOUND, () -> resource.quayPush(SECRET, QUAY_PAYLOAD));
+        assertStatus(HttpStatus.SC_NOT_FOUND, () -> resource.bitbucketPush(SECRET, "{}"));
+    }
+
+    private static String sign(String secret, String payload) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA1"));
+        return "sha1=" + BaseEncoding.base16().lowerCase().encode(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void assertStatus(int status, Runnable request) {
+        try {
+            request.run();
+            fail("expected status " + status);
+        } catch (WebApplicationException e) {
+            assertThat(e.getResponse().getStatus()).isEqualTo(status);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+-- The indexes of the lookup-indexes and published-entry-indexes changesets in migrations.xml, keep the two in step
+CREATE INDEX tool_path_toolname_idx ON tool (path, toolname);
+CREATE INDEX tool_giturl_idx ON tool (giturl);
+CREATE INDEX workflow_path_idx ON workflow (path);
+CREATE INDEX workflow_giturl_idx ON workflow (giturl);
+CREATE INDEX token_content_idx ON token (content);
+CREATE INDEX token_userid_tokensource_idx ON token (userid, tokensource);
+CREATE INDEX user_entry_userid_idx ON user_entry (userid);
+CREATE INDEX entry_label_labelid_idx ON entry_label (labelid);
+CREATE INDEX version_sourcefile_sourcefileid_idx ON version_sourcefile (sourcefileid);
+CREATE INDEX tool_published_idx ON tool (id) WHERE ispublished = true;
+CREATE INDEX tool_published_path_idx ON tool (path, toolname) WHERE ispublished = true;
+CREATE INDEX workflow_published_idx ON workflow (id) WHERE ispublished = true;
+CREATE INDEX workflow_published_path_idx ON workflow (path) WHERE ispublished = true;
+ANALYZE;
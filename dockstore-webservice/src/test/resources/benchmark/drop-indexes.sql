@@ -0,0 +1,14 @@
+-- Removes the indexes added by the lookup-indexes and published-entry-indexes changesets in migrations.xml
+DROP INDEX IF EXISTS tool_path_toolname_idx;
+DROP INDEX IF EXISTS tool_giturl_idx;
+DROP INDEX IF EXISTS workflow_path_idx;
+DROP INDEX IF EXISTS workflow_giturl_idx;
+DROP INDEX IF EXISTS token_content_idx;
+DROP INDEX IF EXISTS token_userid_tokensource_idx;
+DROP INDEX IF EXISTS user_entry_userid_idx;
+DROP INDEX IF EXISTS entry_label_labelid_idx;
+DROP INDEX IF EXISTS version_sourcefile_sourcefileid_idx;
+DROP INDEX IF EXISTS tool_published_idx;
+DROP INDEX IF EXISTS tool_published_path_idx;
+DROP INDEX IF EXISTS workflow_published_idx;
+DROP INDEX IF EXISTS workflow_published_path_idx;
@@ -0,0 +1,33 @@
+-- The lookups behind the named queries, with parameters that exist in the seeded data. Each statement is explained with
+-- its actual execution, the "Execution Time" line is the latency of that run.
+
+-- Tool.findByToolPath
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM tool WHERE path = 'quay.io/namespace2345/tool12345' AND toolname = '';
+-- Tool.findPublishedByToolPath
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM tool WHERE path = 'quay.io/namespace2346/tool12346' AND toolname = '' AND ispublished = true;
+-- Tool.findByGitUrl
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM tool WHERE giturl = 'git@github.com:namespace2345/tool12345.git';
+-- Tool.findAllPublished, first page in id order
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM tool WHERE ispublished = true ORDER BY id LIMIT 100;
+-- Tool.findAllPublished
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM tool WHERE ispublished = true;
+-- Workflow.findByPath
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM workflow WHERE path = 'github.com/organization2345/workflow62345';
+-- Workflow.findPublishedByPath
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM workflow WHERE path = 'github.com/organization2346/workflow62346' AND ispublished = true;
+-- Workflow.findByGitUrl
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM workflow WHERE giturl = 'git@github.com:organization2345/workflow62345.git';
+-- Workflow.findAllPublished, first page in id order
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM workflow WHERE ispublished = true ORDER BY id LIMIT 100;
+-- Token.findByContent, run for every authenticated request whose token is not cached
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM token WHERE content = md5('500:2');
+-- Token.findGithubByUserId
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM token WHERE userid = 500 AND tokensource = 'github.com';
+-- Label.findByLabelValue
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM label WHERE value = 'label42';
+-- entries of a user, User.entries
+EXPLAIN (ANALYZE, BUFFERS) SELECT entryid FROM user_entry WHERE userid = 500;
+-- entries with a label
+EXPLAIN (ANALYZE, BUFFERS) SELECT entryid FROM entry_label WHERE labelid = 42;
+-- the version of a source file, looked up when an orphaned source file is deleted
+EXPLAIN (ANALYZE, BUFFERS) SELECT versionid FROM version_sourcefile WHERE sourcefileid = 123456;
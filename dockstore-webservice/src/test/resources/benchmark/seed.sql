@@ -0,0 +1,61 @@
+-- Seeds 100,000 entries (50,000 tools and 50,000 workflows) with two versions each, one source file per version, 1,000 users
+-- with three tokens each and 200 labels. Four out of five entries are published.
+-- Run against a scratch database whose schema was created by the webservice, everything in these tables is replaced.
+
+TRUNCATE tool, workflow, tag, workflowversion, sourcefile, label, enduser, token,
+    tool_tag, workflow_workflowversion, version_sourcefile, entry_label, user_entry CASCADE;
+
+INSERT INTO enduser (id, username, isadmin)
+SELECT u, 'user' || u, false FROM generate_series(1, 1000) u;
+
+INSERT INTO token (id, tokensource, content, username, userid)
+SELECT (u - 1) * 3 + s, (ARRAY['dockstore', 'github.com', 'quay.io'])[s], md5(u || ':' || s), 'user' || u, u
+FROM generate_series(1, 1000) u, generate_series(1, 3) s;
+
+INSERT INTO label (id, value)
+SELECT l, 'label' || l FROM generate_series(1, 200) l;
+
+INSERT INTO tool (id, name, namespace, registry, toolname, path, giturl, ispublished, validtrigger, mode, description, author,
+    defaultdockerfilepath, defaultcwlpath, defaultwdlpath)
+SELECT t, 'tool' || t, 'namespace' || (t % 5000), 'QUAY_IO', '', 'quay.io/namespace' || (t % 5000) || '/tool' || t,
+    'git@github.com:namespace' || (t % 5000) || '/tool' || t || '.git', t % 5 <> 0, true, 'AUTO_DETECT_QUAY_TAGS_AUTOMATED_BUILDS',
+    'A tool that does thing number ' || t, 'author' || (t % 1000), '/Dockerfile', '/Dockstore.cwl', '/Dockstore.wdl'
+FROM generate_series(1, 50000) t;
+
+INSERT INTO workflow (id, organization, repository, workflowname, path, giturl, ispublished, mode, descriptortype, description, author,
+    defaultworkflowpath)
+SELECT w, 'organization' || (w % 5000), 'workflow' || w, NULL, 'github.com/organization' || (w % 5000) || '/workflow' || w,
+    'git@github.com:organization' || (w % 5000) || '/workflow' || w || '.git', w % 5 <> 0, 'FULL', 'cwl',
+    'A workflow that does thing number ' || w, 'author' || (w % 1000), '/Dockstore.cwl'
+FROM generate_series(50001, 100000) w;
+
+-- tags and workflow versions take ids 2 * entry and 2 * entry + 1, source files the same ids as their version
+INSERT INTO tag (id, name, reference, hidden, valid, automated, size, imageid, dockerfilepath, cwlpath, wdlpath)
+SELECT v, CASE WHEN v % 2 = 0 THEN 'latest' ELSE '1.0' END, 'master', false, true, true, 1000000, md5(v::text),
+    '/Dockerfile', '/Dockstore.cwl', '/Dockstore.wdl'
+FROM generate_series(2, 100001) v;
+
+INSERT INTO tool_tag (toolid, tagid)
+SELECT v / 2, v FROM generate_series(2, 100001) v;
+
+INSERT INTO workflowversion (id, name, reference, hidden, valid, workflowpath)
+SELECT v, CASE WHEN v % 2 = 0 THEN 'master' ELSE 'develop' END, 'master', false, true, '/Dockstore.cwl'
+FROM generate_series(100002, 200001) v;
+
+INSERT INTO workflow_workflowversion (workflowid, workflowversionid)
+SELECT v / 2, v FROM generate_series(100002, 200001) v;
+
+INSERT INTO sourcefile (id, type, path, content)
+SELECT v, 'DOCKSTORE_CWL', '/Dockstore.cwl', repeat('cwlVersion: v1.0 ', 100)
+FROM generate_series(2, 200001) v;
+
+INSERT INTO version_sourcefile (versionid, sourcefileid)
+SELECT v, v FROM generate_series(2, 200001) v;
+
+INSERT INTO user_entry (entryid, userid)
+SELECT e, e % 1000 + 1 FROM generate_series(1, 100000) e;
+
+INSERT INTO entry_label (entryid, labelid)
+SELECT e, (e + l) % 200 + 1 FROM generate_series(1, 100000) e, generate_series(0, 1) l;
+
+ANALYZE;